@@ -0,0 +1,121 @@
+package io.github.mcengine.common.essential.benchmark;
+
+import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialWrite;
+import io.github.mcengine.common.essential.database.mysql.MCEngineEssentialMySQL;
+import io.github.mcengine.common.essential.database.postgresql.MCEngineEssentialPostgreSQL;
+import io.github.mcengine.common.essential.database.sqlite.MCEngineEssentialSQLite;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Opens the Essential backends for benchmarking without a server or a network database.
+ * <p>
+ * SQLite runs against a database file in a temp directory. MySQL and PostgreSQL run
+ * their real implementations against an in-memory H2 database in the matching
+ * compatibility mode (through {@code database.<type>.jdbc-url}), so the numbers measure
+ * the Essential layer (pooling, statement caching, binding, decoding) rather than a
+ * network round trip.
+ */
+final class MCEngineEssentialBenchmarkBackends {
+
+    /** Rows seeded into {@code bench_kv}. */
+    static final int ROWS = 10_000;
+
+    private MCEngineEssentialBenchmarkBackends() {
+    }
+
+    /**
+     * Opens a backend in a fresh temp directory and creates the benchmark tables.
+     *
+     * @param type    {@code sqlite}, {@code mysql} or {@code postgresql}
+     * @param dataDir plugin data folder for the run
+     * @return opened backend
+     */
+    static IMCEngineEssentialDB open(String type, Path dataDir) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("database.type", type);
+        String h2 = "jdbc:h2:mem:essential-" + type + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        IMCEngineEssentialDB db = switch (type) {
+            case "sqlite" -> {
+                config.set("database.sqlite.path", "bench.db");
+                yield new MCEngineEssentialSQLite(plugin(config, dataDir.toFile()));
+            }
+            case "mysql" -> {
+                config.set("database.mysql.jdbc-url", h2 + ";MODE=MySQL");
+                config.set("database.mysql.user", "sa");
+                yield new MCEngineEssentialMySQL(plugin(config, dataDir.toFile()));
+            }
+            case "postgresql" -> {
+                config.set("database.postgresql.jdbc-url", h2 + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+                config.set("database.postgresql.user", "sa");
+                yield new MCEngineEssentialPostgreSQL(plugin(config, dataDir.toFile()));
+            }
+            default -> throw new IllegalArgumentException("Unknown backend: " + type);
+        };
+
+        db.executeQuery("CREATE TABLE bench_kv (id INTEGER PRIMARY KEY, v BIGINT NOT NULL, name VARCHAR(64))");
+        db.executeQuery("CREATE TABLE bench_log (id BIGINT NOT NULL, v BIGINT NOT NULL)");
+        List<MCEngineEssentialWrite> seed = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            seed.add(new MCEngineEssentialWrite("INSERT INTO bench_kv (id, v, name) VALUES (?, ?, ?)",
+                    i, (long) i * 31, "player-" + i));
+        }
+        db.executeBatch(seed);
+        return db;
+    }
+
+    /**
+     * Creates a temp directory for one benchmark run.
+     *
+     * @return new directory
+     */
+    static Path tempDir() {
+        try {
+            return Files.createTempDirectory("essential-jmh");
+        } catch (IOException e) {
+            throw new RuntimeException("Benchmark temp directory failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes a temp directory created by {@link #tempDir()}.
+     *
+     * @param dir directory to delete
+     */
+    static void delete(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {
+            // best effort; the OS cleans the temp dir eventually
+        }
+    }
+
+    /** Minimal {@link Plugin} exposing only what the backends read. */
+    private static Plugin plugin(YamlConfiguration config, File dataFolder) {
+        Logger logger = Logger.getLogger("MCEngineEssential-jmh");
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getConfig" -> config;
+                    case "getLogger" -> logger;
+                    case "getDataFolder" -> dataFolder;
+                    case "getName" -> "MCEngineEssentialBenchmark";
+                    case "isEnabled" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "MCEngineEssentialBenchmarkPlugin";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.mcengine.common.essential.benchmark;
+
+import io.github.mcengine.common.essential.database.MCEngineEssentialTypeCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion cost of {@link MCEngineEssentialTypeCodec} (the replacement for the old
+ * {@code coerce}) on a result set already positioned on a row, isolated from query
+ * execution. The raw typed getter is included as the floor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MCEngineEssentialCodecBenchmark {
+
+    private Connection connection;
+    private ResultSet row;
+    private PreparedStatement bindTarget;
+    private Object[] params;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:essential-codec");
+        row = connection.createStatement().executeQuery(
+                "SELECT CAST(42 AS BIGINT), 'player-42', 1, '" + UUID.randomUUID() + "'");
+        row.next();
+        bindTarget = connection.prepareStatement("SELECT ?, ?, ?, ?");
+        params = new Object[]{42L, "player-42", Boolean.TRUE, UUID.randomUUID()};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /** Floor: the driver's typed getter plus the null check. */
+    @Benchmark
+    public long rawGetLong() throws SQLException {
+        long v = row.getLong(1);
+        return row.wasNull() ? -1L : v;
+    }
+
+    @Benchmark
+    public Long readLong() throws SQLException {
+        return MCEngineEssentialTypeCodec.read(row, 1, Long.class);
+    }
+
+    @Benchmark
+    public String readString() throws SQLException {
+        return MCEngineEssentialTypeCodec.read(row, 2, String.class);
+    }
+
+    /** Boolean stored as {@code 1}, the SQLite/MySQL representation. */
+    @Benchmark
+    public boolean readBoolean() throws SQLException {
+        return MCEngineEssentialTypeCodec.readBoolean(row, 3, false);
+    }
+
+    /** UUID stored as text, going through the registered reader. */
+    @Benchmark
+    public UUID readUuid() throws SQLException {
+        return MCEngineEssentialTypeCodec.read(row, 4, UUID.class);
+    }
+
+    /** Binding a mix of typed-setter and registered-writer parameters. */
+    @Benchmark
+    public PreparedStatement bind() throws SQLException {
+        MCEngineEssentialTypeCodec.bind(bindTarget, params);
+        return bindTarget;
+    }
+}
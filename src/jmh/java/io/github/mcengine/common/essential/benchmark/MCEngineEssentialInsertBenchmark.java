@@ -0,0 +1,80 @@
+package io.github.mcengine.common.essential.benchmark;
+
+import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialWrite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert cost per row: one statement (and one commit) per row versus
+ * {@code executeBatch} with {@value #BATCH} rows per transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MCEngineEssentialInsertBenchmark {
+
+    /** Rows per batched invocation. */
+    private static final int BATCH = 100;
+
+    private static final String INSERT = "INSERT INTO bench_log (id, v) VALUES (?, ?)";
+
+    /** Backend under test. */
+    @Param({"sqlite", "mysql", "postgresql"})
+    public String backend;
+
+    private Path dataDir;
+    private IMCEngineEssentialDB db;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataDir = MCEngineEssentialBenchmarkBackends.tempDir();
+        db = MCEngineEssentialBenchmarkBackends.open(backend, dataDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+        MCEngineEssentialBenchmarkBackends.delete(dataDir);
+    }
+
+    /** Empties the log table so every iteration inserts into a table of similar size. */
+    @Setup(Level.Iteration)
+    public void truncate() {
+        db.executeQuery("DELETE FROM bench_log");
+    }
+
+    /** One auto-committed statement per row. */
+    @Benchmark
+    public void singleInsert() {
+        long id = next++;
+        db.executeQuery(INSERT, id, id * 7);
+    }
+
+    /** {@value #BATCH} rows in one JDBC batch and transaction; reported per row. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batchedInsert() {
+        List<MCEngineEssentialWrite> writes = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            long id = next++;
+            writes.add(new MCEngineEssentialWrite(INSERT, id, id * 7));
+        }
+        db.executeBatch(writes);
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.mcengine.common.essential.benchmark;
+
+import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar read throughput per backend, single-threaded and with concurrent callers
+ * sharing the pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MCEngineEssentialScalarReadBenchmark {
+
+    /** Backend under test. */
+    @Param({"sqlite", "mysql", "postgresql"})
+    public String backend;
+
+    private Path dataDir;
+    private IMCEngineEssentialDB db;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataDir = MCEngineEssentialBenchmarkBackends.tempDir();
+        db = MCEngineEssentialBenchmarkBackends.open(backend, dataDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+        MCEngineEssentialBenchmarkBackends.delete(dataDir);
+    }
+
+    /** Boxed lookup through {@code getValue} with a bound parameter. */
+    @Benchmark
+    @Threads(1)
+    public Long getValue() {
+        return db.getValue("SELECT v FROM bench_kv WHERE id = ?", Long.class, randomId());
+    }
+
+    /** Primitive lookup through {@code getLong}. */
+    @Benchmark
+    @Threads(1)
+    public long getLong() {
+        return db.getLong("SELECT v FROM bench_kv WHERE id = ?", -1L, randomId());
+    }
+
+    /** Text lookup through {@code getValue}. */
+    @Benchmark
+    @Threads(1)
+    public String getString() {
+        return db.getValue("SELECT name FROM bench_kv WHERE id = ?", String.class, randomId());
+    }
+
+    /** Unparameterized lookup through the plain-statement {@code getValue}. */
+    @Benchmark
+    @Threads(1)
+    public Long getValueUnprepared() {
+        return db.getValue("SELECT v FROM bench_kv WHERE id = " + randomId(), Long.class);
+    }
+
+    /** Primitive lookup from eight threads competing for pooled connections. */
+    @Benchmark
+    @Threads(8)
+    public long getLongContended() {
+        return db.getLong("SELECT v FROM bench_kv WHERE id = ?", -1L, randomId());
+    }
+
+    /** Boxed lookup from eight threads competing for pooled connections. */
+    @Benchmark
+    @Threads(8)
+    public Long getValueContended() {
+        return db.getValue("SELECT v FROM bench_kv WHERE id = ?", Long.class, randomId());
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(MCEngineEssentialBenchmarkBackends.ROWS);
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.mcengine.common.essential.benchmark;
+
+import io.github.mcengine.common.essential.command.MCEngineEssentialCommandRouter;
+import io.github.mcengine.common.essential.command.MCEngineEssentialCommandTrie;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tab completion latency as a namespace grows: a linear scan over a subcommand map (what a
+ * plain map-based dispatcher does on every keystroke) versus the prefix trie and the
+ * memoizing {@link MCEngineEssentialCommandRouter}, for both the subcommand label and a
+ * player-name argument. Each invocation replays one word typed a character at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MCEngineEssentialTabCompleteBenchmark {
+
+    /** Keystrokes of a label being typed; reported per word. */
+    private static final String[] TYPED = {"", "s", "su", "sub", "sub1", "sub12"};
+
+    /** Names offered by the player-name argument. */
+    private static final int PLAYERS = 500;
+
+    /** Registered subcommands. */
+    @Param({"10", "100", "1000"})
+    public int subcommands;
+
+    private Map<String, Object> map;
+    private MCEngineEssentialCommandTrie<Object> trie;
+    private MCEngineEssentialCommandRouter uncached;
+    private MCEngineEssentialCommandRouter memoized;
+    private CommandSender sender;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = new HashMap<>();
+        trie = new MCEngineEssentialCommandTrie<>();
+        uncached = new MCEngineEssentialCommandRouter(() -> null);
+        memoized = new MCEngineEssentialCommandRouter(() -> null);
+        List<String> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) players.add("player" + i);
+        for (int i = 0; i < subcommands; i++) {
+            String name = "sub" + i;
+            map.put(name, name);
+            trie.put(name, name);
+            uncached.register(name, (s, c, l, a) -> true, "perm." + (i % 4));
+            memoized.register(name, (s, c, l, a) -> true, "perm." + (i % 4));
+        }
+        uncached.setCompleter("sub1", (s, c, l, a) -> startingWith(players, a[a.length - 1]), 0L);
+        memoized.setCompleter("sub1", (s, c, l, a) -> startingWith(players, a[a.length - 1]), 5_000L);
+        sender = (CommandSender) Proxy.newProxyInstance(CommandSender.class.getClassLoader(),
+                new Class<?>[]{CommandSender.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "hasPermission", "isOp" -> Boolean.TRUE;
+                    case "getName" -> "bench";
+                    default -> null;
+                });
+    }
+
+    /** Baseline: filter and sort every label on each keystroke. */
+    @Benchmark
+    public int labelLinearScan() {
+        int n = 0;
+        for (String typed : TYPED) {
+            List<String> out = new ArrayList<>();
+            for (String label : map.keySet()) {
+                if (label.regionMatches(true, 0, typed, 0, typed.length())) out.add(label);
+            }
+            Collections.sort(out);
+            n += out.size();
+        }
+        return n;
+    }
+
+    /** Prefix trie walk, no memo. */
+    @Benchmark
+    public int labelTrie() {
+        int n = 0;
+        for (String typed : TYPED) n += trie.complete(typed, v -> true).size();
+        return n;
+    }
+
+    /** Router with permission filtering and the completion memo. */
+    @Benchmark
+    public int labelRouter() {
+        int n = 0;
+        for (String typed : TYPED) n += memoized.onTabComplete(sender, null, "bench", new String[]{typed}).size();
+        return n;
+    }
+
+    /** Player-name argument recomputed on every keystroke. */
+    @Benchmark
+    public int argumentUncached() {
+        return completeArgument(uncached);
+    }
+
+    /** Player-name argument served from the memo after the first keystroke. */
+    @Benchmark
+    public int argumentMemoized() {
+        return completeArgument(memoized);
+    }
+
+    private int completeArgument(MCEngineEssentialCommandRouter router) {
+        int n = 0;
+        for (String typed : new String[]{"", "p", "pl", "player", "player4", "player42"}) {
+            n += router.onTabComplete(sender, null, "bench", new String[]{"sub1", typed}).size();
+        }
+        return n;
+    }
+
+    private static List<String> startingWith(List<String> names, String prefix) {
+        String p = prefix.toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>();
+        for (String name : names) if (name.startsWith(p)) out.add(name);
+        return out;
+    }
+}
@@ -1,14 +1,49 @@
 package io.github.mcengine.common.essential;
 
 import io.github.mcengine.api.core.util.MCEngineCoreApiDispatcher;
+import io.github.mcengine.common.essential.command.MCEngineEssentialAsyncTabCompleter;
+import io.github.mcengine.common.essential.command.MCEngineEssentialCommandRouter;
+import io.github.mcengine.common.essential.command.MCEngineEssentialDBStatsCommand;
+import io.github.mcengine.common.essential.command.MCEngineEssentialMigrateCommand;
+import io.github.mcengine.common.essential.counter.MCEngineEssentialCounter;
+import io.github.mcengine.common.essential.counter.MCEngineEssentialCounterStore;
 import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
-import io.github.mcengine.common.essential.database.mysql.MCEngineEssentialMySQL;
-import io.github.mcengine.common.essential.database.postgresql.MCEngineEssentialPostgreSQL;
-import io.github.mcengine.common.essential.database.sqlite.MCEngineEssentialSQLite;
+import io.github.mcengine.common.essential.database.MCEngineEssentialCachingDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeBus;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeListener;
+import io.github.mcengine.common.essential.database.MCEngineEssentialDBExecutor;
+import io.github.mcengine.common.essential.database.MCEngineEssentialIsolation;
+import io.github.mcengine.common.essential.database.MCEngineEssentialJdbcDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialMetricsDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialRowMapper;
+import io.github.mcengine.common.essential.database.MCEngineEssentialSingleFlightDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialTransactionWork;
+import io.github.mcengine.common.essential.database.MCEngineEssentialWriteBehindQueue;
+import io.github.mcengine.common.essential.session.MCEngineEssentialPlayerSession;
+import io.github.mcengine.common.essential.session.MCEngineEssentialPlayerSessionCache;
+import io.github.mcengine.common.essential.session.MCEngineEssentialPlayerTable;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.plugin.Plugin;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 /**
  * The {@code MCEngineEssentialCommon} class provides a lightweight facade for
  * shared "Essential" features. It wires a Bukkit {@link Plugin} instance to the
@@ -17,26 +52,71 @@ import org.bukkit.plugin.Plugin;
  * <p>
  * Additionally, this class initializes and exposes database helpers via a minimal
  * interface. The database backend is selected using {@code database.type}
- * with support for {@code sqlite} (default), {@code mysql}, and {@code postgresql}.
+ * with support for {@code sqlite} (default), {@code mysql}, {@code postgresql}, and the
+ * in-process {@code memory} store.
+ * Connections are opened in the background, so constructing this class never waits on
+ * the database; see {@link #getReadyFuture()}. Plugins configured for the same database
+ * share one connection pool, statement cache and DB executor; see {@link MCEngineEssentialDBRuntime}.
  *
  * <p>Usage pattern:
  * <pre>{@code
  *   MCEngineEssentialCommon essential = new MCEngineEssentialCommon(plugin);
  *   essential.registerNamespace("essential");
  *   essential.registerSubCommand("essential", "ping", new PingCommand());
+ *   essential.registerSubCommand("essential", "teleport", new TeleportCommand(), "essential.teleport", "tp");
+ *   essential.registerSubTabCompleter("essential", "teleport", new OnlinePlayerCompleter(), 1_000L);
  *   plugin.getCommand("essential").setExecutor(essential.getDispatcher("essential"));
  *
  *   // DB usage (helpers)
  *   essential.executeQuery("CREATE TABLE IF NOT EXISTS example(id INTEGER PRIMARY KEY)");
  *   Integer count = essential.getValue("SELECT COUNT(*) FROM example", Integer.class);
+ *   Double balance = essential.getValue("SELECT balance FROM eco WHERE uuid = ?", Double.class, uuid.toString());
+ *
+ *   // Off the main thread, result handled back on it
+ *   essential.getValueAsync("SELECT COUNT(*) FROM example", Integer.class)
+ *            .thenAcceptAsync(n -> player.sendMessage("Rows: " + n), essential.getMainThreadExecutor());
+ *
+ *   // Several statements, committed together or not at all
+ *   essential.inTransaction(tx -> {
+ *       tx.executeQuery("UPDATE eco SET balance = balance - ? WHERE uuid = ?", amount, from);
+ *       tx.executeQuery("UPDATE eco SET balance = balance + ? WHERE uuid = ?", amount, to);
+ *       return null;
+ *   });
+ *
+ *   // Per-statement latency: /essential dbstats [sort] [limit] | export [file] | reset
+ *   essential.registerDBStatsCommand("essential");
+ *
+ *   // Move data between backends or dump files: /essential migrate to <type> | export | import <file>
+ *   essential.registerMigrateCommand("essential");
+ *
+ *   // Per-player rows loaded at pre-login and written back in batches (database.sessions.enabled)
+ *   essential.registerPlayerTable(new MCEngineEssentialPlayerTable("eco", "uuid", Map.of("balance", Double.class)));
+ *   double balance = essential.getPlayerSession(uuid).get("eco", "balance", Double.class, 0.0);
+ *
+ *   // Hot counters added in memory and written as batched upserts (database.counters.enabled)
+ *   essential.incrementCounter("stats", "kills:" + uuid, 1);
+ *   long kills = essential.getCounterValue("stats", "kills:" + uuid);
+ *
+ *   // Cooldowns in process, snapshotted to disk (database.memory.tier or database.type: memory)
+ *   essential.getMemoryDB().executeQuery("INSERT OR REPLACE INTO cooldowns VALUES (?, ?)", uuid.toString(), until);
+ *
+ *   // Other servers on the same database (database.invalidation.enabled)
+ *   essential.subscribeChanges(changes -> changes.forEach(c -> myCache.invalidate(c.table(), c.key())));
+ *   essential.publishChange("homes", uuid.toString());
+ *
+ *   // Run once the database is reachable
+ *   essential.getReadyFuture().thenRunAsync(this::loadData, essential.getMainThreadExecutor());
+ *
+ *   // onDisable()
+ *   essential.close();
  * }</pre>
  */
 public class MCEngineEssentialCommon {
 
     /**
-     * Singleton instance of the Essentials common API.
+     * Open API instances, one per constructing plugin, in construction order.
      */
-    private static MCEngineEssentialCommon instance;
+    private static final List<MCEngineEssentialCommon> APIS = new CopyOnWriteArrayList<>();
 
     /**
      * The Bukkit plugin instance that owns and initializes this API.
@@ -51,40 +131,183 @@ public class MCEngineEssentialCommon {
      */
     private final MCEngineCoreApiDispatcher dispatcher;
 
+    /**
+     * Trie-based routers per namespace, handing unknown subcommands to {@link #dispatcher}.
+     */
+    private final Map<String, MCEngineEssentialCommandRouter> routers = new ConcurrentHashMap<>();
+
+    /**
+     * Database runtime shared with the other plugins configured for the same database.
+     * Holds the backend, its decorators, the DB executor and the change bus.
+     */
+    private final MCEngineEssentialDBRuntime runtime;
+
     /**
      * Database interface used by the Essential module.
      * <p>
      * The concrete implementation is selected from config ({@code database.type})
-     * and created during construction.
+     * and wrapped in the metrics recorder and the optional read-through cache by the
+     * shared {@link #runtime}.
      */
     private final IMCEngineEssentialDB db;
 
+    /**
+     * Backend selected by {@code database.type}, below every decorator.
+     */
+    private final MCEngineEssentialJdbcDB backend;
+
+    /**
+     * Configured backend type ({@code database.type}), lower-cased.
+     */
+    private final String dbType;
+
+    /**
+     * Per-statement metrics recorded around the backend ({@code database.metrics.enabled});
+     * {@code null} when disabled. Sits below the cache, so it measures database work only.
+     */
+    private final MCEngineEssentialMetricsDB metrics;
+
+    /**
+     * Collapses identical concurrent reads into one query ({@code database.single-flight.enabled});
+     * {@code null} when disabled. Sits below the cache, so only cache misses are collapsed.
+     */
+    private final MCEngineEssentialSingleFlightDB singleFlight;
+
+    /**
+     * Read-through cache wrapped around the backend ({@code database.cache.enabled});
+     * {@code null} when disabled.
+     */
+    private final MCEngineEssentialCachingDB cache;
+
+    /**
+     * Bounded executor running the asynchronous database helpers
+     * (configured under {@code database.executor.*}), shared through the {@link #runtime}.
+     */
+    private final MCEngineEssentialDBExecutor dbExecutor;
+
+    /**
+     * Tasks this API submitted to {@link #dbExecutor} that have not completed;
+     * {@link #close()} waits for them, as the executor may outlive this plugin.
+     */
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Optional write-behind queue ({@code database.write-behind.enabled});
+     * {@code null} when disabled.
+     */
+    private final MCEngineEssentialWriteBehindQueue writeBehind;
+
+    /**
+     * Optional cross-server change notifications ({@code database.invalidation.enabled});
+     * {@code null} when disabled.
+     */
+    private final MCEngineEssentialChangeBus changeBus;
+
+    /**
+     * Listeners this plugin added to {@link #changeBus}, removed on {@link #close()}.
+     */
+    private final List<MCEngineEssentialChangeListener> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Optional player session cache ({@code database.sessions.enabled});
+     * {@code null} when disabled.
+     */
+    private final MCEngineEssentialPlayerSessionCache sessions;
+
+    /**
+     * Optional persistent counters ({@code database.counters.enabled});
+     * {@code null} when disabled.
+     */
+    private final MCEngineEssentialCounterStore counters;
+
+    /**
+     * Completed once the backend has reached its database and, if enabled, finished
+     * its warm-up: {@code database.warm-up.enabled} (default: {@code false}),
+     * {@code database.warm-up.connections} per pool (default: {@code 0}, the pool minimum)
+     * and {@code database.warm-up.statements} (SQL prepared on every connection).
+     */
+    private final CompletableFuture<Void> readyFuture;
+
+    /**
+     * Executor that runs tasks on the server's primary thread, used to hand
+     * asynchronous results back to Bukkit API code.
+     */
+    private final Executor mainThreadExecutor;
+
+    /**
+     * Set by {@link #close()}, so the runtime is released once.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
     /**
      * Constructs the Essential API and prepares the internal dispatcher and database.
+     * The database runtime is shared with the plugins already using the same database.
      *
      * @param plugin the Bukkit {@link Plugin} instance bootstrapping this API
      */
     public MCEngineEssentialCommon(Plugin plugin) {
-        instance = this;
         this.plugin = plugin;
         this.dispatcher = new MCEngineCoreApiDispatcher();
 
-        String dbType = plugin.getConfig().getString("database.type", "sqlite").toLowerCase();
-        switch (dbType) {
-            case "sqlite" -> this.db = new MCEngineEssentialSQLite(plugin);
-            case "mysql" -> this.db = new MCEngineEssentialMySQL(plugin);
-            case "postgresql" -> this.db = new MCEngineEssentialPostgreSQL(plugin);
-            default -> throw new IllegalArgumentException("Unsupported database type: " + dbType);
+        this.runtime = MCEngineEssentialDBRuntime.acquire(plugin);
+        this.dbType = runtime.getDatabaseType();
+        this.backend = runtime.getBackend();
+        this.metrics = runtime.getMetrics();
+        this.singleFlight = runtime.getSingleFlight();
+        this.cache = runtime.getCache();
+        this.db = runtime.getDB();
+        this.dbExecutor = runtime.getExecutor();
+        this.changeBus = runtime.getChangeBus();
+        this.readyFuture = runtime.getReadyFuture();
+
+        this.writeBehind = plugin.getConfig().getBoolean("database.write-behind.enabled", false)
+                ? MCEngineEssentialWriteBehindQueue.fromConfig(plugin.getConfig(), db, plugin.getLogger())
+                : null;
+        // Sessions and counters publish their changes per row, so they bypass the cache's
+        // whole-table publishing and its reads.
+        IMCEngineEssentialDB owned = cache != null ? cache.unpublished() : db;
+        this.sessions = plugin.getConfig().getBoolean("database.sessions.enabled", false)
+                ? MCEngineEssentialPlayerSessionCache.fromConfig(plugin.getConfig(), owned, dbType, dbExecutor,
+                        plugin.getLogger())
+                : null;
+        if (sessions != null) Bukkit.getPluginManager().registerEvents(sessions, plugin);
+        this.counters = plugin.getConfig().getBoolean("database.counters.enabled", false)
+                ? MCEngineEssentialCounterStore.fromConfig(plugin.getConfig(), owned, dbType, plugin.getLogger())
+                : null;
+        if (changeBus != null) {
+            if (sessions != null) sessions.connect(changeBus);
+            if (counters != null) counters.connect(changeBus);
         }
+        this.mainThreadExecutor = task -> {
+            if (Bukkit.isPrimaryThread()) task.run();
+            else Bukkit.getScheduler().runTask(plugin, task);
+        };
+        APIS.add(this);
     }
 
     /**
-     * Returns the global API singleton instance.
+     * Returns the most recently constructed API instance that is still open. With several
+     * plugins using this module, prefer {@link #getApi(Plugin)}.
      *
-     * @return the {@link MCEngineEssentialCommon} instance
+     * @return the {@link MCEngineEssentialCommon} instance, or {@code null} if none is open
      */
     public static MCEngineEssentialCommon getApi() {
-        return instance;
+        MCEngineEssentialCommon latest = null;
+        for (MCEngineEssentialCommon api : APIS) latest = api;
+        return latest;
+    }
+
+    /**
+     * Returns the open API instance constructed by a plugin.
+     *
+     * @param plugin owning plugin
+     * @return the {@link MCEngineEssentialCommon} instance, or {@code null} if the plugin has none open
+     */
+    public static MCEngineEssentialCommon getApi(Plugin plugin) {
+        for (MCEngineEssentialCommon api : APIS) {
+            if (api.plugin == plugin) return api;
+        }
+        return null;
     }
 
     /**
@@ -103,10 +326,12 @@ public class MCEngineEssentialCommon {
      */
     public void registerNamespace(String namespace) {
         dispatcher.registerNamespace(namespace);
+        router(namespace);
     }
 
     /**
      * Binds a Bukkit command (e.g., {@code /essential}) to the internal dispatcher.
+     * The executor receives any subcommand the namespace does not know.
      * <p>
      * Typical usage: {@code plugin.getCommand("essential").setExecutor(essential.getDispatcher("essential"))}
      *
@@ -125,7 +350,23 @@ public class MCEngineEssentialCommon {
      * @param executor  logic to execute when the subcommand is invoked
      */
     public void registerSubCommand(String namespace, String name, CommandExecutor executor) {
+        registerSubCommand(namespace, name, executor, null);
+    }
+
+    /**
+     * Registers a subcommand with a permission and aliases under the given namespace.
+     * Senders without the permission can neither run nor tab-complete the subcommand.
+     *
+     * @param namespace  the command namespace
+     * @param name       the subcommand label
+     * @param executor   logic to execute when the subcommand is invoked
+     * @param permission permission required, or {@code null} for none
+     * @param aliases    additional labels for the subcommand
+     */
+    public void registerSubCommand(String namespace, String name, CommandExecutor executor,
+                                   String permission, String... aliases) {
         dispatcher.registerSubCommand(namespace, name, executor);
+        router(namespace).register(name, executor, permission, aliases);
     }
 
     /**
@@ -136,18 +377,97 @@ public class MCEngineEssentialCommon {
      * @param tabCompleter tab completion logic
      */
     public void registerSubTabCompleter(String namespace, String subcommand, TabCompleter tabCompleter) {
+        registerSubTabCompleter(namespace, subcommand, tabCompleter, 0L);
+    }
+
+    /**
+     * Registers a tab completer whose results are memoized for a short time.
+     * <p>
+     * Results are shared by every sender with the same permissions and reused for longer
+     * prefixes of the same argument, so only use this for completers that depend on the
+     * typed arguments and permissions alone (online players, warps, kits...) and that
+     * return the candidates starting with the typed prefix.
+     *
+     * @param namespace    the command namespace
+     * @param subcommand   the subcommand label
+     * @param tabCompleter tab completion logic
+     * @param ttlMillis    how long results are reused; {@code 0} disables memoization
+     */
+    public void registerSubTabCompleter(String namespace, String subcommand, TabCompleter tabCompleter,
+                                        long ttlMillis) {
         dispatcher.registerSubTabCompleter(namespace, subcommand, tabCompleter);
+        router(namespace).setCompleter(subcommand, tabCompleter, ttlMillis);
+    }
+
+    /**
+     * Registers a tab completer that loads candidates off the main thread, e.g. from the
+     * database on {@link #getDBExecutor()}. Completion never waits for it: candidates
+     * appear on the keystrokes after they arrive and are reused for {@code ttlMillis}.
+     * As with memoized completers, candidates are shared by senders with the same permissions.
+     *
+     * <pre>{@code
+     *   essential.registerAsyncSubTabCompleter("essential", "warp", (sender, args) ->
+     *           essential.getDBExecutor().submit(() -> {
+     *               try (Stream<String> names = essential.query("SELECT name FROM warps", rs -> rs.getString(1))) {
+     *                   return names.toList();
+     *               }
+     *           }), 10_000L);
+     * }</pre>
+     *
+     * @param namespace  the command namespace
+     * @param subcommand the subcommand label
+     * @param completer  asynchronous completion logic
+     * @param ttlMillis  how long loaded candidates are reused
+     */
+    public void registerAsyncSubTabCompleter(String namespace, String subcommand,
+                                             MCEngineEssentialAsyncTabCompleter completer, long ttlMillis) {
+        router(namespace).setAsyncCompleter(subcommand, completer, ttlMillis);
     }
 
     /**
      * Obtains the dispatcher to assign as the command executor and tab completer
      * for a Bukkit command mapped to the provided namespace.
+     * <p>
+     * Subcommands registered through this class are routed by a prefix trie with memoized
+     * tab completion; anything else is handed to the core dispatcher.
      *
      * @param namespace the command namespace
-     * @return a {@link CommandExecutor} that routes to the internal dispatcher
+     * @return a {@link CommandExecutor} that also implements {@link TabCompleter}
      */
     public CommandExecutor getDispatcher(String namespace) {
-        return dispatcher.getDispatcher(namespace);
+        return router(namespace);
+    }
+
+    /**
+     * Registers the {@code migrate} subcommand, which copies the database to another
+     * backend and exports or imports dump files, under the given namespace.
+     *
+     * @param namespace the command namespace
+     * @see MCEngineEssentialMigrateCommand
+     */
+    public void registerMigrateCommand(String namespace) {
+        MCEngineEssentialMigrateCommand command = new MCEngineEssentialMigrateCommand(this);
+        registerSubCommand(namespace, "migrate", command, MCEngineEssentialMigrateCommand.PERMISSION);
+        registerSubTabCompleter(namespace, "migrate", command);
+    }
+
+    /**
+     * Registers the {@code dbstats} subcommand, which lists, exports and resets the
+     * per-statement database metrics, under the given namespace.
+     *
+     * @param namespace the command namespace
+     * @see MCEngineEssentialDBStatsCommand
+     */
+    public void registerDBStatsCommand(String namespace) {
+        MCEngineEssentialDBStatsCommand command = new MCEngineEssentialDBStatsCommand(this);
+        registerSubCommand(namespace, "dbstats", command, MCEngineEssentialDBStatsCommand.PERMISSION);
+        registerSubTabCompleter(namespace, "dbstats", command);
+    }
+
+    /** Returns the router of a namespace, creating it on first use. */
+    private MCEngineEssentialCommandRouter router(String namespace) {
+        return routers.computeIfAbsent(namespace,
+                ns -> new MCEngineEssentialCommandRouter(() -> dispatcher.getDispatcher(ns)));
     }
 
     // --------------------
@@ -188,4 +508,569 @@ public class MCEngineEssentialCommon {
     public <T> T getValue(String sql, Class<T> type) {
         return db.getValue(sql, type);
     }
+
+    /**
+     * Executes a parameterized SQL statement that does not return a result set
+     * through the configured Essential DB backend.
+     *
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     * @throws RuntimeException if execution fails
+     */
+    public void executeQuery(String sql, Object... params) {
+        db.executeQuery(sql, params);
+    }
+
+    /**
+     * Executes a parameterized SQL query expected to return a single scalar value
+     * through the configured Essential DB backend.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param type   target scalar class
+     * @param params values bound to the placeholders in order
+     * @param <T>    type parameter for the coerced result
+     * @return coerced value, or {@code null} if no rows are returned
+     * @throws IllegalArgumentException if {@code type} is unsupported
+     * @throws RuntimeException         if execution fails
+     */
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        return db.getValue(sql, type, params);
+    }
+
+    /**
+     * Reads a scalar {@code int} through the configured Essential DB backend; integer columns
+     * are read without boxing unless the result is served from the read-through cache.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    public int getInt(String sql, int defaultValue, Object... params) {
+        return db.getInt(sql, defaultValue, params);
+    }
+
+    /**
+     * Reads a scalar {@code long} through the configured Essential DB backend; integer columns
+     * are read without boxing unless the result is served from the read-through cache.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    public long getLong(String sql, long defaultValue, Object... params) {
+        return db.getLong(sql, defaultValue, params);
+    }
+
+    /**
+     * Reads a scalar {@code double} through the configured Essential DB backend; integer and floating-point columns
+     * are read without boxing unless the result is served from the read-through cache.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        return db.getDouble(sql, defaultValue, params);
+    }
+
+    /**
+     * Reads a scalar {@code boolean} through the configured Essential DB backend.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        return db.getBoolean(sql, defaultValue, params);
+    }
+
+    /**
+     * Runs a parameterized query through the configured Essential DB backend and
+     * returns its rows as a lazily consumed stream. The stream holds a database
+     * connection until closed; always use it in a try-with-resources block.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param mapper maps each row
+     * @param params values bound to the placeholders in order
+     * @param <T>    mapped row type
+     * @return stream of mapped rows
+     * @throws RuntimeException if execution fails
+     * @see IMCEngineEssentialDB#query(String, MCEngineEssentialRowMapper, Object...)
+     */
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        return db.query(sql, mapper, params);
+    }
+
+    /**
+     * Runs a parameterized query through the configured Essential DB backend and
+     * passes each mapped row to {@code action}.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param mapper maps each row
+     * @param action receives each mapped row
+     * @param params values bound to the placeholders in order
+     * @param <T>    mapped row type
+     * @throws RuntimeException if execution fails
+     */
+    public <T> void forEachRow(String sql, MCEngineEssentialRowMapper<T> mapper, Consumer<? super T> action,
+                               Object... params) {
+        db.forEachRow(sql, mapper, action, params);
+    }
+
+    /**
+     * Runs a unit of work in one transaction through the configured Essential DB backend.
+     *
+     * @param work statements to run; its result is returned after commit
+     * @param <T>  result type
+     * @return the work's result
+     * @throws RuntimeException if the work or the commit fails; the transaction is rolled back
+     * @see IMCEngineEssentialDB#inTransaction(MCEngineEssentialIsolation, MCEngineEssentialTransactionWork)
+     */
+    public <T> T inTransaction(MCEngineEssentialTransactionWork<T> work) {
+        return db.inTransaction(work);
+    }
+
+    /**
+     * Runs a unit of work in one transaction with the given isolation level through the
+     * configured Essential DB backend.
+     *
+     * @param isolation isolation level for the transaction
+     * @param work      statements to run; its result is returned after commit
+     * @param <T>       result type
+     * @return the work's result
+     * @throws RuntimeException if the work or the commit fails; the transaction is rolled back
+     */
+    public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        return db.inTransaction(isolation, work);
+    }
+
+    /**
+     * Asynchronous variant of {@link #inTransaction(MCEngineEssentialTransactionWork)},
+     * run on the Essential DB executor.
+     *
+     * @param work statements to run; its result completes the future after commit
+     * @param <T>  result type
+     * @return future completed with the work's result, or exceptionally if the transaction failed
+     */
+    public <T> CompletableFuture<T> inTransactionAsync(MCEngineEssentialTransactionWork<T> work) {
+        return submit(() -> db.inTransaction(work));
+    }
+
+    /**
+     * Executes a SQL statement that does not return a result set on the
+     * Essential DB executor, without blocking the calling thread.
+     *
+     * @param sql SQL statement
+     * @return future completed when the statement has run, or exceptionally if it
+     *         failed or the executor rejected it
+     */
+    public CompletableFuture<Void> executeQueryAsync(String sql) {
+        return submit(() -> {
+            db.executeQuery(sql);
+            return null;
+        });
+    }
+
+    /**
+     * Executes a scalar SQL query on the Essential DB executor, without blocking
+     * the calling thread.
+     * <p>
+     * The future completes on a database thread; use
+     * {@link #getMainThreadExecutor()} with {@code thenAcceptAsync} to touch the Bukkit API.
+     * Identical calls made while one is in flight share its query
+     * ({@code database.single-flight.enabled}, default: {@code true}).
+     *
+     * @param sql  SQL query
+     * @param type target scalar class
+     * @param <T>  type parameter for the coerced result
+     * @return future completed with the coerced value, or {@code null} if no rows are returned
+     */
+    public <T> CompletableFuture<T> getValueAsync(String sql, Class<T> type) {
+        if (singleFlight == null) return submit(() -> db.getValue(sql, type));
+        return singleFlight.collapseAsync(sql, type, new Object[0], () -> submit(() -> db.getValue(sql, type)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #executeQuery(String, Object...)}.
+     *
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     * @return future completed when the statement has run
+     */
+    public CompletableFuture<Void> executeQueryAsync(String sql, Object... params) {
+        return submit(() -> {
+            db.executeQuery(sql, params);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #getValue(String, Class, Object...)}.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param type   target scalar class
+     * @param params values bound to the placeholders in order
+     * @param <T>    type parameter for the coerced result
+     * @return future completed with the coerced value, or {@code null} if no rows are returned
+     */
+    public <T> CompletableFuture<T> getValueAsync(String sql, Class<T> type, Object... params) {
+        if (singleFlight == null) return submit(() -> db.getValue(sql, type, params));
+        return singleFlight.collapseAsync(sql, type, params, () -> submit(() -> db.getValue(sql, type, params)));
+    }
+
+    /**
+     * Queues a parameterized write for the write-behind flusher, which groups queued
+     * writes into batched transactions. Runs the write immediately when write-behind
+     * is disabled.
+     * <p>
+     * Reads do not see a queued write until it is flushed; call {@link #flush()} first
+     * when that matters.
+     *
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     */
+    public void queueWrite(String sql, Object... params) {
+        if (writeBehind == null) db.executeQuery(sql, params);
+        else writeBehind.enqueue(sql, params);
+    }
+
+    /**
+     * Queues a parameterized write that replaces any queued write with the same key,
+     * so only the latest value for a row is written. Runs the write immediately when
+     * write-behind is disabled.
+     *
+     * @param key    coalescing key identifying the row and statement (e.g. {@code "balance:" + uuid})
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     */
+    public void queueCoalescedWrite(String key, String sql, Object... params) {
+        if (writeBehind == null) db.executeQuery(sql, params);
+        else writeBehind.enqueueCoalesced(key, sql, params);
+    }
+
+    /**
+     * Flushes all queued write-behind writes and waits for them to commit.
+     * Does nothing when write-behind is disabled.
+     *
+     * @throws RuntimeException if the flush fails; the writes stay queued
+     */
+    public void flush() {
+        if (writeBehind != null) writeBehind.flush();
+    }
+
+    /**
+     * Returns the write-behind queue.
+     *
+     * @return the queue, or {@code null} if {@code database.write-behind.enabled} is off
+     */
+    public MCEngineEssentialWriteBehindQueue getWriteBehindQueue() {
+        return writeBehind;
+    }
+
+    /**
+     * Tells the other servers that rows changed, e.g. after updating data that they may
+     * cache. Writes made through the read-through cache are published automatically.
+     * Does nothing if {@code database.invalidation.enabled} is off.
+     *
+     * @param table changed table
+     * @param key   changed row key (e.g. a player UUID), or {@code null} for the whole table
+     */
+    public void publishChange(String table, String key) {
+        if (changeBus != null) changeBus.publish(table, key);
+    }
+
+    /**
+     * Subscribes to changes made by the other servers, e.g. to drop entries of a plugin's
+     * own cache. Changes arrive coalesced, on the change bus thread. The subscription ends
+     * when this API is closed.
+     *
+     * @param listener subscriber
+     * @throws IllegalStateException if {@code database.invalidation.enabled} is off
+     */
+    public void subscribeChanges(MCEngineEssentialChangeListener listener) {
+        if (changeBus == null) {
+            throw new IllegalStateException("Change notifications are disabled (database.invalidation.enabled)");
+        }
+        subscriptions.add(listener);
+        changeBus.subscribe(listener);
+    }
+
+    /**
+     * Returns the cross-server change bus.
+     *
+     * @return the bus, or {@code null} if {@code database.invalidation.enabled} is off
+     */
+    public MCEngineEssentialChangeBus getChangeBus() {
+        return changeBus;
+    }
+
+    /**
+     * Adds a table to the rows cached per player by the session cache. Call while enabling,
+     * before players can join.
+     *
+     * @param table player table description
+     * @throws IllegalStateException if {@code database.sessions.enabled} is off
+     */
+    public void registerPlayerTable(MCEngineEssentialPlayerTable table) {
+        if (sessions == null) throw new IllegalStateException("Player sessions are disabled (database.sessions.enabled)");
+        sessions.registerTable(table);
+    }
+
+    /**
+     * Returns the cached session of a player, loaded during pre-login.
+     *
+     * @param uuid player UUID
+     * @return the session, or {@code null} if not loaded or sessions are disabled
+     */
+    public MCEngineEssentialPlayerSession getPlayerSession(UUID uuid) {
+        return sessions != null ? sessions.getSession(uuid) : null;
+    }
+
+    /**
+     * Returns the player session cache.
+     *
+     * @return the cache, or {@code null} if {@code database.sessions.enabled} is off
+     */
+    public MCEngineEssentialPlayerSessionCache getPlayerSessions() {
+        return sessions;
+    }
+
+    /**
+     * Returns the handle of a persistent counter; keep it to skip the lookup on hot paths.
+     *
+     * @param namespace counter namespace, e.g. {@code stats}
+     * @param id        counter id within the namespace, e.g. {@code kills:<uuid>}
+     * @return the counter
+     * @throws IllegalStateException if {@code database.counters.enabled} is off
+     */
+    public MCEngineEssentialCounter getCounter(String namespace, String id) {
+        if (counters == null) throw new IllegalStateException("Counters are disabled (database.counters.enabled)");
+        return counters.counter(namespace, id);
+    }
+
+    /**
+     * Adds a delta to a persistent counter without touching the database; it is written
+     * by the next batched flush. Safe to call from any thread, including the main thread.
+     *
+     * @param namespace counter namespace
+     * @param id        counter id
+     * @param delta     amount to add, may be negative
+     * @throws IllegalStateException if {@code database.counters.enabled} is off
+     */
+    public void incrementCounter(String namespace, String id, long delta) {
+        getCounter(namespace, id).add(delta);
+    }
+
+    /**
+     * Returns a persistent counter's value, including increments not yet written.
+     * The first read of a counter queries the database; later reads are served from memory.
+     *
+     * @param namespace counter namespace
+     * @param id        counter id
+     * @return current value
+     * @throws IllegalStateException if {@code database.counters.enabled} is off
+     */
+    public long getCounterValue(String namespace, String id) {
+        return getCounter(namespace, id).get();
+    }
+
+    /**
+     * Returns the persistent counter store, e.g. for its statistics or an explicit flush.
+     *
+     * @return the store, or {@code null} if {@code database.counters.enabled} is off
+     */
+    public MCEngineEssentialCounterStore getCounters() {
+        return counters;
+    }
+
+    /**
+     * Returns the decorator collapsing identical concurrent reads, e.g. for its counters.
+     *
+     * @return the decorator, or {@code null} if {@code database.single-flight.enabled} is off
+     */
+    public MCEngineEssentialSingleFlightDB getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Returns the configured backend type ({@code database.type}).
+     *
+     * @return {@code sqlite}, {@code mysql}, {@code postgresql} or {@code memory}
+     */
+    public String getDatabaseType() {
+        return dbType;
+    }
+
+    /**
+     * Returns the configured backend below the cache, metrics and other decorators, e.g.
+     * as the source of a {@link io.github.mcengine.common.essential.database.MCEngineEssentialMigration}.
+     * Writes made through it are not cached, measured or published to other servers.
+     *
+     * @return the backend
+     */
+    public MCEngineEssentialJdbcDB getBackend() {
+        return backend;
+    }
+
+    /**
+     * Opens a new backend of the given type from its {@code database.<type>.*} config
+     * section, independent of the configured one, e.g. as the target of a migration.
+     * The caller closes it.
+     *
+     * @param type {@code sqlite}, {@code mysql}, {@code postgresql} or {@code memory}
+     * @return the new backend
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public MCEngineEssentialJdbcDB openBackend(String type) {
+        return MCEngineEssentialDBRuntime.openBackend(plugin, type);
+    }
+
+    /**
+     * Returns the database runtime this API shares with the other plugins configured for
+     * the same database, e.g. to list them.
+     *
+     * @return the runtime
+     */
+    public MCEngineEssentialDBRuntime getRuntime() {
+        return runtime;
+    }
+
+    /**
+     * Returns the in-process database for short-lived hot data such as cooldowns: the
+     * configured database itself when {@code database.type} is {@code memory}, otherwise
+     * the memory tier opened next to the persistent backend by {@code database.memory.tier}
+     * (default: {@code false}). Both use the SQLite dialect.
+     *
+     * @return the memory database, or {@code null} if neither is configured
+     * @see io.github.mcengine.common.essential.database.memory.MCEngineEssentialMemoryDB
+     */
+    public IMCEngineEssentialDB getMemoryDB() {
+        return "memory".equals(dbType) ? db : runtime.getMemoryTier();
+    }
+
+    /**
+     * Returns the read-through cache wrapped around the backend, e.g. for statistics
+     * or explicit invalidation.
+     *
+     * @return the cache, or {@code null} if {@code database.cache.enabled} is off
+     */
+    public MCEngineEssentialCachingDB getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns a future completed once the database has been reached (and warmed up, if
+     * {@code database.warm-up.enabled}). Calls made before then wait up to
+     * {@code database.startup.wait-timeout} milliseconds (default: {@code 5000}) and then fail.
+     * <p>
+     * The future completes on a database thread; compose it with
+     * {@link #getMainThreadExecutor()} to touch the Bukkit API.
+     *
+     * @return readiness future
+     */
+    public CompletableFuture<Void> getReadyFuture() {
+        return readyFuture;
+    }
+
+    /**
+     * Tells whether the database has been reached and warmed up.
+     *
+     * @return {@code true} once {@link #getReadyFuture()} has completed
+     */
+    public boolean isReady() {
+        return readyFuture.isDone();
+    }
+
+    /**
+     * Registers hot statements: prepares them now on the open connections, in the
+     * background, and on every connection opened later.
+     *
+     * @param statements SQL with {@code ?} placeholders, as later passed to the query helpers
+     * @return future completed when the statements have been prepared
+     */
+    public CompletableFuture<Void> registerHotStatements(String... statements) {
+        return db.warmUp(0, Arrays.asList(statements));
+    }
+
+    /**
+     * Returns the per-statement metrics recorded around the backend.
+     *
+     * @return the metrics, or {@code null} if {@code database.metrics.enabled} is off
+     */
+    public MCEngineEssentialMetricsDB getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the bounded executor used by the asynchronous database helpers.
+     * Downstream plugins may submit their own database work to it. It is shared with the
+     * other plugins on the same database; work submitted directly must be finished by the
+     * time the plugin disables.
+     *
+     * @return the Essential DB executor
+     */
+    public MCEngineEssentialDBExecutor getDBExecutor() {
+        return dbExecutor;
+    }
+
+    /**
+     * Returns an executor that runs tasks on the server's primary thread.
+     * Tasks submitted from the primary thread run immediately.
+     *
+     * @return main-thread executor
+     */
+    public Executor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * Writes back the player sessions and counters, waits for this API's asynchronous
+     * database tasks, drains the write-behind queue and ends this plugin's change
+     * subscriptions, then releases the shared database runtime. The last plugin to release
+     * it sends pending change notifications, drains the Essential DB executor and closes
+     * the backend. Further calls do nothing.
+     * <p>
+     * Call from the owning plugin's {@code onDisable()}.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (sessions != null) sessions.close();
+        if (counters != null) counters.close();
+        awaitPending(plugin.getConfig().getLong("database.executor.shutdown-timeout", 10_000L));
+        if (writeBehind != null) writeBehind.close();
+        if (changeBus != null) subscriptions.forEach(changeBus::unsubscribe);
+        APIS.remove(this);
+        runtime.release(plugin);
+    }
+
+    /** Submits to the shared executor, keeping the task until it completes. */
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = dbExecutor.submit(task);
+        pending.add(future);
+        future.whenComplete((v, e) -> pending.remove(future));
+        return future;
+    }
+
+    /** Waits for this API's pending tasks, at most {@code timeoutMillis}. */
+    private void awaitPending(long timeoutMillis) {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ignored) {
+            // Every task has completed; failures were reported to their callers.
+        } catch (TimeoutException e) {
+            plugin.getLogger().warning(pending.size() + " Essential DB tasks still running after "
+                    + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
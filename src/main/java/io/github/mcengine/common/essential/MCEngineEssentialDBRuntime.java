@@ -0,0 +1,383 @@
+package io.github.mcengine.common.essential;
+
+import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialCachingDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeBus;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeEvent;
+import io.github.mcengine.common.essential.database.MCEngineEssentialDBExecutor;
+import io.github.mcengine.common.essential.database.MCEngineEssentialJdbcDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialMetricsDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialReadinessDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialSingleFlightDB;
+import io.github.mcengine.common.essential.database.memory.MCEngineEssentialMemoryDB;
+import io.github.mcengine.common.essential.database.mysql.MCEngineEssentialMySQL;
+import io.github.mcengine.common.essential.database.postgresql.MCEngineEssentialPostgreSQL;
+import io.github.mcengine.common.essential.database.sqlite.MCEngineEssentialSQLite;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Database runtime shared by the plugins whose config points at the same database.
+ * <p>
+ * A runtime holds the backend with its connection pools and statement caches, the
+ * decorators around it (readiness, metrics, single-flight, read-through cache), the DB
+ * executor, the change bus and the optional memory tier. The first plugin to acquire a
+ * database opens its runtime from that plugin's config; plugins resolving to the same
+ * connection key (same JDBC URL and user, same SQLite file, or same memory database name
+ * and snapshot file) reuse it, and the last one to release it closes it. Runtime settings
+ * of later plugins that differ from the first one's are ignored with a warning naming them,
+ * and the runtime logs through the logger of its earliest remaining owner.
+ * Everything else, such as player sessions, counters and the write-behind queue, stays
+ * with each plugin's {@link MCEngineEssentialCommon}.
+ * <p>
+ * Set {@code database.shared} to {@code false} (default: {@code true}) to give a plugin a
+ * runtime of its own.
+ */
+public final class MCEngineEssentialDBRuntime {
+
+    /** Open shared runtimes by connection key; also guards {@link #owners}. */
+    private static final Map<String, MCEngineEssentialDBRuntime> RUNTIMES = new HashMap<>();
+
+    /** Backend types; only the section of the runtime's own type applies to it. */
+    private static final Set<String> TYPES = Set.of("sqlite", "mysql", "postgresql");
+
+    /** Settings under {@code database.} that each plugin applies for itself, not to the runtime. */
+    private static final List<String> PER_PLUGIN = List.of(
+            "database.shared", "database.sessions.", "database.counters.", "database.write-behind.",
+            "database.migration.");
+
+    /** Connection key; {@code null} for a runtime that is not shared. */
+    private final String key;
+
+    /** Backend type ({@code database.type}), lower-cased. */
+    private final String type;
+
+    /** Backend below every decorator. */
+    private final MCEngineEssentialJdbcDB backend;
+
+    /** Per-statement metrics; {@code null} when disabled. */
+    private final MCEngineEssentialMetricsDB metrics;
+
+    /** Identical-read collapsing; {@code null} when disabled. */
+    private final MCEngineEssentialSingleFlightDB singleFlight;
+
+    /** Read-through cache; {@code null} when disabled. */
+    private final MCEngineEssentialCachingDB cache;
+
+    /** Outermost decorator, handed to the plugins. */
+    private final IMCEngineEssentialDB db;
+
+    /** Executor running the asynchronous database helpers of every owner. */
+    private final MCEngineEssentialDBExecutor executor;
+
+    /** Cross-server change notifications; {@code null} when disabled. */
+    private final MCEngineEssentialChangeBus changeBus;
+
+    /** In-memory database next to a persistent backend; {@code null} when disabled. */
+    private final MCEngineEssentialMemoryDB memoryTier;
+
+    /** Completed once the backend is reachable and warmed up. */
+    private final CompletableFuture<Void> readyFuture;
+
+    /** Time the executor is given to drain on close. */
+    private final long shutdownTimeoutMillis;
+
+    /** Runtime settings of the first owner, compared with those of later owners. */
+    private final Map<String, Object> settings;
+
+    /** Logger every part of the runtime logs through, forwarding to the earliest owner. */
+    private final OwnerLogger logger;
+
+    /** Plugins holding the runtime, once per acquisition. */
+    private final List<Plugin> owners = new ArrayList<>();
+
+    /** Set once the last owner has released the runtime. */
+    private boolean closed;
+
+    /** Opens the backend and its decorators from the config of the first owner. */
+    private MCEngineEssentialDBRuntime(Plugin owner, String type, String key) {
+        this.key = key;
+        this.type = type;
+        this.settings = settings(owner.getConfig(), type);
+        this.logger = new OwnerLogger(owner.getLogger());
+        Plugin plugin = withLogger(owner, logger);
+        this.backend = openBackend(plugin, type);
+        IMCEngineEssentialDB guarded = new MCEngineEssentialReadinessDB(
+                backend, plugin.getConfig().getLong("database.startup.wait-timeout", 5_000L));
+        this.metrics = plugin.getConfig().getBoolean("database.metrics.enabled", true)
+                ? MCEngineEssentialMetricsDB.fromConfig(plugin.getConfig(), guarded, logger)
+                : null;
+        IMCEngineEssentialDB measured = metrics != null ? metrics : guarded;
+        this.singleFlight = plugin.getConfig().getBoolean("database.single-flight.enabled", true)
+                ? new MCEngineEssentialSingleFlightDB(measured)
+                : null;
+        IMCEngineEssentialDB collapsed = singleFlight != null ? singleFlight : measured;
+        this.cache = plugin.getConfig().getBoolean("database.cache.enabled", false)
+                ? MCEngineEssentialCachingDB.fromConfig(plugin.getConfig(), collapsed)
+                : null;
+        this.db = cache != null ? cache : collapsed;
+
+        this.executor = MCEngineEssentialDBExecutor.fromConfig(plugin.getConfig(), logger);
+        this.shutdownTimeoutMillis = plugin.getConfig().getLong("database.executor.shutdown-timeout", 10_000L);
+        // The bus writes through the uncached chain so its own change log is never published.
+        this.changeBus = plugin.getConfig().getBoolean("database.invalidation.enabled", false)
+                ? MCEngineEssentialChangeBus.fromConfig(plugin.getConfig(), measured, type,
+                        backend instanceof MCEngineEssentialPostgreSQL pg ? pg::openConnection : null,
+                        logger)
+                : null;
+        if (changeBus != null && cache != null) {
+            cache.setWriteListener(table -> changeBus.publish(table, null));
+            changeBus.subscribe(changes -> {
+                for (MCEngineEssentialChangeEvent change : changes) {
+                    if (change.isAll()) cache.invalidateAll();
+                    else cache.invalidateTable(change.table());
+                }
+            });
+        }
+
+        this.memoryTier = !"memory".equals(type) && plugin.getConfig().getBoolean("database.memory.tier", false)
+                ? new MCEngineEssentialMemoryDB(plugin)
+                : null;
+
+        long startedAt = System.currentTimeMillis();
+        CompletableFuture<Void> connected = backend.ready();
+        if (plugin.getConfig().getBoolean("database.warm-up.enabled", false)) {
+            List<String> statements = plugin.getConfig().getStringList("database.warm-up.statements");
+            int connections = plugin.getConfig().getInt("database.warm-up.connections", 0);
+            connected = connected.thenCompose(v -> backend.warmUp(connections, statements)
+                    .exceptionally(e -> {
+                        logger.warning("Essential database warm-up failed: " + e.getMessage());
+                        return null;
+                    }));
+        }
+        this.readyFuture = connected.thenRun(() -> logger.info(
+                "Essential " + type + " database ready in " + (System.currentTimeMillis() - startedAt) + " ms"));
+        if (changeBus != null) readyFuture.whenComplete((v, e) -> changeBus.start());
+    }
+
+    /**
+     * Returns the runtime for a plugin's configured database, opening it if no other
+     * plugin holds one with the same connection key. Each call must be matched by one
+     * {@link #release(Plugin)}.
+     *
+     * @param plugin plugin acquiring the database
+     * @return the runtime
+     * @throws IllegalArgumentException if {@code database.type} is unknown
+     */
+    static MCEngineEssentialDBRuntime acquire(Plugin plugin) {
+        String type = plugin.getConfig().getString("database.type", "sqlite").toLowerCase();
+        String key = plugin.getConfig().getBoolean("database.shared", true) ? connectionKey(plugin, type) : null;
+        synchronized (RUNTIMES) {
+            MCEngineEssentialDBRuntime runtime = key != null ? RUNTIMES.get(key) : null;
+            if (runtime == null) {
+                runtime = new MCEngineEssentialDBRuntime(plugin, type, key);
+                if (key != null) RUNTIMES.put(key, runtime);
+            } else {
+                plugin.getLogger().info("Essential " + type + " database shared with "
+                        + String.join(", ", runtime.ownerNames()));
+                runtime.warnIgnoredSettings(plugin);
+            }
+            runtime.owners.add(plugin);
+            return runtime;
+        }
+    }
+
+    /**
+     * Gives up one acquisition by a plugin. The last release stops the change bus, drains
+     * the executor and closes the backend.
+     *
+     * @param plugin plugin that acquired the runtime
+     */
+    void release(Plugin plugin) {
+        synchronized (RUNTIMES) {
+            owners.remove(plugin);
+            if (!owners.isEmpty()) logger.target = owners.get(0).getLogger();
+            if (!owners.isEmpty() || closed) return;
+            closed = true;
+            if (key != null) RUNTIMES.remove(key, this);
+        }
+        if (changeBus != null) changeBus.close();
+        executor.shutdown(shutdownTimeoutMillis);
+        if (memoryTier != null) memoryTier.close();
+        db.close();
+    }
+
+    /**
+     * Resolves the connection key of a plugin's database of the given type.
+     *
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    static String connectionKey(Plugin plugin, String type) {
+        return switch (type) {
+            case "sqlite" -> MCEngineEssentialSQLite.connectionKey(plugin);
+            case "mysql" -> MCEngineEssentialMySQL.connectionKey(plugin);
+            case "postgresql" -> MCEngineEssentialPostgreSQL.connectionKey(plugin);
+            case "memory" -> MCEngineEssentialMemoryDB.connectionKey(plugin);
+            default -> throw new IllegalArgumentException("Unsupported database type: " + type);
+        };
+    }
+
+    /**
+     * Opens a new, unshared backend of the given type from a plugin's config.
+     *
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    static MCEngineEssentialJdbcDB openBackend(Plugin plugin, String type) {
+        return switch (type) {
+            case "sqlite" -> new MCEngineEssentialSQLite(plugin);
+            case "mysql" -> new MCEngineEssentialMySQL(plugin);
+            case "postgresql" -> new MCEngineEssentialPostgreSQL(plugin);
+            case "memory" -> new MCEngineEssentialMemoryDB(plugin);
+            default -> throw new IllegalArgumentException("Unsupported database type: " + type);
+        };
+    }
+
+    /**
+     * Returns the key plugins share this runtime by.
+     *
+     * @return the connection key, or {@code null} if {@code database.shared} is off
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the backend type.
+     *
+     * @return {@code sqlite}, {@code mysql}, {@code postgresql} or {@code memory}
+     */
+    public String getDatabaseType() {
+        return type;
+    }
+
+    /**
+     * Returns the names of the plugins currently holding this runtime, in acquisition order.
+     *
+     * @return owner names, repeated for a plugin holding it more than once
+     */
+    public List<String> getOwners() {
+        synchronized (RUNTIMES) {
+            return ownerNames();
+        }
+    }
+
+    private List<String> ownerNames() {
+        List<String> names = new ArrayList<>(owners.size());
+        for (Plugin owner : owners) names.add(owner.getName());
+        return names;
+    }
+
+    /** Warns about each runtime setting of a joining plugin that differs from the runtime's. */
+    private void warnIgnoredSettings(Plugin plugin) {
+        Map<String, Object> theirs = settings(plugin.getConfig(), type);
+        Set<String> paths = new TreeSet<>(settings.keySet());
+        paths.addAll(theirs.keySet());
+        for (String path : paths) {
+            if (Objects.equals(settings.get(path), theirs.get(path))) continue;
+            plugin.getLogger().warning("Essential setting " + path + " = " + describe(path, theirs.get(path))
+                    + " is ignored: the shared " + type + " database was opened by " + owners.get(0).getName()
+                    + " with " + describe(path, settings.get(path)));
+        }
+    }
+
+    /** Renders a setting for a warning, hiding passwords. */
+    private static String describe(String path, Object value) {
+        if (value == null) return "the default";
+        return path.endsWith(".password") ? "<hidden>" : String.valueOf(value);
+    }
+
+    /** Collects the {@code database.} settings a runtime of the given type is built from. */
+    private static Map<String, Object> settings(ConfigurationSection config, String type) {
+        Map<String, Object> settings = new TreeMap<>();
+        for (String path : config.getKeys(true)) {
+            if (!path.startsWith("database.") || config.isConfigurationSection(path)) continue;
+            if (PER_PLUGIN.stream().anyMatch(path::startsWith)) continue;
+            String section = path.substring("database.".length()).split("\\.", 2)[0];
+            if (TYPES.contains(section) && !section.equals(type)) continue;
+            settings.put(path, config.get(path));
+        }
+        return settings;
+    }
+
+    /** Returns a view of a plugin whose {@link Plugin#getLogger()} is the given logger. */
+    private static Plugin withLogger(Plugin plugin, Logger logger) {
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getLogger") && method.getParameterCount() == 0) return logger;
+                    try {
+                        return method.invoke(plugin, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    MCEngineEssentialJdbcDB getBackend() {
+        return backend;
+    }
+
+    MCEngineEssentialMetricsDB getMetrics() {
+        return metrics;
+    }
+
+    MCEngineEssentialSingleFlightDB getSingleFlight() {
+        return singleFlight;
+    }
+
+    MCEngineEssentialCachingDB getCache() {
+        return cache;
+    }
+
+    IMCEngineEssentialDB getDB() {
+        return db;
+    }
+
+    MCEngineEssentialDBExecutor getExecutor() {
+        return executor;
+    }
+
+    MCEngineEssentialChangeBus getChangeBus() {
+        return changeBus;
+    }
+
+    MCEngineEssentialMemoryDB getMemoryTier() {
+        return memoryTier;
+    }
+
+    CompletableFuture<Void> getReadyFuture() {
+        return readyFuture;
+    }
+
+    /** Logger forwarding every record to the logger of the runtime's earliest remaining owner. */
+    private static final class OwnerLogger extends Logger {
+
+        /** Logger records are forwarded to; re-pointed when that owner releases the runtime. */
+        private volatile Logger target;
+
+        OwnerLogger(Logger target) {
+            super("MCEngineEssential-runtime", null);
+            this.target = target;
+            setLevel(Level.ALL);
+        }
+
+        @Override
+        public void log(LogRecord record) {
+            target.log(record);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.mcengine.common.essential.command;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tab completer whose candidates are loaded off the main thread, e.g. from the database.
+ * <p>
+ * The router never waits for the future: the keystroke that starts a load gets the
+ * candidates cached so far (often none), and later keystrokes are served from the
+ * result once it arrives.
+ */
+@FunctionalInterface
+public interface MCEngineEssentialAsyncTabCompleter {
+
+    /**
+     * Starts loading candidates for the argument being typed. Called on the main thread;
+     * must return without blocking and must not touch {@code sender} from the loading thread.
+     *
+     * @param sender who is typing
+     * @param args   arguments after the subcommand label; the last one is the partial argument
+     * @return future completed with candidates; the router filters them by the typed prefix
+     */
+    CompletableFuture<List<String>> complete(CommandSender sender, String[] args);
+}
@@ -0,0 +1,281 @@
+package io.github.mcengine.common.essential.command;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.command.TabExecutor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Routes one command namespace to its subcommands through a {@link MCEngineEssentialCommandTrie}.
+ * <p>
+ * Subcommands and their aliases are looked up in the trie, so routing and completing the
+ * first argument cost the length of the label rather than the size of the namespace.
+ * Completion results are memoized per sender permission signature and typed prefix:
+ * <ul>
+ *     <li>first-argument candidates are cached until the routes change or {@value #LABEL_TTL_MILLIS} ms pass</li>
+ *     <li>subcommand completers are cached only when registered with a TTL, because their
+ *     candidates must not depend on who is typing beyond their permissions</li>
+ *     <li>{@link MCEngineEssentialAsyncTabCompleter}s are never waited on; their results are
+ *     served from the memo on the following keystrokes</li>
+ * </ul>
+ * Unknown subcommands are passed, with all arguments, to the fallback executor. Completers
+ * may be set before their subcommand is registered; they are attached when it is.
+ */
+public class MCEngineEssentialCommandRouter implements TabExecutor {
+
+    /** Lifetime of memoized first-argument candidates. */
+    static final long LABEL_TTL_MILLIS = 30_000L;
+
+    /** Subcommands and aliases by label; guarded by itself. */
+    private final MCEngineEssentialCommandTrie<Route> routes = new MCEngineEssentialCommandTrie<>();
+
+    /** Completers set for labels not registered yet, by label; guarded by {@link #routes}. */
+    private final Map<String, Completers> pendingCompleters = new HashMap<>();
+
+    /** Distinct permissions of the registered subcommands, in signature order. */
+    private final List<String> permissions = new CopyOnWriteArrayList<>();
+
+    /** Memoized completion candidates. */
+    private final MCEngineEssentialCompletionCache cache = new MCEngineEssentialCompletionCache();
+
+    /** Async completions in flight, by cache context and partial argument. */
+    private final ConcurrentHashMap<String, CompletableFuture<?>> loading = new ConcurrentHashMap<>();
+
+    /** Executor for unknown subcommands, resolved on each use; may supply {@code null}. */
+    private final Supplier<CommandExecutor> fallback;
+
+    /**
+     * Creates an empty router.
+     *
+     * @param fallback supplies the executor for unknown subcommands; may supply {@code null}
+     */
+    public MCEngineEssentialCommandRouter(Supplier<CommandExecutor> fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Registers a subcommand, replacing any subcommand or alias with the same label.
+     * The route keeps the completer of the subcommand it replaces, or takes one set
+     * earlier for its name or one of its aliases.
+     *
+     * @param name       subcommand label
+     * @param executor   logic receiving the arguments after the label
+     * @param permission permission required to run and see the subcommand, or {@code null}
+     * @param aliases    additional labels routed to the same subcommand
+     */
+    public void register(String name, CommandExecutor executor, String permission, String... aliases) {
+        Route route = new Route(name, executor, permission);
+        synchronized (routes) {
+            Route previous = routes.get(name);
+            if (previous != null) {
+                route.completer = previous.completer;
+                route.asyncCompleter = previous.asyncCompleter;
+                route.ttlMillis = previous.ttlMillis;
+            }
+            Completers pending = pendingCompleters.remove(name);
+            for (String alias : aliases) {
+                Completers forAlias = pendingCompleters.remove(alias);
+                if (pending == null) pending = forAlias;
+            }
+            if (pending != null) {
+                route.completer = pending.completer();
+                route.asyncCompleter = pending.asyncCompleter();
+                route.ttlMillis = pending.ttlMillis();
+            }
+            routes.put(name, route);
+            for (String alias : aliases) routes.put(alias, route);
+        }
+        if (permission != null && !permissions.contains(permission)) permissions.add(permission);
+        cache.clear();
+    }
+
+    /**
+     * Sets the tab completer of a subcommand, or of the subcommand registered later under
+     * this label.
+     *
+     * @param name      subcommand label or alias
+     * @param completer completion logic receiving the arguments after the label
+     * @param ttlMillis how long results are memoized per permission signature; {@code 0} disables it
+     */
+    public void setCompleter(String name, TabCompleter completer, long ttlMillis) {
+        setCompleters(name, new Completers(completer, null, ttlMillis));
+    }
+
+    /**
+     * Sets an asynchronous tab completer on a subcommand, or on the subcommand registered
+     * later under this label.
+     *
+     * @param name      subcommand label or alias
+     * @param completer completion logic loading candidates off the main thread
+     * @param ttlMillis how long loaded candidates are served per permission signature
+     */
+    public void setAsyncCompleter(String name, MCEngineEssentialAsyncTabCompleter completer, long ttlMillis) {
+        setCompleters(name, new Completers(null, completer, Math.max(1L, ttlMillis)));
+    }
+
+    /**
+     * Tells whether a label routes to a subcommand.
+     *
+     * @param label subcommand label or alias
+     * @return {@code true} if registered
+     */
+    public boolean isRegistered(String label) {
+        synchronized (routes) {
+            return routes.get(label) != null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        Route route = null;
+        if (args.length > 0) {
+            synchronized (routes) {
+                route = routes.get(args[0]);
+            }
+        }
+        if (route == null) {
+            CommandExecutor other = fallback.get();
+            return other != null && other.onCommand(sender, command, label, args);
+        }
+        if (!route.permitted(sender)) {
+            sender.sendMessage("You do not have permission to use this command.");
+            return true;
+        }
+        return route.executor.onCommand(sender, command, label, Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        String signature = signature(sender);
+        if (args.length <= 1) {
+            String partial = args.length == 0 ? "" : args[0];
+            List<String> cached = cache.get(signature, partial);
+            if (cached != null) return cached;
+            List<String> labels;
+            synchronized (routes) {
+                labels = routes.complete(partial, route -> route.permitted(sender));
+            }
+            cache.put(signature, partial, labels, LABEL_TTL_MILLIS);
+            return labels;
+        }
+
+        Route route;
+        synchronized (routes) {
+            route = routes.get(args[0]);
+        }
+        if (route == null || !route.permitted(sender)) return List.of();
+        String[] subArgs = Arrays.copyOfRange(args, 1, args.length);
+        String partial = subArgs[subArgs.length - 1];
+        String context = signature + '\u0000' + route.name + '\u0000'
+                + String.join("\u0001", Arrays.asList(subArgs).subList(0, subArgs.length - 1));
+
+        MCEngineEssentialAsyncTabCompleter async = route.asyncCompleter;
+        if (async != null) return completeAsync(route, async, context, sender, subArgs, partial);
+
+        TabCompleter completer = route.completer;
+        if (completer == null) return List.of();
+        if (route.ttlMillis <= 0) return completer.onTabComplete(sender, command, alias, subArgs);
+        List<String> cached = cache.get(context, partial);
+        if (cached != null) return cached;
+        List<String> result = completer.onTabComplete(sender, command, alias, subArgs);
+        if (result == null) return List.of();
+        cache.put(context, partial, result, route.ttlMillis);
+        return result;
+    }
+
+    /**
+     * Serves memoized async candidates. On a miss a load is started unless one is already
+     * running for this argument or a shorter prefix of it, whose result will cover it.
+     */
+    private List<String> completeAsync(Route route, MCEngineEssentialAsyncTabCompleter async, String context,
+                                       CommandSender sender, String[] subArgs, String partial) {
+        List<String> cached = cache.get(context, partial);
+        if (cached != null) return cached;
+        String lower = partial.toLowerCase(Locale.ROOT);
+        for (int len = lower.length(); len >= 0; len--) {
+            if (loading.containsKey(context + '\u0000' + lower.substring(0, len))) return List.of();
+        }
+        String key = context + '\u0000' + lower;
+        CompletableFuture<List<String>> load = async.complete(sender, subArgs);
+        if (loading.putIfAbsent(key, load) != null) return List.of();
+        load.whenComplete((candidates, error) -> {
+            if (error == null && candidates != null) {
+                cache.put(context, partial, MCEngineEssentialCompletionCache.filter(candidates, lower), route.ttlMillis);
+            }
+            loading.remove(key, load);
+        });
+        // Already-completed futures (e.g. served from a warm cache) are usable right away.
+        cached = cache.get(context, partial);
+        return cached == null ? List.of() : cached;
+    }
+
+    /**
+     * Builds the permission signature of a sender: one flag per distinct permission of the
+     * registered subcommands, so senders with the same rights share memoized candidates.
+     */
+    private String signature(CommandSender sender) {
+        if (permissions.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder(permissions.size());
+        for (String permission : permissions) sb.append(sender.hasPermission(permission) ? '1' : '0');
+        return sb.toString();
+    }
+
+    /** Attaches completers to the route of a label, or keeps them until it is registered. */
+    private void setCompleters(String name, Completers completers) {
+        synchronized (routes) {
+            Route route = routes.get(name);
+            if (route == null) {
+                pendingCompleters.put(name, completers);
+                return;
+            }
+            route.completer = completers.completer();
+            route.asyncCompleter = completers.asyncCompleter();
+            route.ttlMillis = completers.ttlMillis();
+        }
+        cache.clear();
+    }
+
+    /**
+     * Completers of a route, at most one of them set.
+     *
+     * @param completer      synchronous completer, or {@code null}
+     * @param asyncCompleter asynchronous completer, or {@code null}
+     * @param ttlMillis      memoization time
+     */
+    private record Completers(TabCompleter completer, MCEngineEssentialAsyncTabCompleter asyncCompleter,
+                              long ttlMillis) {
+    }
+
+    /** A registered subcommand; completer fields change when completers are (re)registered. */
+    private static final class Route {
+        private final String name;
+        private final CommandExecutor executor;
+        private final String permission;
+        private volatile TabCompleter completer;
+        private volatile MCEngineEssentialAsyncTabCompleter asyncCompleter;
+        private volatile long ttlMillis;
+
+        private Route(String name, CommandExecutor executor, String permission) {
+            this.name = name;
+            this.executor = executor;
+            this.permission = permission;
+        }
+
+        private boolean permitted(CommandSender sender) {
+            return permission == null || sender.hasPermission(permission);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.mcengine.common.essential.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Case-insensitive prefix trie mapping command labels to values.
+ * <p>
+ * Exact lookup costs one step per character of the label, and prefix completion only
+ * visits the labels that actually match, so both stay fast as a namespace grows to
+ * hundreds of subcommands. Completions come back in alphabetical order. Not
+ * thread-safe for writes; the router guards registration.
+ *
+ * @param <V> value stored per label
+ */
+public final class MCEngineEssentialCommandTrie<V> {
+
+    /** Root node, representing the empty prefix. */
+    private final Node<V> root = new Node<>();
+
+    /** Number of labels stored. */
+    private int size;
+
+    /**
+     * Stores a value under a label, replacing any previous value.
+     *
+     * @param label command label (case-insensitive)
+     * @param value value to store
+     */
+    public void put(String label, V value) {
+        Node<V> node = root;
+        for (char c : key(label).toCharArray()) node = node.children.computeIfAbsent(c, k -> new Node<>());
+        if (node.value == null) size++;
+        node.value = value;
+    }
+
+    /**
+     * Returns the value stored under a label.
+     *
+     * @param label command label (case-insensitive)
+     * @return the value, or {@code null} if none
+     */
+    public V get(String label) {
+        Node<V> node = find(key(label));
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Removes a label.
+     *
+     * @param label command label (case-insensitive)
+     * @return the removed value, or {@code null} if none
+     */
+    public V remove(String label) {
+        Node<V> node = find(key(label));
+        if (node == null || node.value == null) return null;
+        V old = node.value;
+        node.value = null;
+        size--;
+        return old;
+    }
+
+    /**
+     * Returns the labels starting with a prefix whose value passes a filter.
+     *
+     * @param prefix typed prefix (case-insensitive); empty for every label
+     * @param filter accepts the values whose labels are returned
+     * @return matching labels, lower-cased, in alphabetical order
+     */
+    public List<String> complete(String prefix, Predicate<? super V> filter) {
+        String p = key(prefix);
+        Node<V> start = find(p);
+        List<String> out = new ArrayList<>();
+        if (start != null) collect(start, new StringBuilder(p), filter, out);
+        return out;
+    }
+
+    /**
+     * Returns the number of labels stored.
+     *
+     * @return label count
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Walks to the node of a lower-cased key. */
+    private Node<V> find(String key) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length() && node != null; i++) node = node.children.get(key.charAt(i));
+        return node;
+    }
+
+    /** Depth-first collection of every label under a node. */
+    private static <V> void collect(Node<V> node, StringBuilder path, Predicate<? super V> filter, List<String> out) {
+        if (node.value != null && filter.test(node.value)) out.add(path.toString());
+        for (Map.Entry<Character, Node<V>> child : node.children.entrySet()) {
+            path.append(child.getKey());
+            collect(child.getValue(), path, filter, out);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    private static String key(String label) {
+        return label.toLowerCase(Locale.ROOT);
+    }
+
+    /** Trie node; children are sorted so completions come out alphabetically. */
+    private static final class Node<V> {
+        private final TreeMap<Character, Node<V>> children = new TreeMap<>();
+        private V value;
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.mcengine.common.essential.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived memo of tab completion candidates used by {@link MCEngineEssentialCommandRouter}.
+ * <p>
+ * Entries are keyed by a caller-built context (permission signature, subcommand and the
+ * completed arguments) plus the partial argument. A miss on {@code "abc"} falls back to a
+ * live entry for {@code "ab"}, {@code "a"} or {@code ""} in the same context and filters
+ * it, so typing a name one character at a time reuses the first lookup; the narrowed list
+ * is kept, with the same expiry, for the next keystroke.
+ */
+final class MCEngineEssentialCompletionCache {
+
+    /** Entry count above which the memo is dropped rather than grown. */
+    private static final int LIMIT = 4096;
+
+    /** Candidates by context and partial argument. */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns candidates for a partial argument, from its own entry or the nearest shorter one.
+     *
+     * @param context key of everything but the partial argument
+     * @param partial argument being typed
+     * @return candidates starting with {@code partial}, or {@code null} on a miss
+     */
+    List<String> get(String context, String partial) {
+        String p = partial.toLowerCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+        for (int len = p.length(); len >= 0; len--) {
+            String key = key(context, p.substring(0, len));
+            Entry e = entries.get(key);
+            if (e == null) continue;
+            if (e.expiresAt <= now) {
+                entries.remove(key, e);
+                continue;
+            }
+            if (len == p.length()) return e.candidates;
+            // Remember the narrowed list so the next keystroke filters less.
+            List<String> narrowed = List.copyOf(filter(e.candidates, p));
+            if (entries.size() < LIMIT) entries.putIfAbsent(key(context, p), new Entry(narrowed, e.expiresAt));
+            return narrowed;
+        }
+        return null;
+    }
+
+    /**
+     * Stores candidates for a partial argument.
+     *
+     * @param context    key of everything but the partial argument
+     * @param partial    argument being typed
+     * @param candidates candidates to remember
+     * @param ttlMillis  how long the candidates stay valid
+     */
+    void put(String context, String partial, List<String> candidates, long ttlMillis) {
+        if (ttlMillis <= 0) return;
+        if (entries.size() >= LIMIT) entries.clear();
+        entries.put(key(context, partial.toLowerCase(Locale.ROOT)),
+                new Entry(List.copyOf(candidates), System.currentTimeMillis() + ttlMillis));
+    }
+
+    /** Drops every entry, e.g. after the routes change. */
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Keeps the candidates starting with a prefix, ignoring case.
+     *
+     * @param candidates candidates to filter
+     * @param prefix     lower-cased prefix
+     * @return matching candidates, in their original order
+     */
+    static List<String> filter(List<String> candidates, String prefix) {
+        if (prefix.isEmpty()) return candidates;
+        List<String> out = new ArrayList<>();
+        for (String c : candidates) {
+            if (c.regionMatches(true, 0, prefix, 0, prefix.length())) out.add(c);
+        }
+        return out;
+    }
+
+    private static String key(String context, String partial) {
+        return context + '\u0000' + partial;
+    }
+
+    private record Entry(List<String> candidates, long expiresAt) {
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.mcengine.common.essential.command;
+
+import io.github.mcengine.common.essential.MCEngineEssentialCommon;
+import io.github.mcengine.common.essential.database.MCEngineEssentialMetricsDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialQueryStats;
+import io.github.mcengine.common.essential.database.MCEngineEssentialSingleFlightDB;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * {@code dbstats} subcommand showing the Essential database metrics.
+ * <ul>
+ *     <li>{@code dbstats [total|calls|p99|max|errors|primary] [limit]} lists the top statements (default: by total time, 10)</li>
+ *     <li>{@code dbstats export [file]} writes every statement as CSV into the plugin data folder</li>
+ *     <li>{@code dbstats reset} clears the recorded statistics</li>
+ * </ul>
+ * Requires the {@value #PERMISSION} permission.
+ */
+public class MCEngineEssentialDBStatsCommand implements TabExecutor {
+
+    /** Permission required for every form of the command. */
+    public static final String PERMISSION = "mcengine.essential.dbstats";
+
+    /** Sort orders accepted as the first argument. */
+    private static final List<String> SORTS = List.of("total", "calls", "p99", "max", "errors", "primary");
+
+    /** Export file names: no directories, so exports stay inside the data folder. */
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    /** Essential API providing the metrics, data folder and executors. */
+    private final MCEngineEssentialCommon essential;
+
+    /**
+     * Creates the command.
+     *
+     * @param essential Essential API whose metrics are shown
+     */
+    public MCEngineEssentialDBStatsCommand(MCEngineEssentialCommon essential) {
+        this.essential = essential;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(PERMISSION)) {
+            sender.sendMessage("You do not have permission to view database statistics.");
+            return true;
+        }
+        MCEngineEssentialMetricsDB metrics = essential.getMetrics();
+        if (metrics == null) {
+            sender.sendMessage("Database metrics are disabled (database.metrics.enabled).");
+            return true;
+        }
+
+        String action = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "total";
+        switch (action) {
+            case "reset" -> {
+                metrics.reset();
+                sender.sendMessage("Database statistics cleared.");
+            }
+            case "export" -> export(sender, metrics, args.length > 1 ? args[1] : null);
+            default -> {
+                if (!SORTS.contains(action)) {
+                    sender.sendMessage("Usage: " + label + " [" + String.join("|", SORTS) + "] [limit] | export [file] | reset");
+                    return true;
+                }
+                list(sender, metrics, action, args.length > 1 ? parseLimit(args[1]) : 10);
+            }
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length != 1 || !sender.hasPermission(PERMISSION)) return List.of();
+        String prefix = args[0].toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>();
+        for (String option : SORTS) if (option.startsWith(prefix)) out.add(option);
+        if ("export".startsWith(prefix)) out.add("export");
+        if ("reset".startsWith(prefix)) out.add("reset");
+        return out;
+    }
+
+    /** Sends the top statements in the requested order. */
+    private void list(CommandSender sender, MCEngineEssentialMetricsDB metrics, String sort, int limit) {
+        List<MCEngineEssentialQueryStats> stats = metrics.getStats();
+        stats.sort(comparator(sort).reversed());
+        if (stats.isEmpty()) {
+            sender.sendMessage("No database calls recorded yet.");
+            return;
+        }
+        MCEngineEssentialSingleFlightDB singleFlight = essential.getSingleFlight();
+        if (singleFlight != null) {
+            sender.sendMessage(String.format(Locale.ROOT, "Collapsed reads: %,d (%,d queries issued for collapsible reads)",
+                    singleFlight.getCollapsedCount(), singleFlight.getIssuedCount()));
+        }
+        sender.sendMessage("Top " + Math.min(limit, stats.size()) + " of " + stats.size() + " statements by " + sort + ":");
+        for (MCEngineEssentialQueryStats q : stats.subList(0, Math.min(limit, stats.size()))) {
+            sender.sendMessage(String.format(Locale.ROOT,
+                    "%,d calls, %d err, %d main | p50 %.1f ms, p99 %.1f ms, max %.1f ms, total %.0f ms | %s",
+                    q.calls(), q.errors(), q.primaryThreadCalls(),
+                    q.p50Nanos() / 1e6, q.p99Nanos() / 1e6, q.maxNanos() / 1e6, q.totalNanos() / 1e6,
+                    abbreviate(q.fingerprint())));
+        }
+    }
+
+    /** Writes the CSV off the main thread and reports back on it. */
+    private void export(CommandSender sender, MCEngineEssentialMetricsDB metrics, String name) {
+        String fileName = name != null ? name
+                : "dbstats-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".csv";
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            sender.sendMessage("Invalid file name: " + fileName);
+            return;
+        }
+        Path file = essential.getPlugin().getDataFolder().toPath().resolve(fileName);
+        essential.getDBExecutor().submit(() -> {
+            metrics.export(file);
+            return file;
+        }).whenCompleteAsync((written, error) -> sender.sendMessage(error == null
+                ? "Database statistics exported to " + written
+                : "Database statistics export failed: " + error.getMessage()), essential.getMainThreadExecutor());
+    }
+
+    /** Descending-sort key for an order name. */
+    private static Comparator<MCEngineEssentialQueryStats> comparator(String sort) {
+        return switch (sort) {
+            case "calls" -> Comparator.comparingLong(MCEngineEssentialQueryStats::calls);
+            case "p99" -> Comparator.comparingLong(MCEngineEssentialQueryStats::p99Nanos);
+            case "max" -> Comparator.comparingLong(MCEngineEssentialQueryStats::maxNanos);
+            case "errors" -> Comparator.comparingLong(MCEngineEssentialQueryStats::errors);
+            case "primary" -> Comparator.comparingLong(MCEngineEssentialQueryStats::primaryThreadCalls);
+            default -> Comparator.comparingLong(MCEngineEssentialQueryStats::totalNanos);
+        };
+    }
+
+    /** Parses a positive row limit, falling back to 10. */
+    private static int parseLimit(String raw) {
+        try {
+            return Math.max(1, Integer.parseInt(raw));
+        } catch (NumberFormatException e) {
+            return 10;
+        }
+    }
+
+    /** Shortens long statements for chat. */
+    private static String abbreviate(String sql) {
+        return sql.length() <= 120 ? sql : sql.substring(0, 117) + "...";
+    }
+}
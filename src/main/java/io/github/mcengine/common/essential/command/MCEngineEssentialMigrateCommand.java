@@ -0,0 +1,283 @@
+package io.github.mcengine.common.essential.command;
+
+import io.github.mcengine.common.essential.MCEngineEssentialCommon;
+import io.github.mcengine.common.essential.database.MCEngineEssentialCachingDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialJdbcDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialMigration;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * {@code migrate} subcommand moving the Essential data between backends and dump files.
+ * <ul>
+ *     <li>{@code migrate to <sqlite|mysql|postgresql|memory> [table...]} copies the configured database
+ *         into the backend configured under {@code database.<type>.*}</li>
+ *     <li>{@code migrate export [file] [table...]} writes a dump into the plugin data folder</li>
+ *     <li>{@code migrate import <file> [table...]} loads a dump from the plugin data folder
+ *         into the configured database</li>
+ *     <li>{@code migrate status} shows the progress of the running migration</li>
+ * </ul>
+ * One migration runs at a time, on its own threads. Copies and imports keep a checkpoint in
+ * the data folder; running an interrupted one again resumes it. Progress is reported every
+ * {@code database.migration.progress-interval} milliseconds (default: {@code 5000}).
+ * Requires the {@value #PERMISSION} permission.
+ */
+public class MCEngineEssentialMigrateCommand implements TabExecutor {
+
+    /** Permission required for every form of the command. */
+    public static final String PERMISSION = "mcengine.essential.migrate";
+
+    /** Backend types accepted by {@code to}. */
+    private static final List<String> TYPES = List.of("sqlite", "mysql", "postgresql", "memory");
+
+    /** Actions accepted as the first argument. */
+    private static final List<String> ACTIONS = List.of("to", "export", "import", "status");
+
+    /** Dump file names: no directories, so dumps stay inside the data folder. */
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    /** Essential API providing the backends, data folder and executors. */
+    private final MCEngineEssentialCommon essential;
+
+    /** Migration in progress; {@code null} when idle. */
+    private final AtomicReference<Job> running = new AtomicReference<>();
+
+    /**
+     * Creates the command.
+     *
+     * @param essential Essential API whose database is migrated
+     */
+    public MCEngineEssentialMigrateCommand(MCEngineEssentialCommon essential) {
+        this.essential = essential;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(PERMISSION)) {
+            sender.sendMessage("You do not have permission to migrate the database.");
+            return true;
+        }
+        String action = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "";
+        List<String> rest = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : List.of();
+        switch (action) {
+            case "status" -> status(sender);
+            case "to" -> {
+                String type = rest.isEmpty() ? "" : rest.get(0).toLowerCase(Locale.ROOT);
+                if (!TYPES.contains(type)) {
+                    sender.sendMessage("Usage: " + label + " to <" + String.join("|", TYPES) + "> [table...]");
+                } else if (type.equals(essential.getDatabaseType())) {
+                    sender.sendMessage("The database already uses " + type + ".");
+                } else if (type.equals("memory") && !essential.getPlugin().getConfig()
+                        .getBoolean("database.memory.snapshot.enabled", false)) {
+                    sender.sendMessage("A copy to memory is lost on close unless database.memory.snapshot.enabled is on.");
+                } else {
+                    copy(sender, type, rest.subList(1, rest.size()));
+                }
+            }
+            case "export" -> {
+                String name = rest.isEmpty() ? "essential-"
+                        + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".dump" : rest.get(0);
+                if (checkName(sender, name)) exportTo(sender, name, rest.isEmpty() ? List.of() : rest.subList(1, rest.size()));
+            }
+            case "import" -> {
+                if (rest.isEmpty()) {
+                    sender.sendMessage("Usage: " + label + " import <file> [table...]");
+                } else if (checkName(sender, rest.get(0))) {
+                    importFrom(sender, rest.get(0), rest.subList(1, rest.size()));
+                }
+            }
+            default -> sender.sendMessage("Usage: " + label + " to <type> [table...] | export [file] [table...]"
+                    + " | import <file> [table...] | status");
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(PERMISSION)) return List.of();
+        List<String> options;
+        if (args.length == 1) options = ACTIONS;
+        else if (args.length == 2 && "to".equalsIgnoreCase(args[0])) options = TYPES;
+        else if (args.length == 2 && "import".equalsIgnoreCase(args[0])) options = dumpFiles();
+        else return List.of();
+        String prefix = args[args.length - 1].toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>();
+        for (String option : options) if (option.toLowerCase(Locale.ROOT).startsWith(prefix)) out.add(option);
+        return out;
+    }
+
+    /** Copies the configured database into a newly opened backend of another type. */
+    private void copy(CommandSender sender, String type, List<String> tables) {
+        Path checkpoint = dataFile("migration-" + type + ".checkpoint");
+        start(sender, "Copy to " + type, job -> {
+            MCEngineEssentialJdbcDB target = essential.openBackend(type);
+            try {
+                target.ready().get(essential.getPlugin().getConfig()
+                        .getLong("database.migration.connect-timeout", 30_000L), TimeUnit.MILLISECONDS);
+                return migration(job).copy(essential.getBackend(), target, tables, checkpoint);
+            } finally {
+                target.close();
+            }
+        });
+    }
+
+    /** Writes a dump of the configured database. */
+    private void exportTo(CommandSender sender, String name, List<String> tables) {
+        Path file = dataFile(name);
+        start(sender, "Export to " + file, job -> migration(job).exportTo(essential.getBackend(), file, tables));
+    }
+
+    /** Loads a dump into the configured database, then drops what the caches hold. */
+    private void importFrom(CommandSender sender, String name, List<String> tables) {
+        Path file = dataFile(name);
+        if (!Files.isRegularFile(file)) {
+            sender.sendMessage("No such dump: " + file);
+            return;
+        }
+        Path checkpoint = dataFile(name + ".checkpoint");
+        start(sender, "Import from " + file, job -> {
+            try {
+                return migration(job).importFrom(file, essential.getBackend(), tables, checkpoint);
+            } finally {
+                // Rows were written below the cache and change bus.
+                MCEngineEssentialCachingDB cache = essential.getCache();
+                if (cache != null) cache.invalidateAll();
+                for (String table : job.progress.keySet()) essential.publishChange(table, null);
+            }
+        });
+    }
+
+    /** Starts a job on its own thread unless one is already running. */
+    private void start(CommandSender sender, String description, Task task) {
+        Job job = new Job(description, sender,
+                essential.getPlugin().getConfig().getLong("database.migration.progress-interval", 5_000L));
+        if (!running.compareAndSet(null, job)) {
+            sender.sendMessage("A migration is already running: " + running.get().description);
+            return;
+        }
+        sender.sendMessage(description + " started; use 'migrate status' to follow it.");
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run(job);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }, r -> {
+            Thread t = new Thread(r, "MCEngineEssential-migration");
+            t.setDaemon(true);
+            t.start();
+        }).whenComplete((rows, error) -> {
+            running.compareAndSet(job, null);
+            Throwable cause = error != null && error.getCause() != null ? error.getCause() : error;
+            String message = cause == null
+                    ? String.format(Locale.ROOT, "%s finished: %,d rows in %d s.", description, rows,
+                    (System.currentTimeMillis() - job.startedAt) / 1000)
+                    : description + " failed: " + cause.getMessage();
+            if (cause != null) essential.getPlugin().getLogger().warning(message);
+            essential.getMainThreadExecutor().execute(() -> sender.sendMessage(message));
+        });
+    }
+
+    /** Sends the running job's per-table progress. */
+    private void status(CommandSender sender) {
+        Job job = running.get();
+        if (job == null) {
+            sender.sendMessage("No migration is running.");
+            return;
+        }
+        sender.sendMessage(job.description + ", running for " + (System.currentTimeMillis() - job.startedAt) / 1000 + " s:");
+        if (job.progress.isEmpty()) sender.sendMessage("  reading schema...");
+        for (Map.Entry<String, long[]> e : job.progress.entrySet()) sender.sendMessage("  " + line(e.getKey(), e.getValue()));
+    }
+
+    /** Builds a runner reporting into a job. */
+    private MCEngineEssentialMigration migration(Job job) {
+        return MCEngineEssentialMigration.fromConfig(essential.getPlugin().getConfig(),
+                essential.getPlugin().getLogger(), job::onProgress);
+    }
+
+    /** Rejects file names that could leave the data folder. */
+    private static boolean checkName(CommandSender sender, String name) {
+        if (FILE_NAME.matcher(name).matches()) return true;
+        sender.sendMessage("Invalid file name: " + name);
+        return false;
+    }
+
+    private Path dataFile(String name) {
+        return essential.getPlugin().getDataFolder().toPath().resolve(name);
+    }
+
+    /** Lists the dumps in the data folder. */
+    private List<String> dumpFiles() {
+        String[] names = essential.getPlugin().getDataFolder().list((File dir, String n) -> n.endsWith(".dump"));
+        return names != null ? Arrays.asList(names) : List.of();
+    }
+
+    /** Formats one table's progress. */
+    private static String line(String table, long[] p) {
+        String state = p[2] == 1 ? "done" : p[1] > 0
+                ? String.format(Locale.ROOT, "%.0f%%", Math.min(100.0, 100.0 * p[0] / p[1])) : "running";
+        String of = p[1] >= 0 ? String.format(Locale.ROOT, " of %,d", p[1]) : "";
+        return String.format(Locale.ROOT, "%s: %,d%s rows (%s)", table, p[0], of, state);
+    }
+
+    /** Body of a job, run on the migration thread. */
+    @FunctionalInterface
+    private interface Task {
+        long run(Job job) throws Exception;
+    }
+
+    /** A running migration and the progress it reported. */
+    private final class Job {
+
+        private final String description;
+        private final CommandSender sender;
+        private final long intervalMillis;
+        private final long startedAt = System.currentTimeMillis();
+
+        /** Rows, total ({@code -1} if unknown) and done flag per table. */
+        private final Map<String, long[]> progress = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        /** When progress was last sent to the sender. */
+        private final AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+
+        Job(String description, CommandSender sender, long intervalMillis) {
+            this.description = description;
+            this.sender = sender;
+            this.intervalMillis = Math.max(1_000L, intervalMillis);
+        }
+
+        /** Records progress and reports it on table completion or every interval. */
+        void onProgress(String table, long rows, long total, boolean done) {
+            long[] p = {rows, total, done ? 1 : 0};
+            progress.put(table, p);
+            long now = System.currentTimeMillis();
+            long last = lastReport.get();
+            if (!done && (now - last < intervalMillis || !lastReport.compareAndSet(last, now))) return;
+            String message = line(table, p);
+            essential.getMainThreadExecutor().execute(() -> sender.sendMessage(message));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.mcengine.common.essential.counter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Handle to one persistent counter, identified by namespace and id.
+ * <p>
+ * {@link #add} only touches a striped {@link LongAdder}, so any number of threads can count
+ * without locking or boxing; the owning {@link MCEngineEssentialCounterStore} moves the
+ * accumulated delta to the database in batches. {@link #get} returns the persisted value plus
+ * every delta not yet written. Handles stay valid after the store drops an idle counter:
+ * later calls are redirected to its replacement.
+ */
+public final class MCEngineEssentialCounter {
+
+    /** Store that persists this counter. */
+    private final MCEngineEssentialCounterStore store;
+
+    /** Counter namespace, e.g. {@code stats}. */
+    private final String namespace;
+
+    /** Counter id within the namespace, e.g. {@code kills:<uuid>}. */
+    private final String id;
+
+    /** Delta added since the last flush took it. */
+    private final LongAdder pending = new LongAdder();
+
+    /** Value in the database when last loaded, plus the flushes committed since; guarded by {@code this}. */
+    private long persisted;
+
+    /** Delta taken by a flush that has not committed yet; guarded by {@code this}. */
+    private long flushing;
+
+    /** Whether {@link #persisted} holds a loaded value; guarded by {@code this}. */
+    private boolean loaded;
+
+    /** Number of taken deltas not yet committed or restored; guarded by {@code this}. */
+    private int inFlight;
+
+    /** Bumped by flushes taking a delta, commits and unloads, so a load racing them is discarded; guarded by {@code this}. */
+    private long generation;
+
+    /** Set when the counter was used since the store's last idle check. */
+    private volatile boolean touched = true;
+
+    /** Set once the store has dropped the counter; calls then go to its replacement. */
+    private volatile boolean retired;
+
+    MCEngineEssentialCounter(MCEngineEssentialCounterStore store, String namespace, String id) {
+        this.store = store;
+        this.namespace = namespace;
+        this.id = id;
+    }
+
+    /**
+     * Returns the counter namespace.
+     *
+     * @return namespace
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Returns the counter id within its namespace.
+     *
+     * @return id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Adds a delta; it is written to the database by the next flush.
+     *
+     * @param delta amount to add, may be negative
+     */
+    public void add(long delta) {
+        if (delta == 0) return;
+        pending.add(delta);
+        if (!touched) touched = true;
+        if (retired) store.moveRetired(this);
+    }
+
+    /** Adds one. */
+    public void increment() {
+        add(1L);
+    }
+
+    /**
+     * Returns the current value: the persisted value plus every delta not yet written.
+     * The first call loads the persisted value, so call it off the main thread.
+     * <p>
+     * A load only counts if no flush of this counter was in flight from its start to its
+     * end, since the database may or may not include that flush's delta yet; otherwise it
+     * waits for the flush to finish and loads again.
+     *
+     * @return current value; {@code 0} plus pending deltas for a counter never written
+     * @throws RuntimeException if the persisted value cannot be loaded, or the thread is
+     *                          interrupted while waiting for a flush
+     */
+    public long get() {
+        if (retired) return store.counter(namespace, id).get();
+        if (!touched) touched = true;
+        for (;;) {
+            long gen;
+            synchronized (this) {
+                while (!loaded && inFlight != 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException("Interrupted loading counter " + namespace + ":" + id, e);
+                    }
+                }
+                if (loaded) return persisted + flushing + pending.sum();
+                gen = generation;
+            }
+            long value = store.loadPersisted(namespace, id);
+            synchronized (this) {
+                if (!loaded && generation == gen && inFlight == 0) {
+                    persisted = value;
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the delta not yet written to the database.
+     *
+     * @return unwritten delta
+     */
+    public long getPending() {
+        synchronized (this) {
+            return flushing + pending.sum();
+        }
+    }
+
+    /** Moves the pending delta to the flushing state and returns it. */
+    synchronized long take() {
+        long delta = pending.sumThenReset();
+        if (delta != 0) {
+            generation++;
+            inFlight++;
+            flushing += delta;
+        }
+        return delta;
+    }
+
+    /** Records a committed flush of {@code delta}. */
+    synchronized void commit(long delta) {
+        generation++;
+        if (loaded) persisted += delta;
+        flushing -= delta;
+        inFlight--;
+        notifyAll();
+    }
+
+    /** Puts a delta back after a failed flush. */
+    synchronized void restore(long delta) {
+        flushing -= delta;
+        pending.add(delta);
+        inFlight--;
+        notifyAll();
+    }
+
+    /** Forgets the persisted value, e.g. after another server changed it. */
+    synchronized void unload() {
+        loaded = false;
+        generation++;
+    }
+
+    /**
+     * Retires the counter if it was not used since the previous check and has nothing to
+     * write. The caller must remove it from the store and then call
+     * {@link MCEngineEssentialCounterStore#moveRetired} to catch adds that raced the check.
+     */
+    synchronized boolean tryRetire() {
+        if (touched) {
+            touched = false;
+            return false;
+        }
+        if (flushing != 0 || pending.sum() != 0) return false;
+        retired = true;
+        return true;
+    }
+
+    /** Takes whatever was added after retirement. */
+    long drainRetired() {
+        return pending.sumThenReset();
+    }
+}
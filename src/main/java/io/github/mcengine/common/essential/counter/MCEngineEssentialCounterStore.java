@@ -0,0 +1,419 @@
+package io.github.mcengine.common.essential.counter;
+
+import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeBus;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeEvent;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeListener;
+import io.github.mcengine.common.essential.database.MCEngineEssentialWrite;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent counters accumulated in memory and written to the database in batches.
+ * <p>
+ * Counters are keyed by namespace and id and kept in one table. Increments only touch the
+ * counter's striped {@link java.util.concurrent.atomic.LongAdder}, so hot counters such as
+ * kills, blocks broken or votes cost no database round trip and no lock. Every
+ * {@code flushIntervalMillis} the accumulated deltas are written as relative upserts
+ * ({@code value = value + delta}) in the backend's dialect, so servers sharing the table
+ * never overwrite each other's increments. Rows are written in key order, so concurrent
+ * flushes from several servers lock them in the same order.
+ * <p>
+ * A failed flush puts the deltas back and retries them on the next cycle. Counters not used
+ * for {@code idleTimeoutMillis} and with nothing left to write are dropped from memory.
+ */
+public final class MCEngineEssentialCounterStore {
+
+    /** Allowed table names. */
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /** Allowed namespaces; no {@code :}, which separates namespace and id in change keys. */
+    private static final Pattern NAMESPACE = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+    /** Longest counter id, bounded so the primary key fits MySQL's index limit. */
+    private static final int MAX_ID_LENGTH = 191;
+
+    /** Database holding the counter table. */
+    private final IMCEngineEssentialDB db;
+
+    /** Logger of the owning plugin. */
+    private final Logger logger;
+
+    /** Counter table name. */
+    private final String table;
+
+    /** {@code CREATE TABLE IF NOT EXISTS} for the counter table. */
+    private final String createSql;
+
+    /** Relative upsert in the backend's dialect. */
+    private final String upsertSql;
+
+    /** Persisted value lookup. */
+    private final String selectSql;
+
+    /** Upserts sent per batch. */
+    private final int batchSize;
+
+    /** How long a counter may go unused before it is dropped from memory. */
+    private final long idleTimeoutMillis;
+
+    /** Counters in memory by key. */
+    private final ConcurrentHashMap<Key, MCEngineEssentialCounter> counters = new ConcurrentHashMap<>();
+
+    /** Serializes flushes so deltas are taken and restored consistently. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /** Background flusher thread. */
+    private final ScheduledExecutorService flusher;
+
+    /** Number of upserts written. */
+    private final AtomicLong written = new AtomicLong();
+
+    /** Number of committed batches. */
+    private final AtomicLong flushes = new AtomicLong();
+
+    /** Number of counters dropped from memory. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Bus other servers' changes arrive on and flushed counters are published to; may be {@code null}. */
+    private volatile MCEngineEssentialChangeBus changeBus;
+
+    /** Subscription on {@link #changeBus}, removed on close since the bus may outlive the store. */
+    private final MCEngineEssentialChangeListener remoteListener = this::onRemoteChanges;
+
+    /** Set once the counter table is known to exist. */
+    private volatile boolean tableReady;
+
+    /** Time of the last idle check; flusher thread only. */
+    private long lastIdleCheck = System.currentTimeMillis();
+
+    /** Set once {@link #close()} has been called. */
+    private volatile boolean closed;
+
+    /**
+     * Creates the store and starts its background flusher. The counter table is created on
+     * first use.
+     *
+     * @param db                  database holding the counter table
+     * @param logger              logger of the owning plugin
+     * @param table               counter table name
+     * @param type                backend type, selecting the upsert dialect
+     * @param flushIntervalMillis time between batched flushes
+     * @param batchSize           upserts sent per batch
+     * @param idleTimeoutMillis   how long a counter may go unused before it is dropped from memory
+     */
+    public MCEngineEssentialCounterStore(IMCEngineEssentialDB db, Logger logger, String table, String type,
+                                         long flushIntervalMillis, int batchSize, long idleTimeoutMillis) {
+        if (!IDENTIFIER.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid counter table name: " + table);
+        }
+        this.db = db;
+        this.logger = logger;
+        this.table = table;
+        this.batchSize = Math.max(1, batchSize);
+        this.idleTimeoutMillis = Math.max(1_000L, idleTimeoutMillis);
+
+        this.createSql = "CREATE TABLE IF NOT EXISTS " + table + " (namespace VARCHAR(64) NOT NULL, counter_id VARCHAR("
+                + MAX_ID_LENGTH + ") NOT NULL, counter_value BIGINT NOT NULL, PRIMARY KEY (namespace, counter_id))";
+        String insert = "INSERT INTO " + table + " (namespace, counter_id, counter_value) VALUES (?, ?, ?)";
+        this.upsertSql = switch (type) {
+            case "mysql" -> insert + " ON DUPLICATE KEY UPDATE counter_value = counter_value + VALUES(counter_value)";
+            case "postgresql" -> insert + " ON CONFLICT (namespace, counter_id) DO UPDATE SET counter_value = "
+                    + table + ".counter_value + EXCLUDED.counter_value";
+            default -> insert + " ON CONFLICT (namespace, counter_id) DO UPDATE SET counter_value = "
+                    + table + ".counter_value + excluded.counter_value";
+        };
+        this.selectSql = "SELECT counter_value FROM " + table + " WHERE namespace = ? AND counter_id = ?";
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MCEngineEssential-counters");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(100L, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::cycle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds the store from config keys:
+     * <ul>
+     *     <li>{@code database.counters.table} (default: {@code essential_counters})</li>
+     *     <li>{@code database.counters.flush-interval} in milliseconds (default: {@code 5000})</li>
+     *     <li>{@code database.counters.batch-size} upserts per batch (default: {@code 500})</li>
+     *     <li>{@code database.counters.idle-timeout} in milliseconds (default: {@code 300000})</li>
+     * </ul>
+     *
+     * @param config root configuration
+     * @param db     database holding the counter table
+     * @param type   backend type ({@code sqlite}, {@code mysql} or {@code postgresql})
+     * @param logger logger of the owning plugin
+     * @return configured store
+     */
+    public static MCEngineEssentialCounterStore fromConfig(ConfigurationSection config, IMCEngineEssentialDB db,
+                                                           String type, Logger logger) {
+        return new MCEngineEssentialCounterStore(
+                db,
+                logger,
+                config.getString("database.counters.table", "essential_counters"),
+                type,
+                config.getLong("database.counters.flush-interval", 5_000L),
+                config.getInt("database.counters.batch-size", 500),
+                config.getLong("database.counters.idle-timeout", 300_000L));
+    }
+
+    /**
+     * Connects the store to a change bus: flushed counters are published, and counters
+     * another server changed are reloaded on their next read.
+     *
+     * @param bus change bus shared by the servers
+     */
+    public void connect(MCEngineEssentialChangeBus bus) {
+        this.changeBus = bus;
+        bus.subscribe(remoteListener);
+    }
+
+    /**
+     * Returns the handle of a counter. Handles are cheap to look up but may be kept.
+     *
+     * @param namespace counter namespace: letters, digits, {@code _}, {@code .} or {@code -}, at most 64
+     * @param id        counter id within the namespace, at most 191 characters
+     * @return the counter
+     * @throws IllegalArgumentException if the namespace or id is invalid
+     * @throws IllegalStateException    if the store is closed
+     */
+    public MCEngineEssentialCounter counter(String namespace, String id) {
+        if (closed) throw new IllegalStateException("Essential counter store is closed");
+        Key key = new Key(namespace, id);
+        MCEngineEssentialCounter counter = counters.get(key);
+        if (counter != null) return counter;
+        if (namespace == null || !NAMESPACE.matcher(namespace).matches()) {
+            throw new IllegalArgumentException("Invalid counter namespace: " + namespace);
+        }
+        if (id == null || id.isEmpty() || id.length() > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Counter id must be 1 to " + MAX_ID_LENGTH + " characters: " + id);
+        }
+        return counters.computeIfAbsent(key, k -> new MCEngineEssentialCounter(this, namespace, id));
+    }
+
+    /**
+     * Adds a delta to a counter; it is written by the next flush.
+     *
+     * @param namespace counter namespace
+     * @param id        counter id
+     * @param delta     amount to add, may be negative
+     */
+    public void add(String namespace, String id, long delta) {
+        counter(namespace, id).add(delta);
+    }
+
+    /**
+     * Returns a counter's current value, including deltas not yet written. The first read
+     * of a counter queries the database, so call it off the main thread.
+     *
+     * @param namespace counter namespace
+     * @param id        counter id
+     * @return current value
+     */
+    public long get(String namespace, String id) {
+        return counter(namespace, id).get();
+    }
+
+    /**
+     * Writes every pending delta on the calling thread.
+     *
+     * @throws RuntimeException if a batch fails; its deltas are kept for the next flush
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<MCEngineEssentialCounter> dirty = new ArrayList<>();
+            for (MCEngineEssentialCounter counter : counters.values()) {
+                if (counter.getPending() != 0) dirty.add(counter);
+            }
+            if (dirty.isEmpty()) return;
+            ensureTable();
+            dirty.sort(Comparator.comparing(MCEngineEssentialCounter::getNamespace)
+                    .thenComparing(MCEngineEssentialCounter::getId));
+
+            RuntimeException failure = null;
+            for (int from = 0; from < dirty.size(); from += batchSize) {
+                try {
+                    flush(dirty.subList(from, Math.min(dirty.size(), from + batchSize)));
+                } catch (RuntimeException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            if (failure != null) throw failure;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of counters held in memory.
+     *
+     * @return counter count
+     */
+    public int getCounterCount() {
+        return counters.size();
+    }
+
+    /**
+     * Returns the number of upserts written by flushes.
+     *
+     * @return written upsert count
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Returns the number of committed batches.
+     *
+     * @return flush count
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Returns the number of counters dropped from memory after going unused.
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Stops the background flusher and writes every remaining delta. Deltas that still
+     * cannot be written are logged and lost. Then leaves the change bus, if connected.
+     */
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            long lost = counters.values().stream().filter(c -> c.getPending() != 0).count();
+            logger.warning("Essential counter flush failed on shutdown, " + lost + " counters not saved: " + e.getMessage());
+        }
+        MCEngineEssentialChangeBus bus = changeBus;
+        if (bus != null) bus.unsubscribe(remoteListener);
+    }
+
+    /** Reads a counter's persisted value. */
+    long loadPersisted(String namespace, String id) {
+        ensureTable();
+        return db.getLong(selectSql, 0L, namespace, id);
+    }
+
+    /** Moves deltas added to a dropped counter over to its replacement. */
+    void moveRetired(MCEngineEssentialCounter retired) {
+        long delta = retired.drainRetired();
+        if (delta != 0) counter(retired.getNamespace(), retired.getId()).add(delta);
+    }
+
+    /** Writes one batch of counters, committing or restoring their deltas. */
+    private void flush(List<MCEngineEssentialCounter> batch) {
+        List<MCEngineEssentialCounter> taken = new ArrayList<>(batch.size());
+        List<Long> deltas = new ArrayList<>(batch.size());
+        List<MCEngineEssentialWrite> writes = new ArrayList<>(batch.size());
+        for (MCEngineEssentialCounter counter : batch) {
+            long delta = counter.take();
+            if (delta == 0) continue;
+            taken.add(counter);
+            deltas.add(delta);
+            writes.add(new MCEngineEssentialWrite(upsertSql, counter.getNamespace(), counter.getId(), delta));
+        }
+        if (writes.isEmpty()) return;
+        try {
+            db.executeBatch(writes);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < taken.size(); i++) taken.get(i).restore(deltas.get(i));
+            throw e;
+        }
+        for (int i = 0; i < taken.size(); i++) taken.get(i).commit(deltas.get(i));
+        written.addAndGet(writes.size());
+        flushes.incrementAndGet();
+
+        MCEngineEssentialChangeBus bus = changeBus;
+        if (bus != null) {
+            for (MCEngineEssentialCounter counter : taken) {
+                bus.publish(table, counter.getNamespace() + ":" + counter.getId());
+            }
+        }
+    }
+
+    /** Creates the counter table once. */
+    private void ensureTable() {
+        if (tableReady) return;
+        synchronized (this) {
+            if (tableReady) return;
+            db.executeQuery(createSql);
+            tableReady = true;
+        }
+    }
+
+    /** One background cycle: flush, then drop idle counters. */
+    private void cycle() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warning("Essential counter flush failed, retrying next cycle: " + e.getMessage());
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck >= idleTimeoutMillis) {
+            lastIdleCheck = now;
+            evictIdle();
+        }
+    }
+
+    /** Drops counters unused since the previous idle check and with nothing left to write. */
+    private void evictIdle() {
+        for (MCEngineEssentialCounter counter : counters.values()) {
+            if (!counter.tryRetire()) continue;
+            counters.remove(new Key(counter.getNamespace(), counter.getId()), counter);
+            evictions.incrementAndGet();
+            // An add that raced the check sees the retired flag or is drained here.
+            moveRetired(counter);
+        }
+    }
+
+    /** Reloads counters another server changed on their next read. */
+    private void onRemoteChanges(Set<MCEngineEssentialChangeEvent> changes) {
+        for (MCEngineEssentialChangeEvent change : changes) {
+            if (change.isAll() || (change.key() == null && table.equalsIgnoreCase(change.table()))) {
+                counters.values().forEach(MCEngineEssentialCounter::unload);
+                continue;
+            }
+            if (!table.equalsIgnoreCase(change.table())) continue;
+            int colon = change.key().indexOf(':');
+            if (colon <= 0) continue;
+            MCEngineEssentialCounter counter = counters.get(
+                    new Key(change.key().substring(0, colon), change.key().substring(colon + 1)));
+            if (counter != null) counter.unload();
+        }
+    }
+
+    /** Counter key. */
+    private record Key(String namespace, String id) {
+    }
+}
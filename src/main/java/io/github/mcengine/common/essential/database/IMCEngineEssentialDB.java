@@ -1,5 +1,11 @@
 package io.github.mcengine.common.essential.database;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 /**
  * Minimal persistence contract for the Essential module.
  * <p>
@@ -18,12 +24,39 @@ public interface IMCEngineEssentialDB {
      */
     void executeQuery(String sql);
 
+    /**
+     * Executes a parameterized SQL statement that does not return a result set.
+     * <p>
+     * Placeholders ({@code ?}) are bound positionally from {@code params}, so values never
+     * need to be concatenated into the SQL text. The prepared statement is cached per
+     * connection and reused by later calls with the same SQL.
+     *
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order; {@code null} binds SQL {@code NULL}
+     * @throws RuntimeException if execution fails
+     */
+    void executeQuery(String sql, Object... params);
+
+    /**
+     * Executes a sequence of parameterized writes in one transaction.
+     * <p>
+     * Consecutive writes sharing the same SQL text are sent as a single JDBC batch
+     * ({@code addBatch}/{@code executeBatch}). Either every write is committed or, on
+     * failure, none is.
+     *
+     * @param writes writes in execution order
+     * @throws RuntimeException if any write fails; the transaction is rolled back
+     */
+    void executeBatch(List<MCEngineEssentialWrite> writes);
+
     /**
      * Executes a SQL query expected to return a single scalar value (first column of the first row),
      * coercing the value to the requested Java type.
      *
      * <p>Supported target types include: {@code String}, {@code Integer}, {@code Long},
-     * {@code Double}, {@code Float}, and {@code Boolean} (accepting 1/0 or true/false).</p>
+     * {@code Double}, {@code Float}, {@code Boolean} (accepting 1/0 or true/false),
+     * {@code UUID}, {@code Instant}, {@code byte[]}, {@code BigDecimal}, and any type
+     * registered with {@link MCEngineEssentialTypeCodec#register}.</p>
      *
      * @param sql  a complete SQL query
      * @param type target scalar class
@@ -33,4 +66,196 @@ public interface IMCEngineEssentialDB {
      * @throws RuntimeException         if execution fails
      */
     <T> T getValue(String sql, Class<T> type);
+
+    /**
+     * Executes a parameterized SQL query expected to return a single scalar value
+     * (first column of the first row), coercing the value to the requested Java type.
+     * <p>
+     * Placeholders ({@code ?}) are bound positionally from {@code params}. The prepared
+     * statement is cached per connection and reused by later calls with the same SQL.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param type   target scalar class
+     * @param params values bound to the placeholders in order; {@code null} binds SQL {@code NULL}
+     * @param <T>    type parameter for the coerced result
+     * @return coerced value, or {@code null} if no rows are returned
+     * @throws IllegalArgumentException if {@code type} is unsupported
+     * @throws RuntimeException         if execution fails
+     */
+    <T> T getValue(String sql, Class<T> type, Object... params);
+
+    /**
+     * Reads a scalar {@code int} (first column of the first row), converted like
+     * {@code getValue(sql, Integer.class, params)}. The JDBC backends read integer columns of
+     * cached statements with the typed getter, so no value is boxed.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default int getInt(String sql, int defaultValue, Object... params) {
+        Integer v = getValue(sql, Integer.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Reads a scalar {@code long} (first column of the first row), converted like
+     * {@code getValue(sql, Long.class, params)}. The JDBC backends read integer columns of
+     * cached statements with the typed getter, so no value is boxed.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default long getLong(String sql, long defaultValue, Object... params) {
+        Long v = getValue(sql, Long.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Reads a scalar {@code double} (first column of the first row), converted like
+     * {@code getValue(sql, Double.class, params)}. The JDBC backends read integer and floating-point columns of
+     * cached statements with the typed getter, so no value is boxed.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default double getDouble(String sql, double defaultValue, Object... params) {
+        Double v = getValue(sql, Double.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Reads a scalar {@code boolean} (first column of the first row), accepting boolean
+     * columns, {@code 1}/{@code 0} and {@code "true"}/{@code "false"}.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        Boolean v = getValue(sql, Boolean.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Runs a parameterized query and returns its rows as a lazily consumed stream.
+     * <p>
+     * Rows are fetched from the database in chunks of {@code database.<type>.fetch-size}
+     * as the stream is consumed (a server-side cursor on MySQL and PostgreSQL), so large
+     * scans run in constant memory. The stream holds a pooled connection until it is
+     * closed and <strong>must</strong> be used in a try-with-resources block:
+     * <pre>{@code
+     * try (Stream<String> names = db.query("SELECT name FROM homes WHERE owner = ?",
+     *         rs -> rs.getString(1), uuid.toString())) {
+     *     names.forEach(...);
+     * }
+     * }</pre>
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param mapper maps each row
+     * @param params values bound to the placeholders in order
+     * @param <T>    mapped row type
+     * @return stream of mapped rows; closing it releases the connection
+     * @throws RuntimeException if the query cannot be started, or (from stream operations) if a row cannot be read
+     */
+    <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params);
+
+    /**
+     * Runs a parameterized query and passes each mapped row to {@code action},
+     * releasing the connection when done.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param mapper maps each row
+     * @param action receives each mapped row
+     * @param params values bound to the placeholders in order
+     * @param <T>    mapped row type
+     * @throws RuntimeException if execution fails
+     */
+    default <T> void forEachRow(String sql, MCEngineEssentialRowMapper<T> mapper, Consumer<? super T> action,
+                                Object... params) {
+        try (Stream<T> rows = query(sql, mapper, params)) {
+            rows.forEach(action);
+        }
+    }
+
+    /**
+     * Runs a unit of work in one transaction with the connection's default isolation.
+     *
+     * @param work statements to run; its result is returned after commit
+     * @param <T>  result type
+     * @return the work's result
+     * @throws RuntimeException if the work or the commit fails; the transaction is rolled back
+     * @see #inTransaction(MCEngineEssentialIsolation, MCEngineEssentialTransactionWork)
+     */
+    default <T> T inTransaction(MCEngineEssentialTransactionWork<T> work) {
+        return inTransaction(MCEngineEssentialIsolation.DEFAULT, work);
+    }
+
+    /**
+     * Runs a unit of work in one transaction on a single pinned connection with
+     * auto-commit off, committing when it returns and rolling back when it throws or
+     * calls {@link MCEngineEssentialTransaction#setRollbackOnly()}:
+     * <pre>{@code
+     * db.inTransaction(tx -> {
+     *     tx.executeQuery("UPDATE eco SET balance = balance - ? WHERE uuid = ?", amount, from);
+     *     tx.executeQuery("UPDATE eco SET balance = balance + ? WHERE uuid = ?", amount, to);
+     *     return null;
+     * });
+     * }</pre>
+     * Calls made through this backend on the same thread while the work runs join the
+     * transaction, and a nested {@code inTransaction} call runs inside a savepoint (its
+     * isolation argument is then ignored). On a deadlock, serialization failure or busy
+     * database the whole transaction is rolled back and the work is run again, up to
+     * {@code database.<type>.transaction.max-retries} times.
+     *
+     * @param isolation isolation level for the transaction
+     * @param work      statements to run; its result is returned after commit
+     * @param <T>       result type
+     * @return the work's result
+     * @throws RuntimeException if the work or the commit fails; the transaction is rolled back
+     */
+    <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work);
+
+    /**
+     * Returns a future completed once the backend has reached its database. Backends
+     * connect in the background, so construction never blocks on the network; calls made
+     * earlier connect on demand.
+     *
+     * @return readiness future; already complete for backends without a connection phase
+     */
+    default CompletableFuture<Void> ready() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Pre-opens connections and prepares hot statements in the background, so the first
+     * real calls skip connection setup and statement parsing. Statements are also
+     * prepared on connections opened later.
+     *
+     * @param connections connections to have open per pool; {@code <= 0} keeps the current count
+     * @param statements  SQL to prepare ahead of use
+     * @return future completed when the warm-up has finished
+     */
+    default CompletableFuture<Void> warmUp(int connections, Collection<String> statements) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Releases all connections and background resources held by this backend.
+     * <p>
+     * Intended to be called once when the owning plugin disables; the backend must not
+     * be used afterwards.
+     */
+    default void close() {
+    }
 }
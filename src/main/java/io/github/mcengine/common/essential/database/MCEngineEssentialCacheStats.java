@@ -0,0 +1,22 @@
+package io.github.mcengine.common.essential.database;
+
+/**
+ * Point-in-time statistics of an Essential cache.
+ *
+ * @param hits      lookups served from the cache
+ * @param misses    lookups that went to the database
+ * @param evictions entries dropped to respect the size bound
+ * @param size      entries currently held
+ */
+public record MCEngineEssentialCacheStats(long hits, long misses, long evictions, int size) {
+
+    /**
+     * Returns the fraction of lookups served from the cache.
+     *
+     * @return hit rate between {@code 0} and {@code 1}; {@code 0} before any lookup
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
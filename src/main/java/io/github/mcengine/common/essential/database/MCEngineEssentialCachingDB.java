@@ -0,0 +1,589 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Read-through cache for scalar queries, wrapped around any {@link IMCEngineEssentialDB}.
+ * <p>
+ * Results of {@code getValue} and the primitive accessors are cached per normalized SQL,
+ * parameters and target type, for a default or per-call TTL. Entries are spread over
+ * independently locked stripes by key hash, each an LRU map holding its share of the size
+ * bound, so concurrent lookups of different keys rarely contend. Only plain
+ * {@code SELECT}s are cached; streams from {@code query} always go to the database.
+ * A {@code SELECT} that reads no table, or calls a volatile or connection-scoped function
+ * such as {@code NOW()}, {@code RANDOM()}, {@code nextval} or {@code LAST_INSERT_ID()},
+ * is only cached when {@link #getCachedValue} gives it a TTL.
+ * {@code byte[]} results are copied in and out, so callers never share a cached array.
+ * <p>
+ * Every write issued through this decorator invalidates the tables it touches: each
+ * table has a generation counter that writes bump, and a cached entry is only served if
+ * the generations of the tables it read are unchanged. Writes whose target table cannot
+ * be determined invalidate everything. Writes made by other processes, or by code that
+ * bypasses this decorator, are only picked up when the TTL expires, unless they arrive
+ * through a {@link MCEngineEssentialChangeBus} calling {@link #invalidateTable}; the
+ * {@link #setWriteListener write listener} lets this cache publish its own writes to one.
+ * Owners that publish their own per-row changes write through {@link #unpublished()}
+ * instead, so their writes only invalidate this cache.
+ * <p>
+ * While a transaction started through this decorator is open on a thread, that
+ * thread's reads bypass the cache, and the tables the transaction wrote are invalidated
+ * again once it commits or rolls back.
+ */
+public class MCEngineEssentialCachingDB extends MCEngineEssentialForwardingDB {
+
+    /** Marker for a cached SQL {@code NULL} / no-row result. */
+    private static final Object NULL = new Object();
+
+    /** Parsed SQL metadata is memoized for at most this many distinct statements. */
+    private static final int SQL_INFO_LIMIT = 4096;
+
+    /** Marks a transaction write whose table is unknown. */
+    private static final String ALL_TABLES = "*";
+
+    /**
+     * Functions whose result changes between calls or depends on the connection, matched
+     * against upper-cased SQL; {@code 'NOW'} catches SQLite's {@code datetime('now')} family.
+     */
+    private static final Pattern VOLATILE = Pattern.compile(
+            "\\b(?:NOW|SYSDATE|CURDATE|CURTIME|UTC_TIMESTAMP|UNIX_TIMESTAMP|CLOCK_TIMESTAMP|STATEMENT_TIMESTAMP"
+                    + "|TIMEOFDAY|RANDOM|RAND|RANDOMBLOB|UUID|GEN_RANDOM_UUID|NEXTVAL|CURRVAL|LASTVAL|SETVAL"
+                    + "|LAST_INSERT_ID|LAST_INSERT_ROWID|CHANGES|TOTAL_CHANGES|ROW_COUNT|FOUND_ROWS|CONNECTION_ID"
+                    + "|PG_BACKEND_PID|TXID_CURRENT)\\s*\\("
+                    + "|\\b(?:CURRENT_TIMESTAMP|CURRENT_DATE|CURRENT_TIME|LOCALTIMESTAMP|LOCALTIME)\\b|'NOW'");
+
+    /** Placeholder for parameterless lookups. */
+    private static final Object[] NO_PARAMS = new Object[0];
+
+    /** TTL used when the caller does not pass one. */
+    private final long defaultTtlMillis;
+
+    /** Entry stripes, a power of two in number, selected by key hash. */
+    private final Stripe[] stripes;
+
+    /** Told about each table written through this cache; may be {@code null}. */
+    private volatile Consumer<String> writeListener;
+
+    /** Generation per table name, bumped by every write to the table. */
+    private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /** Generation bumped by writes to unknown tables, invalidating everything. */
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    /** Memoized normalization and table extraction per raw SQL string. */
+    private final ConcurrentHashMap<String, SqlInfo> sqlInfo = new ConcurrentHashMap<>();
+
+    /** Tables written by the transaction open on the current thread, if any. */
+    private final ThreadLocal<Set<String>> txWrites = new ThreadLocal<>();
+
+    /** View past this cache whose writes are not reported; see {@link #unpublished()}. */
+    private final IMCEngineEssentialDB unpublished = new Unpublished();
+
+    /** Lookups served from the cache. */
+    private final LongAdder hits = new LongAdder();
+
+    /** Lookups that went to the database. */
+    private final LongAdder misses = new LongAdder();
+
+    /** Entries dropped by the size bound. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Wraps a backend with a read-through cache.
+     *
+     * @param delegate         backend to cache
+     * @param maxEntries       maximum cached entries
+     * @param defaultTtlMillis TTL for lookups without an explicit one; {@code <= 0} disables default caching
+     */
+    public MCEngineEssentialCachingDB(IMCEngineEssentialDB delegate, int maxEntries, long defaultTtlMillis) {
+        super(delegate);
+        this.defaultTtlMillis = defaultTtlMillis;
+        int max = Math.max(1, maxEntries);
+        int count = Integer.highestOneBit(Math.min(max, 4 * Runtime.getRuntime().availableProcessors()));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) stripes[i] = new Stripe(max / count + (i < max % count ? 1 : 0));
+    }
+
+    /**
+     * Wraps a backend using config keys:
+     * <ul>
+     *     <li>{@code database.cache.max-entries} (default: {@code 10000})</li>
+     *     <li>{@code database.cache.ttl} in milliseconds (default: {@code 5000})</li>
+     * </ul>
+     *
+     * @param config   root configuration
+     * @param delegate backend to cache
+     * @return caching decorator
+     */
+    public static MCEngineEssentialCachingDB fromConfig(ConfigurationSection config, IMCEngineEssentialDB delegate) {
+        return new MCEngineEssentialCachingDB(
+                delegate,
+                config.getInt("database.cache.max-entries", 10_000),
+                config.getLong("database.cache.ttl", 5_000L));
+    }
+
+    /**
+     * Reads a scalar through the cache with an explicit TTL. Unlike the default TTL, this
+     * also caches queries that read no table or call volatile functions.
+     *
+     * @param sql       SQL query with {@code ?} placeholders
+     * @param type      target scalar class
+     * @param ttlMillis how long the result may be served from the cache; {@code <= 0} bypasses the cache
+     * @param params    values bound to the placeholders in order
+     * @param <T>       type parameter for the coerced result
+     * @return coerced value, or {@code null} if no rows are returned
+     */
+    public <T> T getCachedValue(String sql, Class<T> type, long ttlMillis, Object... params) {
+        return cached(sql, type, ttlMillis, params, true, true);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type) {
+        return cached(sql, type, defaultTtlMillis, NO_PARAMS, false, false);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        return cached(sql, type, defaultTtlMillis, params, true, false);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(String sql, int defaultValue, Object... params) {
+        if (bypass(info(sql), defaultTtlMillis, false)) return delegate.getInt(sql, defaultValue, params);
+        Integer v = cached(sql, Integer.class, defaultTtlMillis, params, true, false);
+        return v == null ? defaultValue : v;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(String sql, long defaultValue, Object... params) {
+        if (bypass(info(sql), defaultTtlMillis, false)) return delegate.getLong(sql, defaultValue, params);
+        Long v = cached(sql, Long.class, defaultTtlMillis, params, true, false);
+        return v == null ? defaultValue : v;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        if (bypass(info(sql), defaultTtlMillis, false)) return delegate.getDouble(sql, defaultValue, params);
+        Double v = cached(sql, Double.class, defaultTtlMillis, params, true, false);
+        return v == null ? defaultValue : v;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        if (bypass(info(sql), defaultTtlMillis, false)) return delegate.getBoolean(sql, defaultValue, params);
+        Boolean v = cached(sql, Boolean.class, defaultTtlMillis, params, true, false);
+        return v == null ? defaultValue : v;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql) {
+        try {
+            delegate.executeQuery(sql);
+        } finally {
+            invalidateFor(sql);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        try {
+            delegate.executeQuery(sql, params);
+        } finally {
+            invalidateFor(sql);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        try {
+            delegate.executeBatch(writes);
+        } finally {
+            invalidateFor(writes);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        if (txWrites.get() != null) {
+            return delegate.inTransaction(isolation, tx -> work.run(new InvalidatingTransaction(tx)));
+        }
+        Set<String> written = new HashSet<>();
+        txWrites.set(written);
+        try {
+            return delegate.inTransaction(isolation, tx -> work.run(new InvalidatingTransaction(tx)));
+        } finally {
+            txWrites.remove();
+            for (String table : written) {
+                if (ALL_TABLES.equals(table)) globalGeneration.incrementAndGet();
+                else generation(table).incrementAndGet();
+                notifyWrite(table);
+            }
+        }
+    }
+
+    /**
+     * Invalidates every cached result that read the given table.
+     *
+     * @param table table name (case-insensitive, unquoted)
+     */
+    public void invalidateTable(String table) {
+        generation(table.toLowerCase(Locale.ROOT)).incrementAndGet();
+    }
+
+    /**
+     * Sets the listener told about each table written through this cache, e.g. to publish
+     * the write to other servers. Writes inside a transaction are reported once it ends;
+     * a write whose table is unknown is reported as {@code "*"}.
+     *
+     * @param listener receives lower-cased table names, or {@code null} to remove it
+     */
+    public void setWriteListener(Consumer<String> listener) {
+        this.writeListener = listener;
+    }
+
+    /**
+     * Returns a view of the wrapped database for owners that publish their own per-row
+     * changes, such as player sessions and counters. Its reads always go to the database,
+     * and its writes invalidate the tables they touch here without being reported to the
+     * write listener, so other servers are not told the whole table changed. A transaction
+     * run through it invalidates everything once it ends.
+     *
+     * @return the view; closing it does nothing
+     */
+    public IMCEngineEssentialDB unpublished() {
+        return unpublished;
+    }
+
+    /** Invalidates every cached result. */
+    public void invalidateAll() {
+        globalGeneration.incrementAndGet();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns hit/miss statistics.
+     *
+     * @return current statistics
+     */
+    public MCEngineEssentialCacheStats getStats() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return new MCEngineEssentialCacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /** Serves a lookup from the cache or loads and caches it. */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String sql, Class<T> type, long ttlMillis, Object[] params, boolean prepared,
+                         boolean explicitTtl) {
+        SqlInfo info = info(sql);
+        if (bypass(info, ttlMillis, explicitTtl)) {
+            return prepared ? delegate.getValue(sql, type, params) : delegate.getValue(sql, type);
+        }
+
+        Key key = new Key(info.normalized(), type, params == null ? NO_PARAMS : copyParams(params));
+        Stripe stripe = stripe(key);
+        long now = System.nanoTime();
+        Entry e;
+        synchronized (stripe) {
+            e = stripe.get(key);
+        }
+        if (e != null && e.expiresAt() - now > 0 && isCurrent(e, info)) {
+            hits.increment();
+            return e.value() == NULL ? null : (T) copy(e.value());
+        }
+
+        misses.increment();
+        long global = globalGeneration.get();
+        long[] gens = new long[info.tables().length];
+        for (int i = 0; i < gens.length; i++) gens[i] = generation(info.tables()[i]).get();
+
+        T value = prepared ? delegate.getValue(sql, type, params) : delegate.getValue(sql, type);
+
+        Entry fresh = new Entry(value == null ? NULL : copy(value), now + TimeUnit.MILLISECONDS.toNanos(ttlMillis), global, gens);
+        synchronized (stripe) {
+            stripe.put(key, fresh);
+        }
+        return value;
+    }
+
+    /** Whether a lookup must go straight to the delegate. */
+    private boolean bypass(SqlInfo info, long ttlMillis, boolean explicitTtl) {
+        return !info.cacheable() || (info.volatileResult() && !explicitTtl) || ttlMillis <= 0
+                || txWrites.get() != null;
+    }
+
+    /** Returns the stripe holding a key. */
+    private Stripe stripe(Key key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    /** Copies mutable values so the cache and its callers never share them. */
+    private static Object copy(Object value) {
+        return value instanceof byte[] bytes ? bytes.clone() : value;
+    }
+
+    /** Copies parameters for a key, including any {@code byte[]} values. */
+    private static Object[] copyParams(Object[] params) {
+        Object[] copy = params.clone();
+        for (int i = 0; i < copy.length; i++) copy[i] = copy(copy[i]);
+        return copy;
+    }
+
+    /** Checks that no table read by the entry has been written since it was loaded. */
+    private boolean isCurrent(Entry e, SqlInfo info) {
+        if (e.global() != globalGeneration.get()) return false;
+        String[] tables = info.tables();
+        for (int i = 0; i < tables.length; i++) {
+            if (generation(tables[i]).get() != e.generations()[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Bumps the generation of the table a write touches, or the global one if unknown,
+     * and remembers it for the open transaction so it is bumped again at the end;
+     * outside a transaction the write is reported to the write listener right away.
+     */
+    private void invalidateFor(String sql) {
+        String table = MCEngineEssentialSqlUtil.writeTable(sql);
+        if (table != null && table.isEmpty()) return;
+        if (table == null) globalGeneration.incrementAndGet();
+        else generation(table).incrementAndGet();
+
+        String target = table == null ? ALL_TABLES : table;
+        Set<String> written = txWrites.get();
+        if (written != null) written.add(target);
+        else notifyWrite(target);
+    }
+
+    /** Bumps the generation of the table a write touches without reporting it. */
+    private void invalidateQuietly(String sql) {
+        String table = MCEngineEssentialSqlUtil.writeTable(sql);
+        if (table != null && table.isEmpty()) return;
+        if (table == null) globalGeneration.incrementAndGet();
+        else generation(table).incrementAndGet();
+    }
+
+    /** Reports a committed write to the write listener, if any. */
+    private void notifyWrite(String table) {
+        Consumer<String> listener = writeListener;
+        if (listener != null) listener.accept(table);
+    }
+
+    /** Invalidates for each distinct statement of a batch. */
+    private void invalidateFor(List<MCEngineEssentialWrite> writes) {
+        String last = null;
+        for (MCEngineEssentialWrite w : writes) {
+            if (!w.sql().equals(last)) invalidateFor(w.sql());
+            last = w.sql();
+        }
+    }
+
+    /** Quietly invalidates for each distinct statement of a batch. */
+    private void invalidateQuietly(List<MCEngineEssentialWrite> writes) {
+        String last = null;
+        for (MCEngineEssentialWrite w : writes) {
+            if (!w.sql().equals(last)) invalidateQuietly(w.sql());
+            last = w.sql();
+        }
+    }
+
+    /** Returns the generation counter of a table. */
+    private AtomicLong generation(String table) {
+        return generations.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    /** Returns memoized metadata for a SQL string. */
+    private SqlInfo info(String sql) {
+        SqlInfo info = sqlInfo.get(sql);
+        if (info != null) return info;
+
+        String normalized = MCEngineEssentialSqlUtil.normalize(sql);
+        String upper = normalized.toUpperCase(Locale.ROOT);
+        boolean cacheable = upper.startsWith("SELECT") && !upper.contains(" FOR UPDATE") && !upper.contains(" FOR SHARE");
+        Set<String> tables = cacheable ? MCEngineEssentialSqlUtil.readTables(normalized) : Set.of();
+        boolean volatileResult = tables.isEmpty() || VOLATILE.matcher(upper).find();
+        info = new SqlInfo(normalized, tables.toArray(new String[0]), cacheable, volatileResult);
+
+        if (sqlInfo.size() >= SQL_INFO_LIMIT) sqlInfo.clear();
+        sqlInfo.put(sql, info);
+        return info;
+    }
+
+    /**
+     * Memoized per-statement metadata.
+     *
+     * @param normalized whitespace-normalized SQL
+     * @param tables     tables the query reads
+     * @param cacheable      whether results may be cached
+     * @param volatileResult whether results may change without a table write, so they are
+     *                       only cached with an explicit TTL
+     */
+    private record SqlInfo(String normalized, String[] tables, boolean cacheable, boolean volatileResult) {
+    }
+
+    /**
+     * A cached result.
+     *
+     * @param value       the value, or {@link #NULL}
+     * @param expiresAt   {@link System#nanoTime()} deadline
+     * @param global      global generation at load time
+     * @param generations per-table generations at load time, aligned with {@link SqlInfo#tables()}
+     */
+    private record Entry(Object value, long expiresAt, long global, long[] generations) {
+    }
+
+    /** Access-ordered part of the entries that evicts its eldest entry beyond its capacity; guarded by itself. */
+    private final class Stripe extends LinkedHashMap<Key, Entry> {
+
+        /** Entries this stripe may hold. */
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    }
+
+    /** Transaction handle that invalidates the tables its writes touch. */
+    private final class InvalidatingTransaction extends MCEngineEssentialForwardingTransaction {
+
+        InvalidatingTransaction(MCEngineEssentialTransaction delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void executeQuery(String sql, Object... params) {
+            try {
+                delegate.executeQuery(sql, params);
+            } finally {
+                invalidateFor(sql);
+            }
+        }
+
+        @Override
+        public void executeBatch(List<MCEngineEssentialWrite> writes) {
+            try {
+                delegate.executeBatch(writes);
+            } finally {
+                invalidateFor(writes);
+            }
+        }
+    }
+
+    /** Database view past the cache whose writes invalidate it without being reported. */
+    private final class Unpublished extends MCEngineEssentialForwardingDB {
+
+        Unpublished() {
+            super(MCEngineEssentialCachingDB.this.delegate);
+        }
+
+        @Override
+        public void executeQuery(String sql) {
+            try {
+                delegate.executeQuery(sql);
+            } finally {
+                invalidateQuietly(sql);
+            }
+        }
+
+        @Override
+        public void executeQuery(String sql, Object... params) {
+            try {
+                delegate.executeQuery(sql, params);
+            } finally {
+                invalidateQuietly(sql);
+            }
+        }
+
+        @Override
+        public void executeBatch(List<MCEngineEssentialWrite> writes) {
+            try {
+                delegate.executeBatch(writes);
+            } finally {
+                invalidateQuietly(writes);
+            }
+        }
+
+        @Override
+        public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+            try {
+                return delegate.inTransaction(isolation, work);
+            } finally {
+                globalGeneration.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            // Owned by the cache.
+        }
+    }
+
+    /** Cache key: normalized SQL, target type and parameter values. */
+    private static final class Key {
+
+        private final String sql;
+        private final Class<?> type;
+        private final Object[] params;
+        private final int hash;
+
+        Key(String sql, Class<?> type, Object[] params) {
+            this.sql = sql;
+            this.type = type;
+            this.params = params;
+            this.hash = 31 * (31 * sql.hashCode() + type.hashCode()) + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key k)) return false;
+            return hash == k.hash && type == k.type && sql.equals(k.sql) && Arrays.deepEquals(params, k.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
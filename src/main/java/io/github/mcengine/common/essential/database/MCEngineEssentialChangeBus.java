@@ -0,0 +1,318 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Change-notification channel between servers sharing one database, so each server can
+ * cache aggressively and still drop entries written elsewhere within a bounded delay.
+ * <p>
+ * {@link #publish} queues a change locally; a background thread sends the queue every
+ * {@code pollIntervalMillis}, then fetches other servers' changes and hands them, coalesced,
+ * to every {@link #subscribe subscriber}. A server never receives its own changes. Subclasses
+ * provide the transport: {@link MCEngineEssentialNotifyChangeBus} ({@code LISTEN/NOTIFY} on
+ * PostgreSQL) and {@link MCEngineEssentialChangeLogBus} (a polled change-log table, any backend).
+ * <p>
+ * Nothing is sent or received until {@link #start()}, which should follow the backend's
+ * {@link IMCEngineEssentialDB#ready()} future.
+ */
+public abstract class MCEngineEssentialChangeBus {
+
+    /** Queued changes above which the queue collapses into one {@link MCEngineEssentialChangeEvent#ALL}. */
+    private static final int OUTBOX_LIMIT = 10_000;
+
+    /** Logger of the owning plugin. */
+    protected final Logger logger;
+
+    /** Random id of this server, used to skip its own changes. */
+    protected final String nodeId = UUID.randomUUID().toString();
+
+    /** Time between send/receive cycles. */
+    private final long pollIntervalMillis;
+
+    /** Subscribers receiving other servers' changes. */
+    private final List<MCEngineEssentialChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Changes published locally and not yet sent, in order; guarded by itself. */
+    private final LinkedHashSet<MCEngineEssentialChangeEvent> outbox = new LinkedHashSet<>();
+
+    /** Background send/receive thread. */
+    private final ScheduledExecutorService worker;
+
+    /** Number of changes sent. */
+    private final AtomicLong sent = new AtomicLong();
+
+    /** Number of changes received from other servers. */
+    private final AtomicLong received = new AtomicLong();
+
+    /** Whether {@link #open()} has succeeded; worker thread only. */
+    private boolean opened;
+
+    /** Whether the last cycle failed, to log outages once; worker thread only. */
+    private boolean failing;
+
+    /** Set by {@link #start()}. */
+    private volatile boolean started;
+
+    /** Set by {@link #close()}. */
+    private volatile boolean closed;
+
+    /**
+     * Creates the bus; call {@link #start()} once the database is reachable.
+     *
+     * @param logger             logger of the owning plugin
+     * @param pollIntervalMillis time between send/receive cycles
+     */
+    protected MCEngineEssentialChangeBus(Logger logger, long pollIntervalMillis) {
+        this.logger = logger;
+        this.pollIntervalMillis = Math.max(10L, pollIntervalMillis);
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MCEngineEssential-changes");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Builds the bus for a backend from config keys:
+     * <ul>
+     *     <li>{@code database.invalidation.mode}: {@code notify} (PostgreSQL only) or {@code poll}
+     *         (default: {@code notify} on PostgreSQL, {@code poll} otherwise)</li>
+     *     <li>{@code database.invalidation.poll-interval} in milliseconds (default: {@code 1000})</li>
+     *     <li>{@code database.invalidation.channel}, the {@code LISTEN} channel (default: {@code essential_changes})</li>
+     *     <li>the change-log keys of {@link MCEngineEssentialChangeLogBus#fromConfig}</li>
+     * </ul>
+     *
+     * @param config            root configuration
+     * @param db                database the changes are written through
+     * @param type              backend type ({@code sqlite}, {@code mysql} or {@code postgresql})
+     * @param listenConnections opens dedicated connections for {@code LISTEN}; {@code null} forces polling
+     * @param logger            logger of the owning plugin
+     * @return configured bus, not yet started
+     */
+    public static MCEngineEssentialChangeBus fromConfig(ConfigurationSection config, IMCEngineEssentialDB db, String type,
+                                                        MCEngineEssentialConnectionPool.ConnectionFactory listenConnections,
+                                                        Logger logger) {
+        String mode = config.getString("database.invalidation.mode",
+                "postgresql".equals(type) ? "notify" : "poll");
+        if ("notify".equalsIgnoreCase(mode) && "postgresql".equals(type) && listenConnections != null) {
+            return new MCEngineEssentialNotifyChangeBus(
+                    db,
+                    listenConnections,
+                    logger,
+                    config.getString("database.invalidation.channel", "essential_changes"),
+                    config.getLong("database.invalidation.poll-interval", 1_000L));
+        }
+        return MCEngineEssentialChangeLogBus.fromConfig(config, db, type, logger);
+    }
+
+    /** Starts the background cycle. Does nothing if already started or closed. */
+    public synchronized void start() {
+        if (started || closed) return;
+        started = true;
+        worker.scheduleWithFixedDelay(this::cycle, 0L, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a change for the other servers. Call after the write has committed, or from
+     * inside the writing transaction when the transport is transactional.
+     *
+     * @param table changed table
+     * @param key   changed row key, or {@code null} for the whole table
+     */
+    public void publish(String table, String key) {
+        MCEngineEssentialChangeEvent event = new MCEngineEssentialChangeEvent(table, key);
+        synchronized (outbox) {
+            if (outbox.size() >= OUTBOX_LIMIT) {
+                outbox.clear();
+                outbox.add(MCEngineEssentialChangeEvent.ALL);
+            }
+            outbox.add(event);
+        }
+    }
+
+    /**
+     * Adds a subscriber for other servers' changes.
+     *
+     * @param listener subscriber
+     */
+    public void subscribe(MCEngineEssentialChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a subscriber.
+     *
+     * @param listener subscriber to remove
+     */
+    public void unsubscribe(MCEngineEssentialChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the random id of this server on the bus.
+     *
+     * @return node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the number of changes sent to other servers.
+     *
+     * @return sent count
+     */
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * Returns the number of changes received from other servers, before coalescing.
+     *
+     * @return received count
+     */
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /** Stops the background cycle, sends what is still queued and releases the transport. */
+    public void close() {
+        boolean wasStarted;
+        synchronized (this) {
+            closed = true;
+            wasStarted = started;
+        }
+        worker.shutdown();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (wasStarted && opened) sendPending();
+        } catch (RuntimeException e) {
+            logger.warning("Essential change notifications could not be sent on shutdown: " + e.getMessage());
+        } finally {
+            closeTransport();
+        }
+    }
+
+    /**
+     * Prepares the transport (tables, connections); called on the bus thread until it succeeds.
+     *
+     * @throws RuntimeException if the transport is not reachable yet
+     */
+    protected abstract void open();
+
+    /**
+     * Sends local changes to the other servers.
+     *
+     * @param changes changes in publication order
+     * @throws RuntimeException if sending fails; the changes are queued again
+     */
+    protected abstract void send(List<MCEngineEssentialChangeEvent> changes);
+
+    /**
+     * Fetches changes made by other servers since the previous call.
+     *
+     * @return changes, possibly containing {@link MCEngineEssentialChangeEvent#ALL}
+     * @throws RuntimeException if fetching fails
+     */
+    protected abstract List<MCEngineEssentialChangeEvent> receive();
+
+    /** Called after a failed cycle, e.g. to drop a broken connection. */
+    protected void onFailure() {
+    }
+
+    /** Releases the transport when the bus closes. */
+    protected void closeTransport() {
+    }
+
+    /** One background cycle: open if needed, send, receive, deliver. */
+    private void cycle() {
+        try {
+            if (!opened) {
+                open();
+                opened = true;
+            }
+            sendPending();
+            List<MCEngineEssentialChangeEvent> changes = receive();
+            if (failing) {
+                failing = false;
+                logger.info("Essential change notifications resumed");
+            }
+            if (!changes.isEmpty()) {
+                received.addAndGet(changes.size());
+                deliver(coalesce(changes));
+            }
+        } catch (RuntimeException e) {
+            if (!failing) logger.warning("Essential change notifications failed, retrying: " + e.getMessage());
+            failing = true;
+            onFailure();
+        }
+    }
+
+    /** Sends the queued changes, putting them back in front of newer ones on failure. */
+    private void sendPending() {
+        List<MCEngineEssentialChangeEvent> batch;
+        synchronized (outbox) {
+            if (outbox.isEmpty()) return;
+            batch = new ArrayList<>(outbox);
+            outbox.clear();
+        }
+        try {
+            send(batch);
+            sent.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            synchronized (outbox) {
+                LinkedHashSet<MCEngineEssentialChangeEvent> newer = new LinkedHashSet<>(outbox);
+                outbox.clear();
+                outbox.addAll(batch);
+                outbox.addAll(newer);
+            }
+            throw e;
+        }
+    }
+
+    /** Hands a batch to every subscriber; a failing subscriber does not affect the others. */
+    private void deliver(Set<MCEngineEssentialChangeEvent> changes) {
+        for (MCEngineEssentialChangeListener listener : listeners) {
+            try {
+                listener.onChanges(changes);
+            } catch (RuntimeException e) {
+                logger.warning("Essential change subscriber failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Removes duplicates and events covered by a broader one: {@link MCEngineEssentialChangeEvent#ALL}
+     * covers everything, a whole-table event covers its table's keyed events.
+     */
+    static Set<MCEngineEssentialChangeEvent> coalesce(Collection<MCEngineEssentialChangeEvent> changes) {
+        Set<String> wholeTables = new HashSet<>();
+        for (MCEngineEssentialChangeEvent e : changes) {
+            if (e.isAll()) return Set.of(MCEngineEssentialChangeEvent.ALL);
+            if (e.key() == null) wholeTables.add(e.table());
+        }
+        Set<MCEngineEssentialChangeEvent> out = new LinkedHashSet<>();
+        for (MCEngineEssentialChangeEvent e : changes) {
+            if (e.key() == null || !wholeTables.contains(e.table())) out.add(e);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.mcengine.common.essential.database;
+
+import java.util.Locale;
+
+/**
+ * A change made by another server, delivered by {@link MCEngineEssentialChangeBus}.
+ *
+ * @param table lower-cased table name, or {@value #ALL_TABLES} when anything may have changed
+ * @param key   changed row key (e.g. a player UUID), or {@code null} for the whole table
+ */
+public record MCEngineEssentialChangeEvent(String table, String key) {
+
+    /** Table name of {@link #ALL}. */
+    public static final String ALL_TABLES = "*";
+
+    /**
+     * Sent when changes may have been missed (e.g. after a lost connection); subscribers
+     * should drop everything they cache.
+     */
+    public static final MCEngineEssentialChangeEvent ALL = new MCEngineEssentialChangeEvent(ALL_TABLES, null);
+
+    /**
+     * Normalizes the table name.
+     *
+     * @param table table name
+     * @param key   row key, or {@code null}
+     */
+    public MCEngineEssentialChangeEvent {
+        table = table.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Tells whether this event invalidates everything.
+     *
+     * @return {@code true} for {@link #ALL}
+     */
+    public boolean isAll() {
+        return ALL_TABLES.equals(table);
+    }
+}
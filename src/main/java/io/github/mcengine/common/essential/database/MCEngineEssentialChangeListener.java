@@ -0,0 +1,19 @@
+package io.github.mcengine.common.essential.database;
+
+import java.util.Set;
+
+/**
+ * Receives changes made by other servers, see {@link MCEngineEssentialChangeBus#subscribe}.
+ */
+@FunctionalInterface
+public interface MCEngineEssentialChangeListener {
+
+    /**
+     * Handles one coalesced batch of changes. Called on the change bus thread; must not
+     * block and must hop to the main thread before touching the Bukkit API.
+     *
+     * @param changes distinct changes; a whole-table event replaces the keyed events of
+     *                its table, and {@link MCEngineEssentialChangeEvent#ALL} replaces everything
+     */
+    void onChanges(Set<MCEngineEssentialChangeEvent> changes);
+}
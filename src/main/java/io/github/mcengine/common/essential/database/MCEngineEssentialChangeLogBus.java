@@ -0,0 +1,226 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * {@link MCEngineEssentialChangeBus} over a compact change-log table that every server
+ * appends to and polls incrementally by sequence id. Works on every backend, including
+ * several SQLite-backed servers sharing one database file.
+ * <p>
+ * Sequence ids are assigned at insert but become visible at commit, so on MySQL a lower
+ * id can appear after a higher one has been read. Skipped ids are remembered and polled
+ * again until they appear or {@code gapTimeoutMillis} passes (rolled-back inserts leave
+ * permanent gaps). Rows older than {@code retentionMillis} are pruned; a server that could
+ * not poll for longer than that may have missed changes and delivers
+ * {@link MCEngineEssentialChangeEvent#ALL}.
+ */
+public final class MCEngineEssentialChangeLogBus extends MCEngineEssentialChangeBus {
+
+    /** Accepted change-log table names; the name is inlined into SQL. */
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /** Remembered gaps above which they are dropped and everything is invalidated. */
+    private static final int GAP_LIMIT = 10_000;
+
+    /** Gap ids looked up per statement; shorter lists are padded so the SQL never changes. */
+    private static final int GAP_CHUNK = 100;
+
+    /** Database holding the change log. */
+    private final IMCEngineEssentialDB db;
+
+    /** {@code CREATE TABLE IF NOT EXISTS} for the backend's dialect. */
+    private final String createSql;
+
+    /** Append statement. */
+    private final String insertSql;
+
+    /** Incremental read statement. */
+    private final String selectSql;
+
+    /** Lookup of {@value #GAP_CHUNK} skipped sequence ids. */
+    private final String gapSql;
+
+    /** Prune statement. */
+    private final String pruneSql;
+
+    /** Highest-sequence statement used to start after existing rows. */
+    private final String maxSql;
+
+    /** How long rows are kept. */
+    private final long retentionMillis;
+
+    /** How long a skipped sequence id is waited for. */
+    private final long gapTimeoutMillis;
+
+    /** Highest sequence id processed; worker thread only. */
+    private long cursor;
+
+    /** Skipped sequence ids and when they were first noticed; worker thread only. */
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+    /** Time of the last successful poll; worker thread only. */
+    private long lastPoll;
+
+    /** Time of the last prune; worker thread only. */
+    private long lastPrune;
+
+    /**
+     * Creates the bus; call {@link #start()} once the database is reachable.
+     *
+     * @param db                 database holding the change log
+     * @param logger             logger of the owning plugin
+     * @param table              change-log table name
+     * @param type               backend type, selecting the {@code CREATE TABLE} dialect
+     * @param pollIntervalMillis time between polls
+     * @param batchSize          rows read per poll
+     * @param retentionMillis    how long rows are kept
+     * @param gapTimeoutMillis   how long a skipped sequence id is waited for
+     */
+    public MCEngineEssentialChangeLogBus(IMCEngineEssentialDB db, Logger logger, String table, String type,
+                                         long pollIntervalMillis, int batchSize, long retentionMillis,
+                                         long gapTimeoutMillis) {
+        super(logger, pollIntervalMillis);
+        if (!IDENTIFIER.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid change-log table name: " + table);
+        }
+        this.db = db;
+        this.retentionMillis = Math.max(1_000L, retentionMillis);
+        this.gapTimeoutMillis = Math.max(0L, gapTimeoutMillis);
+
+        String seq = switch (type) {
+            case "mysql" -> "seq BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY";
+            case "postgresql" -> "seq BIGSERIAL PRIMARY KEY";
+            default -> "seq INTEGER PRIMARY KEY AUTOINCREMENT";
+        };
+        this.createSql = "CREATE TABLE IF NOT EXISTS " + table + " (" + seq
+                + ", node VARCHAR(36) NOT NULL, tbl VARCHAR(128) NOT NULL, row_key VARCHAR(255), created_at BIGINT NOT NULL)";
+        this.insertSql = "INSERT INTO " + table + " (node, tbl, row_key, created_at) VALUES (?, ?, ?, ?)";
+        this.selectSql = "SELECT seq, node, tbl, row_key FROM " + table + " WHERE seq > ? ORDER BY seq LIMIT "
+                + Math.max(1, batchSize);
+        this.gapSql = "SELECT seq, node, tbl, row_key FROM " + table + " WHERE seq IN ("
+                + String.join(", ", Collections.nCopies(GAP_CHUNK, "?")) + ")";
+        this.pruneSql = "DELETE FROM " + table + " WHERE created_at < ?";
+        this.maxSql = "SELECT COALESCE(MAX(seq), 0) FROM " + table;
+    }
+
+    /**
+     * Builds the bus from config keys:
+     * <ul>
+     *     <li>{@code database.invalidation.poll-interval} in milliseconds (default: {@code 1000})</li>
+     *     <li>{@code database.invalidation.table} (default: {@code essential_change_log})</li>
+     *     <li>{@code database.invalidation.batch-size} rows per poll (default: {@code 1000})</li>
+     *     <li>{@code database.invalidation.retention} in milliseconds (default: {@code 600000})</li>
+     *     <li>{@code database.invalidation.gap-timeout} in milliseconds (default: {@code 10000})</li>
+     * </ul>
+     *
+     * @param config root configuration
+     * @param db     database holding the change log
+     * @param type   backend type ({@code sqlite}, {@code mysql} or {@code postgresql})
+     * @param logger logger of the owning plugin
+     * @return configured bus, not yet started
+     */
+    public static MCEngineEssentialChangeLogBus fromConfig(ConfigurationSection config, IMCEngineEssentialDB db,
+                                                           String type, Logger logger) {
+        return new MCEngineEssentialChangeLogBus(
+                db,
+                logger,
+                config.getString("database.invalidation.table", "essential_change_log"),
+                type,
+                config.getLong("database.invalidation.poll-interval", 1_000L),
+                config.getInt("database.invalidation.batch-size", 1_000),
+                config.getLong("database.invalidation.retention", 600_000L),
+                config.getLong("database.invalidation.gap-timeout", 10_000L));
+    }
+
+    /** Creates the change log and starts after its current end. */
+    @Override
+    protected void open() {
+        db.executeQuery(createSql);
+        cursor = db.getLong(maxSql, 0L);
+        lastPoll = System.currentTimeMillis();
+    }
+
+    /** Appends the changes in one transaction. */
+    @Override
+    protected void send(List<MCEngineEssentialChangeEvent> changes) {
+        long now = System.currentTimeMillis();
+        List<MCEngineEssentialWrite> writes = new ArrayList<>(changes.size());
+        for (MCEngineEssentialChangeEvent e : changes) {
+            writes.add(new MCEngineEssentialWrite(insertSql, nodeId, e.table(), e.key(), now));
+        }
+        db.executeBatch(writes);
+    }
+
+    /** Reads the gaps that have appeared since, then the rows after the cursor. */
+    @Override
+    protected List<MCEngineEssentialChangeEvent> receive() {
+        long now = System.currentTimeMillis();
+        List<MCEngineEssentialChangeEvent> changes = new ArrayList<>();
+        if (now - lastPoll > retentionMillis) changes.add(MCEngineEssentialChangeEvent.ALL);
+
+        if (!gaps.isEmpty()) {
+            List<Long> waiting = new ArrayList<>(gaps.keySet());
+            for (int start = 0; start < waiting.size(); start += GAP_CHUNK) {
+                Object[] ids = new Object[GAP_CHUNK];
+                for (int i = 0; i < GAP_CHUNK; i++) ids[i] = waiting.get(Math.min(start + i, waiting.size() - 1));
+                for (Row row : read(gapSql, ids)) {
+                    if (gaps.remove(row.seq()) != null) collect(row, changes);
+                }
+            }
+        }
+        for (Row row : read(selectSql, cursor)) {
+            for (long missing = cursor + 1; missing < row.seq() && gaps.size() < GAP_LIMIT; missing++) {
+                gaps.put(missing, now);
+            }
+            cursor = row.seq();
+            collect(row, changes);
+        }
+
+        expireGaps(now, changes);
+        lastPoll = now;
+        if (now - lastPrune >= Math.min(60_000L, retentionMillis / 10)) {
+            lastPrune = now;
+            db.executeQuery(pruneSql, now - retentionMillis);
+        }
+        return changes;
+    }
+
+    /** Runs a change-log read. */
+    private List<Row> read(String sql, Object... params) {
+        try (Stream<Row> found = db.query(sql,
+                rs -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)), params)) {
+            return found.toList();
+        }
+    }
+
+    /** Adds the change of a row written by another server. */
+    private void collect(Row row, List<MCEngineEssentialChangeEvent> changes) {
+        if (!nodeId.equals(row.node())) changes.add(new MCEngineEssentialChangeEvent(row.table(), row.key()));
+    }
+
+    /** Stops waiting for gaps past the timeout; too many gaps invalidate everything. */
+    private void expireGaps(long now, List<MCEngineEssentialChangeEvent> changes) {
+        if (gaps.size() >= GAP_LIMIT) {
+            gaps.clear();
+            changes.add(MCEngineEssentialChangeEvent.ALL);
+            return;
+        }
+        for (Iterator<Map.Entry<Long, Long>> it = gaps.entrySet().iterator(); it.hasNext(); ) {
+            if (now - it.next().getValue() >= gapTimeoutMillis) it.remove();
+        }
+    }
+
+    /** One change-log row. */
+    private record Row(long seq, String node, String table, String key) {
+    }
+}
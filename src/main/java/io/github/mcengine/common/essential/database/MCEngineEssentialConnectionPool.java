@@ -0,0 +1,433 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Small bounded JDBC connection pool shared by the Essential database backends.
+ * <p>
+ * Callers never hold a connection directly; they run work through
+ * {@link #withConnection(Work)}, which borrows a connection, runs the callback, and
+ * returns it. At most {@code maxSize} connections are borrowed at once; further callers
+ * wait up to the acquire timeout. Idle connections are reused most-recently-used first,
+ * validated before reuse when they have been idle for a while, and retired by a
+ * background housekeeper once they exceed the idle timeout or maximum lifetime.
+ * <p>
+ * Construction never blocks on the network: the first connections are opened by the
+ * housekeeper, retrying with backoff until the database is reachable, and
+ * {@link #ready()} completes once one has been opened.
+ */
+public final class MCEngineEssentialConnectionPool {
+
+    /**
+     * Opens a new physical connection for the pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+
+        /**
+         * Opens a new connection.
+         *
+         * @return an open JDBC connection
+         * @throws SQLException if the connection cannot be established
+         */
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Unit of work executed against a borrowed connection.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+
+        /**
+         * Runs the work.
+         *
+         * @param connection the borrowed connection; valid only for the duration of the call
+         * @return work result
+         * @throws SQLException if the work fails
+         */
+        T apply(MCEngineEssentialPooledConnection connection) throws SQLException;
+    }
+
+    /** Connections idle for less than this are handed out without a validation round trip. */
+    private static final long VALIDATION_INTERVAL_MILLIS = 5_000L;
+
+    /** Seconds allowed for {@link Connection#isValid(int)} during validation. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 3;
+
+    /** First delay before retrying the initial connection; doubles up to {@link #STARTUP_RETRY_MAX_MILLIS}. */
+    private static final long STARTUP_RETRY_MILLIS = 1_000L;
+
+    /** Longest delay between initial connection attempts. */
+    private static final long STARTUP_RETRY_MAX_MILLIS = 30_000L;
+
+    /** Pool name used in log messages and thread names (e.g. {@code mysql}). */
+    private final String name;
+
+    /** Logger of the owning plugin. */
+    private final Logger logger;
+
+    /** Opens new physical connections. */
+    private final ConnectionFactory factory;
+
+    /** Sizing and timeout settings. */
+    private final MCEngineEssentialPoolSettings settings;
+
+    /** One permit per connection that may be borrowed concurrently. */
+    private final Semaphore permits;
+
+    /** Idle connections; the head is the most recently returned. */
+    private final LinkedBlockingDeque<MCEngineEssentialPooledConnection> idle = new LinkedBlockingDeque<>();
+
+    /** Number of open physical connections (idle and borrowed). */
+    private final AtomicInteger total = new AtomicInteger();
+
+    /** Background thread retiring stale connections and topping the pool up to its minimum. */
+    private final ScheduledExecutorService housekeeper;
+
+    /** Statements prepared on every new connection, registered through {@link #warmUp}. */
+    private final Set<String> hotStatements = ConcurrentHashMap.newKeySet();
+
+    /** Completed when the first physical connection has been opened. */
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    /** Set once {@link #close()} has been called. */
+    private volatile boolean closed;
+
+    /**
+     * Creates the pool and opens {@code minSize} connections in the background.
+     * Failures are logged and retried with backoff; borrowers may also connect on demand.
+     *
+     * @param name     pool name for logs and thread names
+     * @param logger   logger of the owning plugin
+     * @param factory  opens new physical connections
+     * @param settings sizing and timeout settings
+     */
+    public MCEngineEssentialConnectionPool(String name, Logger logger, ConnectionFactory factory,
+                                           MCEngineEssentialPoolSettings settings) {
+        this.name = name;
+        this.logger = logger;
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MCEngineEssential-" + name + "-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = housekeepingPeriodMillis(settings);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+        housekeeper.execute(() -> connectInitial(STARTUP_RETRY_MILLIS));
+    }
+
+    /**
+     * Returns a future completed once the pool has opened its first connection, i.e.
+     * once the database has been reached. It never completes exceptionally; it stays
+     * pending while the database is unreachable.
+     *
+     * @return readiness future
+     */
+    public CompletableFuture<Void> ready() {
+        return ready.copy();
+    }
+
+    /**
+     * Opens connections up to {@code connections} (capped at {@code maxSize}) in the
+     * background and prepares {@code statements} on each. The statements are also
+     * prepared on every connection the pool opens later, so hot queries never pay for
+     * parsing on first use.
+     *
+     * @param connections connections to have open; {@code <= 0} keeps the current count
+     * @param statements  SQL to prepare; statements that fail to prepare (e.g. tables not created yet) are skipped
+     * @return future completed when the warm-up has finished, or exceptionally if no connection could be opened
+     */
+    public CompletableFuture<Void> warmUp(int connections, Collection<String> statements) {
+        hotStatements.addAll(statements);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        housekeeper.execute(() -> {
+            List<MCEngineEssentialPooledConnection> borrowed = new ArrayList<>();
+            try {
+                int target = Math.min(settings.maxSize(), connections > 0 ? connections : Math.max(1, total.get()));
+                while (!closed && borrowed.size() < target) {
+                    MCEngineEssentialPooledConnection pc = acquire();
+                    borrowed.add(pc);
+                    prepareHot(pc, statements);
+                }
+                done.complete(null);
+            } catch (SQLException | RuntimeException e) {
+                done.completeExceptionally(e);
+            } finally {
+                for (MCEngineEssentialPooledConnection pc : borrowed) release(pc, false);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Borrows a connection, runs {@code work}, and returns the connection to the pool.
+     * <p>
+     * If the work throws, the connection is validated before it is reused so a dead
+     * socket is replaced rather than handed to the next caller.
+     *
+     * @param work callback run against the borrowed connection
+     * @param <T>  result type
+     * @return the callback result
+     * @throws SQLException if no connection could be obtained or the work fails
+     */
+    public <T> T withConnection(Work<T> work) throws SQLException {
+        MCEngineEssentialPooledConnection pc = acquire();
+        boolean failed = true;
+        try {
+            T result = work.apply(pc);
+            failed = false;
+            return result;
+        } finally {
+            release(pc, failed);
+        }
+    }
+
+    /**
+     * Returns the number of open physical connections.
+     *
+     * @return open connections (idle and borrowed)
+     */
+    public int getTotalCount() {
+        return total.get();
+    }
+
+    /**
+     * Returns the number of idle connections.
+     *
+     * @return idle connections
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the number of connections currently borrowed.
+     *
+     * @return borrowed connections
+     */
+    public int getActiveCount() {
+        return settings.maxSize() - permits.availablePermits();
+    }
+
+    /**
+     * Returns the settings this pool was built with.
+     *
+     * @return pool settings
+     */
+    public MCEngineEssentialPoolSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Borrowed connections are
+     * closed as soon as they are returned. Further borrow attempts fail.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        MCEngineEssentialPooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            discard(pc);
+        }
+    }
+
+    /**
+     * Waits for a permit, then reuses an idle connection or opens a new one.
+     * Callers that hold a connection beyond one callback (e.g. result streams) must
+     * pair this with {@link #release}; everything else should use {@link #withConnection}.
+     */
+    MCEngineEssentialPooledConnection acquire() throws SQLException {
+        if (closed) throw new SQLException("Connection pool '" + name + "' is closed");
+
+        try {
+            if (!permits.tryAcquire(settings.acquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + settings.acquireTimeoutMillis()
+                        + " ms waiting for a " + name + " connection (max-size " + settings.maxSize() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a " + name + " connection", e);
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            MCEngineEssentialPooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (pc.isExpired(settings.maxLifetimeMillis(), now)
+                        || (pc.idleFor(now) >= VALIDATION_INTERVAL_MILLIS && !isValid(pc))) {
+                    discard(pc);
+                    continue;
+                }
+                return pc;
+            }
+            return open();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Returns a borrowed connection, discarding it if it is expired or looks broken. */
+    void release(MCEngineEssentialPooledConnection pc, boolean suspect) {
+        try {
+            if (closed
+                    || pc.isExpired(settings.maxLifetimeMillis(), System.currentTimeMillis())
+                    || !reset(pc)
+                    || (suspect && !isValid(pc))) {
+                discard(pc);
+            } else {
+                pc.touch();
+                idle.offerFirst(pc);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Restores auto-commit so a connection left mid-transaction is not reused dirty. */
+    private static boolean reset(MCEngineEssentialPooledConnection pc) {
+        Connection c = pc.getConnection();
+        try {
+            if (c.isClosed()) return false;
+            if (!c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Checks a connection with the validation query, or the driver's validity check if none is set. */
+    private boolean isValid(MCEngineEssentialPooledConnection pc) {
+        Connection c = pc.getConnection();
+        try {
+            if (settings.validationQuery().isEmpty()) {
+                return c.isValid(VALIDATION_TIMEOUT_SECONDS);
+            }
+            try (Statement st = c.createStatement()) {
+                st.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+                st.execute(settings.validationQuery());
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Opens and counts a new physical connection and prepares the hot statements on it. */
+    private MCEngineEssentialPooledConnection open() throws SQLException {
+        Connection c = factory.open();
+        total.incrementAndGet();
+        MCEngineEssentialPooledConnection pc = new MCEngineEssentialPooledConnection(c, settings.statementCacheSize());
+        prepareHot(pc, hotStatements);
+        ready.complete(null);
+        return pc;
+    }
+
+    /** Prepares statements into a connection's cache, skipping any that fail. */
+    private void prepareHot(MCEngineEssentialPooledConnection pc, Collection<String> statements) {
+        for (String sql : statements) {
+            try {
+                pc.prepare(sql);
+            } catch (SQLException e) {
+                logger.fine("Essential " + name + " pool could not prepare '" + sql + "': " + e.getMessage());
+            }
+        }
+    }
+
+    /** Closes and uncounts a physical connection. */
+    private void discard(MCEngineEssentialPooledConnection pc) {
+        total.decrementAndGet();
+        pc.clearStatements();
+        try {
+            pc.getConnection().close();
+        } catch (SQLException ignored) {
+            // Already broken; nothing else to release.
+        }
+    }
+
+    /** Retires idle connections past their idle timeout or lifetime, then refills to the minimum. */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<MCEngineEssentialPooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                MCEngineEssentialPooledConnection pc = it.next();
+                boolean expired = pc.isExpired(settings.maxLifetimeMillis(), now);
+                boolean idleTooLong = settings.idleTimeoutMillis() > 0
+                        && pc.idleFor(now) >= settings.idleTimeoutMillis()
+                        && total.get() > settings.minSize();
+                if ((expired || idleTooLong) && idle.remove(pc)) {
+                    discard(pc);
+                }
+            }
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            logger.warning("Essential " + name + " pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the first connection (even with {@code minSize} 0, to detect an unreachable
+     * database early) and fills to the minimum, rescheduling itself with backoff on failure.
+     */
+    private void connectInitial(long retryMillis) {
+        if (closed) return;
+        try {
+            if (!ready.isDone()) idle.offerLast(open());
+        } catch (SQLException | RuntimeException e) {
+            logger.warning("Failed to open " + name + " connection: " + e.getMessage()
+                    + " (retrying in " + retryMillis / 1000 + " s)");
+            housekeeper.schedule(() -> connectInitial(Math.min(retryMillis * 2, STARTUP_RETRY_MAX_MILLIS)),
+                    retryMillis, TimeUnit.MILLISECONDS);
+            return;
+        }
+        fillToMinimum();
+    }
+
+    /** Opens idle connections until {@code minSize} connections exist. */
+    private void fillToMinimum() {
+        while (!closed && total.get() < settings.minSize()) {
+            try {
+                idle.offerLast(open());
+            } catch (SQLException e) {
+                logger.warning("Failed to open " + name + " connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /** Runs housekeeping often enough to honour the shortest configured timeout, but at most every 30 s. */
+    private static long housekeepingPeriodMillis(MCEngineEssentialPoolSettings settings) {
+        long period = 30_000L;
+        if (settings.idleTimeoutMillis() > 0) period = Math.min(period, settings.idleTimeoutMillis() / 2);
+        if (settings.maxLifetimeMillis() > 0) period = Math.min(period, settings.maxLifetimeMillis() / 2);
+        return Math.max(1_000L, period);
+    }
+}
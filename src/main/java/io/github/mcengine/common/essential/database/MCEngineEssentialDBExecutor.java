@@ -0,0 +1,227 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Bounded executor dedicated to Essential database work.
+ * <p>
+ * Tasks run on a fixed set of platform threads, or on virtual threads when enabled and
+ * the runtime supports them (Java 21+). Either way, at most {@code threads + queueSize}
+ * tasks are admitted at once; what happens to further submissions is decided by the
+ * configured {@link RejectionPolicy}.
+ */
+public final class MCEngineEssentialDBExecutor {
+
+    /**
+     * Backpressure policy applied when the executor is saturated.
+     */
+    public enum RejectionPolicy {
+
+        /** Fail the returned future with a {@link RejectedExecutionException}. */
+        ABORT,
+
+        /** Run the task on the submitting thread. */
+        CALLER_RUNS,
+
+        /** Wait up to the block timeout for capacity, then behave like {@link #ABORT}. */
+        BLOCK
+    }
+
+    /** Delegate running admitted tasks. */
+    private final ExecutorService delegate;
+
+    /** One permit per task that may be running or queued. */
+    private final Semaphore admission;
+
+    /** Total admission capacity ({@code threads + queueSize}). */
+    private final int capacity;
+
+    /** Policy applied once {@link #admission} is exhausted. */
+    private final RejectionPolicy policy;
+
+    /** Maximum wait in millis for {@link RejectionPolicy#BLOCK}. */
+    private final long blockTimeoutMillis;
+
+    /** Whether tasks run on virtual threads. */
+    private final boolean virtual;
+
+    /**
+     * Creates the executor.
+     *
+     * @param logger             logger used to report a virtual-thread fallback
+     * @param threads            platform worker threads (ignored for virtual threads)
+     * @param queueSize          tasks that may wait beyond the running ones
+     * @param policy             backpressure policy when saturated
+     * @param blockTimeoutMillis wait time for {@link RejectionPolicy#BLOCK}
+     * @param preferVirtual      use virtual threads when the runtime supports them
+     */
+    public MCEngineEssentialDBExecutor(Logger logger, int threads, int queueSize, RejectionPolicy policy,
+                                       long blockTimeoutMillis, boolean preferVirtual) {
+        threads = Math.max(1, threads);
+        this.capacity = threads + Math.max(0, queueSize);
+        this.admission = new Semaphore(capacity);
+        this.policy = policy;
+        this.blockTimeoutMillis = Math.max(0, blockTimeoutMillis);
+
+        ExecutorService vt = preferVirtual ? newVirtualThreadExecutor() : null;
+        if (preferVirtual && vt == null) {
+            logger.info("Virtual threads are not available on this runtime; using " + threads + " platform DB threads.");
+        }
+        this.virtual = vt != null;
+
+        if (vt != null) {
+            this.delegate = vt;
+        } else {
+            AtomicInteger seq = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "MCEngineEssential-db-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.delegate = pool;
+        }
+    }
+
+    /**
+     * Builds the executor from config keys:
+     * <ul>
+     *     <li>{@code database.executor.threads} (default: {@code 4})</li>
+     *     <li>{@code database.executor.queue-size} (default: {@code 1000})</li>
+     *     <li>{@code database.executor.rejection-policy} → {@code abort}, {@code caller-runs} or {@code block} (default: {@code abort})</li>
+     *     <li>{@code database.executor.block-timeout} in milliseconds (default: {@code 1000})</li>
+     *     <li>{@code database.executor.virtual-threads} (default: {@code false})</li>
+     * </ul>
+     * {@code database.executor.shutdown-timeout} (milliseconds, default {@code 10000}) is read by
+     * the owner when it calls {@link #shutdown(long)}.
+     *
+     * @param config root configuration
+     * @param logger logger of the owning plugin
+     * @return configured executor
+     * @throws IllegalArgumentException if the rejection policy is unknown
+     */
+    public static MCEngineEssentialDBExecutor fromConfig(ConfigurationSection config, Logger logger) {
+        String policy = config.getString("database.executor.rejection-policy", "abort")
+                .trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        return new MCEngineEssentialDBExecutor(
+                logger,
+                config.getInt("database.executor.threads", 4),
+                config.getInt("database.executor.queue-size", 1000),
+                RejectionPolicy.valueOf(policy),
+                config.getLong("database.executor.block-timeout", 1000L),
+                config.getBoolean("database.executor.virtual-threads", false));
+    }
+
+    /**
+     * Submits a task, applying the rejection policy if the executor is saturated.
+     *
+     * @param task database work to run
+     * @param <T>  result type
+     * @return future completed with the task result or its failure
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        if (!admit()) {
+            if (policy == RejectionPolicy.CALLER_RUNS) {
+                run(task, future);
+            } else {
+                future.completeExceptionally(new RejectedExecutionException(
+                        "Essential DB executor is saturated (" + capacity + " tasks in flight)"));
+            }
+            return future;
+        }
+
+        try {
+            delegate.execute(() -> {
+                try {
+                    run(task, future);
+                } finally {
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Returns whether tasks run on virtual threads.
+     *
+     * @return {@code true} for virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Returns the number of tasks currently running or queued.
+     *
+     * @return in-flight task count
+     */
+    public int getInFlightCount() {
+        return capacity - admission.availablePermits();
+    }
+
+    /**
+     * Stops accepting tasks and waits for queued ones to finish.
+     *
+     * @param timeoutMillis maximum time to wait for queued tasks
+     */
+    public void shutdown(long timeoutMillis) {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Acquires an admission permit according to the policy. */
+    private boolean admit() {
+        if (policy != RejectionPolicy.BLOCK) return admission.tryAcquire();
+        try {
+            return admission.tryAcquire(blockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Runs a task and completes the future with its outcome. */
+    private static <T> void run(Supplier<T> task, CompletableFuture<T> future) {
+        try {
+            future.complete(task.get());
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    /** Creates a virtual-thread-per-task executor via reflection so the module still runs on Java 17. */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
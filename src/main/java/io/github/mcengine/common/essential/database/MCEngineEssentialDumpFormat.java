@@ -0,0 +1,298 @@
+package io.github.mcengine.common.essential.database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary, gzip-compressed table dump used by {@link MCEngineEssentialMigration} for backups.
+ * <p>
+ * A file holds a header, then each table as its {@link MCEngineEssentialTableSchema}
+ * followed by its rows and a row count, then an end marker. Values are tagged with their
+ * portable type, so a dump taken from one backend loads into any other. Rows are written
+ * and read one at a time; neither side holds a table in memory.
+ */
+final class MCEngineEssentialDumpFormat {
+
+    /** File signature, {@code MCED}. */
+    private static final int MAGIC = 0x4D434544;
+
+    /** Format version. */
+    private static final int VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte TABLE = 1;
+    private static final byte ROW = 2;
+    private static final byte TABLE_END = 3;
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+    private static final byte BYTES = 4;
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte DECIMAL = 7;
+    private static final byte TIMESTAMP = 8;
+
+    private MCEngineEssentialDumpFormat() {
+    }
+
+    /** Writes a dump file. */
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+
+        /** Creates the file, replacing an existing one, and writes the header. */
+        Writer(Path file) throws IOException {
+            OutputStream raw = Files.newOutputStream(file);
+            try {
+                this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(raw, 1 << 16), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+            } catch (IOException e) {
+                raw.close();
+                throw e;
+            }
+        }
+
+        /** Starts a table. */
+        void table(MCEngineEssentialTableSchema schema) throws IOException {
+            out.writeByte(TABLE);
+            out.writeUTF(schema.name());
+            out.writeShort(schema.columns().size());
+            for (MCEngineEssentialTableSchema.Column c : schema.columns()) {
+                out.writeUTF(c.name());
+                out.writeInt(c.jdbcType());
+                out.writeInt(c.size());
+                out.writeInt(c.scale());
+                out.writeBoolean(c.nullable());
+                out.writeBoolean(c.autoIncrement());
+            }
+            writeNames(out, schema.primaryKey());
+            out.writeShort(schema.indexes().size());
+            for (MCEngineEssentialTableSchema.Index index : schema.indexes()) {
+                out.writeUTF(index.name());
+                out.writeBoolean(index.unique());
+                writeNames(out, index.columns());
+            }
+        }
+
+        /** Appends a row to the current table. */
+        void row(Object[] values) throws IOException {
+            out.writeByte(ROW);
+            for (Object v : values) writeValue(out, v);
+        }
+
+        /** Ends the current table, recording how many rows it holds. */
+        void endTable(long rows) throws IOException {
+            out.writeByte(TABLE_END);
+            out.writeLong(rows);
+        }
+
+        /** Writes the end marker and closes the file. */
+        @Override
+        public void close() throws IOException {
+            try {
+                out.writeByte(END);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /** Reads a dump file sequentially. */
+    static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        /** Table being read; {@code null} between tables. */
+        private MCEngineEssentialTableSchema table;
+
+        /** Rows read from the current table. */
+        private long rows;
+
+        /** Opens the file and checks its header. */
+        Reader(Path file) throws IOException {
+            InputStream raw = Files.newInputStream(file);
+            try {
+                this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(raw, 1 << 16), 1 << 16));
+                if (in.readInt() != MAGIC) throw new IOException("Not an Essential dump: " + file);
+                int version = in.readUnsignedShort();
+                if (version != VERSION) throw new IOException("Unsupported Essential dump version " + version);
+            } catch (IOException e) {
+                raw.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Moves to the next table, skipping the rest of the current one.
+         *
+         * @return the table's schema, or {@code null} at the end of the file
+         */
+        MCEngineEssentialTableSchema nextTable() throws IOException {
+            while (table != null) nextRow();
+            byte marker = in.readByte();
+            if (marker == END) return null;
+            if (marker != TABLE) throw new IOException("Corrupt Essential dump: table expected");
+            String name = in.readUTF();
+            int count = in.readUnsignedShort();
+            List<MCEngineEssentialTableSchema.Column> columns = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                columns.add(new MCEngineEssentialTableSchema.Column(in.readUTF(), in.readInt(), in.readInt(),
+                        in.readInt(), in.readBoolean(), in.readBoolean()));
+            }
+            List<String> primaryKey = readNames(in);
+            int indexCount = in.readUnsignedShort();
+            List<MCEngineEssentialTableSchema.Index> indexes = new ArrayList<>(indexCount);
+            for (int i = 0; i < indexCount; i++) {
+                indexes.add(new MCEngineEssentialTableSchema.Index(in.readUTF(), in.readBoolean(), readNames(in)));
+            }
+            table = new MCEngineEssentialTableSchema(name, columns, primaryKey, indexes);
+            rows = 0;
+            return table;
+        }
+
+        /**
+         * Reads the next row of the current table.
+         *
+         * @return values in column order, or {@code null} at the end of the table
+         */
+        Object[] nextRow() throws IOException {
+            if (table == null) return null;
+            byte marker = in.readByte();
+            if (marker == TABLE_END) {
+                long expected = in.readLong();
+                if (expected != rows) {
+                    throw new IOException("Corrupt Essential dump: " + table.name() + " has " + rows
+                            + " rows, expected " + expected);
+                }
+                table = null;
+                return null;
+            }
+            if (marker != ROW) throw new IOException("Corrupt Essential dump: row expected in " + table.name());
+            Object[] values = new Object[table.columns().size()];
+            for (int i = 0; i < values.length; i++) values[i] = readValue(in);
+            rows++;
+            return values;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Encodes values, e.g. a resume key, as Base64 text. */
+    static String encode(Object[] values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(values.length);
+            for (Object v : values) writeValue(out, v);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /** Decodes values written by {@link #encode}. */
+    static Object[] decode(String text) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(text)))) {
+            Object[] values = new Object[in.readUnsignedShort()];
+            for (int i = 0; i < values.length; i++) values[i] = readValue(in);
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid encoded values: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object v) throws IOException {
+        if (v == null) {
+            out.writeByte(NULL);
+        } else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) v).longValue());
+        } else if (v instanceof Double || v instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) v).doubleValue());
+        } else if (v instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (v instanceof BigDecimal d) {
+            out.writeByte(DECIMAL);
+            writeString(out, d.toString());
+        } else if (v instanceof Timestamp ts) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(ts.getTime());
+            out.writeInt(ts.getNanos());
+        } else if (v instanceof byte[] bytes) {
+            out.writeByte(BYTES);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeByte(STRING);
+            writeString(out, v.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case NULL -> null;
+            case LONG -> in.readLong();
+            case DOUBLE -> in.readDouble();
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case DECIMAL -> new BigDecimal(readString(in));
+            case TIMESTAMP -> {
+                Timestamp ts = new Timestamp(in.readLong());
+                ts.setNanos(in.readInt());
+                yield ts;
+            }
+            case BYTES -> in.readNBytes(in.readInt());
+            case STRING -> readString(in);
+            default -> throw new IOException("Corrupt Essential dump: unknown value tag " + tag);
+        };
+    }
+
+    /** Writes length-prefixed UTF-8, without {@code writeUTF}'s 64 KiB limit. */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+
+    private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+        out.writeShort(names.size());
+        for (String n : names) out.writeUTF(n);
+    }
+
+    private static List<String> readNames(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) names.add(in.readUTF());
+        return names;
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.mcengine.common.essential.database;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Base class for decorators around an {@link IMCEngineEssentialDB}.
+ * <p>
+ * Every call is forwarded unchanged to the wrapped backend; subclasses override only
+ * the calls they add behaviour to.
+ */
+public abstract class MCEngineEssentialForwardingDB implements IMCEngineEssentialDB {
+
+    /** The wrapped backend. */
+    protected final IMCEngineEssentialDB delegate;
+
+    /**
+     * Wraps a backend.
+     *
+     * @param delegate backend receiving forwarded calls
+     */
+    protected MCEngineEssentialForwardingDB(IMCEngineEssentialDB delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Returns the wrapped backend.
+     *
+     * @return the delegate
+     */
+    public IMCEngineEssentialDB getDelegate() {
+        return delegate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql) {
+        delegate.executeQuery(sql);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        delegate.executeQuery(sql, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        delegate.executeBatch(writes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type) {
+        return delegate.getValue(sql, type);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        return delegate.getValue(sql, type, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(String sql, int defaultValue, Object... params) {
+        return delegate.getInt(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(String sql, long defaultValue, Object... params) {
+        return delegate.getLong(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        return delegate.getDouble(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        return delegate.getBoolean(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        return delegate.query(sql, mapper, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> void forEachRow(String sql, MCEngineEssentialRowMapper<T> mapper, Consumer<? super T> action,
+                               Object... params) {
+        delegate.forEachRow(sql, mapper, action, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        return delegate.inTransaction(isolation, work);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> ready() {
+        return delegate.ready();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> warmUp(int connections, Collection<String> statements) {
+        return delegate.warmUp(connections, statements);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.Savepoint;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Base class for decorators around an {@link MCEngineEssentialTransaction}, used by
+ * database decorators that need to observe statements run inside a transaction.
+ * <p>
+ * Every call is forwarded unchanged; nested scopes hand this wrapper, not the wrapped
+ * handle, to the nested work.
+ */
+public abstract class MCEngineEssentialForwardingTransaction implements MCEngineEssentialTransaction {
+
+    /** The wrapped transaction. */
+    protected final MCEngineEssentialTransaction delegate;
+
+    /**
+     * Wraps a transaction.
+     *
+     * @param delegate transaction receiving forwarded calls
+     */
+    protected MCEngineEssentialForwardingTransaction(MCEngineEssentialTransaction delegate) {
+        this.delegate = delegate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        delegate.executeQuery(sql, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        delegate.executeBatch(writes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        return delegate.getValue(sql, type, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(String sql, int defaultValue, Object... params) {
+        return delegate.getInt(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(String sql, long defaultValue, Object... params) {
+        return delegate.getLong(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        return delegate.getDouble(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        return delegate.getBoolean(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        return delegate.query(sql, mapper, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialTransactionWork<T> work) {
+        return delegate.inTransaction(inner -> work.run(this));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Savepoint savepoint() {
+        return delegate.savepoint();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void rollbackTo(Savepoint savepoint) {
+        delegate.rollbackTo(savepoint);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) {
+        delegate.releaseSavepoint(savepoint);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setRollbackOnly() {
+        delegate.setRollbackOnly();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRollbackOnly() {
+        return delegate.isRollbackOnly();
+    }
+}
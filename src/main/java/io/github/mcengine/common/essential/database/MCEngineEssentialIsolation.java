@@ -0,0 +1,43 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.Connection;
+
+/**
+ * Transaction isolation levels accepted by {@link IMCEngineEssentialDB#inTransaction}.
+ * <p>
+ * SQLite transactions are always serializable; there only {@link #READ_UNCOMMITTED}
+ * (shared-cache connections) changes anything.
+ */
+public enum MCEngineEssentialIsolation {
+
+    /** Keep the connection's configured level. */
+    DEFAULT(-1),
+
+    /** {@link Connection#TRANSACTION_READ_UNCOMMITTED}. */
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+
+    /** {@link Connection#TRANSACTION_READ_COMMITTED}. */
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+
+    /** {@link Connection#TRANSACTION_REPEATABLE_READ}. */
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+
+    /** {@link Connection#TRANSACTION_SERIALIZABLE}. */
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    /** JDBC constant, or {@code -1} for {@link #DEFAULT}. */
+    private final int jdbcLevel;
+
+    MCEngineEssentialIsolation(int jdbcLevel) {
+        this.jdbcLevel = jdbcLevel;
+    }
+
+    /**
+     * Returns the JDBC isolation constant.
+     *
+     * @return a {@code Connection.TRANSACTION_*} value, or {@code -1} for {@link #DEFAULT}
+     */
+    public int jdbcLevel() {
+        return jdbcLevel;
+    }
+}
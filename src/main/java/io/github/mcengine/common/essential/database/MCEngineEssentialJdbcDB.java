@@ -0,0 +1,801 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.plugin.Plugin;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Shared JDBC plumbing for the pooled Essential database backends.
+ * <p>
+ * Every call borrows a connection from the backend's {@link MCEngineEssentialConnectionPool}.
+ * Raw SQL runs through a throwaway {@link Statement}; parameterized SQL runs through the
+ * connection's cached {@link PreparedStatement}s, so hot queries are parsed and planned once
+ * per connection. Subclasses only decide how connections are opened.
+ * <p>
+ * Inside {@link #inTransaction}, calls made through this backend on the transaction's
+ * thread join the open transaction instead of borrowing another connection.
+ */
+public abstract class MCEngineEssentialJdbcDB implements IMCEngineEssentialDB {
+
+    /** The Bukkit plugin instance providing config and logging. */
+    protected final Plugin plugin;
+
+    /** Backend name used in error messages (e.g. {@code MySQL}). */
+    private final String label;
+
+    /** Config key of the backend, which also names its SQL dialect (e.g. {@code mysql}). */
+    private final String type;
+
+    /** Rows fetched per round trip by {@link #query} ({@code database.<type>.fetch-size}). */
+    protected final int fetchSize;
+
+    /** Retries after a deadlock or serialization failure ({@code database.<type>.transaction.max-retries}). */
+    private final int maxRetries;
+
+    /** Base delay before a retry ({@code database.<type>.transaction.retry-backoff}). */
+    private final long retryBackoffMillis;
+
+    /** Transaction open on the current thread, if any. */
+    private final ThreadLocal<MCEngineEssentialJdbcTransaction> currentTx = new ThreadLocal<>();
+
+    /**
+     * Creates the backend. Besides {@code fetch-size}, reads
+     * {@code database.<type>.transaction.max-retries} (default: {@code 3}) and
+     * {@code database.<type>.transaction.retry-backoff} in milliseconds (default: {@code 50}).
+     *
+     * @param plugin Bukkit plugin instance
+     * @param label  backend name used in error messages
+     * @param type   config key of the backend under {@code database.} (e.g. {@code mysql})
+     */
+    protected MCEngineEssentialJdbcDB(Plugin plugin, String label, String type) {
+        this.plugin = plugin;
+        this.label = label;
+        this.type = type;
+        this.fetchSize = Math.max(1, plugin.getConfig().getInt("database." + type + ".fetch-size", 500));
+        this.maxRetries = Math.max(0, plugin.getConfig().getInt("database." + type + ".transaction.max-retries", 3));
+        this.retryBackoffMillis = Math.max(0L, plugin.getConfig().getLong("database." + type + ".transaction.retry-backoff", 50L));
+    }
+
+    /**
+     * Returns the primary pool; every write borrows its connection from it.
+     *
+     * @return the backend's primary connection pool
+     */
+    protected abstract MCEngineEssentialConnectionPool pool();
+
+    /**
+     * Returns the pool that read-only queries borrow from. Defaults to {@link #pool()};
+     * backends with dedicated reader connections override it.
+     *
+     * @return the pool used for {@code SELECT} queries
+     */
+    protected MCEngineEssentialConnectionPool readPool() {
+        return pool();
+    }
+
+    /**
+     * Returns the read-replica router. Defaults to none; backends with
+     * {@code database.<type>.replicas} configured override it.
+     *
+     * @return the router, or {@code null} if the backend has no replicas
+     */
+    protected MCEngineEssentialReplicaRouter replicas() {
+        return null;
+    }
+
+    /**
+     * Picks the pool for a read: plain {@code SELECT}s go to a replica chosen by
+     * {@link #replicas()} when it has one for the query, else to {@link #readPool()};
+     * anything else (e.g. {@code INSERT ... RETURNING}) stays on {@link #pool()}, as do
+     * queries reading connection state such as {@code last_insert_rowid()}, which
+     * would otherwise be answered by a connection that made no writes.
+     *
+     * @param sql SQL query
+     * @return pool to borrow from
+     */
+    protected MCEngineEssentialConnectionPool poolFor(String sql) {
+        MCEngineEssentialConnectionPool read = readPool();
+        MCEngineEssentialReplicaRouter replicas = replicas();
+        if (read == pool() && replicas == null) return read;
+        String head = sql.stripLeading();
+        if (!head.regionMatches(true, 0, "SELECT", 0, 6)) return pool();
+        if (MCEngineEssentialSqlUtil.readsConnectionState(sql)) return pool();
+        if (replicas != null) {
+            MCEngineEssentialConnectionPool replica = replicas.route(sql);
+            if (replica != null) return replica;
+        }
+        return read;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) {
+            tx.executeRaw(sql);
+            return;
+        }
+        try {
+            pool().withConnection(pc -> {
+                try (Statement st = pc.getConnection().createStatement()) {
+                    st.execute(sql);
+                }
+                return null;
+            });
+            noteWrite(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " executeQuery failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) {
+            tx.executeQuery(sql, params);
+            return;
+        }
+        try {
+            pool().withConnection(pc -> pc.withStatement(sql, ps -> {
+                pc.bind(sql, ps, params);
+                ps.execute();
+                return null;
+            }));
+            noteWrite(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " executeQuery failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        if (writes.isEmpty()) return;
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) {
+            tx.executeBatch(writes);
+            return;
+        }
+        try {
+            pool().withConnection(pc -> {
+                Connection c = pc.getConnection();
+                c.setAutoCommit(false);
+                try {
+                    runBatch(pc, writes);
+                    c.commit();
+                } catch (SQLException | RuntimeException e) {
+                    c.rollback();
+                    throw e;
+                } finally {
+                    c.setAutoCommit(true);
+                }
+                return null;
+            });
+            String last = null;
+            for (MCEngineEssentialWrite w : writes) {
+                if (!w.sql().equals(last)) noteWrite(last = w.sql());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " executeBatch failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) return tx.getValueRaw(sql, type);
+        MCEngineEssentialConnectionPool source = poolFor(sql);
+        for (;;) {
+            try {
+                return source.withConnection(pc -> {
+                    try (Statement st = pc.getConnection().createStatement();
+                         ResultSet rs = st.executeQuery(sql)) {
+
+                        if (!rs.next()) return null;
+                        return MCEngineEssentialTypeCodec.read(rs, 1, type);
+                    }
+                });
+            } catch (SQLException e) {
+                source = failover(source, e);
+                if (source == null) throw new RuntimeException(label + " getValue failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) return tx.getValue(sql, type, params);
+        MCEngineEssentialConnectionPool source = poolFor(sql);
+        for (;;) {
+            try {
+                return source.withConnection(pc -> pc.withStatement(sql, ps -> {
+                    pc.bind(sql, ps, params);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) return null;
+                        return MCEngineEssentialTypeCodec.read(rs, 1, type, pc.columnKind(sql, rs));
+                    }
+                }));
+            } catch (SQLException e) {
+                source = failover(source, e);
+                if (source == null) throw new RuntimeException(label + " getValue failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(String sql, int defaultValue, Object... params) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) return tx.getInt(sql, defaultValue, params);
+        MCEngineEssentialConnectionPool source = poolFor(sql);
+        for (;;) {
+            MCEngineEssentialConnectionPool from = source;
+            MCEngineEssentialPooledConnection pc = null;
+            boolean failed = true;
+            try {
+                pc = from.acquire();
+                try (ResultSet rs = openScalar(pc, sql, params)) {
+                    int value = rs.next()
+                            ? MCEngineEssentialTypeCodec.readInt(rs, 1, pc.columnKind(sql, rs), defaultValue)
+                            : defaultValue;
+                    failed = false;
+                    return value;
+                }
+            } catch (SQLException e) {
+                source = failover(from, e);
+                if (source == null) throw new RuntimeException(label + " getInt failed: " + e.getMessage(), e);
+            } finally {
+                if (pc != null) from.release(pc, failed);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(String sql, long defaultValue, Object... params) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) return tx.getLong(sql, defaultValue, params);
+        MCEngineEssentialConnectionPool source = poolFor(sql);
+        for (;;) {
+            MCEngineEssentialConnectionPool from = source;
+            MCEngineEssentialPooledConnection pc = null;
+            boolean failed = true;
+            try {
+                pc = from.acquire();
+                try (ResultSet rs = openScalar(pc, sql, params)) {
+                    long value = rs.next()
+                            ? MCEngineEssentialTypeCodec.readLong(rs, 1, pc.columnKind(sql, rs), defaultValue)
+                            : defaultValue;
+                    failed = false;
+                    return value;
+                }
+            } catch (SQLException e) {
+                source = failover(from, e);
+                if (source == null) throw new RuntimeException(label + " getLong failed: " + e.getMessage(), e);
+            } finally {
+                if (pc != null) from.release(pc, failed);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) return tx.getDouble(sql, defaultValue, params);
+        MCEngineEssentialConnectionPool source = poolFor(sql);
+        for (;;) {
+            MCEngineEssentialConnectionPool from = source;
+            MCEngineEssentialPooledConnection pc = null;
+            boolean failed = true;
+            try {
+                pc = from.acquire();
+                try (ResultSet rs = openScalar(pc, sql, params)) {
+                    double value = rs.next()
+                            ? MCEngineEssentialTypeCodec.readDouble(rs, 1, pc.columnKind(sql, rs), defaultValue)
+                            : defaultValue;
+                    failed = false;
+                    return value;
+                }
+            } catch (SQLException e) {
+                source = failover(from, e);
+                if (source == null) throw new RuntimeException(label + " getDouble failed: " + e.getMessage(), e);
+            } finally {
+                if (pc != null) from.release(pc, failed);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) return tx.getBoolean(sql, defaultValue, params);
+        MCEngineEssentialConnectionPool source = poolFor(sql);
+        for (;;) {
+            MCEngineEssentialConnectionPool from = source;
+            MCEngineEssentialPooledConnection pc = null;
+            boolean failed = true;
+            try {
+                pc = from.acquire();
+                try (ResultSet rs = openScalar(pc, sql, params)) {
+                    boolean value = rs.next() ? MCEngineEssentialTypeCodec.readBoolean(rs, 1, defaultValue) : defaultValue;
+                    failed = false;
+                    return value;
+                }
+            } catch (SQLException e) {
+                source = failover(from, e);
+                if (source == null) throw new RuntimeException(label + " getBoolean failed: " + e.getMessage(), e);
+            } finally {
+                if (pc != null) from.release(pc, failed);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        MCEngineEssentialJdbcTransaction tx = currentTx.get();
+        if (tx != null) return tx.query(sql, mapper, params);
+        MCEngineEssentialConnectionPool source = poolFor(sql);
+        MCEngineEssentialPooledConnection pc;
+        try {
+            pc = source.acquire();
+        } catch (SQLException e) {
+            source = failover(source, e);
+            if (source == null) throw new RuntimeException(label + " query failed: " + e.getMessage(), e);
+            pc = borrow(source, "query");
+        }
+        return openStream(source, pc, sql, mapper, params);
+    }
+
+    /**
+     * Starts a streaming query on a connection.
+     *
+     * @param source pool to return the connection to when the stream ends; {@code null}
+     *               for a connection pinned by a transaction, which stays borrowed
+     */
+    <T> Stream<T> openStream(MCEngineEssentialConnectionPool source, MCEngineEssentialPooledConnection pc,
+                             String sql, MCEngineEssentialRowMapper<T> mapper, Object[] params) {
+        PreparedStatement ps = null;
+        try {
+            ps = pc.getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            configureStreaming(pc.getConnection(), ps);
+            MCEngineEssentialTypeCodec.bind(ps, params);
+            ResultSet rs = ps.executeQuery();
+            RowCursor<T> cursor = new RowCursor<>(source, pc, ps, rs, mapper);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (SQLException | RuntimeException e) {
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignored) {
+                    // Reported through the original failure.
+                }
+            }
+            if (source != null) {
+                source.release(pc, true);
+                if (e instanceof SQLException failure) failover(source, failure);
+            }
+            throw new RuntimeException(label + " query failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pins one connection from {@link #pool()}. A call made while a transaction is
+     * already open on this thread runs as a nested savepoint scope of it. The whole
+     * transaction is retried when {@link #isRetryable} accepts the failure.
+     */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        MCEngineEssentialJdbcTransaction open = currentTx.get();
+        if (open != null) return open.inTransaction(work);
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return runTransaction(isolation, work);
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries || !isRetryable(e)) throw e;
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a failed transaction may succeed when run again. The default accepts
+     * SQLSTATE class {@code 40} (serialization failure, deadlock); backends add their
+     * own lock-contention codes.
+     *
+     * @param e a failure from the transaction's cause chain
+     * @return {@code true} to retry the transaction
+     */
+    protected boolean isRetryable(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("40");
+    }
+
+    /**
+     * Applies a non-default isolation level to a connection pinned for a transaction.
+     * The previous level is restored before the connection returns to the pool.
+     *
+     * @param connection pinned connection
+     * @param isolation  requested level, never {@link MCEngineEssentialIsolation#DEFAULT}
+     * @throws SQLException if the driver rejects the level
+     */
+    protected void applyIsolation(Connection connection, MCEngineEssentialIsolation isolation) throws SQLException {
+        connection.setTransactionIsolation(isolation.jdbcLevel());
+    }
+
+    /**
+     * Prepares a connection and statement for incremental fetching before a
+     * {@link #query} runs. The default sets the fetch size; backends whose driver needs
+     * more (e.g. PostgreSQL cursors require auto-commit off) override this. The pool
+     * restores auto-commit when the connection is returned.
+     *
+     * @param connection borrowed connection
+     * @param ps         statement about to be executed
+     * @throws SQLException if the settings cannot be applied
+     */
+    protected void configureStreaming(Connection connection, PreparedStatement ps) throws SQLException {
+        ps.setFetchSize(fetchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Completes when the primary pool has opened its first connection.
+     */
+    @Override
+    public CompletableFuture<Void> ready() {
+        return pool().ready();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> warmUp(int connections, Collection<String> statements) {
+        CompletableFuture<Void> warm = pool().warmUp(connections, statements);
+        if (readPool() != pool()) warm = CompletableFuture.allOf(warm, readPool().warmUp(connections, statements));
+        if (replicas() != null) warm = CompletableFuture.allOf(warm, replicas().warmUp(connections, statements));
+        return warm;
+    }
+
+    /**
+     * Inserts rows with the backend's fastest bulk path, inside a transaction the caller
+     * commits. The default sends multi-row {@code INSERT}s of up to 1000 rows each, kept
+     * under {@link #maxBindParameters()}; backends with a faster path override this.
+     *
+     * @param connection connection with auto-commit off
+     * @param table      table name, quoted for this dialect
+     * @param columns    column names, quoted for this dialect
+     * @param rows       values in column order
+     * @throws SQLException if a row is rejected
+     */
+    protected void bulkInsert(Connection connection, String table, List<String> columns, List<Object[]> rows)
+            throws SQLException {
+        String head = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+        String tuple = "(?" + ", ?".repeat(columns.size() - 1) + ")";
+        int perStatement = Math.max(1, Math.min(1_000, maxBindParameters() / columns.size()));
+        for (int from = 0; from < rows.size(); from += perStatement) {
+            List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + perStatement));
+            String sql = head + String.join(", ", Collections.nCopies(chunk.size(), tuple));
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                Object[] params = new Object[chunk.size() * columns.size()];
+                for (int r = 0; r < chunk.size(); r++) {
+                    System.arraycopy(chunk.get(r), 0, params, r * columns.size(), columns.size());
+                }
+                MCEngineEssentialTypeCodec.bind(ps, params);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Returns the most bind parameters one statement may carry, bounding the rows per
+     * multi-row {@code INSERT} sent by {@link #bulkInsert}.
+     *
+     * @return parameter limit of the driver and server
+     */
+    protected int maxBindParameters() {
+        return 32_767;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        if (replicas() != null) replicas().close();
+        if (readPool() != pool()) readPool().close();
+        pool().close();
+    }
+
+    /**
+     * Runs consecutive writes with the same SQL as one JDBC batch each, on a connection
+     * whose transaction the caller manages.
+     */
+    static void runBatch(MCEngineEssentialPooledConnection pc, List<MCEngineEssentialWrite> writes) throws SQLException {
+        int start = 0;
+        while (start < writes.size()) {
+            String sql = writes.get(start).sql();
+            int end = start + 1;
+            while (end < writes.size() && writes.get(end).sql().equals(sql)) end++;
+
+            List<MCEngineEssentialWrite> run = writes.subList(start, end);
+            pc.withStatement(sql, ps -> {
+                for (MCEngineEssentialWrite w : run) {
+                    pc.bind(sql, ps, w.params());
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            });
+            start = end;
+        }
+    }
+
+    /** Runs one attempt of a top-level transaction on a pinned connection. */
+    private <T> T runTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        MCEngineEssentialPooledConnection pc = borrow(pool(), "inTransaction");
+        Connection c = pc.getConnection();
+        MCEngineEssentialJdbcTransaction tx = new MCEngineEssentialJdbcTransaction(this, label, pc);
+        boolean suspect = true;
+        int previousLevel = -1;
+        try {
+            c.setAutoCommit(false);
+            if (isolation != MCEngineEssentialIsolation.DEFAULT) {
+                previousLevel = c.getTransactionIsolation();
+                applyIsolation(c, isolation);
+            }
+            currentTx.set(tx);
+            T result;
+            try {
+                result = work.run(tx);
+            } finally {
+                currentTx.remove();
+                tx.end();
+            }
+            if (tx.isRollbackOnly()) {
+                c.rollback();
+            } else {
+                c.commit();
+                for (String sql : tx.writtenSql()) noteWrite(sql);
+            }
+            suspect = false;
+            return result;
+        } catch (SQLException e) {
+            rollbackQuietly(c, e);
+            throw new RuntimeException(label + " inTransaction failed: " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            rollbackQuietly(c, e);
+            suspect = false;
+            throw e;
+        } finally {
+            if (previousLevel != -1) {
+                try {
+                    c.setTransactionIsolation(previousLevel);
+                } catch (SQLException e) {
+                    suspect = true;
+                }
+            }
+            pool().release(pc, suspect);
+        }
+    }
+
+    /** Returns the backend's config key, which also names its SQL dialect. */
+    String type() {
+        return type;
+    }
+
+    /** Returns the backend name used in error messages. */
+    String label() {
+        return label;
+    }
+
+    /** Runs work on a primary connection, e.g. to read schema metadata. */
+    <T> T withConnection(String op, MCEngineEssentialConnectionPool.Work<T> work) {
+        try {
+            return pool().withConnection(work);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " " + op + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams a query from {@link #readPool()}, bypassing replicas, so a bulk read sees
+     * the primary's data without holding the writer.
+     */
+    <T> Stream<T> queryPrimary(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        MCEngineEssentialConnectionPool source = readPool();
+        return openStream(source, borrow(source, "query"), sql, mapper, params);
+    }
+
+    /** Returns how many streams {@link #queryPrimary} can hold open at once. */
+    int readConnections() {
+        return readPool().getSettings().maxSize();
+    }
+
+    /** Returns how many {@link #bulkLoad} calls can run at once. */
+    int writeConnections() {
+        return pool().getSettings().maxSize();
+    }
+
+    /** Inserts rows through {@link #bulkInsert} in one transaction on the primary pool. */
+    void bulkLoad(String table, List<String> columns, List<Object[]> rows) {
+        MCEngineEssentialPooledConnection pc = borrow(pool(), "bulkLoad");
+        Connection c = pc.getConnection();
+        boolean suspect = true;
+        try {
+            c.setAutoCommit(false);
+            bulkInsert(c, table, columns, rows);
+            c.commit();
+            suspect = false;
+        } catch (SQLException e) {
+            rollbackQuietly(c, e);
+            throw new RuntimeException(label + " bulkLoad failed: " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            rollbackQuietly(c, e);
+            suspect = false;
+            throw e;
+        } finally {
+            pool().release(pc, suspect);
+        }
+    }
+
+    /** Starts the read-your-writes window of a committed statement's table. */
+    private void noteWrite(String sql) {
+        MCEngineEssentialReplicaRouter replicas = replicas();
+        if (replicas != null) replicas.noteWrite(sql);
+    }
+
+    /**
+     * Reports a failed read to the replica router and picks where to run it again.
+     *
+     * @return the primary pool to retry on, or {@code null} to give up
+     */
+    private MCEngineEssentialConnectionPool failover(MCEngineEssentialConnectionPool source, SQLException e) {
+        MCEngineEssentialReplicaRouter replicas = replicas();
+        if (replicas == null || source == pool()) return null;
+        return replicas.failed(source, e) ? pool() : null;
+    }
+
+    /** Rolls back after a failure, attaching any rollback error to it. */
+    private static void rollbackQuietly(Connection c, Throwable failure) {
+        try {
+            c.rollback();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /** Checks the cause chain of a transaction failure with {@link #isRetryable(SQLException)}. */
+    private boolean isRetryable(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && isRetryable(sql)) return true;
+        }
+        return false;
+    }
+
+    /** Sleeps before a retry: exponential backoff with jitter. */
+    private void backOff(int attempt) {
+        if (retryBackoffMillis == 0) return;
+        long base = retryBackoffMillis << Math.min(attempt, 10);
+        try {
+            Thread.sleep(base + ThreadLocalRandom.current().nextLong(retryBackoffMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(label + " inTransaction interrupted while retrying", e);
+        }
+    }
+
+    /** Borrows a connection outside the {@code withConnection} callback style, wrapping pool failures. */
+    private MCEngineEssentialPooledConnection borrow(MCEngineEssentialConnectionPool source, String op) {
+        try {
+            return source.acquire();
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " " + op + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Binds and executes a cached statement without a callback, so the primitive
+     * accessors do not allocate a lambda or box their result. Evicts the statement on failure.
+     */
+    private static ResultSet openScalar(MCEngineEssentialPooledConnection pc, String sql, Object[] params)
+            throws SQLException {
+        try {
+            PreparedStatement ps = pc.statement(sql);
+            pc.bind(sql, ps, params);
+            return ps.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            pc.evictStatement(sql);
+            throw e;
+        }
+    }
+
+    /**
+     * Spliterator over an open result set that owns its statement and borrowed
+     * connection, releasing both when exhausted or closed. Connections pinned by a
+     * transaction ({@code source == null}) stay borrowed.
+     */
+    private final class RowCursor<T> extends Spliterators.AbstractSpliterator<T> {
+
+        /** Pool the connection was borrowed from; {@code null} if pinned by a transaction. */
+        private final MCEngineEssentialConnectionPool source;
+
+        /** Borrowed connection held for the lifetime of the stream. */
+        private final MCEngineEssentialPooledConnection pc;
+
+        /** Statement producing the rows. */
+        private final PreparedStatement ps;
+
+        /** Open result set. */
+        private final ResultSet rs;
+
+        /** Maps each row. */
+        private final MCEngineEssentialRowMapper<T> mapper;
+
+        /** Set once the resources have been released. */
+        private boolean closed;
+
+        /** Set if reading a row failed, so the connection is validated on release. */
+        private boolean failed;
+
+        RowCursor(MCEngineEssentialConnectionPool source, MCEngineEssentialPooledConnection pc,
+                  PreparedStatement ps, ResultSet rs, MCEngineEssentialRowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.source = source;
+            this.pc = pc;
+            this.ps = ps;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) return false;
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                failed = true;
+                close();
+                if (source != null) failover(source, e);
+                throw new RuntimeException(label + " query failed: " + e.getMessage(), e);
+            }
+        }
+
+        /** Closes the result set and statement and returns the connection; idempotent. */
+        void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                rs.close();
+                ps.close();
+            } catch (SQLException e) {
+                failed = true;
+            }
+            if (source != null) source.release(pc, failed);
+        }
+    }
+}
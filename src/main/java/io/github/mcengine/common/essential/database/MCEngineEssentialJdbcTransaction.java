@@ -0,0 +1,209 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@link MCEngineEssentialTransaction} over a connection pinned by
+ * {@link MCEngineEssentialJdbcDB#inTransaction}. Commit, rollback and retries are
+ * handled by the owner; this class only runs statements and savepoints.
+ */
+final class MCEngineEssentialJdbcTransaction implements MCEngineEssentialTransaction {
+
+    /** Backend that opened the transaction, used for streaming queries. */
+    private final MCEngineEssentialJdbcDB owner;
+
+    /** Backend name used in error messages. */
+    private final String label;
+
+    /** Pinned connection with auto-commit off. */
+    private final MCEngineEssentialPooledConnection pc;
+
+    /** Streams opened through {@link #query} and not yet closed by the owner. */
+    private final List<Stream<?>> streams = new ArrayList<>();
+
+    /** SQL of the statements run, for the owner's read-your-writes window; {@code null} without replicas. */
+    private final Set<String> written;
+
+    /** Set by {@link #setRollbackOnly()}. */
+    private boolean rollbackOnly;
+
+    /** Cleared once the owner has committed or rolled back. */
+    private boolean active = true;
+
+    MCEngineEssentialJdbcTransaction(MCEngineEssentialJdbcDB owner, String label, MCEngineEssentialPooledConnection pc) {
+        this.owner = owner;
+        this.label = label;
+        this.pc = pc;
+        this.written = owner.replicas() != null ? new HashSet<>() : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        ensureActive();
+        try {
+            pc.withStatement(sql, ps -> {
+                pc.bind(sql, ps, params);
+                ps.execute();
+                return null;
+            });
+            if (written != null) written.add(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " executeQuery failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        ensureActive();
+        try {
+            MCEngineEssentialJdbcDB.runBatch(pc, writes);
+            if (written != null) {
+                for (MCEngineEssentialWrite w : writes) written.add(w.sql());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " executeBatch failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        ensureActive();
+        try {
+            return pc.withStatement(sql, ps -> {
+                pc.bind(sql, ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return null;
+                    return MCEngineEssentialTypeCodec.read(rs, 1, type, pc.columnKind(sql, rs));
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " getValue failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        ensureActive();
+        Stream<T> rows = owner.openStream(null, pc, sql, mapper, params);
+        streams.add(rows);
+        return rows;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialTransactionWork<T> work) {
+        Savepoint savepoint = savepoint();
+        T result;
+        try {
+            result = work.run(this);
+        } catch (RuntimeException | Error e) {
+            try {
+                pc.getConnection().rollback(savepoint);
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
+        }
+        releaseSavepoint(savepoint);
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Savepoint savepoint() {
+        ensureActive();
+        try {
+            return pc.getConnection().setSavepoint();
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " savepoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void rollbackTo(Savepoint savepoint) {
+        ensureActive();
+        try {
+            pc.getConnection().rollback(savepoint);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " rollback failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) {
+        ensureActive();
+        try {
+            pc.getConnection().releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " releaseSavepoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * Runs raw SQL through a throwaway statement, for unparameterized calls that join
+     * the transaction through the owning backend.
+     */
+    void executeRaw(String sql) {
+        ensureActive();
+        try (Statement st = pc.getConnection().createStatement()) {
+            st.execute(sql);
+            if (written != null) written.add(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " executeQuery failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Raw-SQL counterpart of {@link #getValue}. */
+    <T> T getValueRaw(String sql, Class<T> type) {
+        ensureActive();
+        try (Statement st = pc.getConnection().createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            if (!rs.next()) return null;
+            return MCEngineEssentialTypeCodec.read(rs, 1, type);
+        } catch (SQLException e) {
+            throw new RuntimeException(label + " getValue failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Returns the SQL of the statements run, once committed; empty without replicas. */
+    Set<String> writtenSql() {
+        return written != null ? written : Set.of();
+    }
+
+    /** Ends the handle: closes leftover streams and rejects further calls. */
+    void end() {
+        active = false;
+        for (Stream<?> s : streams) s.close();
+        streams.clear();
+    }
+
+    private void ensureActive() {
+        if (!active) throw new IllegalStateException(label + " transaction is no longer active");
+    }
+}
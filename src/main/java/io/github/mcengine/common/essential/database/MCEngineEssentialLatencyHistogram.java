@@ -0,0 +1,97 @@
+package io.github.mcengine.common.essential.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ * <p>
+ * Values are recorded in microseconds into eight sub-buckets per power of two, so a
+ * percentile is accurate to within 12.5% while recording stays a single array
+ * increment. The exact maximum and sum are kept alongside.
+ */
+final class MCEngineEssentialLatencyHistogram {
+
+    /** Sub-buckets per power of two, as a shift. */
+    private static final int SUB_BITS = 3;
+
+    /** Sub-buckets per power of two. */
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /** Enough buckets for every positive {@code long}. */
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos elapsed time in nanoseconds
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(0, nanos) / 1_000));
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns the latency below which the given fraction of recorded values fall.
+     *
+     * @param fraction percentile between {@code 0} and {@code 1}, e.g. {@code 0.99}
+     * @return latency in nanoseconds (bucket upper bound, capped at the maximum); {@code 0} if empty
+     */
+    long percentile(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBoundMicros(i) * 1_000, maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the largest recorded latency.
+     *
+     * @return maximum in nanoseconds
+     */
+    long max() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the sum of recorded latencies.
+     *
+     * @return total in nanoseconds
+     */
+    long total() {
+        return totalNanos.get();
+    }
+
+    /** Bucket of a value in microseconds. */
+    private static int index(long micros) {
+        if (micros < SUB_COUNT) return (int) micros;
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /** Largest value in microseconds that falls into a bucket. */
+    private static long upperBoundMicros(int index) {
+        if (index < SUB_COUNT) return index;
+        int exp = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        long width = 1L << (exp - SUB_BITS);
+        return ((SUB_COUNT + sub) << (exp - SUB_BITS)) + width - 1;
+    }
+}
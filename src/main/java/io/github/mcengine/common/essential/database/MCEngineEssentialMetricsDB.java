@@ -0,0 +1,507 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Records latency, call, error and row counts for every call to an
+ * {@link IMCEngineEssentialDB}, keyed by statement fingerprint.
+ * <p>
+ * Statements that differ only in literal values share one entry
+ * ({@link MCEngineEssentialSqlUtil#fingerprint}). Calls made on the server's primary
+ * thread are counted separately, and calls slower than the configured threshold are
+ * logged. Recording is lock-free; the fingerprint of each distinct SQL string is
+ * computed once.
+ */
+public class MCEngineEssentialMetricsDB extends MCEngineEssentialForwardingDB {
+
+    /** Fingerprint collecting statements beyond {@link #maxStatements}. */
+    public static final String OTHER = "<other>";
+
+    /** Fingerprint under which whole transactions are recorded, commit included. */
+    public static final String TRANSACTION = "<transaction>";
+
+    /** Fingerprints are memoized for at most this many distinct SQL strings. */
+    private static final int SQL_MEMO_LIMIT = 4096;
+
+    /** CSV header written by {@link #export(Path)}. */
+    private static final String CSV_HEADER =
+            "fingerprint,calls,errors,rows,primary_thread_calls,total_ms,mean_ms,p50_ms,p99_ms,max_ms";
+
+    /** Logger for slow-query warnings. */
+    private final Logger logger;
+
+    /** Calls at or above this latency are logged; {@code <= 0} disables the slow-query log. */
+    private final long slowNanos;
+
+    /** Maximum distinct fingerprints tracked before new ones are folded into {@link #OTHER}. */
+    private final int maxStatements;
+
+    /** Tells whether the current thread is the server's primary thread. */
+    private final BooleanSupplier primaryThread;
+
+    /** Statistics per fingerprint. */
+    private final ConcurrentHashMap<String, Stats> byFingerprint = new ConcurrentHashMap<>();
+
+    /** Memoized statistics entry per raw SQL string. */
+    private final ConcurrentHashMap<String, Stats> bySql = new ConcurrentHashMap<>();
+
+    /**
+     * Wraps a backend with metrics.
+     *
+     * @param delegate        backend to measure
+     * @param logger          logger for slow-query warnings
+     * @param slowQueryMillis latency at which a call is logged; {@code <= 0} disables logging
+     * @param maxStatements   maximum distinct fingerprints tracked
+     * @param primaryThread   tells whether the calling thread is the server's primary thread
+     */
+    public MCEngineEssentialMetricsDB(IMCEngineEssentialDB delegate, Logger logger, long slowQueryMillis,
+                                      int maxStatements, BooleanSupplier primaryThread) {
+        super(delegate);
+        this.logger = logger;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+        this.maxStatements = Math.max(1, maxStatements);
+        this.primaryThread = primaryThread;
+    }
+
+    /**
+     * Wraps a backend using config keys:
+     * <ul>
+     *     <li>{@code database.metrics.slow-query-threshold} in milliseconds; {@code 0} disables the log (default: {@code 250})</li>
+     *     <li>{@code database.metrics.max-statements} (default: {@code 500})</li>
+     * </ul>
+     *
+     * @param config   root configuration
+     * @param delegate backend to measure
+     * @param logger   logger for slow-query warnings
+     * @return metrics decorator
+     */
+    public static MCEngineEssentialMetricsDB fromConfig(ConfigurationSection config, IMCEngineEssentialDB delegate,
+                                                        Logger logger) {
+        return new MCEngineEssentialMetricsDB(
+                delegate,
+                logger,
+                config.getLong("database.metrics.slow-query-threshold", 250L),
+                config.getInt("database.metrics.max-statements", 500),
+                Bukkit::isPrimaryThread);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            delegate.executeQuery(sql);
+            ok = true;
+        } finally {
+            record(s, start, primary, ok, 0);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            delegate.executeQuery(sql, params);
+            ok = true;
+        } finally {
+            record(s, start, primary, ok, 0);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Recorded once, under the fingerprint of the first statement, with one row per write.
+     */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        if (writes.isEmpty()) {
+            delegate.executeBatch(writes);
+            return;
+        }
+        Stats s = stats(writes.get(0).sql());
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            delegate.executeBatch(writes);
+            ok = true;
+        } finally {
+            record(s, start, primary, ok, ok ? writes.size() : 0);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        T value = null;
+        boolean ok = false;
+        try {
+            value = delegate.getValue(sql, type);
+            ok = true;
+            return value;
+        } finally {
+            record(s, start, primary, ok, value == null ? 0 : 1);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        T value = null;
+        boolean ok = false;
+        try {
+            value = delegate.getValue(sql, type, params);
+            ok = true;
+            return value;
+        } finally {
+            record(s, start, primary, ok, value == null ? 0 : 1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Counted as one row whenever the call succeeds, since a default value cannot be
+     * told apart from a returned one.
+     */
+    @Override
+    public int getInt(String sql, int defaultValue, Object... params) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            int value = delegate.getInt(sql, defaultValue, params);
+            ok = true;
+            return value;
+        } finally {
+            record(s, start, primary, ok, ok ? 1 : 0);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(String sql, long defaultValue, Object... params) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            long value = delegate.getLong(sql, defaultValue, params);
+            ok = true;
+            return value;
+        } finally {
+            record(s, start, primary, ok, ok ? 1 : 0);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            double value = delegate.getDouble(sql, defaultValue, params);
+            ok = true;
+            return value;
+        } finally {
+            record(s, start, primary, ok, ok ? 1 : 0);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            boolean value = delegate.getBoolean(sql, defaultValue, params);
+            ok = true;
+            return value;
+        } finally {
+            record(s, start, primary, ok, ok ? 1 : 0);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Latency covers executing the query; rows are added as the stream is consumed and
+     * counted when it is closed.
+     */
+    @Override
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        Stats s = stats(sql);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        Stream<T> rows;
+        try {
+            rows = delegate.query(sql, mapper, params);
+        } catch (RuntimeException e) {
+            record(s, start, primary, false, 0);
+            throw e;
+        }
+        record(s, start, primary, true, 0);
+        long[] consumed = new long[1];
+        return rows.peek(row -> consumed[0]++).onClose(() -> s.rows.add(consumed[0]));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> void forEachRow(String sql, MCEngineEssentialRowMapper<T> mapper, Consumer<? super T> action,
+                               Object... params) {
+        try (Stream<T> rows = query(sql, mapper, params)) {
+            rows.forEach(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Statements run through the transaction handle are recorded individually; the
+     * transaction as a whole is recorded under {@link #TRANSACTION}.
+     */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        Stats s = stats(TRANSACTION);
+        boolean primary = primaryThread.getAsBoolean();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            T result = delegate.inTransaction(isolation, tx -> work.run(new MeasuredTransaction(tx)));
+            ok = true;
+            return result;
+        } finally {
+            record(s, start, primary, ok, 0);
+        }
+    }
+
+    /**
+     * Returns the statistics of every tracked fingerprint.
+     *
+     * @return snapshots in no particular order
+     */
+    public List<MCEngineEssentialQueryStats> getStats() {
+        List<MCEngineEssentialQueryStats> out = new ArrayList<>(byFingerprint.size());
+        for (Stats s : byFingerprint.values()) out.add(s.snapshot());
+        return out;
+    }
+
+    /** Discards every recorded statistic. */
+    public void reset() {
+        bySql.clear();
+        byFingerprint.clear();
+    }
+
+    /**
+     * Writes the current statistics as CSV (one row per fingerprint, latencies in
+     * milliseconds), creating parent directories as needed.
+     *
+     * @param file target file; replaced if it exists
+     * @throws RuntimeException if the file cannot be written
+     */
+    public void export(Path file) {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                out.write(CSV_HEADER);
+                out.newLine();
+                for (MCEngineEssentialQueryStats q : getStats()) {
+                    out.write('"' + q.fingerprint().replace("\"", "\"\"") + '"'
+                            + ',' + q.calls() + ',' + q.errors() + ',' + q.rows() + ',' + q.primaryThreadCalls()
+                            + ',' + millis(q.totalNanos()) + ',' + millis(q.meanNanos())
+                            + ',' + millis(q.p50Nanos()) + ',' + millis(q.p99Nanos()) + ',' + millis(q.maxNanos()));
+                    out.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Metrics export failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Records one completed call. */
+    private void record(Stats s, long start, boolean primary, boolean ok, long rows) {
+        long elapsed = System.nanoTime() - start;
+        s.latency.record(elapsed);
+        s.calls.increment();
+        if (!ok) s.errors.increment();
+        if (rows != 0) s.rows.add(rows);
+        if (primary) s.primaryThreadCalls.increment();
+        if (slowNanos > 0 && elapsed >= slowNanos) {
+            logger.warning("Slow query (" + millis(elapsed) + " ms" + (primary ? ", primary thread" : "")
+                    + (ok ? "" : ", failed") + "): " + s.fingerprint);
+        }
+    }
+
+    /** Returns the statistics entry of a SQL string, fingerprinting it on first use. */
+    private Stats stats(String sql) {
+        Stats s = bySql.get(sql);
+        if (s != null) return s;
+
+        String fingerprint = MCEngineEssentialSqlUtil.fingerprint(sql);
+        s = byFingerprint.get(fingerprint);
+        if (s == null) {
+            String key = byFingerprint.size() >= maxStatements ? OTHER : fingerprint;
+            s = byFingerprint.computeIfAbsent(key, Stats::new);
+        }
+
+        if (bySql.size() >= SQL_MEMO_LIMIT) bySql.clear();
+        bySql.put(sql, s);
+        return s;
+    }
+
+    /** Formats nanoseconds as milliseconds with three decimals. */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    /** Transaction handle that records each statement it runs. */
+    private final class MeasuredTransaction extends MCEngineEssentialForwardingTransaction {
+
+        MeasuredTransaction(MCEngineEssentialTransaction delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void executeQuery(String sql, Object... params) {
+            Stats s = stats(sql);
+            boolean primary = primaryThread.getAsBoolean();
+            long start = System.nanoTime();
+            boolean ok = false;
+            try {
+                delegate.executeQuery(sql, params);
+                ok = true;
+            } finally {
+                record(s, start, primary, ok, 0);
+            }
+        }
+
+        @Override
+        public void executeBatch(List<MCEngineEssentialWrite> writes) {
+            if (writes.isEmpty()) return;
+            Stats s = stats(writes.get(0).sql());
+            boolean primary = primaryThread.getAsBoolean();
+            long start = System.nanoTime();
+            boolean ok = false;
+            try {
+                delegate.executeBatch(writes);
+                ok = true;
+            } finally {
+                record(s, start, primary, ok, ok ? writes.size() : 0);
+            }
+        }
+
+        @Override
+        public <T> T getValue(String sql, Class<T> type, Object... params) {
+            Stats s = stats(sql);
+            boolean primary = primaryThread.getAsBoolean();
+            long start = System.nanoTime();
+            T value = null;
+            boolean ok = false;
+            try {
+                value = delegate.getValue(sql, type, params);
+                ok = true;
+                return value;
+            } finally {
+                record(s, start, primary, ok, value == null ? 0 : 1);
+            }
+        }
+
+        @Override
+        public int getInt(String sql, int defaultValue, Object... params) {
+            Integer v = getValue(sql, Integer.class, params);
+            return v == null ? defaultValue : v;
+        }
+
+        @Override
+        public long getLong(String sql, long defaultValue, Object... params) {
+            Long v = getValue(sql, Long.class, params);
+            return v == null ? defaultValue : v;
+        }
+
+        @Override
+        public double getDouble(String sql, double defaultValue, Object... params) {
+            Double v = getValue(sql, Double.class, params);
+            return v == null ? defaultValue : v;
+        }
+
+        @Override
+        public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+            Boolean v = getValue(sql, Boolean.class, params);
+            return v == null ? defaultValue : v;
+        }
+
+        @Override
+        public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+            Stats s = stats(sql);
+            boolean primary = primaryThread.getAsBoolean();
+            long start = System.nanoTime();
+            Stream<T> rows;
+            try {
+                rows = delegate.query(sql, mapper, params);
+            } catch (RuntimeException e) {
+                record(s, start, primary, false, 0);
+                throw e;
+            }
+            record(s, start, primary, true, 0);
+            long[] consumed = new long[1];
+            return rows.peek(row -> consumed[0]++).onClose(() -> s.rows.add(consumed[0]));
+        }
+    }
+
+    /** Mutable statistics of one fingerprint. */
+    private static final class Stats {
+
+        private final String fingerprint;
+        private final MCEngineEssentialLatencyHistogram latency = new MCEngineEssentialLatencyHistogram();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder primaryThreadCalls = new LongAdder();
+
+        Stats(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        MCEngineEssentialQueryStats snapshot() {
+            return new MCEngineEssentialQueryStats(fingerprint, calls.sum(), errors.sum(), rows.sum(),
+                    primaryThreadCalls.sum(), latency.total(), latency.percentile(0.50),
+                    latency.percentile(0.99), latency.max());
+        }
+    }
+}
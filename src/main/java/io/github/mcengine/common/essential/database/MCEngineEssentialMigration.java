@@ -0,0 +1,482 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Moves tables between Essential backends, or between a backend and a dump file.
+ * <ul>
+ *     <li>{@link #copy} streams every table from one backend into another, several tables
+ *         at a time, recreating the schema in the target's dialect.</li>
+ *     <li>{@link #exportTo} writes tables into a compact dump file, e.g. for backups.</li>
+ *     <li>{@link #importFrom} loads a dump file into a backend.</li>
+ * </ul>
+ * Rows are streamed from the source and loaded in batches of {@code batchRows}, each in its
+ * own transaction, through the target's fastest bulk path: {@code COPY} on PostgreSQL,
+ * multi-row {@code INSERT}s on MySQL and large prepared batches on SQLite. Secondary indexes
+ * are built once a table is loaded.
+ * <p>
+ * Copies and imports are resumable: after every batch the position reached is written to a
+ * checkpoint file (the last primary key copied, or the row count for dumps). Running the same
+ * migration again skips finished tables and continues the others where they stopped; tables
+ * without a primary key are emptied and copied again. A batch may commit just before a crash
+ * keeps its checkpoint from being written, so the rows found in the target table decide where
+ * to continue: rows loaded beyond the checkpointed position are skipped rather than loaded
+ * twice. The checkpoint is deleted once every table is done. Target tables must otherwise be
+ * empty, so rows are never duplicated.
+ * <p>
+ * Tables are read while the server keeps running; rows written during the copy may or may
+ * not be included, so migrate while the plugins using the database are idle.
+ */
+public final class MCEngineEssentialMigration {
+
+    /**
+     * Receives progress, called from the migration's threads.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Reports rows loaded into one table.
+         *
+         * @param table table name
+         * @param rows  rows loaded so far, including those of earlier runs
+         * @param total rows in the source table when the copy started; {@code -1} if unknown
+         * @param done  whether the table is finished
+         */
+        void onProgress(String table, long rows, long total, boolean done);
+    }
+
+    /** Logger of the owning plugin. */
+    private final Logger logger;
+
+    /** Most tables copied at once. */
+    private final int threads;
+
+    /** Rows loaded per transaction. */
+    private final int batchRows;
+
+    /** Progress receiver. */
+    private final Listener listener;
+
+    /**
+     * Creates a migration runner.
+     *
+     * @param logger    logger of the owning plugin
+     * @param threads   most tables copied at once; further bounded by both backends' pool sizes
+     * @param batchRows rows loaded per transaction and per checkpoint
+     * @param listener  progress receiver
+     */
+    public MCEngineEssentialMigration(Logger logger, int threads, int batchRows, Listener listener) {
+        this.logger = logger;
+        this.threads = Math.max(1, threads);
+        this.batchRows = Math.max(1, batchRows);
+        this.listener = listener;
+    }
+
+    /**
+     * Builds a runner from config keys:
+     * <ul>
+     *     <li>{@code database.migration.threads} tables copied at once (default: {@code 4})</li>
+     *     <li>{@code database.migration.batch-rows} rows per transaction (default: {@code 5000})</li>
+     * </ul>
+     *
+     * @param config   root configuration
+     * @param logger   logger of the owning plugin
+     * @param listener progress receiver
+     * @return configured runner
+     */
+    public static MCEngineEssentialMigration fromConfig(ConfigurationSection config, Logger logger, Listener listener) {
+        return new MCEngineEssentialMigration(
+                logger,
+                config.getInt("database.migration.threads", 4),
+                config.getInt("database.migration.batch-rows", 5_000),
+                listener);
+    }
+
+    /**
+     * Copies tables from one backend to another, several at a time. Blocks until every
+     * table is done or has failed.
+     *
+     * @param source     backend to read
+     * @param target     backend to load; its tables must be empty or belong to this checkpoint
+     * @param tables     tables to copy; empty for all
+     * @param checkpoint file recording progress, so a failed or interrupted copy can be resumed
+     * @return rows loaded by this run
+     * @throws RuntimeException if a table fails; finished tables stay recorded in the checkpoint
+     */
+    public long copy(MCEngineEssentialJdbcDB source, MCEngineEssentialJdbcDB target, Collection<String> tables,
+                     Path checkpoint) {
+        List<MCEngineEssentialTableSchema> schemas = source.withConnection("migration",
+                pc -> MCEngineEssentialTableSchema.read(pc.getConnection(), source.type(), tables));
+        Checkpoint progress = new Checkpoint(checkpoint, source.type() + "->" + target.type());
+        int parallel = Math.min(Math.min(threads, schemas.size()),
+                Math.min(source.readConnections(), target.writeConnections()));
+        long rows = runAll(schemas, parallel, schema -> copyTable(source, target, schema, progress));
+        progress.delete();
+        return rows;
+    }
+
+    /**
+     * Writes tables into a dump file, one after another. The file is replaced only once the
+     * export has succeeded.
+     *
+     * @param source backend to read
+     * @param file   dump file to create
+     * @param tables tables to export; empty for all
+     * @return rows written
+     * @throws RuntimeException if a table cannot be read or the file cannot be written
+     */
+    public long exportTo(MCEngineEssentialJdbcDB source, Path file, Collection<String> tables) {
+        List<MCEngineEssentialTableSchema> schemas = source.withConnection("export",
+                pc -> MCEngineEssentialTableSchema.read(pc.getConnection(), source.type(), tables));
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        long rows = 0;
+        try {
+            try (MCEngineEssentialDumpFormat.Writer out = new MCEngineEssentialDumpFormat.Writer(partial)) {
+                for (MCEngineEssentialTableSchema schema : schemas) rows += exportTable(source, schema, out);
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Export to " + file + " failed: " + e.getMessage(), e);
+        } finally {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // Best effort; the next export replaces it.
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Loads a dump file into a backend. Blocks until the file is loaded or a table fails.
+     *
+     * @param file       dump file written by {@link #exportTo}
+     * @param target     backend to load; its tables must be empty or belong to this checkpoint
+     * @param tables     tables to import, case-insensitive; empty for all
+     * @param checkpoint file recording progress, so a failed or interrupted import can be resumed
+     * @return rows loaded by this run
+     * @throws RuntimeException if the file cannot be read or a table fails
+     */
+    public long importFrom(Path file, MCEngineEssentialJdbcDB target, Collection<String> tables, Path checkpoint) {
+        List<String> wanted = tables.stream().map(t -> t.toLowerCase(Locale.ROOT)).toList();
+        Checkpoint progress = new Checkpoint(checkpoint, "file:" + file.getFileName() + "->" + target.type());
+        long loaded = 0;
+        try (MCEngineEssentialDumpFormat.Reader in = new MCEngineEssentialDumpFormat.Reader(file)) {
+            MCEngineEssentialTableSchema schema;
+            while ((schema = in.nextTable()) != null) {
+                if (!wanted.isEmpty() && !wanted.contains(schema.name().toLowerCase(Locale.ROOT))) continue;
+                loaded += importTable(in, target, schema, progress);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Import from " + file + " failed: " + e.getMessage(), e);
+        }
+        progress.delete();
+        return loaded;
+    }
+
+    /** Copies one table, resuming after the checkpointed key. */
+    private long copyTable(MCEngineEssentialJdbcDB source, MCEngineEssentialJdbcDB target,
+                           MCEngineEssentialTableSchema schema, Checkpoint progress) {
+        String table = schema.name();
+        if (progress.isDone(table)) {
+            listener.onProgress(table, progress.rows(table), progress.rows(table), true);
+            return 0;
+        }
+        Loader loader = new Loader(target, schema, progress);
+        Object[] after = loader.prepare(!schema.primaryKey().isEmpty());
+        long total = source.getLong("SELECT COUNT(*) FROM " + MCEngineEssentialTableSchema.quote(source.type(), table), -1L);
+        int[] keys = schema.keyIndexes();
+        try (Stream<Object[]> rows = source.queryPrimary(schema.selectSql(source.type(), after != null), schema::readRow,
+                after != null ? after : new Object[0])) {
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) loader.add(it.next(), keys, total);
+        }
+        return loader.finish(total);
+    }
+
+    /** Writes one table into a dump. */
+    private long exportTable(MCEngineEssentialJdbcDB source, MCEngineEssentialTableSchema schema,
+                             MCEngineEssentialDumpFormat.Writer out) throws IOException {
+        out.table(schema);
+        long rows = 0;
+        try (Stream<Object[]> stream = source.queryPrimary(schema.selectSql(source.type(), false), schema::readRow)) {
+            Iterator<Object[]> it = stream.iterator();
+            while (it.hasNext()) {
+                out.row(it.next());
+                if (++rows % batchRows == 0) listener.onProgress(schema.name(), rows, -1L, false);
+            }
+        }
+        out.endTable(rows);
+        listener.onProgress(schema.name(), rows, rows, true);
+        return rows;
+    }
+
+    /** Loads one table from a dump, skipping the rows an earlier run committed. */
+    private long importTable(MCEngineEssentialDumpFormat.Reader in, MCEngineEssentialJdbcDB target,
+                             MCEngineEssentialTableSchema schema, Checkpoint progress) throws IOException {
+        String table = schema.name();
+        if (progress.isDone(table)) {
+            listener.onProgress(table, progress.rows(table), progress.rows(table), true);
+            return 0;
+        }
+        Loader loader = new Loader(target, schema, progress);
+        loader.prepare(true);
+        Object[] row;
+        while ((row = in.nextRow()) != null) loader.add(row, null, -1L);
+        return loader.finish(-1L);
+    }
+
+    /** Runs one task per table on up to {@code parallel} threads and sums their row counts. */
+    private long runAll(List<MCEngineEssentialTableSchema> schemas, int parallel,
+                        Function<MCEngineEssentialTableSchema, Long> task) {
+        if (schemas.isEmpty()) return 0;
+        AtomicInteger ids = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parallel), r -> {
+            Thread t = new Thread(r, "MCEngineEssential-migration-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Map<String, Future<Long>> futures = new LinkedHashMap<>();
+            for (MCEngineEssentialTableSchema schema : schemas) {
+                futures.put(schema.name(), workers.submit(() -> task.apply(schema)));
+            }
+            long rows = 0;
+            List<String> failed = new ArrayList<>();
+            Throwable first = null;
+            for (Map.Entry<String, Future<Long>> f : futures.entrySet()) {
+                try {
+                    rows += f.getValue().get();
+                } catch (ExecutionException e) {
+                    failed.add(f.getKey());
+                    if (first == null) first = e.getCause();
+                    logger.warning("Essential migration of table " + f.getKey() + " failed: " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Migration interrupted", e);
+                }
+            }
+            if (first != null) {
+                throw new RuntimeException("Migration failed for " + String.join(", ", failed) + " (run it again to resume): "
+                        + first.getMessage(), first);
+            }
+            return rows;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /** Loads the rows of one table in batches, checkpointing after each. */
+    private final class Loader {
+
+        private final MCEngineEssentialJdbcDB target;
+        private final MCEngineEssentialTableSchema schema;
+        private final Checkpoint progress;
+        private final String table;
+        private final List<String> columns;
+        private final List<Object[]> batch = new ArrayList<>();
+
+        /** Rows loaded, including earlier runs. */
+        private long copied;
+
+        /** Rows loaded by this run. */
+        private long loaded;
+
+        /** Rows past the checkpointed position that are already in the target, still to skip. */
+        private long skip;
+
+        Loader(MCEngineEssentialJdbcDB target, MCEngineEssentialTableSchema schema, Checkpoint progress) {
+            this.target = target;
+            this.schema = schema;
+            this.progress = progress;
+            this.table = MCEngineEssentialTableSchema.quote(target.type(), schema.name());
+            this.columns = schema.columnNames().stream().map(c -> MCEngineEssentialTableSchema.quote(target.type(), c)).toList();
+        }
+
+        /**
+         * Creates the target table and picks up the checkpoint. Rows the target holds beyond
+         * the checkpointed position, committed by a run that stopped before recording them,
+         * are skipped when the source delivers them again.
+         *
+         * @param resumable whether the checkpointed position can be continued; if not, the
+         *                  table is emptied and loaded again
+         * @return the last key copied by an earlier run, or {@code null}
+         */
+        Object[] prepare(boolean resumable) {
+            String name = schema.name();
+            target.executeQuery(schema.createSql(target.type()));
+            if (!progress.isStarted(name)) {
+                try (Stream<Object> any = target.queryPrimary("SELECT 1 FROM " + table, rs -> 1)) {
+                    if (any.findAny().isPresent()) {
+                        throw new IllegalStateException("Target table " + name + " is not empty");
+                    }
+                }
+                progress.save(name, 0, null);
+                return null;
+            }
+            if (!resumable) {
+                target.executeQuery("DELETE FROM " + table);
+                progress.save(name, 0, null);
+                return null;
+            }
+            Object[] after = progress.after(name);
+            long recorded = after != null ? progress.rows(name) : 0;
+            try (Stream<Long> count = target.queryPrimary("SELECT COUNT(*) FROM " + table, rs -> rs.getLong(1))) {
+                copied = count.findFirst().orElse(0L);
+            }
+            if (copied < recorded) {
+                throw new IllegalStateException("Target table " + name + " holds fewer rows than its checkpoint; "
+                        + "empty it and delete the checkpoint to start over");
+            }
+            skip = copied - recorded;
+            return after;
+        }
+
+        /** Adds a row, loading a batch when full. */
+        void add(Object[] row, int[] keys, long total) {
+            if (skip > 0) {
+                skip--;
+                return;
+            }
+            batch.add(row);
+            if (batch.size() < batchRows) return;
+            load(keys, total);
+        }
+
+        /** Loads the last batch, then builds indexes and marks the table done. */
+        long finish(long total) {
+            String name = schema.name();
+            if (skip > 0) throw new IllegalStateException("Source holds fewer rows of " + name + " than already loaded");
+            load(null, total);
+            for (String sql : schema.identityResetSql(target.type())) target.executeQuery(sql);
+            for (String sql : schema.indexSql(target.type())) {
+                try {
+                    target.executeQuery(sql);
+                } catch (RuntimeException e) {
+                    logger.warning("Essential migration could not create an index on " + name + ": " + e.getMessage());
+                }
+            }
+            progress.done(name, copied);
+            listener.onProgress(name, copied, total < 0 ? copied : total, true);
+            return loaded;
+        }
+
+        private void load(int[] keys, long total) {
+            if (batch.isEmpty()) return;
+            target.bulkLoad(table, columns, batch);
+            copied += batch.size();
+            loaded += batch.size();
+            Object[] after = null;
+            if (keys != null && keys.length > 0) {
+                Object[] last = batch.get(batch.size() - 1);
+                after = new Object[keys.length];
+                for (int i = 0; i < keys.length; i++) after[i] = last[keys[i]];
+            }
+            progress.save(schema.name(), copied, after);
+            batch.clear();
+            listener.onProgress(schema.name(), copied, total, false);
+        }
+    }
+
+    /** Per-table progress persisted as a properties file. */
+    private static final class Checkpoint {
+
+        private final Path file;
+        private final Properties state = new Properties();
+
+        /** Loads the file if it exists and belongs to the same route. */
+        Checkpoint(Path file, String route) {
+            this.file = file;
+            if (Files.exists(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    state.load(in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read migration checkpoint " + file, e);
+                }
+                if (!route.equals(state.getProperty("route"))) {
+                    throw new IllegalStateException("Checkpoint " + file + " belongs to " + state.getProperty("route")
+                            + ", not " + route + "; delete it to start over");
+                }
+            }
+            state.setProperty("route", route);
+        }
+
+        synchronized boolean isStarted(String table) {
+            return state.containsKey(table + ".rows");
+        }
+
+        synchronized boolean isDone(String table) {
+            return Boolean.parseBoolean(state.getProperty(table + ".done"));
+        }
+
+        synchronized long rows(String table) {
+            return Long.parseLong(state.getProperty(table + ".rows", "0"));
+        }
+
+        synchronized Object[] after(String table) {
+            String after = state.getProperty(table + ".after");
+            return after != null ? MCEngineEssentialDumpFormat.decode(after) : null;
+        }
+
+        synchronized void save(String table, long rows, Object[] after) {
+            state.setProperty(table + ".rows", Long.toString(rows));
+            if (after != null) state.setProperty(table + ".after", MCEngineEssentialDumpFormat.encode(after));
+            else state.remove(table + ".after");
+            write();
+        }
+
+        synchronized void done(String table, long rows) {
+            state.setProperty(table + ".rows", Long.toString(rows));
+            state.setProperty(table + ".done", "true");
+            state.remove(table + ".after");
+            write();
+        }
+
+        synchronized void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete migration checkpoint " + file, e);
+            }
+        }
+
+        /** Replaces the file atomically, so a crash leaves the previous checkpoint intact. */
+        private void write() {
+            Path partial = file.resolveSibling(file.getFileName() + ".part");
+            try {
+                if (file.getParent() != null) Files.createDirectories(file.getParent());
+                try (OutputStream out = Files.newOutputStream(partial)) {
+                    state.store(out, "Essential migration checkpoint");
+                }
+                Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write migration checkpoint " + file, e);
+            }
+        }
+    }
+}
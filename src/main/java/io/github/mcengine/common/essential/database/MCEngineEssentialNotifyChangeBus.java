@@ -0,0 +1,192 @@
+package io.github.mcengine.common.essential.database;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * {@link MCEngineEssentialChangeBus} over PostgreSQL {@code LISTEN/NOTIFY}.
+ * <p>
+ * Changes are sent with {@code pg_notify}, packed into as few payloads as the 8000-byte
+ * limit allows. A dedicated connection outside the pool listens on the channel and is
+ * drained each cycle. The PostgreSQL driver is only present at runtime, so its
+ * {@code PGConnection.getNotifications} is called reflectively. Notifications sent while
+ * the listening connection was down are lost, so every reconnect delivers
+ * {@link MCEngineEssentialChangeEvent#ALL}.
+ */
+public final class MCEngineEssentialNotifyChangeBus extends MCEngineEssentialChangeBus {
+
+    /** Accepted channel names; the name is inlined into {@code LISTEN}. */
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /** Payload size kept under PostgreSQL's 8000-byte limit, leaving room for multi-byte keys. */
+    private static final int PAYLOAD_LIMIT = 7_000;
+
+    /** Database the notifications are sent through. */
+    private final IMCEngineEssentialDB db;
+
+    /** Opens the dedicated listening connection. */
+    private final MCEngineEssentialConnectionPool.ConnectionFactory connections;
+
+    /** Channel name. */
+    private final String channel;
+
+    /** Listening connection; worker thread only. */
+    private Connection listener;
+
+    /** {@code PGConnection.getNotifications(int)} of the listening connection. */
+    private Method getNotifications;
+
+    /**
+     * Creates the bus; call {@link #start()} once the database is reachable.
+     *
+     * @param db                 database the notifications are sent through
+     * @param connections        opens the dedicated listening connection
+     * @param logger             logger of the owning plugin
+     * @param channel            {@code LISTEN} channel name
+     * @param pollIntervalMillis time between drains of the listening connection
+     */
+    public MCEngineEssentialNotifyChangeBus(IMCEngineEssentialDB db,
+                                            MCEngineEssentialConnectionPool.ConnectionFactory connections,
+                                            Logger logger, String channel, long pollIntervalMillis) {
+        super(logger, pollIntervalMillis);
+        if (!IDENTIFIER.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+        this.db = db;
+        this.connections = connections;
+        this.channel = channel.toLowerCase(Locale.ROOT);
+    }
+
+    /** Opens the listening connection and subscribes to the channel. */
+    @Override
+    protected void open() {
+        listen();
+    }
+
+    /** Sends the changes as newline-separated {@code table<TAB>key} lines after the node id. */
+    @Override
+    protected void send(List<MCEngineEssentialChangeEvent> changes) {
+        StringBuilder payload = new StringBuilder(nodeId);
+        for (MCEngineEssentialChangeEvent e : changes) {
+            String line = e.table() + (e.key() != null ? "\t" + escape(e.key()) : "");
+            if (payload.length() + 1 + line.length() > PAYLOAD_LIMIT && payload.length() > nodeId.length()) {
+                sendPayload(payload.toString());
+                payload.setLength(0);
+                payload.append(nodeId);
+            }
+            payload.append('\n').append(line);
+        }
+        if (payload.length() > nodeId.length()) sendPayload(payload.toString());
+    }
+
+    /** Drains notifications received by the listening connection. */
+    @Override
+    protected List<MCEngineEssentialChangeEvent> receive() {
+        List<MCEngineEssentialChangeEvent> changes = new ArrayList<>();
+        if (listener == null) {
+            // Reconnecting after a failure: anything sent meanwhile was missed.
+            listen();
+            changes.add(MCEngineEssentialChangeEvent.ALL);
+        }
+        Object notifications;
+        try {
+            Object pg = listener.unwrap(getNotifications.getDeclaringClass());
+            notifications = getNotifications.invoke(pg, 1);
+        } catch (SQLException | IllegalAccessException e) {
+            throw new RuntimeException("PostgreSQL notification read failed: " + e.getMessage(), e);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException("PostgreSQL notification read failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        if (notifications == null) return changes;
+        for (int i = 0; i < Array.getLength(notifications); i++) {
+            Object n = Array.get(notifications, i);
+            try {
+                parse((String) n.getClass().getMethod("getParameter").invoke(n), changes);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("PostgreSQL notification read failed: " + e.getMessage(), e);
+            }
+        }
+        return changes;
+    }
+
+    /** Drops the listening connection so the next cycle reconnects. */
+    @Override
+    protected void onFailure() {
+        closeTransport();
+    }
+
+    /** Closes the listening connection. */
+    @Override
+    protected void closeTransport() {
+        Connection c = listener;
+        listener = null;
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+            // Already broken.
+        }
+    }
+
+    /** Opens a dedicated connection and issues {@code LISTEN}. */
+    private void listen() {
+        try {
+            Connection c = connections.open();
+            try (Statement st = c.createStatement()) {
+                st.execute("LISTEN " + channel);
+                Class<?> pgConnection = Class.forName("org.postgresql.PGConnection", true, c.getClass().getClassLoader());
+                this.getNotifications = pgConnection.getMethod("getNotifications", int.class);
+                this.listener = c;
+            } catch (SQLException | ReflectiveOperationException | RuntimeException e) {
+                c.close();
+                throw e;
+            }
+        } catch (SQLException | ReflectiveOperationException e) {
+            throw new RuntimeException("PostgreSQL LISTEN failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Sends one payload through the pooled connections. */
+    private void sendPayload(String payload) {
+        db.executeQuery("SELECT pg_notify(?, ?)", channel, payload);
+    }
+
+    /** Parses a payload, skipping this server's own notifications. */
+    private void parse(String payload, List<MCEngineEssentialChangeEvent> changes) {
+        String[] lines = payload.split("\n");
+        if (lines.length == 0 || nodeId.equals(lines[0])) return;
+        for (int i = 1; i < lines.length; i++) {
+            int tab = lines[i].indexOf('\t');
+            if (tab < 0) changes.add(new MCEngineEssentialChangeEvent(lines[i], null));
+            else changes.add(new MCEngineEssentialChangeEvent(lines[i].substring(0, tab), unescape(lines[i].substring(tab + 1))));
+        }
+    }
+
+    private static String escape(String key) {
+        return key.replace("\\", "\\\\").replace("\n", "\\n").replace("\t", "\\t");
+    }
+
+    private static String unescape(String key) {
+        if (key.indexOf('\\') < 0) return key;
+        StringBuilder sb = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c != '\\' || i + 1 == key.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = key.charAt(++i);
+            sb.append(next == 'n' ? '\n' : next == 't' ? '\t' : next);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Immutable sizing and timeout settings for a {@link MCEngineEssentialConnectionPool}.
+ *
+ * @param minSize              connections kept open even when idle
+ * @param maxSize              hard upper bound on open connections
+ * @param idleTimeoutMillis    idle connections above {@code minSize} are closed after this long; {@code <= 0} disables
+ * @param maxLifetimeMillis    connections are retired after this long regardless of use; {@code <= 0} disables
+ * @param validationQuery      query used to test a connection; blank uses {@link java.sql.Connection#isValid(int)}
+ * @param acquireTimeoutMillis how long a caller waits for a free connection before failing
+ * @param statementCacheSize   prepared statements cached per connection; {@code 0} disables the cache
+ */
+public record MCEngineEssentialPoolSettings(
+        int minSize,
+        int maxSize,
+        long idleTimeoutMillis,
+        long maxLifetimeMillis,
+        String validationQuery,
+        long acquireTimeoutMillis,
+        int statementCacheSize) {
+
+    /**
+     * Normalizes out-of-range values so the pool never sees an impossible configuration.
+     */
+    public MCEngineEssentialPoolSettings {
+        maxSize = Math.max(1, maxSize);
+        minSize = Math.max(0, Math.min(minSize, maxSize));
+        acquireTimeoutMillis = Math.max(0, acquireTimeoutMillis);
+        statementCacheSize = Math.max(0, statementCacheSize);
+        validationQuery = validationQuery == null ? "" : validationQuery.trim();
+    }
+
+    /**
+     * Reads pool settings from config, falling back to the given sizes:
+     * <ul>
+     *     <li>{@code <path>.min-size} (default: {@code defaultMin})</li>
+     *     <li>{@code <path>.max-size} (default: {@code defaultMax})</li>
+     *     <li>{@code <path>.idle-timeout} in milliseconds (default: {@code 600000})</li>
+     *     <li>{@code <path>.max-lifetime} in milliseconds (default: {@code 1800000})</li>
+     *     <li>{@code <path>.validation-query} (default: empty, uses the driver's validity check)</li>
+     *     <li>{@code <path>.acquire-timeout} in milliseconds (default: {@code 10000})</li>
+     *     <li>{@code <path>.statement-cache-size} prepared statements per connection (default: {@code 64})</li>
+     * </ul>
+     *
+     * @param config     root configuration
+     * @param path       pool section path, e.g. {@code database.mysql.pool}
+     * @param defaultMin default minimum size
+     * @param defaultMax default maximum size
+     * @return parsed settings
+     */
+    public static MCEngineEssentialPoolSettings fromConfig(ConfigurationSection config, String path,
+                                                          int defaultMin, int defaultMax) {
+        return new MCEngineEssentialPoolSettings(
+                config.getInt(path + ".min-size", defaultMin),
+                config.getInt(path + ".max-size", defaultMax),
+                config.getLong(path + ".idle-timeout", 600_000L),
+                config.getLong(path + ".max-lifetime", 1_800_000L),
+                config.getString(path + ".validation-query", ""),
+                config.getLong(path + ".acquire-timeout", 10_000L),
+                config.getInt(path + ".statement-cache-size", 64));
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A JDBC {@link Connection} owned by a {@link MCEngineEssentialConnectionPool}.
+ * <p>
+ * Carries the bookkeeping the pool needs to retire connections (creation and
+ * last-use timestamps) and the connection's prepared-statement cache. Borrowers only
+ * ever see this wrapper inside a pool callback and must not close the underlying
+ * connection themselves.
+ */
+public final class MCEngineEssentialPooledConnection {
+
+    /**
+     * Unit of work executed against a (possibly cached) prepared statement.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface StatementWork<T> {
+
+        /**
+         * Runs the work.
+         *
+         * @param statement prepared statement; must not be closed by the callback
+         * @return work result
+         * @throws SQLException if the work fails
+         */
+        T apply(PreparedStatement statement) throws SQLException;
+    }
+
+    /** The physical JDBC connection. */
+    private final Connection connection;
+
+    /** Wall-clock time (millis) when the physical connection was opened. */
+    private final long createdAt;
+
+    /** Wall-clock time (millis) when the connection was last handed back to the pool. */
+    private volatile long lastUsedAt;
+
+    /** Prepared statements cached on this connection, keyed by SQL text. */
+    private final MCEngineEssentialStatementCache statements;
+
+    /**
+     * Wraps a freshly opened connection.
+     *
+     * @param connection         physical JDBC connection
+     * @param statementCacheSize maximum cached prepared statements; {@code 0} disables caching
+     */
+    MCEngineEssentialPooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statements = new MCEngineEssentialStatementCache(connection, statementCacheSize);
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    /**
+     * Returns the underlying JDBC connection.
+     *
+     * @return the physical connection (never closed by callers)
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Runs {@code work} against a prepared statement for {@code sql}, reusing a cached
+     * statement when available. A statement that fails is evicted so a broken statement
+     * is never reused.
+     *
+     * @param sql  SQL text with {@code ?} placeholders
+     * @param work callback using the statement
+     * @param <T>  result type
+     * @return the callback result
+     * @throws SQLException if preparation or the work fails
+     */
+    public <T> T withStatement(String sql, StatementWork<T> work) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (!statements.isEnabled()) {
+            try (ps) {
+                return work.apply(ps);
+            }
+        }
+        try {
+            return work.apply(ps);
+        } catch (SQLException | RuntimeException e) {
+            statements.evict(sql);
+            throw e;
+        }
+    }
+
+    /**
+     * Binds parameters to a statement obtained from this connection. For a cached
+     * statement, the number of values is checked against its placeholders first: a reused
+     * statement must never run with values left from a previous call.
+     *
+     * @param sql    SQL text the statement was obtained for
+     * @param ps     the statement
+     * @param params parameter values in placeholder order
+     * @throws SQLException if the number of values is wrong or binding fails
+     */
+    public void bind(String sql, PreparedStatement ps, Object[] params) throws SQLException {
+        int expected = statements.parameterCount(sql);
+        int given = params == null ? 0 : params.length;
+        if (expected >= 0 && expected != given) {
+            throw new SQLException("Statement expects " + expected + " parameters, got " + given + ": " + sql);
+        }
+        MCEngineEssentialTypeCodec.bind(ps, params);
+    }
+
+    /**
+     * Returns the kind of the first result column of a statement obtained from this
+     * connection, so scalar reads can use the typed getters; see
+     * {@link MCEngineEssentialStatementCache#columnKind}.
+     *
+     * @param sql SQL text the statement was obtained for
+     * @param rs  open result set of that statement
+     * @return a {@link MCEngineEssentialTypeCodec} column kind
+     * @throws SQLException if the metadata cannot be read
+     */
+    int columnKind(String sql, ResultSet rs) throws SQLException {
+        return statements.columnKind(sql, rs);
+    }
+
+    /**
+     * Returns a prepared statement for a single execution outside a callback, for hot
+     * paths that must not allocate one. A cached statement stays open; an uncached one is
+     * marked close-on-completion so closing its result set closes it. Callers must call
+     * {@link #evictStatement(String)} if the statement fails.
+     *
+     * @param sql SQL text with {@code ?} placeholders
+     * @return prepared statement
+     * @throws SQLException if preparation fails
+     */
+    PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (!statements.isEnabled()) ps.closeOnCompletion();
+        return ps;
+    }
+
+    /**
+     * Prepares and caches a statement ahead of its first use. Does nothing when
+     * statement caching is disabled.
+     *
+     * @param sql SQL text with {@code ?} placeholders
+     * @throws SQLException if preparation fails
+     */
+    void prepare(String sql) throws SQLException {
+        if (statements.isEnabled()) statements.get(sql);
+    }
+
+    /**
+     * Drops and closes the cached statement for {@code sql}.
+     *
+     * @param sql SQL text the statement was cached under
+     */
+    void evictStatement(String sql) {
+        statements.evict(sql);
+    }
+
+    /** Closes all cached statements, e.g. before the connection is discarded. */
+    void clearStatements() {
+        statements.clear();
+    }
+
+    /** Records that the connection has just been returned to the pool. */
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks whether the connection has outlived the configured maximum lifetime.
+     *
+     * @param maxLifetimeMillis maximum lifetime in millis; {@code <= 0} disables the check
+     * @param now               current wall-clock time in millis
+     * @return {@code true} if the connection should be retired
+     */
+    boolean isExpired(long maxLifetimeMillis, long now) {
+        return maxLifetimeMillis > 0 && now - createdAt >= maxLifetimeMillis;
+    }
+
+    /**
+     * Returns how long the connection has been sitting idle.
+     *
+     * @param now current wall-clock time in millis
+     * @return idle time in millis
+     */
+    long idleFor(long now) {
+        return now - lastUsedAt;
+    }
+}
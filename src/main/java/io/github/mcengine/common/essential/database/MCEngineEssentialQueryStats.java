@@ -0,0 +1,28 @@
+package io.github.mcengine.common.essential.database;
+
+/**
+ * Point-in-time statistics of one statement fingerprint.
+ *
+ * @param fingerprint        statement with literals stripped, see {@link MCEngineEssentialSqlUtil#fingerprint}
+ * @param calls              completed calls
+ * @param errors             calls that threw
+ * @param rows               rows returned (reads) or written (batches)
+ * @param primaryThreadCalls calls made on the server's primary thread
+ * @param totalNanos         summed latency
+ * @param p50Nanos           median latency
+ * @param p99Nanos           99th percentile latency
+ * @param maxNanos           largest latency
+ */
+public record MCEngineEssentialQueryStats(String fingerprint, long calls, long errors, long rows,
+                                          long primaryThreadCalls, long totalNanos, long p50Nanos,
+                                          long p99Nanos, long maxNanos) {
+
+    /**
+     * Returns the mean latency.
+     *
+     * @return mean in nanoseconds; {@code 0} before any call
+     */
+    public long meanNanos() {
+        return calls == 0 ? 0 : totalNanos / calls;
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.mcengine.common.essential.database;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Holds calls made while a backend is still connecting in the background.
+ * <p>
+ * Until the backend's {@link IMCEngineEssentialDB#ready()} future completes, each call
+ * waits for it for at most the configured time and then fails with a clear error
+ * instead of blocking for a full network timeout. Once ready, calls go straight through.
+ */
+public class MCEngineEssentialReadinessDB extends MCEngineEssentialForwardingDB {
+
+    /** The backend's readiness future. */
+    private final CompletableFuture<Void> ready;
+
+    /** Longest time a call waits for readiness. */
+    private final long waitMillis;
+
+    /** Set once readiness has been observed, so later calls skip the future. */
+    private volatile boolean open;
+
+    /**
+     * Wraps a backend that may still be connecting.
+     *
+     * @param delegate   backend to guard
+     * @param waitMillis longest time a call waits for the backend to become ready
+     */
+    public MCEngineEssentialReadinessDB(IMCEngineEssentialDB delegate, long waitMillis) {
+        super(delegate);
+        this.ready = delegate.ready();
+        this.waitMillis = Math.max(0L, waitMillis);
+    }
+
+    /**
+     * Tells whether the backend has become ready.
+     *
+     * @return {@code true} once the backend has reached its database
+     */
+    public boolean isReady() {
+        return open || ready.isDone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql) {
+        awaitReady();
+        delegate.executeQuery(sql);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        awaitReady();
+        delegate.executeQuery(sql, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        awaitReady();
+        delegate.executeBatch(writes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type) {
+        awaitReady();
+        return delegate.getValue(sql, type);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        awaitReady();
+        return delegate.getValue(sql, type, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(String sql, int defaultValue, Object... params) {
+        awaitReady();
+        return delegate.getInt(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(String sql, long defaultValue, Object... params) {
+        awaitReady();
+        return delegate.getLong(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        awaitReady();
+        return delegate.getDouble(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        awaitReady();
+        return delegate.getBoolean(sql, defaultValue, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        awaitReady();
+        return delegate.query(sql, mapper, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> void forEachRow(String sql, MCEngineEssentialRowMapper<T> mapper, Consumer<? super T> action,
+                               Object... params) {
+        awaitReady();
+        delegate.forEachRow(sql, mapper, action, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        awaitReady();
+        return delegate.inTransaction(isolation, work);
+    }
+
+    /** Waits up to {@link #waitMillis} for the backend, failing fast afterwards. */
+    private void awaitReady() {
+        if (open) return;
+        try {
+            ready.get(waitMillis, TimeUnit.MILLISECONDS);
+            open = true;
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Essential database is not ready after " + waitMillis
+                    + " ms (still connecting)", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the Essential database", e);
+        } catch (ExecutionException e) {
+            // Let the call run and report the backend's own error.
+            open = true;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Routes read-only queries of a {@link MCEngineEssentialJdbcDB} to a set of read replicas.
+ * <p>
+ * Each replica has its own {@link MCEngineEssentialConnectionPool}. A query goes to the
+ * healthy replica with the fewest borrowed connections per unit of weight, ties broken
+ * round-robin. Writes, transactions and locking reads ({@code FOR UPDATE}, {@code FOR SHARE})
+ * never come here.
+ * <p>
+ * After this server writes a table, queries reading that table stay on the primary for
+ * {@code readYourWritesMillis}, so callers do not read their own writes back stale.
+ * Writes whose target cannot be determined hold every query on the primary for the window.
+ * <p>
+ * A replica leaves the rotation when a query fails with a connection error. It also leaves
+ * when the background health check cannot reach it or finds it lagging more than
+ * {@code maxLagMillis}. It returns once the health check passes again. The owning backend
+ * retries the failed query on the primary.
+ */
+public final class MCEngineEssentialReplicaRouter {
+
+    /**
+     * Measures how far a replica is behind its primary.
+     */
+    @FunctionalInterface
+    public interface LagProbe {
+
+        /**
+         * Returns the replication delay of the connected server.
+         *
+         * @param connection connection to the replica
+         * @return delay in milliseconds; {@code 0} if unknown or not replicating
+         * @throws SQLException if the delay cannot be read
+         */
+        long lagMillis(Connection connection) throws SQLException;
+    }
+
+    /** Reads that lock rows and must run on the primary. */
+    private static final Pattern LOCKING_READ = Pattern.compile(
+            "\\bFOR\\s+(?:UPDATE|SHARE|NO\\s+KEY\\s+UPDATE|KEY\\s+SHARE)\\b|\\bLOCK\\s+IN\\s+SHARE\\s+MODE\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    /** Seconds allowed for {@link Connection#isValid(int)} during health checks. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 3;
+
+    /** Analysed queries kept before the cache is cleared. */
+    private static final int SHAPE_LIMIT = 4_096;
+
+    /** Backend name used in log messages (e.g. {@code MySQL}). */
+    private final String label;
+
+    /** Logger of the owning plugin. */
+    private final Logger logger;
+
+    /** Configured replicas. */
+    private final List<Replica> replicas;
+
+    /** How long reads of a freshly written table stay on the primary. */
+    private final long readYourWritesMillis;
+
+    /** Replication delay above which a replica leaves the rotation; {@code <= 0} disables. */
+    private final long maxLagMillis;
+
+    /** Reads the replication delay during health checks; {@code null} skips it. */
+    private final LagProbe lagProbe;
+
+    /** Last local write per lower-cased table name, in epoch milliseconds. */
+    private final Map<String, Long> tableWrites = new ConcurrentHashMap<>();
+
+    /** Last local write with an unknown target table. */
+    private volatile long anyWrite;
+
+    /** Most recent local write of any kind, to skip per-table checks when none is recent. */
+    private volatile long lastWrite;
+
+    /** Tables read and locking flag per SQL text. */
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    /** Round-robin offset for ties. */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** Queries sent to a replica. */
+    private final AtomicLong replicaReads = new AtomicLong();
+
+    /** Read-only queries kept on the primary (fresh writes, no healthy replica, failover). */
+    private final AtomicLong primaryReads = new AtomicLong();
+
+    /** Background health checker. */
+    private final ScheduledExecutorService checker;
+
+    /**
+     * Creates the router and starts checking replica health in the background.
+     *
+     * @param label                     backend name for log messages
+     * @param logger                    logger of the owning plugin
+     * @param pools                     one pool per replica
+     * @param weights                   relative share of reads per replica, same order as {@code pools}
+     * @param readYourWritesMillis      how long reads of a freshly written table stay on the primary
+     * @param healthCheckIntervalMillis time between health checks
+     * @param maxLagMillis              replication delay above which a replica leaves the rotation; {@code <= 0} disables
+     * @param lagProbe                  reads the replication delay; {@code null} skips lag checks
+     */
+    public MCEngineEssentialReplicaRouter(String label, Logger logger, List<MCEngineEssentialConnectionPool> pools,
+                                          List<Integer> weights, long readYourWritesMillis,
+                                          long healthCheckIntervalMillis, long maxLagMillis, LagProbe lagProbe) {
+        this.label = label;
+        this.logger = logger;
+        this.readYourWritesMillis = Math.max(0L, readYourWritesMillis);
+        this.maxLagMillis = maxLagMillis;
+        this.lagProbe = lagProbe;
+        List<Replica> list = new ArrayList<>(pools.size());
+        for (int i = 0; i < pools.size(); i++) {
+            list.add(new Replica(i + 1, pools.get(i), Math.max(1, weights.get(i))));
+        }
+        this.replicas = List.copyOf(list);
+
+        this.checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MCEngineEssential-" + label.toLowerCase(Locale.ROOT) + "-replicas");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(100L, healthCheckIntervalMillis);
+        checker.scheduleWithFixedDelay(this::checkHealth, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds the router from the {@code database.<type>.replicas} list. Each entry is a map
+     * whose missing keys fall back to the primary's settings; {@code endpoint} turns an entry
+     * into a connection factory. Besides the backend's connection keys ({@code host},
+     * {@code port}, {@code jdbc-url}, ...), an entry may set {@code weight} (default: {@code 1}).
+     * Other keys:
+     * <ul>
+     *     <li>{@code database.<type>.replica-pool.*} pool settings of each replica, see
+     *         {@link MCEngineEssentialPoolSettings#fromConfig} (default size: 1 to 10)</li>
+     *     <li>{@code database.<type>.replica-routing.read-your-writes} in milliseconds (default: {@code 2000})</li>
+     *     <li>{@code database.<type>.replica-routing.health-check-interval} in milliseconds (default: {@code 5000})</li>
+     *     <li>{@code database.<type>.replica-routing.max-lag} in milliseconds, {@code 0} disables (default: {@code 10000})</li>
+     * </ul>
+     *
+     * @param config   root configuration
+     * @param type     config key of the backend under {@code database.} (e.g. {@code mysql})
+     * @param label    backend name for log messages
+     * @param logger   logger of the owning plugin
+     * @param endpoint opens connections for one replica entry
+     * @param lagProbe reads the replication delay; {@code null} skips lag checks
+     * @return the router, or {@code null} if no replica is configured
+     */
+    public static MCEngineEssentialReplicaRouter fromConfig(ConfigurationSection config, String type, String label,
+                                                            Logger logger,
+                                                            Function<Map<?, ?>, MCEngineEssentialConnectionPool.ConnectionFactory> endpoint,
+                                                            LagProbe lagProbe) {
+        List<Map<?, ?>> entries = config.getMapList("database." + type + ".replicas");
+        if (entries.isEmpty()) return null;
+
+        String path = "database." + type + ".replica-routing";
+        MCEngineEssentialPoolSettings settings =
+                MCEngineEssentialPoolSettings.fromConfig(config, "database." + type + ".replica-pool", 1, 10);
+        List<MCEngineEssentialConnectionPool> pools = new ArrayList<>(entries.size());
+        List<Integer> weights = new ArrayList<>(entries.size());
+        for (Map<?, ?> entry : entries) {
+            pools.add(new MCEngineEssentialConnectionPool(
+                    type + "-replica-" + (pools.size() + 1), logger, endpoint.apply(entry), settings));
+            weights.add(Integer.parseInt(setting(entry, "weight", "1")));
+        }
+        return new MCEngineEssentialReplicaRouter(
+                label,
+                logger,
+                pools,
+                weights,
+                config.getLong(path + ".read-your-writes", 2_000L),
+                config.getLong(path + ".health-check-interval", 5_000L),
+                config.getLong(path + ".max-lag", 10_000L),
+                lagProbe);
+    }
+
+    /**
+     * Reads a value from a replica entry.
+     *
+     * @param entry        replica entry from {@code database.<type>.replicas}
+     * @param key          entry key
+     * @param defaultValue returned when the key is absent
+     * @return the value as a string, or {@code defaultValue}
+     */
+    public static String setting(Map<?, ?> entry, String key, String defaultValue) {
+        Object value = entry.get(key);
+        return value != null ? String.valueOf(value) : defaultValue;
+    }
+
+    /**
+     * Picks the pool for a {@code SELECT}.
+     *
+     * @param sql SQL query
+     * @return a replica pool, or {@code null} to use the primary
+     */
+    MCEngineEssentialConnectionPool route(String sql) {
+        Shape shape = shape(sql);
+        if (shape.locking() || isFresh(shape)) {
+            primaryReads.incrementAndGet();
+            return null;
+        }
+
+        Replica best = null;
+        double bestLoad = Double.MAX_VALUE;
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica r = replicas.get((start + i) % replicas.size());
+            if (!r.healthy) continue;
+            double load = (double) r.pool.getActiveCount() / r.weight;
+            if (load < bestLoad) {
+                best = r;
+                bestLoad = load;
+            }
+        }
+        if (best == null) {
+            primaryReads.incrementAndGet();
+            return null;
+        }
+        replicaReads.incrementAndGet();
+        return best.pool;
+    }
+
+    /**
+     * Records a committed local write, starting the read-your-writes window of its table.
+     *
+     * @param sql statement that wrote
+     */
+    void noteWrite(String sql) {
+        if (readYourWritesMillis == 0) return;
+        String table = MCEngineEssentialSqlUtil.writeTable(sql);
+        if (table != null && table.isEmpty()) return;
+        noteTable(table);
+    }
+
+    /**
+     * Records a committed local write to a known table.
+     *
+     * @param table lower-cased table name; {@code null} if unknown, which holds every query on the primary
+     */
+    void noteTable(String table) {
+        if (readYourWritesMillis == 0) return;
+        long now = System.currentTimeMillis();
+        if (table == null) anyWrite = now;
+        else tableWrites.put(table, now);
+        lastWrite = now;
+    }
+
+    /**
+     * Reports a failed query on a replica and tells whether to run it on the primary.
+     * Connection failures take the replica out of the rotation. Writes refused by a
+     * read-only replica (e.g. {@code nextval} inside a {@code SELECT}) leave it in.
+     *
+     * @param pool replica pool the query ran on
+     * @param e    failure
+     * @return {@code true} to retry the query on the primary
+     */
+    boolean failed(MCEngineEssentialConnectionPool pool, SQLException e) {
+        for (Replica r : replicas) {
+            if (r.pool != pool) continue;
+            if (isConnectionFailure(e)) {
+                markDown(r, e.getMessage());
+                primaryReads.incrementAndGet();
+                return true;
+            }
+            if (isReadOnlyViolation(e)) {
+                primaryReads.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of configured replicas.
+     *
+     * @return replica count
+     */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Returns the number of replicas currently in the rotation.
+     *
+     * @return healthy replica count
+     */
+    public int getHealthyCount() {
+        int n = 0;
+        for (Replica r : replicas) if (r.healthy) n++;
+        return n;
+    }
+
+    /**
+     * Returns the number of queries sent to a replica.
+     *
+     * @return replica read count
+     */
+    public long getReplicaReadCount() {
+        return replicaReads.get();
+    }
+
+    /**
+     * Returns the number of read-only queries kept on or moved to the primary.
+     *
+     * @return primary read count
+     */
+    public long getPrimaryReadCount() {
+        return primaryReads.get();
+    }
+
+    /**
+     * Warms up every replica pool, see {@link MCEngineEssentialConnectionPool#warmUp}.
+     *
+     * @param connections connections per replica
+     * @param statements  SQL to prepare
+     * @return future completed when every replica has been warmed up
+     */
+    CompletableFuture<Void> warmUp(int connections, Collection<String> statements) {
+        CompletableFuture<?>[] all = new CompletableFuture<?>[replicas.size()];
+        for (int i = 0; i < all.length; i++) all[i] = replicas.get(i).pool.warmUp(connections, statements);
+        return CompletableFuture.allOf(all);
+    }
+
+    /** Stops health checks and closes every replica pool. */
+    void close() {
+        checker.shutdownNow();
+        for (Replica r : replicas) r.pool.close();
+    }
+
+    /** Tells whether the query reads a table this server wrote within the window. */
+    private boolean isFresh(Shape shape) {
+        long since = System.currentTimeMillis() - readYourWritesMillis;
+        if (lastWrite < since) return false;
+        if (anyWrite >= since) return true;
+        for (String table : shape.tables()) {
+            Long written = tableWrites.get(table);
+            if (written != null && written >= since) return true;
+        }
+        return false;
+    }
+
+    /** Returns the cached analysis of a query. */
+    private Shape shape(String sql) {
+        Shape shape = shapes.get(sql);
+        if (shape != null) return shape;
+        if (shapes.size() >= SHAPE_LIMIT) shapes.clear();
+        shape = new Shape(MCEngineEssentialSqlUtil.readTables(sql), LOCKING_READ.matcher(sql).find());
+        shapes.put(sql, shape);
+        return shape;
+    }
+
+    /** Validates every replica and checks its lag, moving it in or out of the rotation. */
+    private void checkHealth() {
+        for (Replica r : replicas) {
+            try {
+                long lag = r.pool.withConnection(pc -> {
+                    Connection c = pc.getConnection();
+                    if (!c.isValid(VALIDATION_TIMEOUT_SECONDS)) throw new SQLException("connection is not valid");
+                    if (lagProbe == null) return 0L;
+                    try {
+                        return lagProbe.lagMillis(c);
+                    } catch (SQLException e) {
+                        // Typically a missing privilege: the replica is reachable, its lag unknown.
+                        return 0L;
+                    }
+                });
+                if (maxLagMillis > 0 && lag > maxLagMillis) markDown(r, "replication lag " + lag + " ms");
+                else markUp(r);
+            } catch (SQLException | RuntimeException e) {
+                markDown(r, e.getMessage());
+            }
+        }
+    }
+
+    /** Takes a replica out of the rotation, logging the first time. */
+    private void markDown(Replica r, String reason) {
+        synchronized (r) {
+            if (!r.healthy) return;
+            r.healthy = false;
+        }
+        logger.warning("Essential " + label + " replica " + r.index + " removed from rotation: " + reason);
+    }
+
+    /** Puts a replica back into the rotation, logging the first time. */
+    private void markUp(Replica r) {
+        synchronized (r) {
+            if (r.healthy) return;
+            r.healthy = true;
+        }
+        logger.info("Essential " + label + " replica " + r.index + " back in rotation");
+    }
+
+    /** Connection-class SQLSTATE, the JDBC connection exceptions, or a pool acquire timeout. */
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return (state != null && state.startsWith("08"))
+                || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLTimeoutException;
+    }
+
+    /** PostgreSQL {@code 25006}, MySQL {@code --read-only} ({@code 1290}, {@code 1792}). */
+    private static boolean isReadOnlyViolation(SQLException e) {
+        return "25006".equals(e.getSQLState()) || e.getErrorCode() == 1290 || e.getErrorCode() == 1792;
+    }
+
+    /** One replica and its rotation state. */
+    private static final class Replica {
+        private final int index;
+        private final MCEngineEssentialConnectionPool pool;
+        private final int weight;
+        private volatile boolean healthy = true;
+
+        Replica(int index, MCEngineEssentialConnectionPool pool, int weight) {
+            this.index = index;
+            this.pool = pool;
+            this.weight = weight;
+        }
+    }
+
+    /** What routing needs to know about a query. */
+    private record Shape(Set<String> tables, boolean locking) {
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to a value.
+ * <p>
+ * Implementations read columns only; they must not advance or close the result set.
+ *
+ * @param <T> mapped row type
+ */
+@FunctionalInterface
+public interface MCEngineEssentialRowMapper<T> {
+
+    /**
+     * Maps the current row.
+     *
+     * @param rs result set positioned on the row to map
+     * @return mapped value
+     * @throws SQLException if a column cannot be read
+     */
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,428 @@
+package io.github.mcengine.common.essential.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical concurrent reads into one database query.
+ * <p>
+ * While a {@code getValue} or primitive accessor call is in flight, later calls with the
+ * same SQL, parameters, target type and default wait for its result instead of querying
+ * again. The first caller runs the query; everyone attached to it receives the same value
+ * or the same failure. {@link #collapseAsync} does the same for future-based reads without
+ * tying up a thread per waiting caller.
+ * <p>
+ * Only plain {@code SELECT}s are collapsed; streams from {@code query} and locking reads
+ * always run on their own. A caller never attaches to a read that started before a write
+ * issued through this decorator to one of the tables it reads, so a thread always sees its
+ * own writes. While a transaction started through this decorator is open on a thread, that
+ * thread's reads run on their own.
+ */
+public class MCEngineEssentialSingleFlightDB extends MCEngineEssentialForwardingDB {
+
+    /** Parsed SQL metadata is memoized for at most this many distinct statements. */
+    private static final int SQL_INFO_LIMIT = 4096;
+
+    /** Placeholder for parameterless lookups. */
+    private static final Object[] NO_PARAMS = new Object[0];
+
+    /** Memoized marker for statements that are never collapsed. */
+    private static final String[] NEVER = new String[0];
+
+    /** Reads in flight on the calling threads. */
+    private final Map<Key, Flight> flights = new ConcurrentHashMap<>();
+
+    /** Future-based reads in flight. */
+    private final Map<Key, Flight> asyncFlights = new ConcurrentHashMap<>();
+
+    /** Memoized tables read per raw SQL string, or {@link #NEVER}. */
+    private final Map<String, String[]> sqlInfo = new ConcurrentHashMap<>();
+
+    /** Sequence numbering reads and writes, to order them. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Sequence of the last write per table name. */
+    private final Map<String, Long> tableWrites = new ConcurrentHashMap<>();
+
+    /** Sequence of the last write whose table is unknown. */
+    private volatile long anyWrite;
+
+    /** Whether the current thread has a transaction open through this decorator. */
+    private final ThreadLocal<Boolean> inTransaction = new ThreadLocal<>();
+
+    /** Queries run on behalf of one or more callers. */
+    private final LongAdder issued = new LongAdder();
+
+    /** Calls served by attaching to another caller's query. */
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Wraps a backend.
+     *
+     * @param delegate backend whose reads are collapsed
+     */
+    public MCEngineEssentialSingleFlightDB(IMCEngineEssentialDB delegate) {
+        super(delegate);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql) {
+        try {
+            delegate.executeQuery(sql);
+        } finally {
+            noteWrite(sql);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeQuery(String sql, Object... params) {
+        try {
+            delegate.executeQuery(sql, params);
+        } finally {
+            noteWrite(sql);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void executeBatch(List<MCEngineEssentialWrite> writes) {
+        try {
+            delegate.executeBatch(writes);
+        } finally {
+            noteWrites(writes);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type) {
+        String[] tables = tables(sql);
+        if (tables == null) return delegate.getValue(sql, type);
+        return type.cast(collapse(new Key(sql, type, null, NO_PARAMS), tables, () -> delegate.getValue(sql, type)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T getValue(String sql, Class<T> type, Object... params) {
+        String[] tables = tables(sql);
+        if (tables == null) return delegate.getValue(sql, type, params);
+        return type.cast(collapse(key(sql, type, null, params), tables, () -> delegate.getValue(sql, type, params)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(String sql, int defaultValue, Object... params) {
+        String[] tables = tables(sql);
+        if (tables == null) return delegate.getInt(sql, defaultValue, params);
+        return (Integer) collapse(key(sql, int.class, defaultValue, params), tables,
+                () -> delegate.getInt(sql, defaultValue, params));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(String sql, long defaultValue, Object... params) {
+        String[] tables = tables(sql);
+        if (tables == null) return delegate.getLong(sql, defaultValue, params);
+        return (Long) collapse(key(sql, long.class, defaultValue, params), tables,
+                () -> delegate.getLong(sql, defaultValue, params));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble(String sql, double defaultValue, Object... params) {
+        String[] tables = tables(sql);
+        if (tables == null) return delegate.getDouble(sql, defaultValue, params);
+        return (Double) collapse(key(sql, double.class, defaultValue, params), tables,
+                () -> delegate.getDouble(sql, defaultValue, params));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        String[] tables = tables(sql);
+        if (tables == null) return delegate.getBoolean(sql, defaultValue, params);
+        return (Boolean) collapse(key(sql, boolean.class, defaultValue, params), tables,
+                () -> delegate.getBoolean(sql, defaultValue, params));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads on this thread run on their own until the transaction ends; the tables it
+     * wrote count as written once it has ended.
+     */
+    @Override
+    public <T> T inTransaction(MCEngineEssentialIsolation isolation, MCEngineEssentialTransactionWork<T> work) {
+        Boolean outer = inTransaction.get();
+        List<String> written = new ArrayList<>();
+        inTransaction.set(Boolean.TRUE);
+        try {
+            return delegate.inTransaction(isolation, tx -> work.run(new TrackingTransaction(tx, written)));
+        } finally {
+            if (outer == null) inTransaction.remove();
+            for (String sql : written) noteWrite(sql);
+        }
+    }
+
+    /**
+     * Future-based counterpart of {@link #getValue(String, Class, Object...)}: attaches to an
+     * identical future-based read in flight, or starts {@code load} and lets later callers
+     * attach to it. Waiting callers hold no thread.
+     * <p>
+     * The read started by {@code load} is not counted as issued here: it is expected to go
+     * through this decorator's {@code getValue}, which counts it once if it reaches the
+     * database.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param type   target scalar class
+     * @param params values bound to the placeholders in order
+     * @param load   starts the read, e.g. on the Essential DB executor
+     * @param <T>    type parameter for the coerced result
+     * @return future completed with the shared result
+     */
+    public <T> CompletableFuture<T> collapseAsync(String sql, Class<T> type, Object[] params,
+                                                  Supplier<CompletableFuture<T>> load) {
+        String[] tables = tables(sql);
+        if (tables == null) return load.get();
+
+        Key key = key(sql, type, null, params);
+        Flight mine = new Flight(sequence.incrementAndGet());
+        Flight current = join(asyncFlights, key, mine, tables);
+        if (current != mine) return copy(current, type);
+
+        CompletableFuture<T> started;
+        try {
+            started = load.get();
+        } catch (RuntimeException | Error e) {
+            asyncFlights.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((value, error) -> {
+            asyncFlights.remove(key, mine);
+            if (error != null) mine.completeExceptionally(error);
+            else mine.complete(value);
+        });
+        return copy(mine, type);
+    }
+
+    /**
+     * Returns the number of queries run on behalf of one or more callers.
+     *
+     * @return issued query count
+     */
+    public long getIssuedCount() {
+        return issued.sum();
+    }
+
+    /**
+     * Returns the number of calls served by another caller's query.
+     *
+     * @return collapsed call count
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    /**
+     * Returns the number of distinct reads currently in flight.
+     *
+     * @return in-flight read count
+     */
+    public int getInFlightCount() {
+        return flights.size() + asyncFlights.size();
+    }
+
+    /** Runs a read, or waits for an identical one in flight. */
+    private Object collapse(Key key, String[] tables, Supplier<Object> load) {
+        Flight mine = new Flight(sequence.incrementAndGet());
+        Flight current = join(flights, key, mine, tables);
+        if (current != mine) return await(current);
+
+        issued.increment();
+        Object value;
+        try {
+            value = load.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    /**
+     * Registers {@code mine} as the flight for {@code key} unless a current one exists.
+     *
+     * @return the flight to attach to, or {@code mine} if the caller must run the read
+     */
+    private Flight join(Map<Key, Flight> inFlight, Key key, Flight mine, String[] tables) {
+        for (;;) {
+            Flight current = inFlight.putIfAbsent(key, mine);
+            if (current == null) return mine;
+            if (isCurrent(current, tables)) {
+                collapsed.increment();
+                return current;
+            }
+            // Started before a local write to a table it reads: run a fresh read instead.
+            if (inFlight.replace(key, current, mine)) return mine;
+        }
+    }
+
+    /** Tells whether no table read by the flight has been written since it started. */
+    private boolean isCurrent(Flight flight, String[] tables) {
+        if (anyWrite > flight.started) return false;
+        for (String table : tables) {
+            Long written = tableWrites.get(table);
+            if (written != null && written > flight.started) return false;
+        }
+        return true;
+    }
+
+    /** Records a write, so later reads of its table do not attach to reads started before it. */
+    private void noteWrite(String sql) {
+        String table = MCEngineEssentialSqlUtil.writeTable(sql);
+        if (table != null && table.isEmpty()) return;
+        long seq = sequence.incrementAndGet();
+        if (table == null) anyWrite = seq;
+        else tableWrites.put(table, seq);
+    }
+
+    /** Records each distinct statement of a batch. */
+    private void noteWrites(List<MCEngineEssentialWrite> writes) {
+        String last = null;
+        for (MCEngineEssentialWrite w : writes) {
+            if (!w.sql().equals(last)) noteWrite(w.sql());
+            last = w.sql();
+        }
+    }
+
+    /**
+     * Returns the tables a statement reads, or {@code null} if it must not be collapsed:
+     * not a plain {@code SELECT}, or called inside a transaction.
+     */
+    private String[] tables(String sql) {
+        if (inTransaction.get() != null) return null;
+        String[] tables = sqlInfo.get(sql);
+        if (tables == null) {
+            String upper = MCEngineEssentialSqlUtil.normalize(sql).toUpperCase(Locale.ROOT);
+            boolean collapsible = upper.startsWith("SELECT") && !upper.contains(" FOR UPDATE") && !upper.contains(" FOR SHARE");
+            tables = collapsible ? MCEngineEssentialSqlUtil.readTables(sql).toArray(new String[0]) : NEVER;
+
+            if (sqlInfo.size() >= SQL_INFO_LIMIT) sqlInfo.clear();
+            sqlInfo.put(sql, tables);
+        }
+        return tables == NEVER ? null : tables;
+    }
+
+    /** Builds a key, copying the parameters so later changes by the caller cannot affect it. */
+    private static Key key(String sql, Class<?> type, Object defaultValue, Object[] params) {
+        return new Key(sql, type, defaultValue, params == null ? NO_PARAMS : params.clone());
+    }
+
+    /** Waits for another caller's read, rethrowing its failure as is. */
+    private static Object await(Flight flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    /** Gives a caller its own future, so completing or cancelling it does not affect the others. */
+    private static <T> CompletableFuture<T> copy(Flight flight, Class<T> type) {
+        CompletableFuture<T> out = new CompletableFuture<>();
+        flight.whenComplete((value, error) -> {
+            if (error != null) out.completeExceptionally(error);
+            else out.complete(type.cast(value));
+        });
+        return out;
+    }
+
+    /** A read in flight and the sequence number it started at. */
+    private static final class Flight extends CompletableFuture<Object> {
+
+        private final long started;
+
+        Flight(long started) {
+            this.started = started;
+        }
+    }
+
+    /** Transaction handle that records the statements it runs. */
+    private static final class TrackingTransaction extends MCEngineEssentialForwardingTransaction {
+
+        private final List<String> written;
+
+        TrackingTransaction(MCEngineEssentialTransaction delegate, List<String> written) {
+            super(delegate);
+            this.written = written;
+        }
+
+        @Override
+        public void executeQuery(String sql, Object... params) {
+            try {
+                delegate.executeQuery(sql, params);
+            } finally {
+                written.add(sql);
+            }
+        }
+
+        @Override
+        public void executeBatch(List<MCEngineEssentialWrite> writes) {
+            try {
+                delegate.executeBatch(writes);
+            } finally {
+                for (MCEngineEssentialWrite w : writes) written.add(w.sql());
+            }
+        }
+    }
+
+    /** Flight key: SQL, target type, default value and parameter values. */
+    private static final class Key {
+
+        private final String sql;
+        private final Class<?> type;
+        private final Object defaultValue;
+        private final Object[] params;
+        private final int hash;
+
+        Key(String sql, Class<?> type, Object defaultValue, Object[] params) {
+            this.sql = sql;
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.params = params;
+            this.hash = 31 * (31 * (31 * sql.hashCode() + type.hashCode()) + Objects.hashCode(defaultValue))
+                    + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key k)) return false;
+            return hash == k.hash && type == k.type && sql.equals(k.sql)
+                    && Objects.equals(defaultValue, k.defaultValue) && Arrays.deepEquals(params, k.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
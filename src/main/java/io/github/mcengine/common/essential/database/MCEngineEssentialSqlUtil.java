@@ -0,0 +1,164 @@
+package io.github.mcengine.common.essential.database;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lightweight SQL text helpers used by the Essential database decorators.
+ * <p>
+ * These are heuristics over the statement text, not a SQL parser. Every method is
+ * conservative: when a statement is not understood, callers are told so
+ * ({@code null}) and must fall back to the safe behaviour.
+ */
+public final class MCEngineEssentialSqlUtil {
+
+    /** Table targeted by a data-changing statement, after optional MySQL/SQLite modifiers. */
+    private static final Pattern WRITE_TARGET = Pattern.compile(
+            "^\\s*(?:"
+                    + "INSERT\\s+(?:OR\\s+\\w+\\s+)?(?:LOW_PRIORITY\\s+|DELAYED\\s+|HIGH_PRIORITY\\s+|IGNORE\\s+)*INTO"
+                    + "|REPLACE\\s+(?:LOW_PRIORITY\\s+|DELAYED\\s+)*INTO"
+                    + "|UPDATE\\s+(?:OR\\s+\\w+\\s+)?(?:LOW_PRIORITY\\s+|IGNORE\\s+)*"
+                    + "|DELETE\\s+(?:LOW_PRIORITY\\s+|QUICK\\s+|IGNORE\\s+)*FROM"
+                    + "|TRUNCATE(?:\\s+TABLE)?"
+                    + "|MERGE\\s+INTO"
+                    + "|ALTER\\s+TABLE"
+                    + "|DROP\\s+TABLE(?:\\s+IF\\s+EXISTS)?"
+                    + ")\\s*([`\"\\[]?[\\w.]+[`\"\\]]?)",
+            Pattern.CASE_INSENSITIVE);
+
+    /** Statements that never change table data. */
+    private static final Pattern NON_WRITE = Pattern.compile(
+            "^\\s*(?:SELECT|CREATE\\s+(?:UNIQUE\\s+)?INDEX|CREATE\\s+TABLE|SET|SHOW|EXPLAIN|ANALYZE|VACUUM|BEGIN|COMMIT|ROLLBACK|SAVEPOINT|RELEASE)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    /** Start of a table list in a query. */
+    private static final Pattern FROM_OR_JOIN = Pattern.compile("\\b(FROM|JOIN)\\s+", Pattern.CASE_INSENSITIVE);
+
+    /** Keywords ending a {@code FROM} table list. */
+    private static final Pattern FROM_END = Pattern.compile(
+            "\\b(?:WHERE|GROUP|ORDER|LIMIT|HAVING|UNION|EXCEPT|INTERSECT|JOIN|INNER|LEFT|RIGHT|FULL|CROSS|NATURAL|ON|WINDOW|FOR|OFFSET|FETCH|RETURNING)\\b|[();]",
+            Pattern.CASE_INSENSITIVE);
+
+    /** Functions returning state of the connection that runs them. */
+    private static final Pattern CONNECTION_STATE = Pattern.compile(
+            "\\b(?:LAST_INSERT_ROWID|CHANGES|TOTAL_CHANGES|LAST_INSERT_ID|ROW_COUNT|FOUND_ROWS|LASTVAL|CURRVAL"
+                    + "|CONNECTION_ID|PG_BACKEND_PID)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    /** Runs of whitespace. */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Single-quoted string literals, including doubled-quote escapes. */
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    /** Numeric literals that are not part of an identifier. */
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?\\b");
+
+    /** {@code IN} lists made only of placeholders. */
+    private static final Pattern IN_LIST = Pattern.compile("\\bIN ?\\( ?\\?(?: ?, ?\\?)* ?\\)", Pattern.CASE_INSENSITIVE);
+
+    /** Repeated placeholder tuples, as in multi-row {@code VALUES}. */
+    private static final Pattern TUPLE_LIST = Pattern.compile("(\\( ?\\?(?: ?, ?\\?)* ?\\))(?: ?, ?\\( ?\\?(?: ?, ?\\?)* ?\\))+");
+
+    private MCEngineEssentialSqlUtil() {
+    }
+
+    /**
+     * Trims the statement and collapses every run of whitespace to a single space.
+     *
+     * @param sql SQL text
+     * @return normalized SQL text
+     */
+    public static String normalize(String sql) {
+        return WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+    }
+
+    /**
+     * Returns the shape of a statement with its literal values removed, so calls that
+     * differ only in inlined values or list lengths share one key.
+     * <p>
+     * String and numeric literals become {@code ?}, placeholder-only {@code IN} lists
+     * become {@code IN (?)}, and repeated {@code VALUES} tuples collapse to one.
+     *
+     * @param sql SQL text
+     * @return normalized statement fingerprint
+     */
+    public static String fingerprint(String sql) {
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        s = normalize(s);
+        s = IN_LIST.matcher(s).replaceAll("IN (?)");
+        return TUPLE_LIST.matcher(s).replaceAll("$1");
+    }
+
+    /**
+     * Returns the table a data-changing statement writes to.
+     *
+     * @param sql SQL text
+     * @return the lower-cased table name; an empty string if the statement does not
+     *         change table data; {@code null} if the target could not be determined
+     */
+    public static String writeTable(String sql) {
+        if (NON_WRITE.matcher(sql).lookingAt()) return "";
+        Matcher m = WRITE_TARGET.matcher(sql);
+        if (!m.lookingAt()) return null;
+        String head = sql.stripLeading();
+        boolean multiTable = (head.regionMatches(true, 0, "UPDATE", 0, 6) || head.regionMatches(true, 0, "DELETE", 0, 6))
+                && FROM_OR_JOIN.matcher(sql.substring(m.end())).results().anyMatch(r -> r.group(1).equalsIgnoreCase("JOIN"));
+        return multiTable ? null : tableName(m.group(1));
+    }
+
+    /**
+     * Tells whether a query reads state of the connection it runs on, such as
+     * {@code last_insert_rowid()}, {@code changes()}, {@code LAST_INSERT_ID()} or
+     * {@code lastval()}, so it only makes sense on the connection that did the writes.
+     *
+     * @param sql SQL query
+     * @return {@code true} if the query calls a connection-scoped function
+     */
+    public static boolean readsConnectionState(String sql) {
+        return CONNECTION_STATE.matcher(sql).find();
+    }
+
+    /**
+     * Returns the tables a query reads, taken from its {@code FROM} and {@code JOIN} clauses.
+     *
+     * @param sql SQL query
+     * @return lower-cased table names; empty for table-less queries such as {@code SELECT 1}
+     */
+    public static Set<String> readTables(String sql) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher m = FROM_OR_JOIN.matcher(sql);
+        while (m.find()) {
+            int start = m.end();
+            if (m.group(1).equalsIgnoreCase("JOIN")) {
+                addFirstWord(tables, sql.substring(start));
+                continue;
+            }
+            Matcher end = FROM_END.matcher(sql);
+            String list = end.find(start) ? sql.substring(start, end.start()) : sql.substring(start);
+            for (String item : list.split(",")) addFirstWord(tables, item);
+        }
+        return tables;
+    }
+
+    /** Adds the first identifier of {@code text} as a table name, skipping subqueries. */
+    private static void addFirstWord(Set<String> tables, String text) {
+        String t = text.stripLeading();
+        if (t.isEmpty() || t.charAt(0) == '(') return;
+        int i = 0;
+        while (i < t.length() && !Character.isWhitespace(t.charAt(i)) && t.charAt(i) != ')' && t.charAt(i) != ';') i++;
+        String name = tableName(t.substring(0, i));
+        if (!name.isEmpty()) tables.add(name);
+    }
+
+    /** Strips quoting and schema qualification and lower-cases a table identifier. */
+    private static String tableName(String raw) {
+        String t = raw.replace("`", "").replace("\"", "").replace("[", "").replace("]", "");
+        int dot = t.lastIndexOf('.');
+        if (dot >= 0) t = t.substring(dot + 1);
+        return t.toLowerCase(Locale.ROOT);
+    }
+}
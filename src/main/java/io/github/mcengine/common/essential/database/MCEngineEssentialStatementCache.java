@@ -0,0 +1,164 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of {@link PreparedStatement}s for one connection, keyed by SQL text.
+ * <p>
+ * Reusing the same statement object lets the driver skip re-parsing and lets servers
+ * that support it (PostgreSQL, MySQL with server-side prepares) reuse the query plan.
+ * Not thread-safe; the owning connection is only ever used by one borrower at a time.
+ */
+final class MCEngineEssentialStatementCache {
+
+    /** Connection the statements belong to. */
+    private final Connection connection;
+
+    /** Maximum number of cached statements; {@code 0} disables caching. */
+    private final int capacity;
+
+    /** Access-ordered map; the eldest entry is the least recently used. */
+    private final LinkedHashMap<String, Cached> statements;
+
+    /**
+     * Creates a cache for the given connection.
+     *
+     * @param connection connection that prepares the statements
+     * @param capacity   maximum cached statements; {@code 0} disables caching
+     */
+    MCEngineEssentialStatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = Math.max(0, capacity);
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                if (size() <= MCEngineEssentialStatementCache.this.capacity) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for {@code sql}, preparing it on a miss.
+     * When caching is disabled the caller owns the returned statement and must close it;
+     * check {@link #isEnabled()}.
+     *
+     * @param sql SQL text with {@code ?} placeholders
+     * @return prepared statement
+     * @throws SQLException if preparation fails
+     */
+    PreparedStatement get(String sql) throws SQLException {
+        if (capacity == 0) return connection.prepareStatement(sql);
+
+        Cached cached = statements.get(sql);
+        if (cached == null || cached.statement().isClosed()) {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            cached = new Cached(ps, parameterCount(ps));
+            statements.put(sql, cached);
+        }
+        return cached.statement();
+    }
+
+    /**
+     * Returns the number of placeholders of a cached statement, read once when it was prepared.
+     *
+     * @param sql SQL text the statement was cached under
+     * @return placeholder count, or {@code -1} if the statement is not cached or the driver cannot tell
+     */
+    int parameterCount(String sql) {
+        Cached cached = statements.get(sql);
+        return cached != null ? cached.parameters() : -1;
+    }
+
+    /**
+     * Returns the kind of the first result column of a cached statement, read from the
+     * result set's metadata on first use and kept with the statement. A column whose type
+     * the driver reports as {@code NULL}, as SQLite does for an untyped expression that was
+     * {@code NULL}, is looked at again next time.
+     *
+     * @param sql SQL text the statement was cached under
+     * @param rs  open result set of that statement
+     * @return a {@link MCEngineEssentialTypeCodec} column kind; the generic kind if the statement is not cached
+     * @throws SQLException if the metadata cannot be read
+     */
+    int columnKind(String sql, ResultSet rs) throws SQLException {
+        Cached cached = statements.get(sql);
+        if (cached == null) return MCEngineEssentialTypeCodec.KIND_OTHER;
+        if (cached.kind < 0) {
+            int type = rs.getMetaData().getColumnType(1);
+            if (type == Types.NULL) return MCEngineEssentialTypeCodec.KIND_OTHER;
+            cached.kind = MCEngineEssentialTypeCodec.columnKind(type);
+        }
+        return cached.kind;
+    }
+
+    /**
+     * Returns whether statements are cached (and therefore must not be closed by callers).
+     *
+     * @return {@code true} if caching is enabled
+     */
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Drops and closes a statement, e.g. after it failed in a way that may have left it unusable.
+     *
+     * @param sql SQL text the statement was cached under
+     */
+    void evict(String sql) {
+        closeQuietly(statements.remove(sql));
+    }
+
+    /** Closes every cached statement. */
+    void clear() {
+        statements.values().forEach(MCEngineEssentialStatementCache::closeQuietly);
+        statements.clear();
+    }
+
+    /** Reads a statement's placeholder count, or {@code -1} if the driver cannot tell. */
+    private static int parameterCount(PreparedStatement ps) {
+        try {
+            return ps.getParameterMetaData().getParameterCount();
+        } catch (SQLException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /** Closes a statement, ignoring failures. */
+    private static void closeQuietly(Cached cached) {
+        if (cached == null) return;
+        try {
+            cached.statement().close();
+        } catch (SQLException ignored) {
+            // Statement or connection already gone.
+        }
+    }
+
+    /** A cached statement, its placeholder count and the kind of its first result column. */
+    private static final class Cached {
+        private final PreparedStatement statement;
+        private final int parameters;
+        private int kind = -1;
+
+        Cached(PreparedStatement statement, int parameters) {
+            this.statement = statement;
+            this.parameters = parameters;
+        }
+
+        PreparedStatement statement() {
+            return statement;
+        }
+
+        int parameters() {
+            return parameters;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Portable description of one table: columns with their JDBC types, primary key and
+ * secondary indexes, as read from a backend's metadata. Used to recreate the table on
+ * another backend ({@link #createSql}) and to move its rows ({@link #readRow}).
+ * <p>
+ * Types are mapped to the closest type of the target dialect: SQLite integers become
+ * {@code BIGINT} (they are 64-bit), text without a usable length becomes {@code TEXT}
+ * ({@code VARCHAR(191)} for MySQL key columns) and auto-increment keys keep generating
+ * values on the target.
+ *
+ * @param name       table name
+ * @param columns    columns in declaration order
+ * @param primaryKey primary-key column names in key order; empty if the table has none
+ * @param indexes    secondary indexes
+ */
+public record MCEngineEssentialTableSchema(String name, List<Column> columns, List<String> primaryKey,
+                                           List<Index> indexes) {
+
+    /**
+     * One column.
+     *
+     * @param name          column name
+     * @param jdbcType      {@link Types} constant
+     * @param size          declared length or precision; {@code 0} if unknown
+     * @param scale         declared scale
+     * @param nullable      whether the column accepts {@code NULL}
+     * @param autoIncrement whether the backend generates its values
+     */
+    public record Column(String name, int jdbcType, int size, int scale, boolean nullable, boolean autoIncrement) {
+    }
+
+    /**
+     * One secondary index.
+     *
+     * @param name    index name
+     * @param unique  whether the index is unique
+     * @param columns indexed column names in order
+     */
+    public record Index(String name, boolean unique, List<String> columns) {
+    }
+
+    /** Longest MySQL key column that fits the index limit under {@code utf8mb4}. */
+    private static final int MYSQL_KEY_LENGTH = 768;
+
+    /** Longest column kept as {@code VARCHAR}; longer or unbounded text becomes {@code TEXT}. */
+    private static final int MAX_VARCHAR = 16_383;
+
+    /** Copies the lists so the record is immutable. */
+    public MCEngineEssentialTableSchema {
+        columns = List.copyOf(columns);
+        primaryKey = List.copyOf(primaryKey);
+        indexes = List.copyOf(indexes);
+    }
+
+    /**
+     * Reads the schema of every user table visible on a connection.
+     *
+     * @param connection connection to read metadata from
+     * @param type       backend type of the connection ({@code sqlite}, {@code mysql} or {@code postgresql})
+     * @param only       table names to read, case-insensitive; empty for all tables
+     * @return schemas in name order
+     * @throws SQLException             if the metadata cannot be read
+     * @throws IllegalArgumentException if a table in {@code only} does not exist
+     */
+    public static List<MCEngineEssentialTableSchema> read(Connection connection, String type, Collection<String> only)
+            throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        String catalog = connection.getCatalog();
+        String schema = connection.getSchema();
+        Map<String, String> names = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try (ResultSet rs = meta.getTables(catalog, schema, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME");
+                if (!table.toLowerCase(Locale.ROOT).startsWith("sqlite_")) names.put(table, table);
+            }
+        }
+        if (!only.isEmpty()) {
+            Set<String> wanted = only.stream().map(n -> n.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+            names.keySet().removeIf(n -> !wanted.contains(n.toLowerCase(Locale.ROOT)));
+            for (String n : only) {
+                if (!names.containsKey(n)) throw new IllegalArgumentException("Unknown table: " + n);
+            }
+        }
+
+        List<MCEngineEssentialTableSchema> schemas = new ArrayList<>();
+        for (String table : names.values()) schemas.add(readTable(meta, catalog, schema, table, type));
+        return schemas;
+    }
+
+    /**
+     * Returns the {@code CREATE TABLE IF NOT EXISTS} statement for a dialect, without
+     * secondary indexes (see {@link #indexSql}).
+     *
+     * @param type target backend type
+     * @return DDL statement
+     */
+    public String createSql(String type) {
+        Column identity = identityColumn();
+        boolean inlineKey = identity != null && !"mysql".equals(type) && !"postgresql".equals(type);
+        List<String> defs = new ArrayList<>();
+        for (Column c : columns) {
+            String q = quote(type, c.name());
+            if (c == identity) {
+                defs.add(switch (type) {
+                    case "mysql" -> q + " BIGINT NOT NULL AUTO_INCREMENT";
+                    case "postgresql" -> q + " BIGINT GENERATED BY DEFAULT AS IDENTITY";
+                    default -> q + " INTEGER PRIMARY KEY AUTOINCREMENT";
+                });
+                continue;
+            }
+            defs.add(q + " " + sqlType(type, c) + (c.nullable() ? "" : " NOT NULL"));
+        }
+        if (!primaryKey.isEmpty() && !inlineKey) {
+            defs.add("PRIMARY KEY (" + quoteAll(type, primaryKey) + ")");
+        }
+        return "CREATE TABLE IF NOT EXISTS " + quote(type, name) + " (" + String.join(", ", defs) + ")";
+    }
+
+    /**
+     * Returns the statements creating the secondary indexes for a dialect. Run them after
+     * the rows are loaded; building an index once is cheaper than maintaining it per row.
+     *
+     * @param type target backend type
+     * @return {@code CREATE INDEX} statements
+     */
+    public List<String> indexSql(String type) {
+        String ifNotExists = "mysql".equals(type) ? "" : "IF NOT EXISTS ";
+        List<String> out = new ArrayList<>();
+        for (Index index : indexes) {
+            out.add("CREATE " + (index.unique() ? "UNIQUE " : "") + "INDEX " + ifNotExists + quote(type, index.name())
+                    + " ON " + quote(type, name) + " (" + quoteAll(type, index.columns()) + ")");
+        }
+        return out;
+    }
+
+    /**
+     * Returns statements to run after loading explicit values into an auto-increment
+     * column, so generated values continue after the loaded ones.
+     *
+     * @param type target backend type
+     * @return statements; empty when the dialect needs none
+     */
+    public List<String> identityResetSql(String type) {
+        Column identity = identityColumn();
+        if (identity == null || !"postgresql".equals(type)) return List.of();
+        String table = quote(type, name);
+        String column = quote(type, identity.name());
+        return List.of("SELECT setval(pg_get_serial_sequence('" + table.replace("'", "''") + "', '"
+                + identity.name().toLowerCase(Locale.ROOT).replace("'", "''") + "'), COALESCE((SELECT MAX("
+                + column + ") FROM " + table + "), 0) + 1, false)");
+    }
+
+    /**
+     * Returns the query streaming the table in primary-key order, optionally after a key.
+     *
+     * @param type  source backend type
+     * @param after whether to add a {@code WHERE} clause taking the last copied key as parameters
+     * @return {@code SELECT} statement
+     */
+    public String selectSql(String type, boolean after) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(quoteAll(type, columnNames()))
+                .append(" FROM ").append(quote(type, name));
+        if (primaryKey.isEmpty()) return sql.toString();
+        String key = quoteAll(type, primaryKey);
+        if (after) {
+            sql.append(primaryKey.size() == 1
+                    ? " WHERE " + key + " > ?"
+                    : " WHERE (" + key + ") > (?" + ", ?".repeat(primaryKey.size() - 1) + ")");
+        }
+        return sql.append(" ORDER BY ").append(key).toString();
+    }
+
+    /**
+     * Returns the column names in declaration order.
+     *
+     * @return column names
+     */
+    public List<String> columnNames() {
+        return columns.stream().map(Column::name).toList();
+    }
+
+    /**
+     * Returns the positions of the primary-key columns within {@link #columns()}.
+     *
+     * @return 0-based column indexes in key order
+     */
+    public int[] keyIndexes() {
+        List<String> names = columnNames();
+        return primaryKey.stream().mapToInt(names::indexOf).toArray();
+    }
+
+    /**
+     * Reads the current row as portable values: {@code Long}, {@code Double},
+     * {@code BigDecimal}, {@code Boolean}, {@code Timestamp}, {@code byte[]} or {@code String}.
+     *
+     * @param rs result set of {@link #selectSql}, positioned on a row
+     * @return values in column order
+     * @throws SQLException if a column cannot be read
+     */
+    public Object[] readRow(ResultSet rs) throws SQLException {
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            int c = i + 1;
+            Object v = switch (columns.get(i).jdbcType()) {
+                case Types.BIT, Types.BOOLEAN -> rs.getBoolean(c);
+                case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> rs.getLong(c);
+                case Types.REAL, Types.FLOAT, Types.DOUBLE -> rs.getDouble(c);
+                case Types.NUMERIC, Types.DECIMAL -> rs.getBigDecimal(c);
+                case Types.DATE, Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> readTimestamp(rs, c);
+                case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> rs.getBytes(c);
+                default -> rs.getString(c);
+            };
+            row[i] = rs.wasNull() ? null : v;
+        }
+        return row;
+    }
+
+    /**
+     * Quotes an identifier for a dialect. PostgreSQL names are lower-cased first, so
+     * unquoted references in plugin SQL still resolve to them.
+     *
+     * @param type backend type
+     * @param name identifier
+     * @return quoted identifier
+     */
+    public static String quote(String type, String name) {
+        return switch (type) {
+            case "mysql" -> "`" + name.replace("`", "``") + "`";
+            case "postgresql" -> "\"" + name.toLowerCase(Locale.ROOT).replace("\"", "\"\"") + "\"";
+            default -> "\"" + name.replace("\"", "\"\"") + "\"";
+        };
+    }
+
+    /** Quotes and joins identifiers with commas. */
+    static String quoteAll(String type, List<String> names) {
+        return names.stream().map(n -> quote(type, n)).collect(Collectors.joining(", "));
+    }
+
+    /** Returns the single auto-increment key column, or {@code null}. */
+    private Column identityColumn() {
+        if (primaryKey.size() != 1) return null;
+        for (Column c : columns) {
+            if (c.autoIncrement() && c.name().equalsIgnoreCase(primaryKey.get(0)) && isInteger(c.jdbcType())) return c;
+        }
+        return null;
+    }
+
+    /** Maps a column to the closest type of a dialect. */
+    private String sqlType(String type, Column c) {
+        boolean mysql = "mysql".equals(type);
+        boolean pg = "postgresql".equals(type);
+        boolean key = primaryKey.stream().anyMatch(k -> k.equalsIgnoreCase(c.name()))
+                || indexes.stream().anyMatch(i -> i.columns().stream().anyMatch(k -> k.equalsIgnoreCase(c.name())));
+        return switch (c.jdbcType()) {
+            case Types.BIT, Types.BOOLEAN -> "BOOLEAN";
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER -> mysql ? "INT" : "INTEGER";
+            case Types.BIGINT -> "BIGINT";
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> pg ? "DOUBLE PRECISION" : mysql ? "DOUBLE" : "REAL";
+            case Types.NUMERIC, Types.DECIMAL -> c.size() > 0 && c.size() <= 65
+                    ? "DECIMAL(" + c.size() + ", " + Math.max(0, Math.min(c.scale(), c.size())) + ")"
+                    : mysql ? "DECIMAL(65, 30)" : "NUMERIC";
+            case Types.DATE -> "DATE";
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> mysql ? "DATETIME(3)" : "TIMESTAMP";
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB ->
+                    mysql ? "LONGBLOB" : pg ? "BYTEA" : "BLOB";
+            case Types.CHAR, Types.NCHAR, Types.VARCHAR, Types.NVARCHAR -> {
+                if (mysql && key) yield "VARCHAR(" + (c.size() > 0 && c.size() <= MYSQL_KEY_LENGTH ? c.size() : 191) + ")";
+                yield c.size() > 0 && c.size() <= MAX_VARCHAR ? "VARCHAR(" + c.size() + ")" : mysql ? "LONGTEXT" : "TEXT";
+            }
+            default -> mysql ? (key ? "VARCHAR(191)" : "LONGTEXT") : "TEXT";
+        };
+    }
+
+    /** Reads one table's columns, key and indexes. */
+    private static MCEngineEssentialTableSchema readTable(DatabaseMetaData meta, String catalog, String schema,
+                                                          String table, String type) throws SQLException {
+        TreeMap<Integer, Column> columns = new TreeMap<>();
+        try (ResultSet rs = meta.getColumns(catalog, schema, table, "%")) {
+            while (rs.next()) {
+                int jdbcType = rs.getInt("DATA_TYPE");
+                int size = rs.getInt("COLUMN_SIZE");
+                if (!"mysql".equals(type) && !"postgresql".equals(type)) {
+                    jdbcType = sqliteType(rs.getString("TYPE_NAME"), jdbcType);
+                    if (jdbcType != Types.VARCHAR && jdbcType != Types.CHAR) size = 0;
+                }
+                columns.put(rs.getInt("ORDINAL_POSITION"), new Column(
+                        rs.getString("COLUMN_NAME"),
+                        jdbcType,
+                        size,
+                        rs.getInt("DECIMAL_DIGITS"),
+                        rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls,
+                        "YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT"))));
+            }
+        }
+
+        TreeMap<Integer, String> key = new TreeMap<>();
+        try (ResultSet rs = meta.getPrimaryKeys(catalog, schema, table)) {
+            while (rs.next()) key.put(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+        }
+        List<String> primaryKey = new ArrayList<>(key.values());
+        List<Column> columnList = new ArrayList<>(columns.values());
+        if (primaryKey.size() == 1 && !"mysql".equals(type) && !"postgresql".equals(type)) {
+            // An INTEGER PRIMARY KEY aliases the rowid, so SQLite generates it when omitted.
+            for (int i = 0; i < columnList.size(); i++) {
+                Column c = columnList.get(i);
+                if (c.name().equalsIgnoreCase(primaryKey.get(0)) && c.jdbcType() == Types.BIGINT && !c.autoIncrement()) {
+                    columnList.set(i, new Column(c.name(), c.jdbcType(), c.size(), c.scale(), c.nullable(), true));
+                }
+            }
+        }
+
+        Map<String, Index> indexes = new LinkedHashMap<>();
+        Map<String, TreeMap<Integer, String>> indexColumns = new LinkedHashMap<>();
+        try (ResultSet rs = meta.getIndexInfo(catalog, schema, table, false, true)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (index == null || column == null || rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) continue;
+                indexes.putIfAbsent(index, new Index(index, !rs.getBoolean("NON_UNIQUE"), List.of()));
+                indexColumns.computeIfAbsent(index, n -> new TreeMap<>()).put(rs.getInt("ORDINAL_POSITION"), column);
+            }
+        }
+        List<Index> secondary = new ArrayList<>();
+        for (Index index : indexes.values()) {
+            List<String> cols = new ArrayList<>(indexColumns.get(index.name()).values());
+            boolean isKey = index.unique() && cols.stream().map(s -> s.toLowerCase(Locale.ROOT)).toList()
+                    .equals(primaryKey.stream().map(s -> s.toLowerCase(Locale.ROOT)).toList());
+            if (isKey) continue;
+            // SQLite names the indexes behind UNIQUE constraints itself and reserves the prefix.
+            String name = index.name().toLowerCase(Locale.ROOT).startsWith("sqlite_")
+                    ? table + "_" + String.join("_", cols) + "_key"
+                    : index.name();
+            secondary.add(new Index(name, index.unique(), cols));
+        }
+        return new MCEngineEssentialTableSchema(table, columnList, primaryKey, secondary);
+    }
+
+    /**
+     * Maps a SQLite declared type to a portable JDBC type. The driver reports types by
+     * affinity only, e.g. {@code BOOLEAN} as {@code INTEGER} and {@code TIMESTAMP} as text.
+     */
+    private static int sqliteType(String declared, int reported) {
+        String t = declared == null ? "" : declared.toUpperCase(Locale.ROOT);
+        if (t.contains("BOOL")) return Types.BOOLEAN;
+        // SQLite integers are 64-bit whatever width they were declared with.
+        if (t.contains("INT")) return Types.BIGINT;
+        if (t.contains("DATETIME") || t.contains("TIMESTAMP")) return Types.TIMESTAMP;
+        if (t.equals("DATE")) return Types.DATE;
+        if (t.contains("DEC") || t.contains("NUMERIC")) return Types.NUMERIC;
+        if (t.contains("REAL") || t.contains("FLOA") || t.contains("DOUB")) return Types.DOUBLE;
+        if (t.contains("BLOB")) return Types.BLOB;
+        if (t.isEmpty()) return Types.VARCHAR;
+        return isInteger(reported) ? Types.BIGINT : reported;
+    }
+
+    /**
+     * Reads a date or timestamp, falling back to its text when the driver cannot parse it,
+     * e.g. a SQLite timestamp stored in a format of the plugin's choosing.
+     */
+    private static Object readTimestamp(ResultSet rs, int column) throws SQLException {
+        try {
+            return rs.getTimestamp(column);
+        } catch (SQLException e) {
+            return rs.getString(column);
+        }
+    }
+
+    /** Tells whether a JDBC type is an integer type. */
+    private static boolean isInteger(int jdbcType) {
+        return jdbcType == Types.TINYINT || jdbcType == Types.SMALLINT || jdbcType == Types.INTEGER
+                || jdbcType == Types.BIGINT;
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.mcengine.common.essential.database;
+
+import java.sql.Savepoint;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An open transaction on one pinned connection, handed to
+ * {@link MCEngineEssentialTransactionWork}.
+ * <p>
+ * Every call runs with auto-commit off and becomes visible to other connections only
+ * when the outermost scope commits. The handle is only valid inside the work it was
+ * passed to and must not be shared with other threads.
+ */
+public interface MCEngineEssentialTransaction {
+
+    /**
+     * Executes a parameterized statement that does not return a result set.
+     *
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     * @throws RuntimeException if execution fails
+     */
+    void executeQuery(String sql, Object... params);
+
+    /**
+     * Executes a sequence of parameterized writes, sending consecutive writes with the
+     * same SQL as one JDBC batch.
+     *
+     * @param writes writes in execution order
+     * @throws RuntimeException if any write fails
+     */
+    void executeBatch(List<MCEngineEssentialWrite> writes);
+
+    /**
+     * Reads a scalar value (first column of the first row).
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param type   target scalar class
+     * @param params values bound to the placeholders in order
+     * @param <T>    type parameter for the coerced result
+     * @return coerced value, or {@code null} if no rows are returned
+     * @throws RuntimeException if execution fails
+     */
+    <T> T getValue(String sql, Class<T> type, Object... params);
+
+    /**
+     * Reads a scalar {@code int}.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default int getInt(String sql, int defaultValue, Object... params) {
+        Integer v = getValue(sql, Integer.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Reads a scalar {@code long}.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default long getLong(String sql, long defaultValue, Object... params) {
+        Long v = getValue(sql, Long.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Reads a scalar {@code double}.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default double getDouble(String sql, double defaultValue, Object... params) {
+        Double v = getValue(sql, Double.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Reads a scalar {@code boolean}.
+     *
+     * @param sql          SQL query with {@code ?} placeholders
+     * @param defaultValue returned when there is no row or the value is SQL {@code NULL}
+     * @param params       values bound to the placeholders in order
+     * @return the value, or {@code defaultValue}
+     * @throws RuntimeException if execution fails
+     */
+    default boolean getBoolean(String sql, boolean defaultValue, Object... params) {
+        Boolean v = getValue(sql, Boolean.class, params);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Runs a query on the transaction's connection and returns its rows as a lazily
+     * consumed stream. The stream must be closed before the work returns; streams still
+     * open when the transaction ends are closed for it.
+     *
+     * @param sql    SQL query with {@code ?} placeholders
+     * @param mapper maps each row
+     * @param params values bound to the placeholders in order
+     * @param <T>    mapped row type
+     * @return stream of mapped rows
+     * @throws RuntimeException if the query cannot be started
+     */
+    <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params);
+
+    /**
+     * Runs a nested scope inside a savepoint. If the work throws, only its own changes
+     * are rolled back and the exception propagates; the outer transaction stays open.
+     *
+     * @param work nested unit of work
+     * @param <T>  result type
+     * @return the work's result
+     */
+    <T> T inTransaction(MCEngineEssentialTransactionWork<T> work);
+
+    /**
+     * Sets a savepoint that later changes can be rolled back to.
+     *
+     * @return the savepoint
+     * @throws RuntimeException if the backend rejects it
+     */
+    Savepoint savepoint();
+
+    /**
+     * Rolls back every change made after the savepoint; the transaction stays open.
+     *
+     * @param savepoint savepoint from {@link #savepoint()}
+     * @throws RuntimeException if the rollback fails
+     */
+    void rollbackTo(Savepoint savepoint);
+
+    /**
+     * Releases a savepoint that is no longer needed.
+     *
+     * @param savepoint savepoint from {@link #savepoint()}
+     * @throws RuntimeException if the release fails
+     */
+    void releaseSavepoint(Savepoint savepoint);
+
+    /** Marks the transaction so it is rolled back instead of committed when the work returns. */
+    void setRollbackOnly();
+
+    /**
+     * Tells whether {@link #setRollbackOnly()} was called.
+     *
+     * @return {@code true} if the transaction will be rolled back
+     */
+    boolean isRollbackOnly();
+}
@@ -0,0 +1,21 @@
+package io.github.mcengine.common.essential.database;
+
+/**
+ * Unit of work run inside a transaction by {@link IMCEngineEssentialDB#inTransaction}.
+ * <p>
+ * The work may run more than once when the transaction is retried after a deadlock or
+ * serialization failure, so it should not have side effects outside the database.
+ *
+ * @param <T> result type; use {@code Void} and return {@code null} for none
+ */
+@FunctionalInterface
+public interface MCEngineEssentialTransactionWork<T> {
+
+    /**
+     * Runs the work.
+     *
+     * @param tx the open transaction
+     * @return result handed back to the caller after commit
+     */
+    T run(MCEngineEssentialTransaction tx);
+}
@@ -0,0 +1,348 @@
+package io.github.mcengine.common.essential.database;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared conversion between Java values and JDBC columns/parameters for every
+ * Essential backend.
+ * <p>
+ * Scalars are read with {@code getObject} and converted with the rules the backends
+ * have always used: numeric values are narrowed like {@link Number#intValue()} without a
+ * round trip through text, text values are parsed and fail if they are not numbers, and
+ * {@code String} is the text form of the driver's value (so a PostgreSQL boolean reads as
+ * {@code "true"}/{@code "false"}). When the caller knows the column's kind from the
+ * statement's metadata, {@code int}, {@code long} and {@code double} values of integer and
+ * floating-point columns are read with the typed getters instead, so they are not boxed.
+ * Parameters of the common types are bound with the typed setters.
+ * Additional types can be plugged in with {@link #register}; built in are
+ * {@code String}, {@code Integer}, {@code Long}, {@code Double}, {@code Float},
+ * {@code Boolean}, {@link UUID} (stored as text), {@link Instant} (stored as a
+ * timestamp), {@code byte[]} and {@link BigDecimal}.
+ */
+public final class MCEngineEssentialTypeCodec {
+
+    /**
+     * Reads a column as a Java value.
+     *
+     * @param <T> Java type
+     */
+    @FunctionalInterface
+    public interface Reader<T> {
+
+        /**
+         * Reads a column of the current row.
+         *
+         * @param rs     result set positioned on a row
+         * @param column 1-based column index
+         * @return the value, or {@code null} for SQL {@code NULL}
+         * @throws SQLException if the column cannot be read
+         */
+        T read(ResultSet rs, int column) throws SQLException;
+    }
+
+    /**
+     * Converts a Java value into something every JDBC driver can bind.
+     *
+     * @param <T> Java type
+     */
+    @FunctionalInterface
+    public interface Writer<T> {
+
+        /**
+         * Converts a non-null value.
+         *
+         * @param value value to bind
+         * @return a JDBC-bindable value
+         */
+        Object write(T value);
+    }
+
+    /** Column kind read with {@code getObject} and converted. */
+    static final int KIND_OTHER = 0;
+
+    /** Integer column kind, read with {@code getLong}. */
+    static final int KIND_INTEGER = 1;
+
+    /** Floating-point column kind, read with {@code getDouble}. */
+    static final int KIND_FLOATING = 2;
+
+    /** Registered column readers keyed by target type. */
+    private static final Map<Class<?>, Reader<?>> READERS = new ConcurrentHashMap<>();
+
+    /** Registered parameter writers keyed by exact value class. */
+    private static final Map<Class<?>, Writer<?>> WRITERS = new ConcurrentHashMap<>();
+
+    static {
+        register(String.class, (rs, c) -> {
+            Object raw = rs.getObject(c);
+            return raw == null ? null : String.valueOf(raw);
+        }, null);
+        register(Integer.class, (rs, c) -> {
+            Object raw = rs.getObject(c);
+            return raw == null ? null : toInt(raw);
+        }, null);
+        register(Long.class, (rs, c) -> {
+            Object raw = rs.getObject(c);
+            return raw == null ? null : toLong(raw);
+        }, null);
+        register(Double.class, (rs, c) -> {
+            Object raw = rs.getObject(c);
+            return raw == null ? null : toDouble(raw);
+        }, null);
+        register(Float.class, (rs, c) -> {
+            Object raw = rs.getObject(c);
+            return raw == null ? null : raw instanceof Number n ? n.floatValue() : Float.parseFloat(raw.toString());
+        }, null);
+        register(Boolean.class, (rs, c) -> {
+            Object raw = rs.getObject(c);
+            return raw == null ? null : toBoolean(raw);
+        }, null);
+        register(BigDecimal.class, ResultSet::getBigDecimal, null);
+        register(byte[].class, ResultSet::getBytes, null);
+        register(UUID.class, (rs, c) -> {
+            Object raw = rs.getObject(c);
+            if (raw == null || raw instanceof UUID) return (UUID) raw;
+            return UUID.fromString(raw.toString());
+        }, UUID::toString);
+        register(Instant.class, (rs, c) -> {
+            Timestamp ts = rs.getTimestamp(c);
+            return ts == null ? null : ts.toInstant();
+        }, Timestamp::from);
+    }
+
+    private MCEngineEssentialTypeCodec() {
+    }
+
+    /**
+     * Registers (or replaces) the conversion for a type.
+     *
+     * @param type   Java type
+     * @param reader reads a column as {@code type}; {@code null} keeps the current reader
+     * @param writer converts a parameter of exactly {@code type} for binding; {@code null} binds it as-is
+     * @param <T>    Java type
+     */
+    public static <T> void register(Class<T> type, Reader<T> reader, Writer<T> writer) {
+        if (reader != null) READERS.put(type, reader);
+        if (writer != null) WRITERS.put(type, writer);
+        else WRITERS.remove(type);
+    }
+
+    /**
+     * Reads a column as the requested type.
+     *
+     * @param rs     result set positioned on a row
+     * @param column 1-based column index
+     * @param type   target type
+     * @param <T>    target type
+     * @return the value, or {@code null} for SQL {@code NULL}
+     * @throws IllegalArgumentException if no reader is registered for {@code type}
+     * @throws SQLException             if the column cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T read(ResultSet rs, int column, Class<T> type) throws SQLException {
+        Reader<?> reader = READERS.get(type);
+        if (reader == null) throw new IllegalArgumentException("Unsupported scalar type: " + type.getName());
+        return (T) reader.read(rs, column);
+    }
+
+    /**
+     * Reads a column as the requested type, using the typed getter for {@code Integer},
+     * {@code Long} and {@code Double} when the column kind allows it.
+     *
+     * @param rs     result set positioned on a row
+     * @param column 1-based column index
+     * @param type   target type
+     * @param kind   column kind from {@link #columnKind(int)}
+     * @param <T>    target type
+     * @return the value, or {@code null} for SQL {@code NULL}
+     * @throws SQLException if the column cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T read(ResultSet rs, int column, Class<T> type, int kind) throws SQLException {
+        if (kind == KIND_INTEGER && (type == Long.class || type == Integer.class)) {
+            long v = rs.getLong(column);
+            if (rs.wasNull()) return null;
+            return (T) (type == Long.class ? (Object) v : (Object) (int) v);
+        }
+        if (kind != KIND_OTHER && type == Double.class) {
+            double v = rs.getDouble(column);
+            return rs.wasNull() ? null : (T) (Double) v;
+        }
+        return read(rs, column, type);
+    }
+
+    /**
+     * Reads a column as an {@code int} with the same conversion as {@code Integer} scalars.
+     *
+     * @param rs           result set positioned on a row
+     * @param column       1-based column index
+     * @param defaultValue returned for SQL {@code NULL}
+     * @return the value
+     * @throws NumberFormatException if a text value is not an integer
+     * @throws SQLException          if the column cannot be read
+     */
+    public static int readInt(ResultSet rs, int column, int defaultValue) throws SQLException {
+        Object raw = rs.getObject(column);
+        return raw == null ? defaultValue : toInt(raw);
+    }
+
+    /** {@link #readInt(ResultSet, int, int)} reading integer columns with {@code getLong}, narrowed the same way. */
+    static int readInt(ResultSet rs, int column, int kind, int defaultValue) throws SQLException {
+        if (kind != KIND_INTEGER) return readInt(rs, column, defaultValue);
+        long v = rs.getLong(column);
+        return rs.wasNull() ? defaultValue : (int) v;
+    }
+
+    /**
+     * Reads a column as a {@code long} with the same conversion as {@code Long} scalars.
+     *
+     * @param rs           result set positioned on a row
+     * @param column       1-based column index
+     * @param defaultValue returned for SQL {@code NULL}
+     * @return the value
+     * @throws NumberFormatException if a text value is not an integer
+     * @throws SQLException          if the column cannot be read
+     */
+    public static long readLong(ResultSet rs, int column, long defaultValue) throws SQLException {
+        Object raw = rs.getObject(column);
+        return raw == null ? defaultValue : toLong(raw);
+    }
+
+    /** {@link #readLong(ResultSet, int, long)} reading integer columns with {@code getLong}. */
+    static long readLong(ResultSet rs, int column, int kind, long defaultValue) throws SQLException {
+        if (kind != KIND_INTEGER) return readLong(rs, column, defaultValue);
+        long v = rs.getLong(column);
+        return rs.wasNull() ? defaultValue : v;
+    }
+
+    /**
+     * Reads a column as a {@code double} with the same conversion as {@code Double} scalars.
+     *
+     * @param rs           result set positioned on a row
+     * @param column       1-based column index
+     * @param defaultValue returned for SQL {@code NULL}
+     * @return the value
+     * @throws NumberFormatException if a text value is not a number
+     * @throws SQLException          if the column cannot be read
+     */
+    public static double readDouble(ResultSet rs, int column, double defaultValue) throws SQLException {
+        Object raw = rs.getObject(column);
+        return raw == null ? defaultValue : toDouble(raw);
+    }
+
+    /** {@link #readDouble(ResultSet, int, double)} reading integer and floating-point columns with {@code getDouble}. */
+    static double readDouble(ResultSet rs, int column, int kind, double defaultValue) throws SQLException {
+        if (kind == KIND_OTHER) return readDouble(rs, column, defaultValue);
+        double v = rs.getDouble(column);
+        return rs.wasNull() ? defaultValue : v;
+    }
+
+    /**
+     * Maps a {@link Types} constant to the column kind deciding how scalars are fetched.
+     * Exact numerics ({@code DECIMAL}, {@code NUMERIC}) stay generic, so their conversion
+     * does not depend on the driver.
+     *
+     * @param sqlType column type from the result set metadata
+     * @return {@link #KIND_INTEGER}, {@link #KIND_FLOATING} or {@link #KIND_OTHER}
+     */
+    static int columnKind(int sqlType) {
+        return switch (sqlType) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> KIND_INTEGER;
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> KIND_FLOATING;
+            default -> KIND_OTHER;
+        };
+    }
+
+    /**
+     * Reads a column as a {@code boolean}, accepting boolean columns, {@code 1}/{@code 0}
+     * and {@code "true"}/{@code "false"}.
+     *
+     * @param rs           result set positioned on a row
+     * @param column       1-based column index
+     * @param defaultValue returned for SQL {@code NULL}
+     * @return the value
+     * @throws IllegalArgumentException if the value is not a recognizable boolean
+     * @throws SQLException             if the column cannot be read
+     */
+    public static boolean readBoolean(ResultSet rs, int column, boolean defaultValue) throws SQLException {
+        Object raw = rs.getObject(column);
+        return raw == null ? defaultValue : toBoolean(raw);
+    }
+
+    /**
+     * Binds positional parameters ({@code ?}) to a prepared statement, using the typed
+     * setter for common types and the registered writer for plugged-in ones.
+     * Values left by a previous use of a cached statement are cleared first, so a call
+     * passing too few parameters fails instead of reusing them.
+     *
+     * @param ps     prepared statement
+     * @param params parameter values in placeholder order; {@code null} values bind SQL {@code NULL}
+     * @throws SQLException if binding fails
+     */
+    public static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        ps.clearParameters();
+        if (params == null) return;
+        for (int i = 0; i < params.length; i++) {
+            int idx = i + 1;
+            Object p = params[i];
+            if (p == null) ps.setNull(idx, Types.NULL);
+            else if (p instanceof String s) ps.setString(idx, s);
+            else if (p instanceof Long l) ps.setLong(idx, l);
+            else if (p instanceof Integer n) ps.setInt(idx, n);
+            else if (p instanceof Double d) ps.setDouble(idx, d);
+            else if (p instanceof Boolean b) ps.setBoolean(idx, b);
+            else ps.setObject(idx, toJdbc(p));
+        }
+    }
+
+    /**
+     * Converts a value with its registered writer, or returns it unchanged.
+     *
+     * @param value non-null value
+     * @return JDBC-bindable value
+     */
+    @SuppressWarnings("unchecked")
+    public static Object toJdbc(Object value) {
+        Writer<Object> writer = (Writer<Object>) WRITERS.get(value.getClass());
+        return writer == null ? value : writer.write(value);
+    }
+
+    /** Narrows a raw JDBC number, or parses text. */
+    private static int toInt(Object raw) {
+        return raw instanceof Number n ? n.intValue() : Integer.parseInt(raw.toString());
+    }
+
+    /** Narrows a raw JDBC number, or parses text. */
+    private static long toLong(Object raw) {
+        return raw instanceof Number n ? n.longValue() : Long.parseLong(raw.toString());
+    }
+
+    /** Widens a raw JDBC number, or parses text. */
+    private static double toDouble(Object raw) {
+        return raw instanceof Number n ? n.doubleValue() : Double.parseDouble(raw.toString());
+    }
+
+    /** Interprets a raw JDBC value as a boolean. */
+    private static boolean toBoolean(Object raw) {
+        if (raw instanceof Boolean b) return b;
+        if (raw instanceof Number n) {
+            long v = n.longValue();
+            if (v == 1) return true;
+            if (v == 0) return false;
+        } else {
+            String s = raw.toString().trim();
+            if ("1".equals(s) || "true".equalsIgnoreCase(s)) return true;
+            if ("0".equals(s) || "false".equalsIgnoreCase(s)) return false;
+        }
+        throw new IllegalArgumentException("Not a boolean value: " + raw);
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.mcengine.common.essential.database;
+
+/**
+ * A single parameterized write (statement text plus bound values) used by
+ * {@link IMCEngineEssentialDB#executeBatch(java.util.List)}.
+ *
+ * @param sql    SQL statement with {@code ?} placeholders
+ * @param params values bound to the placeholders in order
+ */
+public record MCEngineEssentialWrite(String sql, Object... params) {
+}
@@ -0,0 +1,408 @@
+package io.github.mcengine.common.essential.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind buffer that turns many small writes into a few grouped transactions.
+ * <p>
+ * Queued writes are flushed through {@link IMCEngineEssentialDB#executeBatch(List)} once
+ * {@code batchSize} writes are pending or every {@code flushIntervalMillis}, whichever
+ * comes first, in transactions of at most {@code batchSize} writes. Writes queued with a
+ * coalescing key replace any pending write with the same key, so only the latest value
+ * for a row is sent. Writes are applied in queue order; reads issued before a flush do
+ * not see queued writes.
+ * <p>
+ * A flush that fails because the database cannot be reached (SQLState class {@code 08}, a
+ * JDBC connection exception or a pool acquire timeout) keeps every write queued and is
+ * retried with an exponential backoff of up to {@value #MAX_BACKOFF_MILLIS} ms, however
+ * long the outage lasts. Any other failure is retried on the next cycle; after
+ * {@code maxRetries} consecutive ones, the pending writes are applied one by one and a
+ * write rejected by the database is logged and dropped, so one bad statement cannot stall
+ * the queue forever. Writes still queued when the queue is closed during an outage are lost
+ * and logged.
+ */
+public final class MCEngineEssentialWriteBehindQueue {
+
+    /** Longest wait between flush attempts while the database is unreachable. */
+    static final long MAX_BACKOFF_MILLIS = 30_000L;
+
+    /** Backend receiving the flushed writes. */
+    private final IMCEngineEssentialDB db;
+
+    /** Logger of the owning plugin. */
+    private final Logger logger;
+
+    /** Pending write count that triggers an early flush, and the most writes per transaction. */
+    private final int batchSize;
+
+    /** Consecutive failed flushes before falling back to per-write execution. */
+    private final int maxRetries;
+
+    /** Pending writes in queue order, keyed by coalescing key or a unique sequence key. */
+    private final LinkedHashMap<Object, MCEngineEssentialWrite> pending = new LinkedHashMap<>();
+
+    /** Serializes flushes so batches are committed in queue order. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /** Background flusher thread. */
+    private final ScheduledExecutorService flusher;
+
+    /** Set while a size-triggered flush is scheduled but not yet running. */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /** Sequence for unkeyed writes. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Number of writes committed. */
+    private final AtomicLong written = new AtomicLong();
+
+    /** Number of writes replaced by a later write with the same key. */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /** Number of committed flush transactions. */
+    private final AtomicLong flushes = new AtomicLong();
+
+    /** Time between scheduled flushes. */
+    private final long flushIntervalMillis;
+
+    /** Consecutive flushes failed by the statements themselves. */
+    private int failures;
+
+    /** Consecutive flushes failed by an unreachable database; guarded by {@link #flushLock}. */
+    private int outages;
+
+    /** {@link System#currentTimeMillis()} before which background flushes wait; guarded by {@link #flushLock}. */
+    private long retryAt;
+
+    /** Set once {@link #close()} has been called. */
+    private volatile boolean closed;
+
+    /**
+     * Creates the queue and starts its background flusher.
+     *
+     * @param db                  backend receiving the flushed writes
+     * @param logger              logger of the owning plugin
+     * @param batchSize           pending write count that triggers an early flush, and the
+     *                            most writes per transaction
+     * @param flushIntervalMillis maximum time a write waits before being flushed
+     * @param maxRetries          failed flushes before falling back to per-write execution
+     */
+    public MCEngineEssentialWriteBehindQueue(IMCEngineEssentialDB db, Logger logger, int batchSize,
+                                             long flushIntervalMillis, int maxRetries) {
+        this.db = db;
+        this.logger = logger;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRetries = Math.max(0, maxRetries);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MCEngineEssential-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(10L, flushIntervalMillis);
+        this.flushIntervalMillis = interval;
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds the queue from config keys:
+     * <ul>
+     *     <li>{@code database.write-behind.batch-size} (default: {@code 500})</li>
+     *     <li>{@code database.write-behind.flush-interval} in milliseconds (default: {@code 1000})</li>
+     *     <li>{@code database.write-behind.max-retries} (default: {@code 3})</li>
+     * </ul>
+     *
+     * @param config root configuration
+     * @param db     backend receiving the flushed writes
+     * @param logger logger of the owning plugin
+     * @return configured queue
+     */
+    public static MCEngineEssentialWriteBehindQueue fromConfig(ConfigurationSection config,
+                                                               IMCEngineEssentialDB db, Logger logger) {
+        return new MCEngineEssentialWriteBehindQueue(
+                db,
+                logger,
+                config.getInt("database.write-behind.batch-size", 500),
+                config.getLong("database.write-behind.flush-interval", 1000L),
+                config.getInt("database.write-behind.max-retries", 3));
+    }
+
+    /**
+     * Queues a write.
+     *
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     * @throws IllegalStateException if the queue has been closed
+     */
+    public void enqueue(String sql, Object... params) {
+        put(sequence.incrementAndGet(), new MCEngineEssentialWrite(sql, params));
+    }
+
+    /**
+     * Queues a write that replaces any pending write with the same key.
+     * <p>
+     * The key must identify both the target row and the statement, e.g.
+     * {@code "homes:" + uuid + ":" + name}, so that only writes that are safe to
+     * collapse share a key. The replacing write moves to the end of the queue.
+     *
+     * @param key    coalescing key
+     * @param sql    SQL statement with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     * @throws IllegalStateException if the queue has been closed
+     */
+    public void enqueueCoalesced(String key, String sql, Object... params) {
+        put(key, new MCEngineEssentialWrite(sql, params));
+    }
+
+    /**
+     * Flushes the writes pending at the time of the call on the calling thread, in
+     * transactions of at most {@code batchSize} writes, and waits for the commits.
+     *
+     * @throws RuntimeException if a transaction fails; its writes and the later ones stay
+     *                          queued for retry
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            int remaining = getPendingCount();
+            while (remaining > 0) {
+                Map<Object, MCEngineEssentialWrite> chunk = drain(Math.min(batchSize, remaining));
+                if (chunk.isEmpty()) return;
+                remaining -= chunk.size();
+                try {
+                    db.executeBatch(new ArrayList<>(chunk.values()));
+                    written.addAndGet(chunk.size());
+                    flushes.incrementAndGet();
+                    failures = 0;
+                } catch (RuntimeException e) {
+                    requeue(chunk);
+                    throw e;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of writes waiting to be flushed.
+     *
+     * @return pending write count
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Returns the number of writes committed so far.
+     *
+     * @return committed write count
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Returns the number of writes that were replaced before being flushed.
+     *
+     * @return coalesced write count
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the number of committed flush transactions.
+     *
+     * @return flush count
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Stops the background flusher and drains every pending write.
+     * Writes that still fail after the per-write fallback are logged and dropped.
+     */
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            if (!isConnectionFailure(e)) {
+                logger.warning("Essential write-behind flush failed on shutdown, applying writes one by one: " + e.getMessage());
+                flushIndividually();
+            }
+            int lost = getPendingCount();
+            if (lost > 0) {
+                logger.severe("Essential write-behind lost " + lost + " writes on shutdown, the database is unreachable: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    /** Adds a write and schedules an early flush once the batch size is reached. */
+    private void put(Object key, MCEngineEssentialWrite write) {
+        if (closed) throw new IllegalStateException("Essential write-behind queue is closed");
+        int size;
+        synchronized (pending) {
+            if (pending.remove(key) != null) coalesced.incrementAndGet();
+            pending.put(key, write);
+            size = pending.size();
+        }
+        if (size >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushScheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /** Removes and returns up to {@code max} writes from the head of the queue, with their keys. */
+    private Map<Object, MCEngineEssentialWrite> drain(int max) {
+        synchronized (pending) {
+            LinkedHashMap<Object, MCEngineEssentialWrite> batch = new LinkedHashMap<>();
+            Iterator<Map.Entry<Object, MCEngineEssentialWrite>> it = pending.entrySet().iterator();
+            while (batch.size() < max && it.hasNext()) {
+                Map.Entry<Object, MCEngineEssentialWrite> e = it.next();
+                batch.put(e.getKey(), e.getValue());
+                it.remove();
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Puts a failed batch back in front of the queue under its original keys. Writes whose
+     * key was queued again since are dropped, as the newer write replaces them.
+     */
+    private void requeue(Map<Object, MCEngineEssentialWrite> batch) {
+        synchronized (pending) {
+            LinkedHashMap<Object, MCEngineEssentialWrite> newer = new LinkedHashMap<>(pending);
+            pending.clear();
+            for (Map.Entry<Object, MCEngineEssentialWrite> e : batch.entrySet()) {
+                if (newer.containsKey(e.getKey())) coalesced.incrementAndGet();
+                else pending.put(e.getKey(), e.getValue());
+            }
+            pending.putAll(newer);
+        }
+    }
+
+    /**
+     * Background flush. Backs off while the database is unreachable and falls back to
+     * per-write execution after repeated statement failures.
+     */
+    private void flushQuietly() {
+        flushLock.lock();
+        try {
+            if (System.currentTimeMillis() < retryAt) return;
+            try {
+                flush();
+                if (outages > 0) logger.info("Essential write-behind flush succeeded again after " + outages + " attempts");
+                outages = 0;
+            } catch (RuntimeException e) {
+                if (isConnectionFailure(e)) {
+                    backOff(e);
+                    return;
+                }
+                outages = 0;
+                failures++;
+                logger.warning("Essential write-behind flush failed (attempt " + failures + "): " + e.getMessage());
+                if (failures > maxRetries) {
+                    flushIndividually();
+                    failures = 0;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Keeps the writes queued and delays the next background flush. */
+    private void backOff(RuntimeException e) {
+        outages++;
+        long delay = Math.min(MAX_BACKOFF_MILLIS, flushIntervalMillis << Math.min(outages - 1, 16));
+        retryAt = System.currentTimeMillis() + delay;
+        logger.warning("Essential write-behind cannot reach the database, keeping " + getPendingCount()
+                + " writes queued and retrying in " + delay + " ms: " + e.getMessage());
+    }
+
+    /**
+     * Applies pending writes one at a time, logging and dropping those the database rejects.
+     * Stops at the first connection failure, keeping that write and the rest queued.
+     */
+    private void flushIndividually() {
+        flushLock.lock();
+        try {
+            Map<Object, MCEngineEssentialWrite> writes = drain(Integer.MAX_VALUE);
+            for (Iterator<MCEngineEssentialWrite> it = writes.values().iterator(); it.hasNext(); ) {
+                MCEngineEssentialWrite w = it.next();
+                try {
+                    db.executeQuery(w.sql(), w.params());
+                    written.incrementAndGet();
+                } catch (RuntimeException e) {
+                    if (isConnectionFailure(e)) {
+                        requeue(writes);
+                        backOff(e);
+                        return;
+                    }
+                    logger.warning("Dropping Essential write-behind statement [" + w.sql() + "]: " + e.getMessage());
+                }
+                it.remove();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Tells whether a failure means the database could not be reached rather than that it
+     * rejected a statement: connection-class SQLState, the JDBC connection exceptions, or a
+     * pool acquire timeout anywhere in the cause chain.
+     */
+    private static boolean isConnectionFailure(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SQLException e) {
+                String state = e.getSQLState();
+                if ((state != null && state.startsWith("08"))
+                        || e instanceof SQLTransientConnectionException
+                        || e instanceof SQLNonTransientConnectionException
+                        || e instanceof SQLTimeoutException) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,284 @@
+package io.github.mcengine.common.essential.database.memory;
+
+import io.github.mcengine.common.essential.database.MCEngineEssentialConnectionPool;
+import io.github.mcengine.common.essential.database.MCEngineEssentialIsolation;
+import io.github.mcengine.common.essential.database.MCEngineEssentialJdbcDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialPoolSettings;
+import io.github.mcengine.common.essential.database.MCEngineEssentialRowMapper;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-process implementation for the Essential module database, for short-lived hot data
+ * such as cooldowns, combat tags or teleport requests.
+ * <p>
+ * Tables live in an SQLite in-memory database, so statements use the SQLite dialect and
+ * never touch the disk. Every statement runs on a single pooled connection with its
+ * prepared statement cache; a second, idle connection keeps the database alive while the
+ * pool replaces connections. Since that connection is not re-entrant, {@code query} and
+ * {@code forEachRow} read all rows before returning, so calls made while consuming them
+ * do not wait for the connection; a row mapper itself must not use the database.
+ * The contents are lost on shutdown unless snapshots are
+ * enabled: the database is then restored from the snapshot file when opened, copied to
+ * it in the background every interval when it changed, and copied once more on close.
+ */
+public class MCEngineEssentialMemoryDB extends MCEngineEssentialJdbcDB {
+
+    /** Database names: they end up in a URI. */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    /** Distinguishes the databases opened in this JVM, so unshared backends never meet. */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    /** Shared-cache URI naming this backend's in-memory database. */
+    private final String databaseUrl;
+
+    /** Holds the in-memory database open; never used for statements. */
+    private final Connection anchor;
+
+    /** Single-connection pool running every statement. */
+    private final MCEngineEssentialConnectionPool pool;
+
+    /** Snapshot file; {@code null} when snapshots are disabled. */
+    private final Path snapshotFile;
+
+    /** Background snapshot thread; {@code null} when periodic snapshots are disabled. */
+    private final ScheduledExecutorService snapshots;
+
+    /** Connection the last snapshot was taken on, guarded by {@code this}. */
+    private Connection snapshotConnection;
+
+    /** Changes made on {@link #snapshotConnection} at the last snapshot, to skip unchanged ones. */
+    private long snapshotChanges = -1;
+
+    /**
+     * Builds the in-memory database from config keys:
+     * <ul>
+     *     <li>{@code database.memory.name} → letters, digits, {@code _} and {@code -}; plugins
+     *         using the same name share the database through their runtime (default: {@code essential})</li>
+     *     <li>{@code database.memory.pool.acquire-timeout} in milliseconds (default: {@code 10000})</li>
+     *     <li>{@code database.memory.pool.statement-cache-size} (default: {@code 64})</li>
+     *     <li>{@code database.memory.fetch-size} → fetch-size hint for {@code query} (default: {@code 500})</li>
+     *     <li>{@code database.memory.snapshot.enabled} (default: {@code false})</li>
+     *     <li>{@code database.memory.snapshot.file} → file in the plugin data folder
+     *         (default: {@code memory-snapshot.db})</li>
+     *     <li>{@code database.memory.snapshot.interval} in milliseconds, {@code 0} only snapshots
+     *         on close (default: {@code 60000})</li>
+     * </ul>
+     *
+     * @param plugin Bukkit plugin instance
+     * @throws IllegalArgumentException if the name is invalid
+     * @throws RuntimeException         if the database cannot be opened or its snapshot restored
+     */
+    public MCEngineEssentialMemoryDB(Plugin plugin) {
+        super(plugin, "Memory", "memory");
+        String name = configuredName(plugin);
+        this.databaseUrl = "jdbc:sqlite:file:mcengine-" + name + "-" + SEQUENCE.incrementAndGet()
+                + "?mode=memory&cache=shared";
+        this.snapshotFile = configuredSnapshot(plugin);
+
+        try {
+            this.anchor = DriverManager.getConnection(databaseUrl);
+        } catch (SQLException e) {
+            throw new RuntimeException("Memory open failed: " + e.getMessage(), e);
+        }
+        if (snapshotFile != null && Files.isRegularFile(snapshotFile)) {
+            long startedAt = System.currentTimeMillis();
+            try (Statement st = anchor.createStatement()) {
+                st.executeUpdate("restore from " + quotePath(snapshotFile));
+            } catch (SQLException e) {
+                closeAnchor();
+                throw new RuntimeException("Memory restore failed: " + e.getMessage(), e);
+            }
+            plugin.getLogger().info("Essential memory database restored from " + snapshotFile + " in "
+                    + (System.currentTimeMillis() - startedAt) + " ms");
+        }
+
+        this.pool = new MCEngineEssentialConnectionPool("memory", plugin.getLogger(), () -> {
+            Connection conn = DriverManager.getConnection(databaseUrl);
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA foreign_keys = ON");
+                st.execute("PRAGMA temp_store = MEMORY");
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            return conn;
+        }, new MCEngineEssentialPoolSettings(1, 1, 0L, 0L, "",
+                plugin.getConfig().getLong("database.memory.pool.acquire-timeout", 10_000L),
+                plugin.getConfig().getInt("database.memory.pool.statement-cache-size", 64)));
+
+        long interval = plugin.getConfig().getLong("database.memory.snapshot.interval", 60_000L);
+        if (snapshotFile != null && interval > 0) {
+            this.snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "MCEngineEssential-memory-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshots.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().warning("Essential memory snapshot failed: " + e.getMessage());
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshots = null;
+        }
+    }
+
+    /**
+     * Identifies the database a plugin's config points at: its {@code database.memory.name}
+     * and, with snapshots enabled, the absolute path of its snapshot file. Plugins with the
+     * same key can share one {@link io.github.mcengine.common.essential.MCEngineEssentialDBRuntime};
+     * since the snapshot file defaults to each plugin's data folder, plugins only share a
+     * snapshotted database when they point at the same file.
+     *
+     * @param plugin Bukkit plugin instance
+     * @return connection key
+     * @throws IllegalArgumentException if the name is invalid
+     */
+    public static String connectionKey(Plugin plugin) {
+        Path snapshot = configuredSnapshot(plugin);
+        return "memory:" + configuredName(plugin) + (snapshot != null ? "|" + snapshot : "");
+    }
+
+    /**
+     * Copies the database to the snapshot file now, unless nothing changed since the last
+     * snapshot. Statements wait while the copy runs. The file is replaced atomically, so
+     * a crash never leaves a partial snapshot.
+     *
+     * @return {@code true} if a snapshot was written
+     * @throws IllegalStateException if snapshots are disabled
+     * @throws RuntimeException      if the snapshot fails
+     */
+    public boolean snapshot() {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("Memory snapshots are disabled (database.memory.snapshot.enabled)");
+        }
+        try {
+            return pool.withConnection(pc -> {
+                Connection conn = pc.getConnection();
+                long changes;
+                try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT total_changes()")) {
+                    rs.next();
+                    changes = rs.getLong(1);
+                }
+                synchronized (this) {
+                    if (conn == snapshotConnection && changes == snapshotChanges) return false;
+                    Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+                    try (Statement st = conn.createStatement()) {
+                        Files.createDirectories(snapshotFile.getParent());
+                        st.executeUpdate("backup to " + quotePath(temp));
+                        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (IOException e) {
+                        throw new SQLException(e.getMessage(), e);
+                    }
+                    snapshotConnection = conn;
+                    snapshotChanges = changes;
+                    return true;
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Memory snapshot failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected MCEngineEssentialConnectionPool pool() {
+        return pool;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rows are mapped and collected before this returns, releasing the only
+     * connection, so the caller may use the database while consuming the stream.
+     */
+    @Override
+    public <T> Stream<T> query(String sql, MCEngineEssentialRowMapper<T> mapper, Object... params) {
+        try (Stream<T> rows = super.query(sql, mapper, params)) {
+            return rows.toList().stream();
+        }
+    }
+
+    /** SQLite transactions are always serializable; only {@code READ_UNCOMMITTED} is passed to the driver. */
+    @Override
+    protected void applyIsolation(Connection connection, MCEngineEssentialIsolation isolation) throws SQLException {
+        if (isolation == MCEngineEssentialIsolation.READ_UNCOMMITTED) super.applyIsolation(connection, isolation);
+    }
+
+    /** SQLite accepts at most {@code 32766} parameters per statement. */
+    @Override
+    protected int maxBindParameters() {
+        return 32_766;
+    }
+
+    /** Stops the snapshot thread, takes a last snapshot if enabled, then drops the database. */
+    @Override
+    public void close() {
+        if (snapshots != null) {
+            snapshots.shutdown();
+            try {
+                snapshots.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (snapshotFile != null) {
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Essential memory snapshot failed on shutdown: " + e.getMessage());
+            }
+        }
+        super.close();
+        closeAnchor();
+    }
+
+    private void closeAnchor() {
+        try {
+            anchor.close();
+        } catch (SQLException ignored) {
+            // The database is dropped either way.
+        }
+    }
+
+    /** Reads and checks {@code database.memory.name}. */
+    private static String configuredName(Plugin plugin) {
+        String name = plugin.getConfig().getString("database.memory.name", "essential");
+        if (!NAME.matcher(name).matches()) throw new IllegalArgumentException("Invalid memory database name: " + name);
+        return name;
+    }
+
+    /** Resolves {@code database.memory.snapshot.file} against the data folder; {@code null} when disabled. */
+    private static Path configuredSnapshot(Plugin plugin) {
+        if (!plugin.getConfig().getBoolean("database.memory.snapshot.enabled", false)) return null;
+        return new File(plugin.getDataFolder(), plugin.getConfig().getString("database.memory.snapshot.file",
+                "memory-snapshot.db")).toPath().toAbsolutePath().normalize();
+    }
+
+    /** Quotes a path for the driver's {@code backup} and {@code restore} commands. */
+    private static String quotePath(Path path) throws SQLException {
+        String text = path.toString();
+        if (text.indexOf('"') >= 0) throw new SQLException("Unsupported snapshot path: " + text);
+        return "\"" + text + "\"";
+    }
+}
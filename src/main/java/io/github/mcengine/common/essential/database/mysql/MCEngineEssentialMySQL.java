@@ -1,22 +1,33 @@
 package io.github.mcengine.common.essential.database.mysql;
 
-import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialConnectionPool;
+import io.github.mcengine.common.essential.database.MCEngineEssentialJdbcDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialPoolSettings;
+import io.github.mcengine.common.essential.database.MCEngineEssentialReplicaRouter;
 import org.bukkit.plugin.Plugin;
 
-import java.sql.*;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * MySQL implementation for the Essential module database.
  * <p>
- * Establishes a persistent connection and provides simple SQL helpers.
+ * Runs every call on a connection borrowed from a bounded pool, so concurrent
+ * callers are not serialized on a single socket and dead connections are replaced.
+ * Parameterized calls reuse prepared statements cached per connection. With replicas
+ * configured, read-only queries are spread over them by a {@link MCEngineEssentialReplicaRouter}.
  */
-public class MCEngineEssentialMySQL implements IMCEngineEssentialDB {
+public class MCEngineEssentialMySQL extends MCEngineEssentialJdbcDB {
 
-    /** The Bukkit plugin instance providing config and logging. */
-    private final Plugin plugin;
+    /** Bounded pool of MySQL connections. */
+    private final MCEngineEssentialConnectionPool pool;
 
-    /** Persistent MySQL connection. */
-    private final Connection conn;
+    /** Read replicas; {@code null} when none are configured. */
+    private final MCEngineEssentialReplicaRouter replicas;
 
     /**
      * Builds the MySQL database connection from config keys:
@@ -26,12 +37,20 @@ public class MCEngineEssentialMySQL implements IMCEngineEssentialDB {
      *     <li>{@code database.mysql.name} (default: {@code mcengine_essential})</li>
      *     <li>{@code database.mysql.user} (default: {@code root})</li>
      *     <li>{@code database.mysql.password} (default: empty)</li>
+     *     <li>{@code database.mysql.jdbc-url} → full JDBC URL used instead of host/port/name (default: empty)</li>
+     *     <li>{@code database.mysql.fetch-size} → rows per cursor fetch in {@code query} (default: {@code 500})</li>
+     *     <li>{@code database.mysql.pool.*} pool sizing and timeouts, see
+     *         {@link MCEngineEssentialPoolSettings#fromConfig} (default size: 1 to 10)</li>
+     *     <li>{@code database.mysql.replicas} → list of read replicas, each a map of {@code host},
+     *         {@code port}, {@code name}, {@code user}, {@code password}, {@code jdbc-url} and {@code weight}
+     *         defaulting to the primary's values; see {@link MCEngineEssentialReplicaRouter#fromConfig}
+     *         for the routing keys (default: none)</li>
      * </ul>
      *
      * @param plugin Bukkit plugin instance
      */
     public MCEngineEssentialMySQL(Plugin plugin) {
-        this.plugin = plugin;
+        super(plugin, "MySQL", "mysql");
 
         String host = plugin.getConfig().getString("database.mysql.host", "localhost");
         String port = plugin.getConfig().getString("database.mysql.port", "3306");
@@ -39,58 +58,99 @@ public class MCEngineEssentialMySQL implements IMCEngineEssentialDB {
         String user = plugin.getConfig().getString("database.mysql.user", "root");
         String pass = plugin.getConfig().getString("database.mysql.password", "");
 
-        String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + dbName
-                + "?useSSL=false&autoReconnect=true&characterEncoding=utf8";
+        String jdbcUrl = configuredUrl(plugin);
 
-        Connection tmp = null;
-        try {
-            tmp = DriverManager.getConnection(jdbcUrl, user, pass);
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to connect to MySQL: " + e.getMessage());
-        }
-        this.conn = tmp;
+        this.pool = new MCEngineEssentialConnectionPool(
+                "mysql",
+                plugin.getLogger(),
+                () -> DriverManager.getConnection(jdbcUrl, user, pass),
+                MCEngineEssentialPoolSettings.fromConfig(plugin.getConfig(), "database.mysql.pool", 1, 10));
+
+        this.replicas = MCEngineEssentialReplicaRouter.fromConfig(plugin.getConfig(), "mysql", "MySQL",
+                plugin.getLogger(), replica -> {
+                    String replicaUrl = MCEngineEssentialReplicaRouter.setting(replica, "jdbc-url", "");
+                    String target = !replicaUrl.isBlank() ? replicaUrl : jdbcUrl(
+                            MCEngineEssentialReplicaRouter.setting(replica, "host", host),
+                            MCEngineEssentialReplicaRouter.setting(replica, "port", port),
+                            MCEngineEssentialReplicaRouter.setting(replica, "name", dbName));
+                    String replicaUser = MCEngineEssentialReplicaRouter.setting(replica, "user", user);
+                    String replicaPass = MCEngineEssentialReplicaRouter.setting(replica, "password", pass);
+                    return () -> DriverManager.getConnection(target, replicaUser, replicaPass);
+                }, MCEngineEssentialMySQL::replicationLag);
     }
 
     /** {@inheritDoc} */
     @Override
-    public void executeQuery(String sql) {
-        try (Statement st = conn.createStatement()) {
-            st.execute(sql);
-        } catch (SQLException e) {
-            throw new RuntimeException("MySQL executeQuery failed: " + e.getMessage(), e);
-        }
+    protected MCEngineEssentialConnectionPool pool() {
+        return pool;
     }
 
     /** {@inheritDoc} */
     @Override
-    public <T> T getValue(String sql, Class<T> type) {
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
+    protected MCEngineEssentialReplicaRouter replicas() {
+        return replicas;
+    }
 
-            if (!rs.next()) return null;
-            Object raw = rs.getObject(1);
-            return coerce(raw, type);
+    /** Also retries on deadlock ({@code 1213}) and lock wait timeout ({@code 1205}). */
+    @Override
+    protected boolean isRetryable(SQLException e) {
+        return e.getErrorCode() == 1213 || e.getErrorCode() == 1205 || super.isRetryable(e);
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("MySQL getValue failed: " + e.getMessage(), e);
+    /**
+     * Identifies the database a plugin's config points at: the primary's JDBC URL and user.
+     * Plugins with the same key can share one
+     * {@link io.github.mcengine.common.essential.MCEngineEssentialDBRuntime}.
+     *
+     * @param plugin Bukkit plugin instance
+     * @return connection key
+     */
+    public static String connectionKey(Plugin plugin) {
+        return "mysql:" + plugin.getConfig().getString("database.mysql.user", "root") + "@" + configuredUrl(plugin);
+    }
+
+    /** Returns {@code database.mysql.jdbc-url}, or the default URL built from host, port and name. */
+    private static String configuredUrl(Plugin plugin) {
+        String url = plugin.getConfig().getString("database.mysql.jdbc-url", "");
+        if (url != null && !url.isBlank()) return url;
+        return jdbcUrl(plugin.getConfig().getString("database.mysql.host", "localhost"),
+                plugin.getConfig().getString("database.mysql.port", "3306"),
+                plugin.getConfig().getString("database.mysql.name", "mcengine_essential"));
+    }
+
+    /** Builds the default JDBC URL for a server. */
+    private static String jdbcUrl(String host, String port, String dbName) {
+        return "jdbc:mysql://" + host + ":" + port + "/" + dbName
+                + "?useSSL=false&autoReconnect=true&characterEncoding=utf8"
+                + "&useServerPrepStmts=true&useCursorFetch=true";
+    }
+
+    /**
+     * Reads {@code Seconds_Behind_Source} ({@code Seconds_Behind_Master} before MySQL 8.0.22).
+     * A server that is not a replica reports no lag; a stopped replica counts as infinitely behind.
+     */
+    private static long replicationLag(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = showReplicaStatus(st)) {
+            if (!rs.next()) return 0L;
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                String column = meta.getColumnLabel(i);
+                if (column.equals("Seconds_Behind_Source") || column.equals("Seconds_Behind_Master")) {
+                    long seconds = rs.getLong(i);
+                    return rs.wasNull() ? Long.MAX_VALUE : seconds * 1_000L;
+                }
+            }
+            return 0L;
         }
     }
 
-    /** Coerces a JDBC scalar to the requested type. */
-    @SuppressWarnings("unchecked")
-    private static <T> T coerce(Object raw, Class<T> type) {
-        if (raw == null) return null;
-        if (type == String.class)  return (T) String.valueOf(raw);
-        if (type == Integer.class) return (T) Integer.valueOf(raw instanceof Number ? ((Number) raw).intValue() : Integer.parseInt(raw.toString()));
-        if (type == Long.class)    return (T) Long.valueOf(raw instanceof Number ? ((Number) raw).longValue() : Long.parseLong(raw.toString()));
-        if (type == Double.class)  return (T) Double.valueOf(raw instanceof Number ? ((Number) raw).doubleValue() : Double.parseDouble(raw.toString()));
-        if (type == Float.class)   return (T) Float.valueOf(raw instanceof Number ? ((Number) raw).floatValue() : Float.parseFloat(raw.toString()));
-        if (type == Boolean.class) {
-            if (raw instanceof Boolean b) return (T) b;
-            String s = raw.toString().trim().toLowerCase();
-            if ("1".equals(s) || "true".equals(s))  return (T) Boolean.TRUE;
-            if ("0".equals(s) || "false".equals(s)) return (T) Boolean.FALSE;
+    /** Runs {@code SHOW REPLICA STATUS}, falling back to the pre-8.0.22 spelling. */
+    private static ResultSet showReplicaStatus(Statement st) throws SQLException {
+        try {
+            return st.executeQuery("SHOW REPLICA STATUS");
+        } catch (SQLException e) {
+            return st.executeQuery("SHOW SLAVE STATUS");
         }
-        throw new IllegalArgumentException("Unsupported scalar type: " + type.getName());
     }
 }
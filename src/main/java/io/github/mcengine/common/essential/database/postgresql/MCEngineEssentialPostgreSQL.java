@@ -1,22 +1,43 @@
 package io.github.mcengine.common.essential.database.postgresql;
 
-import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialConnectionPool;
+import io.github.mcengine.common.essential.database.MCEngineEssentialJdbcDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialPoolSettings;
+import io.github.mcengine.common.essential.database.MCEngineEssentialReplicaRouter;
 import org.bukkit.plugin.Plugin;
 
-import java.sql.*;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HexFormat;
+import java.util.List;
 
 /**
  * PostgreSQL implementation for the Essential module database.
  * <p>
- * Establishes a persistent connection and provides simple SQL helpers.
+ * Runs every call on a connection borrowed from a bounded pool, so concurrent
+ * callers are not serialized on a single socket and dead connections are replaced.
+ * Parameterized calls reuse prepared statements cached per connection. With replicas
+ * configured, read-only queries are spread over them by a {@link MCEngineEssentialReplicaRouter}.
+ * Bulk loads stream CSV through {@code COPY ... FROM STDIN}.
  */
-public class MCEngineEssentialPostgreSQL implements IMCEngineEssentialDB {
+public class MCEngineEssentialPostgreSQL extends MCEngineEssentialJdbcDB {
 
-    /** The Bukkit plugin instance providing config and logging. */
-    private final Plugin plugin;
+    /** Bounded pool of PostgreSQL connections. */
+    private final MCEngineEssentialConnectionPool pool;
 
-    /** Persistent PostgreSQL connection. */
-    private final Connection conn;
+    /** Read replicas; {@code null} when none are configured. */
+    private final MCEngineEssentialReplicaRouter replicas;
+
+    /** Opens physical connections for the pool and for {@link #openConnection()}. */
+    private final MCEngineEssentialConnectionPool.ConnectionFactory factory;
 
     /**
      * Builds the PostgreSQL connection from config keys:
@@ -26,12 +47,20 @@ public class MCEngineEssentialPostgreSQL implements IMCEngineEssentialDB {
      *     <li>{@code database.postgresql.name} (default: {@code mcengine_essential})</li>
      *     <li>{@code database.postgresql.user} (default: {@code postgres})</li>
      *     <li>{@code database.postgresql.password} (default: empty)</li>
+     *     <li>{@code database.postgresql.jdbc-url} → full JDBC URL used instead of host/port/name (default: empty)</li>
+     *     <li>{@code database.postgresql.fetch-size} → rows per cursor fetch in {@code query} (default: {@code 500})</li>
+     *     <li>{@code database.postgresql.pool.*} pool sizing and timeouts, see
+     *         {@link MCEngineEssentialPoolSettings#fromConfig} (default size: 1 to 10)</li>
+     *     <li>{@code database.postgresql.replicas} → list of read replicas, each a map of {@code host},
+     *         {@code port}, {@code name}, {@code user}, {@code password}, {@code jdbc-url} and {@code weight}
+     *         defaulting to the primary's values; see {@link MCEngineEssentialReplicaRouter#fromConfig}
+     *         for the routing keys (default: none)</li>
      * </ul>
      *
      * @param plugin Bukkit plugin instance
      */
     public MCEngineEssentialPostgreSQL(Plugin plugin) {
-        this.plugin = plugin;
+        super(plugin, "PostgreSQL", "postgresql");
 
         String host = plugin.getConfig().getString("database.postgresql.host", "localhost");
         String port = plugin.getConfig().getString("database.postgresql.port", "5432");
@@ -39,57 +68,152 @@ public class MCEngineEssentialPostgreSQL implements IMCEngineEssentialDB {
         String user = plugin.getConfig().getString("database.postgresql.user", "postgres");
         String pass = plugin.getConfig().getString("database.postgresql.password", "");
 
-        String jdbcUrl = "jdbc:postgresql://" + host + ":" + port + "/" + dbName;
+        String jdbcUrl = configuredUrl(plugin);
 
-        Connection tmp = null;
-        try {
-            tmp = DriverManager.getConnection(jdbcUrl, user, pass);
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to connect to PostgreSQL: " + e.getMessage());
-        }
-        this.conn = tmp;
+        this.factory = () -> DriverManager.getConnection(jdbcUrl, user, pass);
+        this.pool = new MCEngineEssentialConnectionPool(
+                "postgresql",
+                plugin.getLogger(),
+                factory,
+                MCEngineEssentialPoolSettings.fromConfig(plugin.getConfig(), "database.postgresql.pool", 1, 10));
+
+        this.replicas = MCEngineEssentialReplicaRouter.fromConfig(plugin.getConfig(), "postgresql", "PostgreSQL",
+                plugin.getLogger(), replica -> {
+                    String replicaUrl = MCEngineEssentialReplicaRouter.setting(replica, "jdbc-url", "");
+                    String target = !replicaUrl.isBlank() ? replicaUrl : jdbcUrl(
+                            MCEngineEssentialReplicaRouter.setting(replica, "host", host),
+                            MCEngineEssentialReplicaRouter.setting(replica, "port", port),
+                            MCEngineEssentialReplicaRouter.setting(replica, "name", dbName));
+                    String replicaUser = MCEngineEssentialReplicaRouter.setting(replica, "user", user);
+                    String replicaPass = MCEngineEssentialReplicaRouter.setting(replica, "password", pass);
+                    return () -> DriverManager.getConnection(target, replicaUser, replicaPass);
+                }, MCEngineEssentialPostgreSQL::replicationLag);
+    }
+
+    /**
+     * Opens a connection outside the pool, for long-lived sessions such as a {@code LISTEN}
+     * channel. The caller owns and closes it.
+     *
+     * @return a new connection
+     * @throws SQLException if the connection cannot be established
+     */
+    public Connection openConnection() throws SQLException {
+        return factory.open();
     }
 
     /** {@inheritDoc} */
     @Override
-    public void executeQuery(String sql) {
-        try (Statement st = conn.createStatement()) {
-            st.execute(sql);
-        } catch (SQLException e) {
-            throw new RuntimeException("PostgreSQL executeQuery failed: " + e.getMessage(), e);
-        }
+    protected MCEngineEssentialConnectionPool pool() {
+        return pool;
     }
 
     /** {@inheritDoc} */
     @Override
-    public <T> T getValue(String sql, Class<T> type) {
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
+    protected MCEngineEssentialReplicaRouter replicas() {
+        return replicas;
+    }
+
+    /**
+     * PostgreSQL only honours the fetch size (and streams through a cursor) when
+     * auto-commit is off; the pool restores it when the connection is returned.
+     */
+    @Override
+    protected void configureStreaming(Connection connection, PreparedStatement ps) throws SQLException {
+        connection.setAutoCommit(false);
+        super.configureStreaming(connection, ps);
+    }
+
+    /**
+     * Loads rows with {@code COPY ... FROM STDIN} in CSV format, the server's fastest
+     * ingest path. The driver's {@code CopyManager} is called reflectively, so a driver
+     * without it falls back to multi-row {@code INSERT}s.
+     */
+    @Override
+    protected void bulkInsert(Connection connection, String table, List<String> columns, List<Object[]> rows)
+            throws SQLException {
+        Object copyApi;
+        Method copyIn;
+        try {
+            Class<?> pgConnection = Class.forName("org.postgresql.PGConnection", true,
+                    connection.getClass().getClassLoader());
+            copyApi = pgConnection.getMethod("getCopyAPI").invoke(connection.unwrap(pgConnection));
+            copyIn = copyApi.getClass().getMethod("copyIn", String.class, Reader.class);
+        } catch (ReflectiveOperationException | SQLException e) {
+            super.bulkInsert(connection, table, columns, rows);
+            return;
+        }
 
-            if (!rs.next()) return null;
-            Object raw = rs.getObject(1);
-            return coerce(raw, type);
+        StringBuilder csv = new StringBuilder(rows.size() * 32 * columns.size());
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) csv.append(',');
+                appendCsv(csv, row[i]);
+            }
+            csv.append('\n');
+        }
+        try {
+            copyIn.invoke(copyApi, "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(csv.toString()));
+        } catch (IllegalAccessException e) {
+            throw new SQLException("COPY failed: " + e.getMessage(), e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sql) throw sql;
+            throw new SQLException("COPY failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("PostgreSQL getValue failed: " + e.getMessage(), e);
+    /** Appends one value in PostgreSQL's CSV input format; {@code NULL} is an unquoted empty field. */
+    private static void appendCsv(StringBuilder csv, Object value) {
+        if (value == null) return;
+        if (value instanceof Boolean b) {
+            csv.append(b ? 't' : 'f');
+        } else if (value instanceof Number n) {
+            csv.append(n);
+        } else if (value instanceof byte[] bytes) {
+            csv.append("\\x").append(HexFormat.of().formatHex(bytes));
+        } else {
+            csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
         }
     }
 
-    /** Coerces a JDBC scalar to the requested type. */
-    @SuppressWarnings("unchecked")
-    private static <T> T coerce(Object raw, Class<T> type) {
-        if (raw == null) return null;
-        if (type == String.class)  return (T) String.valueOf(raw);
-        if (type == Integer.class) return (T) Integer.valueOf(raw instanceof Number ? ((Number) raw).intValue() : Integer.parseInt(raw.toString()));
-        if (type == Long.class)    return (T) Long.valueOf(raw instanceof Number ? ((Number) raw).longValue() : Long.parseLong(raw.toString()));
-        if (type == Double.class)  return (T) Double.valueOf(raw instanceof Number ? ((Number) raw).doubleValue() : Double.parseDouble(raw.toString()));
-        if (type == Float.class)   return (T) Float.valueOf(raw instanceof Number ? ((Number) raw).floatValue() : Float.parseFloat(raw.toString()));
-        if (type == Boolean.class) {
-            if (raw instanceof Boolean b) return (T) b;
-            String s = raw.toString().trim().toLowerCase();
-            if ("1".equals(s) || "true".equals(s))  return (T) Boolean.TRUE;
-            if ("0".equals(s) || "false".equals(s)) return (T) Boolean.FALSE;
+    /**
+     * Identifies the database a plugin's config points at: the primary's JDBC URL and user.
+     * Plugins with the same key can share one
+     * {@link io.github.mcengine.common.essential.MCEngineEssentialDBRuntime}.
+     *
+     * @param plugin Bukkit plugin instance
+     * @return connection key
+     */
+    public static String connectionKey(Plugin plugin) {
+        return "postgresql:" + plugin.getConfig().getString("database.postgresql.user", "postgres")
+                + "@" + configuredUrl(plugin);
+    }
+
+    /** Returns {@code database.postgresql.jdbc-url}, or the default URL built from host, port and name. */
+    private static String configuredUrl(Plugin plugin) {
+        String url = plugin.getConfig().getString("database.postgresql.jdbc-url", "");
+        if (url != null && !url.isBlank()) return url;
+        return jdbcUrl(plugin.getConfig().getString("database.postgresql.host", "localhost"),
+                plugin.getConfig().getString("database.postgresql.port", "5432"),
+                plugin.getConfig().getString("database.postgresql.name", "mcengine_essential"));
+    }
+
+    /** Builds the default JDBC URL for a server. */
+    private static String jdbcUrl(String host, String port, String dbName) {
+        return "jdbc:postgresql://" + host + ":" + port + "/" + dbName;
+    }
+
+    /**
+     * Reads the age of the last replayed transaction. A standby that has replayed everything
+     * it received, or a server that is not a standby, reports no lag.
+     */
+    private static long replicationLag(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT CAST(CASE"
+                     + " WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+                     + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)"
+                     + " END AS BIGINT)")) {
+            return rs.next() ? rs.getLong(1) : 0L;
         }
-        throw new IllegalArgumentException("Unsupported scalar type: " + type.getName());
     }
 }
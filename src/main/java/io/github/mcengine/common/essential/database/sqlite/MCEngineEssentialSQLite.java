@@ -1,40 +1,72 @@
 package io.github.mcengine.common.essential.database.sqlite;
 
-import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialConnectionPool;
+import io.github.mcengine.common.essential.database.MCEngineEssentialIsolation;
+import io.github.mcengine.common.essential.database.MCEngineEssentialJdbcDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialPoolSettings;
+import io.github.mcengine.common.essential.database.MCEngineEssentialTypeCodec;
 import org.bukkit.plugin.Plugin;
 
 import java.io.File;
-import java.sql.*;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * SQLite implementation for the Essential module database.
  * <p>
- * This implementation establishes a persistent connection and provides
- * simple SQL helpers.
+ * All writes go through a single writer connection, held in a pool of size one so
+ * callers on different threads take turns on it and parameterized calls can safely
+ * reuse its cached prepared statements. In WAL mode (the default) a small pool of
+ * {@code query_only} reader connections serves {@code SELECT}s concurrently without
+ * blocking on, or being blocked by, the writer. Queries calling {@code last_insert_rowid()},
+ * {@code changes()} or {@code total_changes()} stay on the writer, but other threads take
+ * turns on it between calls, so these values are only reliable inside {@code inTransaction},
+ * where every statement runs on the same pinned connection. Bulk loads run as one
+ * prepared-statement batch per transaction.
  */
-public class MCEngineEssentialSQLite implements IMCEngineEssentialDB {
-
-    /** The Bukkit plugin instance providing config, paths, and logging. */
-    private final Plugin plugin;
+public class MCEngineEssentialSQLite extends MCEngineEssentialJdbcDB {
 
     /** JDBC SQLite database URL (file-based). */
     private final String databaseUrl;
 
-    /** Persistent SQLite connection shared by the module. */
-    private final Connection conn;
+    /** Per-connection pragmas applied to every writer and reader connection. */
+    private final List<String> pragmas = new ArrayList<>();
+
+    /** Single-connection pool serializing writes to the SQLite file. */
+    private final MCEngineEssentialConnectionPool pool;
+
+    /** Read-only connections serving {@code SELECT}s; {@code null} when readers are disabled. */
+    private final MCEngineEssentialConnectionPool readers;
 
     /**
      * Builds the SQLite database from plugin config:
      * <ul>
      *     <li>{@code database.sqlite.path} → DB file name in plugin data folder (default: {@code essential.db})</li>
+     *     <li>{@code database.sqlite.pool.acquire-timeout} in milliseconds (default: {@code 10000})</li>
+     *     <li>{@code database.sqlite.pool.statement-cache-size} (default: {@code 64})</li>
+     *     <li>{@code database.sqlite.fetch-size} → fetch-size hint for {@code query} (default: {@code 500})</li>
+     *     <li>{@code database.sqlite.readers} → reader connections, {@code 0} routes reads to the writer;
+     *         only used in WAL mode (default: {@code 4})</li>
+     *     <li>{@code database.sqlite.pragma.journal-mode} (default: {@code WAL})</li>
+     *     <li>{@code database.sqlite.pragma.synchronous} (default: {@code NORMAL})</li>
+     *     <li>{@code database.sqlite.pragma.busy-timeout} in milliseconds (default: {@code 5000})</li>
+     *     <li>{@code database.sqlite.pragma.cache-size} → pages, or KiB when negative (default: {@code -16000})</li>
+     *     <li>{@code database.sqlite.pragma.mmap-size} in bytes (default: {@code 134217728})</li>
+     *     <li>{@code database.sqlite.pragma.temp-store} (default: {@code MEMORY})</li>
      * </ul>
      *
      * @param plugin Bukkit plugin instance
      */
     public MCEngineEssentialSQLite(Plugin plugin) {
-        this.plugin = plugin;
-        String fileName = plugin.getConfig().getString("database.sqlite.path", "essential.db");
-        File dbFile = new File(plugin.getDataFolder(), fileName);
+        super(plugin, "SQLite", "sqlite");
+        File dbFile = databaseFile(plugin);
 
         if (!dbFile.exists()) {
             try {
@@ -52,58 +84,127 @@ public class MCEngineEssentialSQLite implements IMCEngineEssentialDB {
 
         this.databaseUrl = "jdbc:sqlite:" + dbFile.getAbsolutePath();
 
-        Connection tmp = null;
-        try {
-            tmp = DriverManager.getConnection(databaseUrl);
-            try (Statement pragma = tmp.createStatement()) {
-                pragma.execute("PRAGMA foreign_keys = ON");
+        String journalMode = pragmaWord("journal-mode", "WAL");
+        pragmas.add("PRAGMA foreign_keys = ON");
+        pragmas.add("PRAGMA busy_timeout = " + plugin.getConfig().getLong("database.sqlite.pragma.busy-timeout", 5000L));
+        pragmas.add("PRAGMA synchronous = " + pragmaWord("synchronous", "NORMAL"));
+        pragmas.add("PRAGMA cache_size = " + plugin.getConfig().getLong("database.sqlite.pragma.cache-size", -16000L));
+        pragmas.add("PRAGMA mmap_size = " + plugin.getConfig().getLong("database.sqlite.pragma.mmap-size", 134_217_728L));
+        pragmas.add("PRAGMA temp_store = " + pragmaWord("temp-store", "MEMORY"));
+
+        long acquireTimeout = plugin.getConfig().getLong("database.sqlite.pool.acquire-timeout", 10_000L);
+        int statementCacheSize = plugin.getConfig().getInt("database.sqlite.pool.statement-cache-size", 64);
+
+        // journal_mode is persistent in the database file, so setting it once on the writer is enough.
+        this.pool = new MCEngineEssentialConnectionPool("sqlite", plugin.getLogger(), () -> {
+            Connection conn = openConnection(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA journal_mode = " + journalMode);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
             }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to open SQLite connection: " + e.getMessage());
-        }
-        this.conn = tmp;
+            return conn;
+        }, new MCEngineEssentialPoolSettings(1, 1, 0L, 0L, "", acquireTimeout, statementCacheSize));
+
+        int readerCount = "WAL".equals(journalMode) ? plugin.getConfig().getInt("database.sqlite.readers", 4) : 0;
+        this.readers = readerCount <= 0 ? null : new MCEngineEssentialConnectionPool(
+                "sqlite-reader", plugin.getLogger(), () -> openConnection(true),
+                new MCEngineEssentialPoolSettings(1, readerCount, 600_000L, 0L, "", acquireTimeout, statementCacheSize));
     }
 
     /** {@inheritDoc} */
     @Override
-    public void executeQuery(String sql) {
-        try (Statement st = conn.createStatement()) {
-            st.execute(sql);
-        } catch (SQLException e) {
-            throw new RuntimeException("SQLite executeQuery failed: " + e.getMessage(), e);
-        }
+    protected MCEngineEssentialConnectionPool pool() {
+        return pool;
     }
 
     /** {@inheritDoc} */
     @Override
-    public <T> T getValue(String sql, Class<T> type) {
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
+    protected MCEngineEssentialConnectionPool readPool() {
+        return readers != null ? readers : pool;
+    }
+
+    /**
+     * Also retries on {@code SQLITE_BUSY} and {@code SQLITE_LOCKED}, e.g. when another
+     * process holds the write lock longer than the busy timeout.
+     */
+    @Override
+    protected boolean isRetryable(SQLException e) {
+        int code = e.getErrorCode() & 0xFF;
+        return code == 5 || code == 6 || super.isRetryable(e);
+    }
+
+    /**
+     * SQLite transactions are always serializable; only {@code READ_UNCOMMITTED} is
+     * passed to the driver, every other level is already satisfied.
+     */
+    @Override
+    protected void applyIsolation(Connection connection, MCEngineEssentialIsolation isolation) throws SQLException {
+        if (isolation == MCEngineEssentialIsolation.READ_UNCOMMITTED) super.applyIsolation(connection, isolation);
+    }
+
+    /**
+     * SQLite parses a statement in microseconds but syncs the journal on every commit, so
+     * bulk loads bind one single-row statement for every row and rely on the caller's
+     * transaction for a single sync.
+     */
+    @Override
+    protected void bulkInsert(Connection connection, String table, List<String> columns, List<Object[]> rows)
+            throws SQLException {
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (?"
+                + ", ?".repeat(columns.size() - 1) + ")";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Object[] row : rows) {
+                MCEngineEssentialTypeCodec.bind(ps, row);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
 
-            if (!rs.next()) return null;
-            Object raw = rs.getObject(1);
-            return coerce(raw, type);
+    /**
+     * Identifies the database a plugin's config points at: the canonical path of its file.
+     * Plugins with the same key can share one
+     * {@link io.github.mcengine.common.essential.MCEngineEssentialDBRuntime}.
+     *
+     * @param plugin Bukkit plugin instance
+     * @return connection key
+     */
+    public static String connectionKey(Plugin plugin) {
+        File file = databaseFile(plugin);
+        try {
+            return "sqlite:" + file.getCanonicalPath();
+        } catch (IOException e) {
+            return "sqlite:" + file.getAbsolutePath();
+        }
+    }
+
+    /** Resolves {@code database.sqlite.path} against the plugin data folder. */
+    private static File databaseFile(Plugin plugin) {
+        return new File(plugin.getDataFolder(), plugin.getConfig().getString("database.sqlite.path", "essential.db"));
+    }
 
+    /** Opens a connection to the database file and applies the configured pragmas. */
+    private Connection openConnection(boolean readOnly) throws SQLException {
+        Connection conn = DriverManager.getConnection(databaseUrl);
+        try (Statement pragma = conn.createStatement()) {
+            for (String p : pragmas) pragma.execute(p);
+            if (readOnly) pragma.execute("PRAGMA query_only = ON");
         } catch (SQLException e) {
-            throw new RuntimeException("SQLite getValue failed: " + e.getMessage(), e);
+            conn.close();
+            throw e;
         }
+        return conn;
     }
 
-    /** Coerces a JDBC scalar to the requested type. */
-    @SuppressWarnings("unchecked")
-    private static <T> T coerce(Object raw, Class<T> type) {
-        if (raw == null) return null;
-        if (type == String.class)  return (T) String.valueOf(raw);
-        if (type == Integer.class) return (T) Integer.valueOf(raw instanceof Number ? ((Number) raw).intValue() : Integer.parseInt(raw.toString()));
-        if (type == Long.class)    return (T) Long.valueOf(raw instanceof Number ? ((Number) raw).longValue() : Long.parseLong(raw.toString()));
-        if (type == Double.class)  return (T) Double.valueOf(raw instanceof Number ? ((Number) raw).doubleValue() : Double.parseDouble(raw.toString()));
-        if (type == Float.class)   return (T) Float.valueOf(raw instanceof Number ? ((Number) raw).floatValue() : Float.parseFloat(raw.toString()));
-        if (type == Boolean.class) {
-            if (raw instanceof Boolean b) return (T) b;
-            String s = raw.toString().trim().toLowerCase();
-            if ("1".equals(s) || "true".equals(s))  return (T) Boolean.TRUE;
-            if ("0".equals(s) || "false".equals(s)) return (T) Boolean.FALSE;
+    /** Reads a keyword-valued pragma from config, rejecting anything but a bare word. */
+    private String pragmaWord(String key, String def) {
+        String value = plugin.getConfig().getString("database.sqlite.pragma." + key, def).trim().toUpperCase(Locale.ROOT);
+        if (!value.matches("[A-Z0-9_]+")) {
+            plugin.getLogger().warning("Invalid SQLite pragma " + key + " '" + value + "', using " + def);
+            return def;
         }
-        throw new IllegalArgumentException("Unsupported scalar type: " + type.getName());
+        return value;
     }
 }
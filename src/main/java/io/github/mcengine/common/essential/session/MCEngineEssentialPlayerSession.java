@@ -0,0 +1,239 @@
+package io.github.mcengine.common.essential.session;
+
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeEvent;
+import io.github.mcengine.common.essential.database.MCEngineEssentialWrite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory copy of one player's rows in every registered {@link MCEngineEssentialPlayerTable}.
+ * <p>
+ * Reads are served from memory. Writes update memory and mark the column dirty; the owning
+ * {@link MCEngineEssentialPlayerSessionCache} sends dirty columns to the database in batches.
+ * All methods are thread-safe.
+ */
+public final class MCEngineEssentialPlayerSession {
+
+    /** Player this session belongs to. */
+    private final UUID uuid;
+
+    /** Rows by lower-cased table name, fixed at load time. */
+    private final Map<String, Row> rows;
+
+    /** Whether the player is on this server. */
+    private boolean online;
+
+    /** When the player went offline, in epoch milliseconds. */
+    private long offlineSince;
+
+    /** Set once the cache has dropped the session; writes are then rejected. */
+    private boolean evicted;
+
+    MCEngineEssentialPlayerSession(UUID uuid, Map<String, Row> rows) {
+        this.uuid = uuid;
+        this.rows = rows;
+        this.offlineSince = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the player's UUID.
+     *
+     * @return player UUID
+     */
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * Returns a cached column value.
+     *
+     * @param table  player table name
+     * @param column column name
+     * @param type   expected Java type, as declared by the table
+     * @param <T>    expected Java type
+     * @return the value, or {@code null} if it is SQL {@code NULL} or the player has no row yet
+     * @throws IllegalArgumentException if the table or column is unknown
+     * @throws ClassCastException       if {@code type} does not match the column
+     */
+    public synchronized <T> T get(String table, String column, Class<T> type) {
+        Row row = row(table);
+        return type.cast(row.values[row.table.index(column)]);
+    }
+
+    /**
+     * Returns a cached column value, or a default when it is {@code null}.
+     *
+     * @param table        player table name
+     * @param column       column name
+     * @param type         expected Java type, as declared by the table
+     * @param defaultValue returned for {@code null}
+     * @param <T>          expected Java type
+     * @return the value or {@code defaultValue}
+     */
+    public <T> T get(String table, String column, Class<T> type, T defaultValue) {
+        T value = get(table, column, type);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Updates a column in memory and marks it for the next flush.
+     *
+     * @param table  player table name
+     * @param column column name
+     * @param value  new value of the column's declared type, or {@code null}
+     * @throws IllegalArgumentException if the table or column is unknown or the value has the wrong type
+     * @throws IllegalStateException    if the session was evicted; load it again
+     */
+    public synchronized void set(String table, String column, Object value) {
+        if (evicted) throw new IllegalStateException("Essential session of " + uuid + " was evicted; load it again");
+        Row row = row(table);
+        int i = row.table.index(column);
+        Class<?> type = row.table.type(i);
+        if (value != null && !type.isInstance(value)) {
+            throw new IllegalArgumentException("Column " + column + " of " + row.table.getName() + " holds "
+                    + type.getSimpleName() + ", not " + value.getClass().getSimpleName());
+        }
+        row.values[i] = value;
+        row.dirty[i] = true;
+    }
+
+    /**
+     * Tells whether the player is on this server.
+     *
+     * @return {@code true} between pre-login and quit
+     */
+    public synchronized boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * Tells whether the session has changes not yet written to the database.
+     *
+     * @return {@code true} if any column is dirty
+     */
+    public synchronized boolean isDirty() {
+        for (Row row : rows.values()) {
+            for (boolean d : row.dirty) if (d) return true;
+        }
+        return false;
+    }
+
+    /** Tells whether the session caches the given table. */
+    boolean hasTable(String table) {
+        return rows.containsKey(table.toLowerCase(Locale.ROOT));
+    }
+
+    /** Marks the player online; fails if the session was evicted meanwhile. */
+    synchronized boolean markOnline() {
+        if (evicted) return false;
+        online = true;
+        return true;
+    }
+
+    /** Marks the player offline, starting the eviction clock. */
+    synchronized void markOffline() {
+        online = false;
+        offlineSince = System.currentTimeMillis();
+    }
+
+    /** Returns when the player went offline. */
+    synchronized long offlineSince() {
+        return offlineSince;
+    }
+
+    /** Evicts the session if the player is offline and nothing is left to write. */
+    synchronized boolean tryEvict() {
+        if (online || evicted || isDirty()) return false;
+        evicted = true;
+        return true;
+    }
+
+    /**
+     * Appends the statements writing every dirty column and clears the dirty flags.
+     * Rows that were not in the database at load time are upserted with their dirty columns,
+     * since another server may have inserted them meanwhile; the others are updated.
+     *
+     * @param type    backend type, selecting the upsert dialect
+     * @param writes  receives the statements
+     * @param undo    receives actions restoring the dirty state if the statements fail
+     * @param changes receives one change per written row, for other servers
+     */
+    synchronized void takeWrites(String type, List<MCEngineEssentialWrite> writes, List<Runnable> undo,
+                                 List<MCEngineEssentialChangeEvent> changes) {
+        for (Row row : rows.values()) {
+            List<String> names = new ArrayList<>();
+            List<Object> params = new ArrayList<>();
+            for (int i = 0; i < row.dirty.length; i++) {
+                if (!row.dirty[i]) continue;
+                names.add(row.table.getColumns().get(i));
+                params.add(row.values[i]);
+            }
+            if (names.isEmpty()) continue;
+
+            MCEngineEssentialPlayerTable t = row.table;
+            if (row.persisted) {
+                params.add(uuid);
+                writes.add(new MCEngineEssentialWrite("UPDATE " + t.getName() + " SET "
+                        + String.join(" = ?, ", names) + " = ? WHERE " + t.getKeyColumn() + " = ?", params.toArray()));
+            } else {
+                params.add(0, uuid);
+                writes.add(new MCEngineEssentialWrite(upsertSql(t, names, type), params.toArray()));
+            }
+
+            boolean[] taken = row.dirty.clone();
+            boolean wasPersisted = row.persisted;
+            Arrays.fill(row.dirty, false);
+            row.persisted = true;
+            undo.add(() -> restore(row, taken, wasPersisted));
+            changes.add(new MCEngineEssentialChangeEvent(t.getName(), uuid.toString()));
+        }
+    }
+
+    /** Puts back dirty flags taken by a failed flush. */
+    private synchronized void restore(Row row, boolean[] taken, boolean wasPersisted) {
+        for (int i = 0; i < taken.length; i++) row.dirty[i] |= taken[i];
+        row.persisted = wasPersisted;
+    }
+
+    /** Builds an insert of the key and {@code names} that updates those columns if the row exists. */
+    private static String upsertSql(MCEngineEssentialPlayerTable t, List<String> names, String type) {
+        String insert = "INSERT INTO " + t.getName() + " (" + t.getKeyColumn() + ", " + String.join(", ", names)
+                + ") VALUES (?" + ", ?".repeat(names.size()) + ")";
+        List<String> sets = new ArrayList<>(names.size());
+        if (type.equals("mysql")) {
+            for (String name : names) sets.add(name + " = VALUES(" + name + ")");
+            return insert + " ON DUPLICATE KEY UPDATE " + String.join(", ", sets);
+        }
+        for (String name : names) sets.add(name + " = excluded." + name);
+        return insert + " ON CONFLICT (" + t.getKeyColumn() + ") DO UPDATE SET " + String.join(", ", sets);
+    }
+
+    private Row row(String table) {
+        Row row = rows.get(table.toLowerCase(Locale.ROOT));
+        if (row == null) {
+            throw new IllegalArgumentException("Unknown player table " + table
+                    + " (player tables must be registered before sessions are loaded)");
+        }
+        return row;
+    }
+
+    /** One player's row in one table. */
+    static final class Row {
+        private final MCEngineEssentialPlayerTable table;
+        private final Object[] values;
+        private final boolean[] dirty;
+        private boolean persisted;
+
+        Row(MCEngineEssentialPlayerTable table, Object[] values, boolean persisted) {
+            this.table = table;
+            this.values = values;
+            this.dirty = new boolean[values.length];
+            this.persisted = persisted;
+        }
+    }
+}
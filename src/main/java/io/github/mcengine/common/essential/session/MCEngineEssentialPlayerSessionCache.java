@@ -0,0 +1,553 @@
+package io.github.mcengine.common.essential.session;
+
+import io.github.mcengine.common.essential.database.IMCEngineEssentialDB;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeBus;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeEvent;
+import io.github.mcengine.common.essential.database.MCEngineEssentialChangeListener;
+import io.github.mcengine.common.essential.database.MCEngineEssentialDBExecutor;
+import io.github.mcengine.common.essential.database.MCEngineEssentialWrite;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Player-scoped cache of the rows in the registered {@link MCEngineEssentialPlayerTable}s.
+ * <p>
+ * A player's rows are loaded during {@link AsyncPlayerPreLoginEvent}, which Bukkit fires off
+ * the main thread, so lookups while they are online are map reads instead of database round
+ * trips. Changed columns are written back in one batch every {@code flushIntervalMillis},
+ * and a player's changes are flushed as soon as they quit. Sessions of offline players are
+ * kept for {@code offlineLingerMillis}, so a quick rejoin needs no reload, then evicted; once
+ * more than {@code maxSessions} are cached, the longest-offline sessions go first. Sessions
+ * with unwritten changes and sessions of online players are never evicted.
+ * <p>
+ * A failed flush keeps the changes dirty and retries them on the next cycle, one player at
+ * a time, so a single bad row cannot hold back everyone else's data.
+ */
+public final class MCEngineEssentialPlayerSessionCache implements Listener {
+
+    /** Backend the rows are read from and written to. */
+    private final IMCEngineEssentialDB db;
+
+    /** Backend type, selecting the upsert dialect for new rows. */
+    private final String type;
+
+    /** Executor for {@link #loadAsync}. */
+    private final MCEngineEssentialDBExecutor executor;
+
+    /** Logger of the owning plugin. */
+    private final Logger logger;
+
+    /** How long sessions of offline players are kept. */
+    private final long offlineLingerMillis;
+
+    /** Session count above which offline sessions are evicted early. */
+    private final int maxSessions;
+
+    /** Whether a player whose data cannot be loaded is refused at login. */
+    private final boolean kickOnLoadFailure;
+
+    /** Registered player tables. */
+    private final List<MCEngineEssentialPlayerTable> tables = new CopyOnWriteArrayList<>();
+
+    /** Loaded sessions by player. */
+    private final ConcurrentHashMap<UUID, MCEngineEssentialPlayerSession> sessions = new ConcurrentHashMap<>();
+
+    /** Loads in progress, so concurrent loads of one player share a query. */
+    private final ConcurrentHashMap<UUID, CompletableFuture<MCEngineEssentialPlayerSession>> loading =
+            new ConcurrentHashMap<>();
+
+    /** Serializes flushes so dirty flags are taken and restored consistently. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /** Background flusher and evictor thread. */
+    private final ScheduledExecutorService flusher;
+
+    /** Number of sessions loaded from the database. */
+    private final AtomicLong loads = new AtomicLong();
+
+    /** Number of statements written. */
+    private final AtomicLong written = new AtomicLong();
+
+    /** Number of committed flushes. */
+    private final AtomicLong flushes = new AtomicLong();
+
+    /** Number of sessions evicted. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Bus other servers' changes arrive on and this cache's writes are published to; may be {@code null}. */
+    private volatile MCEngineEssentialChangeBus changeBus;
+
+    /** Subscription on {@link #changeBus}, removed on close since the bus may outlive the cache. */
+    private final MCEngineEssentialChangeListener remoteListener = this::onRemoteChanges;
+
+    /** Set once {@link #close()} has been called. */
+    private volatile boolean closed;
+
+    /**
+     * Creates the cache and starts its background flusher. Register it as a Bukkit listener
+     * so sessions follow logins and quits.
+     *
+     * @param db                  backend the rows are read from and written to
+     * @param type                backend type, selecting the upsert dialect for new rows
+     * @param executor            executor for {@link #loadAsync}
+     * @param logger              logger of the owning plugin
+     * @param flushIntervalMillis time between batched flushes
+     * @param offlineLingerMillis how long sessions of offline players are kept
+     * @param maxSessions         session count above which offline sessions are evicted early
+     * @param kickOnLoadFailure   refuse the login when a player's data cannot be loaded
+     */
+    public MCEngineEssentialPlayerSessionCache(IMCEngineEssentialDB db, String type,
+                                               MCEngineEssentialDBExecutor executor, Logger logger, long flushIntervalMillis, long offlineLingerMillis,
+                                               int maxSessions, boolean kickOnLoadFailure) {
+        this.db = db;
+        this.type = type;
+        this.executor = executor;
+        this.logger = logger;
+        this.offlineLingerMillis = Math.max(0L, offlineLingerMillis);
+        this.maxSessions = Math.max(1, maxSessions);
+        this.kickOnLoadFailure = kickOnLoadFailure;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MCEngineEssential-sessions");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(100L, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::cycle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds the cache from config keys:
+     * <ul>
+     *     <li>{@code database.sessions.flush-interval} in milliseconds (default: {@code 5000})</li>
+     *     <li>{@code database.sessions.offline-linger} in milliseconds (default: {@code 60000})</li>
+     *     <li>{@code database.sessions.max-sessions} (default: {@code 1000})</li>
+     *     <li>{@code database.sessions.kick-on-load-failure} (default: {@code true})</li>
+     * </ul>
+     *
+     * @param config   root configuration
+     * @param db       backend the rows are read from and written to
+     * @param type     backend type ({@code sqlite}, {@code mysql}, {@code postgresql} or {@code memory})
+     * @param executor executor for {@link #loadAsync}
+     * @param logger   logger of the owning plugin
+     * @return configured cache
+     */
+    public static MCEngineEssentialPlayerSessionCache fromConfig(ConfigurationSection config, IMCEngineEssentialDB db,
+                                                                 String type, MCEngineEssentialDBExecutor executor,
+                                                                 Logger logger) {
+        return new MCEngineEssentialPlayerSessionCache(
+                db,
+                type,
+                executor,
+                logger,
+                config.getLong("database.sessions.flush-interval", 5_000L),
+                config.getLong("database.sessions.offline-linger", 60_000L),
+                config.getInt("database.sessions.max-sessions", 1_000),
+                config.getBoolean("database.sessions.kick-on-load-failure", true));
+    }
+
+    /**
+     * Adds a table to the rows loaded for each player. Register tables while enabling,
+     * before players can join; sessions already loaded do not include later tables.
+     *
+     * @param table player table description
+     */
+    public void registerTable(MCEngineEssentialPlayerTable table) {
+        tables.removeIf(t -> t.getName().equalsIgnoreCase(table.getName()));
+        tables.add(table);
+    }
+
+    /**
+     * Connects the cache to a change bus: rows it writes are published per player, and
+     * offline sessions are dropped when another server changes their rows. Sessions of
+     * online players are kept, since this server owns their data while they are here.
+     *
+     * @param bus change bus shared by the servers
+     */
+    public void connect(MCEngineEssentialChangeBus bus) {
+        this.changeBus = bus;
+        bus.subscribe(remoteListener);
+    }
+
+    /**
+     * Returns the loaded session of a player.
+     *
+     * @param uuid player UUID
+     * @return the session, or {@code null} if not loaded
+     */
+    public MCEngineEssentialPlayerSession getSession(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    /**
+     * Returns a player's session, loading it on the calling thread if needed. Concurrent
+     * loads of the same player share one set of queries.
+     *
+     * @param uuid player UUID
+     * @return the session
+     * @throws RuntimeException if the rows cannot be loaded
+     */
+    public MCEngineEssentialPlayerSession load(UUID uuid) {
+        if (closed) throw new IllegalStateException("Essential session cache is closed");
+        MCEngineEssentialPlayerSession session = sessions.get(uuid);
+        if (session != null) return session;
+
+        CompletableFuture<MCEngineEssentialPlayerSession> mine = new CompletableFuture<>();
+        CompletableFuture<MCEngineEssentialPlayerSession> other = loading.putIfAbsent(uuid, mine);
+        if (other != null) {
+            try {
+                return other.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+        }
+        try {
+            session = sessions.get(uuid);
+            if (session == null) {
+                session = read(uuid);
+                sessions.put(uuid, session);
+                loads.incrementAndGet();
+            }
+            mine.complete(session);
+            return session;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(uuid, mine);
+        }
+    }
+
+    /**
+     * Loads a player's session on the Essential DB executor, e.g. to edit an offline
+     * player's data. The session stays cached for the offline linger time.
+     *
+     * @param uuid player UUID
+     * @return future completed with the session
+     */
+    public CompletableFuture<MCEngineEssentialPlayerSession> loadAsync(UUID uuid) {
+        MCEngineEssentialPlayerSession session = sessions.get(uuid);
+        if (session != null) return CompletableFuture.completedFuture(session);
+        return executor.submit(() -> load(uuid));
+    }
+
+    /**
+     * Loads the joining player's rows; runs on Bukkit's async pre-login thread.
+     *
+     * @param event pre-login event
+     */
+    @EventHandler(priority = EventPriority.LOW)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED || tables.isEmpty()) return;
+        try {
+            loadOnline(event.getUniqueId());
+        } catch (RuntimeException e) {
+            logger.warning("Could not load Essential data of " + event.getName() + ": " + e.getMessage());
+            if (kickOnLoadFailure) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                        "Could not load your player data, please try again shortly.");
+            }
+        }
+    }
+
+    /**
+     * Marks the session offline again when a later listener refused the login.
+     *
+     * @param event pre-login event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLoginResult(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        MCEngineEssentialPlayerSession session = sessions.get(event.getUniqueId());
+        if (session != null) session.markOffline();
+    }
+
+    /**
+     * Marks the session offline again when the server refused the login, e.g. because it
+     * is full or whitelisted, unless the player is still online from an earlier login.
+     *
+     * @param event login event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoginResult(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+        MCEngineEssentialPlayerSession session = sessions.get(event.getPlayer().getUniqueId());
+        if (session != null && !onlineElsewhere(event.getPlayer())) session.markOffline();
+    }
+
+    /**
+     * Marks the session online once the player has joined. The quit of an earlier
+     * connection with the same UUID may have marked it offline since pre-login; if it was
+     * evicted meanwhile, it is loaded again in the background.
+     *
+     * @param event join event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        if (tables.isEmpty()) return;
+        UUID uuid = event.getPlayer().getUniqueId();
+        MCEngineEssentialPlayerSession session = sessions.get(uuid);
+        if (session != null && session.markOnline()) return;
+        executor.submit(() -> loadOnline(uuid)).exceptionally(e -> {
+            logger.warning("Could not load Essential data of " + event.getPlayer().getName() + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Marks the session offline and flushes its changes in the background. The session
+     * stays online if another connection of the same player is already in.
+     *
+     * @param event quit event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        MCEngineEssentialPlayerSession session = sessions.get(event.getPlayer().getUniqueId());
+        if (session == null) return;
+        if (!onlineElsewhere(event.getPlayer())) session.markOffline();
+        if (!session.isDirty()) return;
+        try {
+            flusher.execute(() -> flushQuietly(List.of(session)));
+        } catch (RejectedExecutionException e) {
+            // Closing: the final flush picks it up.
+        }
+    }
+
+    /** Loads a player's session and marks it online, reloading it if it was evicted meanwhile. */
+    private MCEngineEssentialPlayerSession loadOnline(UUID uuid) {
+        MCEngineEssentialPlayerSession session = load(uuid);
+        while (!session.markOnline()) {
+            // Evicted between lookup and login: drop the stale entry and load again.
+            sessions.remove(uuid, session);
+            session = load(uuid);
+        }
+        return session;
+    }
+
+    /** Tells whether another online player object holds the same UUID. */
+    private static boolean onlineElsewhere(Player player) {
+        Player online = Bukkit.getPlayer(player.getUniqueId());
+        return online != null && online != player;
+    }
+
+    /**
+     * Writes every dirty session on the calling thread in one batch.
+     *
+     * @throws RuntimeException if the batch fails; the changes stay dirty
+     */
+    public void flush() {
+        flush(sessions.values());
+    }
+
+    /**
+     * Returns the number of cached sessions.
+     *
+     * @return session count
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of sessions loaded from the database.
+     *
+     * @return load count
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Returns the number of statements written by flushes.
+     *
+     * @return written statement count
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Returns the number of committed flushes.
+     *
+     * @return flush count
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Returns the number of evicted sessions.
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Stops the background flusher and writes every remaining change. Sessions whose
+     * changes still cannot be written are logged. Then leaves the change bus, if connected.
+     */
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warning("Essential session flush failed on shutdown, writing players one by one: " + e.getMessage());
+            flushIndividually(sessions.values());
+        }
+        MCEngineEssentialChangeBus bus = changeBus;
+        if (bus != null) bus.unsubscribe(remoteListener);
+    }
+
+    /** Loads one player's row from every registered table. */
+    private MCEngineEssentialPlayerSession read(UUID uuid) {
+        Map<String, MCEngineEssentialPlayerSession.Row> rows = new LinkedHashMap<>();
+        for (MCEngineEssentialPlayerTable table : tables) {
+            Object[] values;
+            try (Stream<Object[]> found = db.query(table.selectSql(), table::read, uuid)) {
+                values = found.findFirst().orElse(null);
+            }
+            rows.put(table.getName().toLowerCase(Locale.ROOT), values != null
+                    ? new MCEngineEssentialPlayerSession.Row(table, values, true)
+                    : new MCEngineEssentialPlayerSession.Row(table, new Object[table.getColumns().size()], false));
+        }
+        return new MCEngineEssentialPlayerSession(uuid, rows);
+    }
+
+    /** Writes the dirty columns of the given sessions in one batch. */
+    private void flush(Collection<MCEngineEssentialPlayerSession> targets) {
+        flushLock.lock();
+        try {
+            List<MCEngineEssentialWrite> writes = new ArrayList<>();
+            List<Runnable> undo = new ArrayList<>();
+            List<MCEngineEssentialChangeEvent> changes = new ArrayList<>();
+            for (MCEngineEssentialPlayerSession session : targets) session.takeWrites(type, writes, undo, changes);
+            if (writes.isEmpty()) return;
+            try {
+                db.executeBatch(writes);
+                written.addAndGet(writes.size());
+                flushes.incrementAndGet();
+            } catch (RuntimeException e) {
+                undo.forEach(Runnable::run);
+                throw e;
+            }
+            MCEngineEssentialChangeBus bus = changeBus;
+            if (bus != null) {
+                for (MCEngineEssentialChangeEvent change : changes) bus.publish(change.table(), change.key());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Background flush, falling back to one batch per player when the shared batch fails. */
+    private void flushQuietly(Collection<MCEngineEssentialPlayerSession> targets) {
+        try {
+            flush(targets);
+        } catch (RuntimeException e) {
+            logger.warning("Essential session flush failed, retrying players one by one: " + e.getMessage());
+            flushIndividually(targets);
+        }
+    }
+
+    /** Flushes each session on its own, logging those that still fail; their changes stay dirty. */
+    private void flushIndividually(Collection<MCEngineEssentialPlayerSession> targets) {
+        for (MCEngineEssentialPlayerSession session : targets) {
+            try {
+                flush(List.of(session));
+            } catch (RuntimeException e) {
+                logger.warning("Could not save Essential data of " + session.getUniqueId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Drops offline sessions whose rows another server changed. */
+    private void onRemoteChanges(Set<MCEngineEssentialChangeEvent> changes) {
+        for (MCEngineEssentialChangeEvent change : changes) {
+            if (change.isAll() || change.key() == null) {
+                boolean all = change.isAll();
+                for (MCEngineEssentialPlayerSession session : sessions.values()) {
+                    if (all || session.hasTable(change.table())) evict(session);
+                }
+                continue;
+            }
+            try {
+                MCEngineEssentialPlayerSession session = sessions.get(UUID.fromString(change.key()));
+                if (session != null && session.hasTable(change.table())) evict(session);
+            } catch (IllegalArgumentException notAPlayerKey) {
+                // Change to a row not keyed by player UUID.
+            }
+        }
+    }
+
+    /** Evicts a session if it is offline and clean. */
+    private void evict(MCEngineEssentialPlayerSession session) {
+        if (session.tryEvict() && sessions.remove(session.getUniqueId(), session)) evictions.incrementAndGet();
+    }
+
+    /** One background cycle: flush, then evict offline sessions. */
+    private void cycle() {
+        flushQuietly(sessions.values());
+        evict();
+    }
+
+    /** Evicts clean offline sessions past the linger time, or the longest-offline ones while over the bound. */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        int excess = sessions.size() - maxSessions;
+        // Snapshot the offline times so the sort is stable while players come and go.
+        Map<MCEngineEssentialPlayerSession, Long> offline = new HashMap<>();
+        for (MCEngineEssentialPlayerSession session : sessions.values()) {
+            if (!session.isOnline()) offline.put(session, session.offlineSince());
+        }
+        List<MCEngineEssentialPlayerSession> oldestFirst = new ArrayList<>(offline.keySet());
+        oldestFirst.sort(Comparator.comparingLong(offline::get));
+        for (MCEngineEssentialPlayerSession session : oldestFirst) {
+            boolean expired = now - offline.get(session) >= offlineLingerMillis;
+            if (!expired && excess <= 0) break;
+            if (session.tryEvict() && sessions.remove(session.getUniqueId(), session)) {
+                evictions.incrementAndGet();
+                excess--;
+            }
+        }
+    }
+}
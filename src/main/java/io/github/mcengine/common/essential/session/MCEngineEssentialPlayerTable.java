@@ -0,0 +1,128 @@
+package io.github.mcengine.common.essential.session;
+
+import io.github.mcengine.common.essential.database.MCEngineEssentialTypeCodec;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Describes a table holding one row per player, cached by {@link MCEngineEssentialPlayerSessionCache}.
+ * <p>
+ * The key column holds the player's {@link UUID} as text, the way
+ * {@link MCEngineEssentialTypeCodec} binds it. Each column is read with the typed getter
+ * of its declared type, e.g.:
+ * <pre>{@code
+ *   new MCEngineEssentialPlayerTable("essential_economy", "uuid",
+ *           Map.of("balance", Double.class, "last_payday", Long.class));
+ * }</pre>
+ */
+public final class MCEngineEssentialPlayerTable {
+
+    /** Accepted table and column names; they are inlined into SQL. */
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /** Table name. */
+    private final String name;
+
+    /** Column holding the player UUID. */
+    private final String keyColumn;
+
+    /** Cached columns in declaration order. */
+    private final List<String> columns;
+
+    /** Java type of each cached column, parallel to {@link #columns}. */
+    private final List<Class<?>> types;
+
+    /** {@code SELECT} loading one player's row. */
+    private final String selectSql;
+
+    /**
+     * Describes a player table.
+     *
+     * @param name      table name
+     * @param keyColumn column holding the player UUID
+     * @param columns   cached columns and their Java types
+     * @throws IllegalArgumentException if a name is not a plain SQL identifier or no column is given
+     */
+    public MCEngineEssentialPlayerTable(String name, String keyColumn, Map<String, Class<?>> columns) {
+        requireIdentifier(name);
+        requireIdentifier(keyColumn);
+        if (columns.isEmpty()) throw new IllegalArgumentException("Player table " + name + " has no columns");
+        List<String> names = new ArrayList<>();
+        List<Class<?>> classes = new ArrayList<>();
+        for (Map.Entry<String, Class<?>> column : new LinkedHashMap<>(columns).entrySet()) {
+            requireIdentifier(column.getKey());
+            names.add(column.getKey());
+            classes.add(column.getValue());
+        }
+        this.name = name;
+        this.keyColumn = keyColumn;
+        this.columns = Collections.unmodifiableList(names);
+        this.types = Collections.unmodifiableList(classes);
+        this.selectSql = "SELECT " + String.join(", ", names) + " FROM " + name + " WHERE " + keyColumn + " = ?";
+    }
+
+    /**
+     * Returns the table name.
+     *
+     * @return table name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the column holding the player UUID.
+     *
+     * @return key column
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * Returns the cached columns in declaration order.
+     *
+     * @return column names
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /** Returns the position of a column, failing on unknown names. */
+    int index(String column) {
+        int i = columns.indexOf(column);
+        if (i < 0) throw new IllegalArgumentException("Unknown column " + column + " in player table " + name);
+        return i;
+    }
+
+    /** Returns the Java type of the column at a position. */
+    Class<?> type(int index) {
+        return types.get(index);
+    }
+
+    /** Returns the statement loading one player's row. */
+    String selectSql() {
+        return selectSql;
+    }
+
+    /** Reads the cached columns of the current row. */
+    Object[] read(ResultSet rs) throws SQLException {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) values[i] = MCEngineEssentialTypeCodec.read(rs, i + 1, types.get(i));
+        return values;
+    }
+
+    private static void requireIdentifier(String identifier) {
+        if (identifier == null || !IDENTIFIER.matcher(identifier).matches()) {
+            throw new IllegalArgumentException("Invalid SQL identifier for a player table: " + identifier);
+        }
+    }
+}